@@ -15,6 +15,7 @@ import org.dspace.core.ConfigurationManager;
 import org.dspace.servicemanager.DSpaceKernelImpl;
 import org.dspace.servicemanager.DSpaceKernelInit;
 import org.dspace.services.RequestService;
+import org.dspace.statistics.SolrLoggerQueue;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.input.SAXBuilder;
@@ -76,6 +77,9 @@ public class ScriptLauncher
         int status;
         status = runOneCommand(args);
 
+        // Post any usage events the command queued
+        SolrLoggerQueue.shutdown();
+
         // Destroy the service kernel if it is still alive
         if (kernelImpl != null)
         {
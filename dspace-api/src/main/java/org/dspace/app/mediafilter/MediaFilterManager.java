@@ -7,13 +7,32 @@
  */
 package org.dspace.app.mediafilter;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -51,8 +70,21 @@ import org.dspace.search.DSIndexer;
  * MFM: -v verbose outputs all extracted text to STDOUT; -f force forces all
  * bitstreams to be processed, even if they have been before; -n noindex does not
  * recreate index after processing bitstreams; -i [identifier] limits processing 
- * scope to a community, collection or item; and -m [max] limits processing to a
- * maximum number of items.
+ * scope to a community, collection or item; -m [max] limits processing to a
+ * maximum number of items; and -t [threads] filters that many items at once.
+ * <p>
+ * With more than one thread (<code>filter.threads</code> in dspace.cfg, or -t),
+ * items are handed to a pool of workers, each with its own Context, which
+ * commit every <code>filter.batch.size</code> filtered items; an item which
+ * fails is reported at the end of the run, and the others are filtered
+ * nonetheless. Each filter may
+ * limit how many bitstreams it works on at once
+ * (<code>filter.&lt;class-name&gt;[.&lt;plugin-name&gt;].threads</code>) and
+ * how long it may take over one bitstream, in seconds
+ * (<code>filter.&lt;class-name&gt;[.&lt;plugin-name&gt;].timeout</code>, or
+ * <code>filter.timeout</code> for all filters); a bitstream which takes longer
+ * is skipped. The throughput and failures of each filter are reported at the
+ * end of the run.
  */
 public class MediaFilterManager
 {
@@ -67,6 +99,12 @@ public class MediaFilterManager
     //suffix (in dspace.cfg) for input formats supported by each filter
     public static final String INPUT_FORMATS_SUFFIX = "inputFormats";
 
+    //suffix (in dspace.cfg) for the number of bitstreams each filter may work on at once
+    public static final String THREADS_SUFFIX = "threads";
+
+    //suffix (in dspace.cfg) for the seconds each filter may take over a bitstream
+    public static final String TIMEOUT_SUFFIX = "timeout";
+
     static boolean isVerbose = false; // default to not verbose
 
     static boolean isQuiet = false; // default is noisy
@@ -77,14 +115,32 @@ public class MediaFilterManager
     
     static int max2Process = Integer.MAX_VALUE;  // maximum number items to process
     
-    static int processed = 0;   // number items processed
+    static final AtomicInteger processed = new AtomicInteger();   // number items processed
+    
+    static int threads = ConfigurationManager.getIntProperty("filter.threads", 1);   // number of items filtered at once
     
-    private static Item currentItem = null;   // current item being processed
+    static int batchSize = ConfigurationManager.getIntProperty("filter.batch.size", 10);   // filtered items per commit, with threads
+    
+    private static final ThreadLocal<Item> currentItem = new ThreadLocal<>();   // current item being processed
     
     private static FormatFilter[] filterClasses = null;
     
     private static final Map<String, List<String>> filterFormats = new HashMap<>();
 
+    private static final Map<String, Semaphore> filterPermits = new HashMap<>();   // limits on bitstreams filtered at once
+
+    private static final Map<String, Long> filterTimeouts = new HashMap<>();   // milliseconds per bitstream
+
+    private static final Map<String, FilterStats> filterStats = new LinkedHashMap<>();
+
+    private static ExecutorService filterExecutor = null;   // runs filters which have a timeout
+
+    private static ScheduledExecutorService filterWatchdog = null;   // closes their streams when they run out of time
+
+    private static BlockingQueue<Integer> itemQueue = null;   // items waiting for a worker, with threads
+
+    private static volatile Exception workerFailure = null;   // first error of a worker
+
     private static List<String> skipList = null; //list of identifiers to skip during processing
 
     private static final List<String> publicFiltersClasses = new ArrayList<>();
@@ -125,6 +181,8 @@ public class MediaFilterManager
         		"ONLY process bitstreams belonging to identifier");
         options.addOption("m", "maximum", true,
 				"process no more than maximum items");
+        options.addOption("t", "threads", true,
+                "number of items to filter at once");
         options.addOption("h", "help", false, "help");
 
         //create a "plugin" option (to specify specific MediaFilter plugins to run)
@@ -199,6 +257,22 @@ public class MediaFilterManager
         	}
         }
 
+        if (line.hasOption('t'))
+        {
+            try
+            {
+                threads = Integer.parseInt(line.getOptionValue('t'));
+            }
+            catch (NumberFormatException nfe)
+            {
+                System.err.println("\nERROR: the number of threads '" + line.getOptionValue('t')
+                        + "' is not an integer\n");
+                HelpFormatter myhelp = new HelpFormatter();
+                myhelp.printHelp("MediaFilterManager\n", options);
+                System.exit(1);
+            }
+        }
+
         String filterNames[] = null;
         if(line.hasOption('p'))
         {
@@ -275,6 +349,8 @@ public class MediaFilterManager
         	            (pluginName!=null ? FILTER_PLUGIN_SEPARATOR + pluginName : ""),
         	            Arrays.asList(formats.split(",[\\s]*")));
                 }
+
+                configureFilter(filter, filterNames[i]);
             }//end if filter!=null
         }//end for
         
@@ -334,6 +410,11 @@ public class MediaFilterManager
             // have to be super-user to do the filtering
             c.turnOffAuthorisationSystem();
 
+            if (threads > 1)
+            {
+                startWorkers();
+            }
+
             // now apply the filters
             if (identifier == null)
             {
@@ -362,20 +443,40 @@ public class MediaFilterManager
             	}
             }
 
+            if (itemQueue != null)
+            {
+                finishWorkers();
+            }
+
             c.complete();
             c = null;
         }
         catch (Exception e)
         {
+            log.error("Error filtering media: " + e.getMessage(), e);
             status = 1;
         }
         finally
         {
+            if (itemQueue != null)
+            {
+                // let the workers commit what they have filtered
+                try
+                {
+                    finishWorkers();
+                }
+                catch (Exception e)
+                {
+                    log.error("Error filtering media: " + e.getMessage(), e);
+                }
+            }
             if (c != null)
             {
                 c.abort();
             }
         }
+
+        printStats();
         System.exit(status);
     }
 
@@ -398,7 +499,7 @@ public class MediaFilterManager
             ItemIterator i = Item.findAll(c);
             try
             {
-                while (i.hasNext() && processed < max2Process)
+                while (i.hasNext() && processed.get() < max2Process)
                 {
                     applyFiltersItem(c, i.next());
                 }
@@ -441,7 +542,7 @@ public class MediaFilterManager
             ItemIterator i = collection.getItems();
             try
             {
-                while (i.hasNext() && processed < max2Process)
+                while (i.hasNext() && processed.get() < max2Process)
                 {
                     applyFiltersItem(c, i.next());
                 }
@@ -461,23 +562,207 @@ public class MediaFilterManager
         //only apply filters if item not in skip-list
         if(!inSkipList(item.getHandle()))
         {
-    	  //cache this item in MediaFilterManager
-    	  //so it can be accessed by MediaFilters as necessary
-    	  currentItem = item;
-    	
-          if (filterItem(c, item))
+          if (itemQueue != null)
+          {
+              // hand the item to a worker, which filters it in its own context
+              itemQueue.put(item.getID());
+              item.decache();
+          }
+          else if (applyFilters(c, item))
           {
         	  // commit changes after each filtered item
         	  c.commit();
-              // increment processed count
-              ++processed;
           }
-          // clear item objects from context cache and internal cache
-          item.decache();
-          currentItem = null;
         }  
     }
 
+    /**
+     * Filter an item and clear it from the context cache, without committing.
+     * 
+     * @return true if any bitstreams processed
+     */
+    private static boolean applyFilters(Context c, Item item) throws Exception
+    {
+        //cache this item in MediaFilterManager
+        //so it can be accessed by MediaFilters as necessary
+        currentItem.set(item);
+        try
+        {
+            boolean done = filterItem(c, item);
+            if (done)
+            {
+                // increment processed count
+                processed.incrementAndGet();
+            }
+            return done;
+        }
+        finally
+        {
+            // clear item objects from context cache and internal cache
+            item.decache();
+            currentItem.remove();
+        }
+    }
+
+    /**
+     * Start the workers which filter the items handed to them by
+     * applyFiltersItem.
+     */
+    static void startWorkers()
+    {
+        itemQueue = new ArrayBlockingQueue<>(threads * batchSize);
+        workerFailure = null;
+        failedItems.clear();
+        for (int i = 0; i < threads; i++)
+        {
+            Thread worker = new Thread(new Worker(), "filter-media-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Wait for the workers to filter the remaining items, and stop them.
+     */
+    static void finishWorkers() throws Exception
+    {
+        for (int i = 0; i < workers.size(); i++)
+        {
+            itemQueue.put(NO_MORE_ITEMS);
+        }
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+        workers.clear();
+        itemQueue = null;
+
+        if (!failedItems.isEmpty())
+        {
+            log.error("Items not filtered because of errors (IDs): " + failedItems);
+            System.out.println("Items not filtered because of errors (IDs): " + failedItems);
+        }
+        if (workerFailure != null)
+        {
+            throw workerFailure;
+        }
+    }
+
+    /** Handed to the workers after the last item */
+    private static final Integer NO_MORE_ITEMS = Integer.valueOf(-1);
+
+    /** The running workers */
+    private static final List<Thread> workers = new ArrayList<>();
+
+    /** IDs of the items the workers failed to filter */
+    private static final List<Integer> failedItems = Collections.synchronizedList(new ArrayList<Integer>());
+
+    /**
+     * A worker filtering the items in the queue in its own Context, and
+     * committing every batchSize filtered items. When an item fails, the
+     * changes since the last commit are rolled back, the other items they
+     * were for are filtered again in a new Context, each committed on its
+     * own, and the worker goes on with the queue; the failed items are
+     * reported at the end.
+     */
+    private static class Worker implements Runnable
+    {
+        public void run()
+        {
+            Context context = null;
+            List<Integer> uncommitted = new ArrayList<>();
+            try
+            {
+                context = openContext();
+
+                Integer id;
+                while (!NO_MORE_ITEMS.equals(id = itemQueue.take()))
+                {
+                    if (processed.get() >= max2Process)
+                    {
+                        continue;
+                    }
+
+                    try
+                    {
+                        Item item = Item.find(context, id);
+                        if (item != null && applyFilters(context, item))
+                        {
+                            uncommitted.add(id);
+                            if (uncommitted.size() >= batchSize)
+                            {
+                                context.commit();
+                                uncommitted.clear();
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        failed(id, e);
+                        context.abort();
+                        context = openContext();
+
+                        // their changes were rolled back too
+                        processed.addAndGet(-uncommitted.size());
+                        for (Integer rolledBack : uncommitted)
+                        {
+                            try
+                            {
+                                Item item = Item.find(context, rolledBack);
+                                if (item != null && applyFilters(context, item))
+                                {
+                                    context.commit();
+                                }
+                            }
+                            catch (Exception again)
+                            {
+                                failed(rolledBack, again);
+                                context.abort();
+                                context = openContext();
+                            }
+                        }
+                        uncommitted.clear();
+                    }
+                }
+
+                context.complete();
+                context = null;
+            }
+            catch (Exception e)
+            {
+                log.error("Error in media filter worker: " + e.getMessage(), e);
+                if (workerFailure == null)
+                {
+                    workerFailure = e;
+                }
+            }
+            finally
+            {
+                if (context != null)
+                {
+                    context.abort();
+                }
+            }
+        }
+
+        private Context openContext() throws SQLException
+        {
+            Context context = new Context();
+            context.turnOffAuthorisationSystem();
+            return context;
+        }
+
+        private void failed(Integer id, Exception e)
+        {
+            log.error("Error filtering item " + id + ": " + e.getMessage(), e);
+            failedItems.add(id);
+            if (workerFailure == null)
+            {
+                workerFailure = e;
+            }
+        }
+    }
+
     /**
      * Iterate through the item's bitstreams in the ORIGINAL bundle, applying
      * filters if possible.
@@ -574,6 +859,7 @@ public class MediaFilterManager
                 	System.out.println("\tAsset Store: " + assetstore);
                 	System.out.println(e);
                     e.printStackTrace();
+                    getStats(filterClasses[i]).failed();
                 }
     		}
             else if (filterClasses[i] instanceof SelfRegisterInputFormats)
@@ -647,6 +933,7 @@ public class MediaFilterManager
                         System.out.println("ERROR filtering, skipping bitstream #"
                                 + myBitstream.getID() + " " + e);
                         e.printStackTrace();
+                        getStats(filterClasses[i]).failed();
                     }
                 }
             }
@@ -731,7 +1018,7 @@ public class MediaFilterManager
         InputStream destStream;
         try {
             System.out.println("File: " + newName);
-            destStream = formatFilter.getDestinationStream(source.retrieve());
+            destStream = runFilter(formatFilter, item, source);
             if (destStream == null)
             {
                 if (!isQuiet)
@@ -746,22 +1033,32 @@ public class MediaFilterManager
         catch (OutOfMemoryError oome)
         {
             System.out.println("!!! OutOfMemoryError !!!");
+            getStats(formatFilter).failed();
             return false;
         }
 
-        // create new bundle if needed
-        if (bundles.length < 1)
+        Bitstream b;
+        try
         {
-            targetBundle = item.createBundle(formatFilter.getBundleName());
+            // create new bundle if needed
+            if (bundles.length < 1)
+            {
+                targetBundle = item.createBundle(formatFilter.getBundleName());
+            }
+            else
+            {
+                // take the first match
+                targetBundle = bundles[0];
+            }
+
+            b = targetBundle.createBitstream(destStream);
         }
-        else
+        finally
         {
-            // take the first match
-            targetBundle = bundles[0];
+            // releases the filter's permit, however storing went
+            closeQuietly(destStream);
         }
 
-        Bitstream b = targetBundle.createBitstream(destStream);
-
         // Now set the format and name of the bitstream
         b.setName(newName);
         b.setSource("Written by FormatFilter " + formatFilter.getClass().getName() +
@@ -819,7 +1116,473 @@ public class MediaFilterManager
      */
     public static Item getCurrentItem()
     {
-        return currentItem;
+        return currentItem.get();
+    }
+
+    /**
+     * Run a filter over a bitstream, within the limits configured for the
+     * filter: the number of bitstreams it may work on at once, and the time
+     * it may take.
+     * 
+     * @return the filtered stream, or null if the filter failed or ran out
+     *         of time
+     */
+    private static InputStream runFilter(final FormatFilter formatFilter, final Item item, Bitstream source)
+            throws Exception
+    {
+        String key = getFilterKey(formatFilter);
+        final FilterStats stats = getStats(formatFilter);
+        final Semaphore permits = filterPermits.get(key);
+        Long timeout = filterTimeouts.get(key);
+        long start = System.currentTimeMillis();
+
+        // Wait for a permit before opening the bitstream, so that waiting
+        // filters hold no file handle or connection to the store
+        if (permits != null)
+        {
+            if (timeout == null)
+            {
+                permits.acquire();
+            }
+            else if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+            {
+                System.out.println("TIMEOUT: bitstream " + source.getID()
+                        + " (item: " + item.getHandle() + ") waiting for " + stats.name);
+                stats.timedOut();
+                return null;
+            }
+        }
+
+        final Permit permit = new Permit(permits);
+        final InputStream in;
+        try
+        {
+            in = source.retrieve();
+        }
+        catch (Exception e)
+        {
+            permit.release();
+            throw e;
+        }
+
+        InputStream destStream = null;
+        if (timeout == null)
+        {
+            try
+            {
+                destStream = formatFilter.getDestinationStream(in);
+            }
+            finally
+            {
+                if (destStream == null)
+                {
+                    permit.release();
+                }
+            }
+        }
+        else
+        {
+            // The permit is held until the filter really stops, so that
+            // filters which ran out of time still count against the limit.
+            // A stream returned once the caller has given up is closed.
+            final boolean[] abandoned = { false };
+            final boolean[] returned = { false };
+            Future<InputStream> future = getFilterExecutor().submit(new Callable<InputStream>()
+            {
+                public InputStream call() throws Exception
+                {
+                    currentItem.set(item);
+                    InputStream result = null;
+                    try
+                    {
+                        result = formatFilter.getDestinationStream(in);
+                        return result;
+                    }
+                    finally
+                    {
+                        currentItem.remove();
+                        synchronized (abandoned)
+                        {
+                            returned[0] = (result != null);
+                            if (result == null || abandoned[0])
+                            {
+                                closeQuietly(result);
+                                permit.release();
+                            }
+                        }
+                    }
+                }
+            });
+
+            try
+            {
+                destStream = future.get(timeout, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                synchronized (abandoned)
+                {
+                    abandoned[0] = true;
+                    if (returned[0])
+                    {
+                        // the filter finished meanwhile
+                        closeQuietly(future.get());
+                        permit.release();
+                    }
+                }
+                future.cancel(true);
+                in.close();
+                System.out.println("TIMEOUT: bitstream " + source.getID()
+                        + " (item: " + item.getHandle() + ") took more than "
+                        + (timeout / 1000) + "s in " + stats.name);
+                stats.timedOut();
+                return null;
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception)
+                {
+                    throw (Exception) e.getCause();
+                }
+                throw (Error) e.getCause();
+            }
+        }
+
+        if (destStream == null)
+        {
+            stats.failed();
+            return null;
+        }
+
+        stats.filtered(source.getSize(), System.currentTimeMillis() - start);
+        if (permits == null && timeout == null)
+        {
+            return destStream;
+        }
+        // Filters such as the streaming PDFFilter go on working while their
+        // stream is read, so it holds the permit and is bound by the timeout
+        return new LimitedStream(destStream, permit,
+                (timeout == null) ? -1 : start + timeout - System.currentTimeMillis());
+    }
+
+    private static void closeQuietly(InputStream stream)
+    {
+        if (stream != null)
+        {
+            try
+            {
+                stream.close();
+            }
+            catch (IOException e)
+            {
+                log.warn("Error closing filtered stream: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Return the scheduler closing the streams of filters which ran out of
+     * time. Its thread doesn't keep the JVM alive.
+     */
+    private static synchronized ScheduledExecutorService getFilterWatchdog()
+    {
+        if (filterWatchdog == null)
+        {
+            filterWatchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "filter-media-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return filterWatchdog;
+    }
+
+    /**
+     * A permit of a filter, released once only.
+     */
+    private static class Permit
+    {
+        private final Semaphore permits;
+
+        private final AtomicBoolean held;
+
+        /**
+         * @param permits
+         *            the permits of the filter, one of which has been
+         *            acquired, or null if the filter has no limit
+         */
+        Permit(Semaphore permits)
+        {
+            this.permits = permits;
+            this.held = new AtomicBoolean(permits != null);
+        }
+
+        void release()
+        {
+            if (held.compareAndSet(true, false))
+            {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * The stream returned by a filter, which holds the filter's permit until
+     * it is read to the end, fails or is closed, and which is closed when the
+     * filter runs out of time, however far it has been read.
+     */
+    private static class LimitedStream extends FilterInputStream
+    {
+        private final Permit permit;
+
+        private final Future<?> watchdog;
+
+        private volatile boolean timedOut = false;
+
+        /**
+         * @param in
+         *            the stream returned by the filter
+         * @param permit
+         *            the permit of the filter
+         * @param remaining
+         *            the milliseconds left before the filter runs out of
+         *            time, or -1 for no limit
+         */
+        LimitedStream(InputStream in, Permit permit, long remaining)
+        {
+            super(in);
+            this.permit = permit;
+            if (remaining < 0)
+            {
+                watchdog = null;
+            }
+            else
+            {
+                watchdog = getFilterWatchdog().schedule(new Runnable()
+                {
+                    public void run()
+                    {
+                        timedOut = true;
+                        closeQuietly(LimitedStream.this.in);
+                    }
+                }, remaining, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public int read() throws IOException
+        {
+            try
+            {
+                return ended(super.read());
+            }
+            catch (IOException e)
+            {
+                throw failed(e);
+            }
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            try
+            {
+                return ended(super.read(b, off, len));
+            }
+            catch (IOException e)
+            {
+                throw failed(e);
+            }
+        }
+
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                finish();
+            }
+        }
+
+        private int ended(int count) throws IOException
+        {
+            if (timedOut)
+            {
+                throw new IOException("The filter ran out of time");
+            }
+            if (count == -1)
+            {
+                finish();
+            }
+            return count;
+        }
+
+        private IOException failed(IOException e)
+        {
+            finish();
+            return timedOut ? new IOException("The filter ran out of time", e) : e;
+        }
+
+        private void finish()
+        {
+            if (watchdog != null)
+            {
+                watchdog.cancel(false);
+            }
+            permit.release();
+        }
+    }
+
+    /**
+     * Return the executor running filters which have a timeout. Its threads
+     * don't keep the JVM alive, as a filter which ran out of time may never
+     * stop.
+     */
+    private static synchronized ExecutorService getFilterExecutor()
+    {
+        if (filterExecutor == null)
+        {
+            filterExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                private int count = 0;
+
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "filter-media-timed-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return filterExecutor;
+    }
+
+    /**
+     * Return the key of a filter in the maps of formats, limits and
+     * statistics: its class name, followed for SelfNamedPlugins by the
+     * separator and its plugin name.
+     */
+    private static String getFilterKey(FormatFilter formatFilter)
+    {
+        String pluginName = null;
+        if (SelfNamedPlugin.class.isAssignableFrom(formatFilter.getClass()))
+        {
+            pluginName = ((SelfNamedPlugin) formatFilter).getPluginInstanceName();
+        }
+        return formatFilter.getClass().getName()
+                + (pluginName != null ? FILTER_PLUGIN_SEPARATOR + pluginName : "");
+    }
+
+    /**
+     * Read the limits on a filter from dspace.cfg, and start its statistics.
+     * 
+     * @param formatFilter
+     *            the filter
+     * @param name
+     *            the name of the filter in filter.plugins
+     */
+    private static void configureFilter(FormatFilter formatFilter, String name)
+    {
+        String key = getFilterKey(formatFilter);
+        String prefix = FILTER_PREFIX + "." + key.replace(FILTER_PLUGIN_SEPARATOR, ".") + ".";
+
+        int permits = ConfigurationManager.getIntProperty(prefix + THREADS_SUFFIX, 0);
+        if (permits > 0)
+        {
+            filterPermits.put(key, new Semaphore(permits));
+        }
+
+        int timeout = ConfigurationManager.getIntProperty(prefix + TIMEOUT_SUFFIX,
+                ConfigurationManager.getIntProperty(FILTER_PREFIX + "." + TIMEOUT_SUFFIX, 0));
+        if (timeout > 0)
+        {
+            filterTimeouts.put(key, Long.valueOf(timeout * 1000L));
+        }
+
+        filterStats.put(key, new FilterStats(name));
+    }
+
+    private static FilterStats getStats(FormatFilter formatFilter)
+    {
+        String key = getFilterKey(formatFilter);
+        synchronized (filterStats)
+        {
+            FilterStats stats = filterStats.get(key);
+            if (stats == null)
+            {
+                // a filter not set up by main()
+                stats = new FilterStats(key);
+                filterStats.put(key, stats);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Print the throughput and failures of each filter.
+     */
+    private static void printStats()
+    {
+        for (FilterStats stats : filterStats.values())
+        {
+            if (!isQuiet || stats.failed > 0 || stats.timedOut > 0)
+            {
+                System.out.println(stats);
+            }
+        }
+    }
+
+    /**
+     * The bitstreams a filter worked on, and how fast.
+     */
+    private static class FilterStats
+    {
+        private final String name;
+
+        private int filtered = 0;
+
+        private int failed = 0;
+
+        private int timedOut = 0;
+
+        private long bytes = 0;
+
+        private long millis = 0;
+
+        FilterStats(String name)
+        {
+            this.name = name;
+        }
+
+        synchronized void filtered(long size, long time)
+        {
+            filtered++;
+            bytes += size;
+            millis += time;
+        }
+
+        synchronized void failed()
+        {
+            failed++;
+        }
+
+        synchronized void timedOut()
+        {
+            timedOut++;
+        }
+
+        public synchronized String toString()
+        {
+            double seconds = Math.max(millis, 1) / 1000.0;
+            return String.format("%s: %d filtered (%.1f MB in %.0fs, %.2f MB/s, %.1f per second), %d failed, %d timed out",
+                    name, filtered, bytes / 1048576.0, millis / 1000.0, bytes / 1048576.0 / seconds,
+                    filtered / seconds, failed, timedOut);
+        }
     }
     
     /**
@@ -12,12 +12,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.Writer;
 
 import org.apache.log4j.Logger;
+import org.apache.pdfbox.io.RandomAccessFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.util.PDFTextStripper;
 import org.dspace.core.ConfigurationManager;
 
@@ -32,6 +39,12 @@ public class PDFFilter extends MediaFilter
 
     private static Logger log = Logger.getLogger(PDFFilter.class);
 
+    /** Number of pages extracted before the text is passed on, in streaming mode */
+    static final int PAGES_PER_RANGE = 10;
+
+    /** Size of the pipe between the text extraction and the bitstream storage */
+    private static final int PIPE_SIZE = 65536;
+
     public String getFilteredName(String oldFilename)
     {
         return oldFilename + ".txt";
@@ -73,76 +86,378 @@ public class PDFFilter extends MediaFilter
     {
         try
         {
+            long maxTextSize = ConfigurationManager.getLongProperty("pdffilter.maxtextsize", 0);
+
+            if (ConfigurationManager.getBooleanProperty("pdffilter.streaming", false))
+            {
+                return getTextStream(source, maxTextSize);
+            }
+
             boolean useTemporaryFile = ConfigurationManager.getBooleanProperty("pdffilter.largepdfs", false);
+            return getText(source, useTemporaryFile, maxTextSize);
+        }
+        catch (OutOfMemoryError oome)
+        {
+            log.error("Error parsing PDF document " + oome.getMessage(), oome);
+            if (!ConfigurationManager.getBooleanProperty("pdffilter.skiponmemoryexception", false))
+            {
+                throw oome;
+            }
+        }
 
-            // get input stream from bitstream
-            // pass to filter, get string back
-            PDFTextStripper pts = new PDFTextStripper();
-            PDDocument pdfDoc = null;
-            Writer writer = null;
-            File tempTextFile = null;
-            ByteArrayOutputStream byteStream = null;
+        return null;
+    }
 
-            if (useTemporaryFile)
+    /**
+     * Extract all the text of a PDF before returning it, in memory or in a
+     * temporary file.
+     * 
+     * @param source
+     *            the PDF
+     * @param useTemporaryFile
+     *            true to keep the text in a temporary file, rather than memory
+     * @param maxTextSize
+     *            the number of characters after which the text is cut off, or
+     *            0 for no limit
+     * @return the text
+     */
+    InputStream getText(InputStream source, boolean useTemporaryFile, long maxTextSize)
+            throws IOException
+    {
+        // get input stream from bitstream
+        // pass to filter, get string back
+        PDFTextStripper pts = new PDFTextStripper();
+        PDDocument pdfDoc = null;
+        Writer writer = null;
+        File tempTextFile = null;
+        ByteArrayOutputStream byteStream = null;
+
+        if (useTemporaryFile)
+        {
+            tempTextFile = File.createTempFile("dspacepdfextract" + source.hashCode(), ".txt");
+            tempTextFile.deleteOnExit();
+            writer = new OutputStreamWriter(new FileOutputStream(tempTextFile));
+        }
+        else
+        {
+            byteStream = new ByteArrayOutputStream();
+            writer = new OutputStreamWriter(byteStream);
+        }
+        writer = new LimitedWriter(writer, maxTextSize);
+        
+        try
+        {
+            pdfDoc = PDDocument.load(source);
+            pts.writeText(pdfDoc, writer);
+        }
+        catch (TextLimitException e)
+        {
+            log.warn(e.getMessage());
+        }
+        finally
+        {
+            try
             {
-                tempTextFile = File.createTempFile("dspacepdfextract" + source.hashCode(), ".txt");
-                tempTextFile.deleteOnExit();
-                writer = new OutputStreamWriter(new FileOutputStream(tempTextFile));
+                if (pdfDoc != null)
+                {
+                    pdfDoc.close();
+                }
             }
-            else
+            catch(Exception e)
             {
-                byteStream = new ByteArrayOutputStream();
-                writer = new OutputStreamWriter(byteStream);
+               log.error("Error closing PDF file: " + e.getMessage(), e);
             }
-            
+
             try
             {
-                pdfDoc = PDDocument.load(source);
-                pts.writeText(pdfDoc, writer);
+                writer.close();
             }
-            finally
+            catch(Exception e)
+            {
+               log.error("Error closing temporary extract file: " + e.getMessage(), e);
+            }
+        }
+
+        if (useTemporaryFile)
+        {
+            return new FileInputStream(tempTextFile);
+        }
+        else
+        {
+            byte[] bytes = byteStream.toByteArray();
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
+    /**
+     * Return the text of a PDF as it is extracted. The PDF is loaded here,
+     * keeping the contents of its streams in a scratch file rather than in
+     * memory; the text is then extracted by another thread, and passed on
+     * every {@link #PAGES_PER_RANGE} pages through a pipe to whatever reads
+     * the returned stream, normally the bitstream storage. Neither the PDF
+     * nor its text is ever held in memory as a whole.
+     * <P>
+     * If the extraction fails, reading the stream fails rather than ending
+     * early: an OutOfMemoryError is thrown to the reader as it is, unless
+     * <code>pdffilter.skiponmemoryexception</code> is set, and other errors
+     * as an IOException. Closing the stream stops the extraction, even
+     * while the reader waits for text, so that the MediaFilterManager can
+     * hold the filter's permit and apply its timeout until the text is
+     * stored.
+     * 
+     * @param source
+     *            the PDF
+     * @param maxTextSize
+     *            the number of characters after which the text is cut off, or
+     *            0 for no limit
+     * @return the text
+     */
+    InputStream getTextStream(InputStream source, long maxTextSize) throws IOException
+    {
+        final File scratchFile = File.createTempFile("dspacepdfscratch", ".tmp");
+        scratchFile.deleteOnExit();
+        final RandomAccessFile scratch = new RandomAccessFile(scratchFile, "rw");
+
+        PDDocument loaded = null;
+        try
+        {
+            loaded = PDDocument.load(source, scratch);
+        }
+        finally
+        {
+            if (loaded == null)
+            {
+                closeScratch(scratch, scratchFile);
+            }
+        }
+        final PDDocument pdfDoc = loaded;
+
+        final TextPipe pipe = new TextPipe();
+        final Writer writer = new LimitedWriter(new OutputStreamWriter(new PipedOutputStream(pipe)), maxTextSize);
+
+        Thread extractor = new Thread(new Runnable()
+        {
+            public void run()
             {
                 try
                 {
-                    if (pdfDoc != null)
+                    PDFTextStripper pts = new PDFTextStripper()
                     {
-                        pdfDoc.close();
-                    }
+                        protected void endPage(PDPage page) throws IOException
+                        {
+                            super.endPage(page);
+                            if (getCurrentPageNo() % PAGES_PER_RANGE == 0)
+                            {
+                                writer.flush();
+                            }
+                        }
+                    };
+                    pts.writeText(pdfDoc, writer);
+                    writer.flush();
                 }
-                catch(Exception e)
+                catch (TextLimitException e)
                 {
-                   log.error("Error closing PDF file: " + e.getMessage(), e);
+                    log.warn(e.getMessage());
                 }
+                catch (Throwable t)
+                {
+                    log.error("Error extracting text from PDF document: " + t.getMessage(), t);
+                    pipe.fail(t);
+                }
+                finally
+                {
+                    try
+                    {
+                        pdfDoc.close();
+                    }
+                    catch (Exception e)
+                    {
+                        log.error("Error closing PDF file: " + e.getMessage(), e);
+                    }
 
+                    closeScratch(scratch, scratchFile);
+
+                    try
+                    {
+                        writer.close();
+                    }
+                    catch (IOException e)
+                    {
+                        // the reader stopped reading
+                    }
+                    pipe.end();
+                }
+            }
+        }, "pdffilter-" + scratchFile.getName());
+        extractor.setDaemon(true);
+        extractor.start();
+
+        return pipe;
+    }
+
+    private static void closeScratch(RandomAccessFile scratch, File scratchFile)
+    {
+        try
+        {
+            scratch.close();
+        }
+        catch (IOException e)
+        {
+            log.error("Error closing PDF scratch file: " + e.getMessage(), e);
+        }
+
+        if (!scratchFile.delete())
+        {
+            log.warn("Could not delete PDF scratch file " + scratchFile);
+        }
+    }
+
+    /**
+     * The reading end of the pipe from the text extraction, which reports a
+     * failed extraction as an error rather than the end of the text, and
+     * which may be closed by another thread while the reader waits.
+     */
+    private static class TextPipe extends PipedInputStream
+    {
+        private volatile Throwable failure = null;
+
+        private boolean ended = false;
+
+        private boolean closed = false;
+
+        TextPipe()
+        {
+            super(PIPE_SIZE);
+        }
+
+        void fail(Throwable t)
+        {
+            failure = t;
+        }
+
+        /**
+         * Called by the extraction once it has closed its end of the pipe.
+         */
+        synchronized void end()
+        {
+            ended = true;
+            notifyAll();
+        }
+
+        public synchronized int read() throws IOException
+        {
+            await();
+            return check(super.read());
+        }
+
+        public synchronized int read(byte[] b, int off, int len) throws IOException
+        {
+            await();
+            return check(super.read(b, off, len));
+        }
+
+        public void close() throws IOException
+        {
+            super.close();
+            synchronized (this)
+            {
+                closed = true;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait for text, the end of the extraction or the pipe to be closed:
+         * PipedInputStream itself waits for as long as the writer is alive.
+         */
+        private void await() throws IOException
+        {
+            while (!closed && !ended && super.available() == 0)
+            {
                 try
                 {
-                    writer.close();
+                    wait(1000);
                 }
-                catch(Exception e)
+                catch (InterruptedException e)
                 {
-                   log.error("Error closing temporary extract file: " + e.getMessage(), e);
+                    throw new InterruptedIOException();
                 }
             }
+        }
 
-            if (useTemporaryFile)
+        private int check(int count) throws IOException
+        {
+            if (count == -1 && failure != null)
             {
-                return new FileInputStream(tempTextFile);
+                if (failure instanceof OutOfMemoryError
+                        && !ConfigurationManager.getBooleanProperty("pdffilter.skiponmemoryexception", false))
+                {
+                    throw (OutOfMemoryError) failure;
+                }
+                throw new IOException("Text extraction failed: " + failure.getMessage(), failure);
             }
-            else
+            return count;
+        }
+    }
+
+    /**
+     * Thrown by a LimitedWriter once the text reaches its limit, to stop the
+     * extraction.
+     */
+    private static class TextLimitException extends IOException
+    {
+        TextLimitException(long limit)
+        {
+            super("PDF text cut off after " + limit + " characters");
+        }
+    }
+
+    /**
+     * A writer passing on at most a given number of characters.
+     */
+    private static class LimitedWriter extends FilterWriter
+    {
+        private final long limit;
+
+        private long written = 0;
+
+        /**
+         * @param out
+         *            the writer to pass the characters to
+         * @param limit
+         *            the number of characters to pass on, or 0 for no limit
+         */
+        LimitedWriter(Writer out, long limit)
+        {
+            super(out);
+            this.limit = (limit > 0) ? limit : Long.MAX_VALUE;
+        }
+
+        public void write(int c) throws IOException
+        {
+            write(new char[] { (char) c }, 0, 1);
+        }
+
+        public void write(char[] cbuf, int off, int len) throws IOException
+        {
+            int count = (int) Math.min(len, limit - written);
+            out.write(cbuf, off, count);
+            written += count;
+            if (count < len)
             {
-                byte[] bytes = byteStream.toByteArray();
-                return new ByteArrayInputStream(bytes);
+                throw new TextLimitException(limit);
             }
         }
-        catch (OutOfMemoryError oome)
+
+        public void write(String str, int off, int len) throws IOException
         {
-            log.error("Error parsing PDF document " + oome.getMessage(), oome);
-            if (!ConfigurationManager.getBooleanProperty("pdffilter.skiponmemoryexception", false))
+            int count = (int) Math.min(len, limit - written);
+            out.write(str, off, count);
+            written += count;
+            if (count < len)
             {
-                throw oome;
+                throw new TextLimitException(limit);
             }
         }
-
-        return null;
     }
 }
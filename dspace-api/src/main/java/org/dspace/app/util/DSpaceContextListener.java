@@ -8,6 +8,7 @@
 package org.dspace.app.util;
 
 import org.dspace.core.ConfigurationManager;
+import org.dspace.statistics.SolrLoggerQueue;
 import org.dspace.storage.rdbms.DatabaseManager;
 import org.apache.log4j.Logger;
 
@@ -147,6 +148,9 @@ public class DSpaceContextListener implements ServletContextListener
 
         try
         {
+            // Post the queued usage events, while the database is still there
+            SolrLoggerQueue.shutdown();
+
             // Remove the database pool
             DatabaseManager.shutdown();
 
@@ -0,0 +1,507 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.core.Utils;
+
+/**
+ * The byte ranges of a bitstream asked for by an HTTP request's
+ * <code>Range</code> header (RFC 7233), shared by the web interfaces which
+ * deliver bitstreams.
+ * <p>
+ * A request is answered with the whole bitstream (200) when it has no
+ * usable <code>Range</code> header or its <code>If-Range</code> validator
+ * no longer matches, with one range (206 with <code>Content-Range</code>),
+ * with several ranges as <code>multipart/byteranges</code> (206), or with
+ * 416 when no range overlaps the bitstream. Overlapping and adjacent ranges
+ * are merged. Each range is read from the asset store at its offset, so
+ * nothing before it is read.
+ */
+public class RangeRequest
+{
+    /** Status of a response with the whole bitstream */
+    public static final int SC_OK = 200;
+
+    /** Status of a response with some ranges of the bitstream */
+    public static final int SC_PARTIAL_CONTENT = 206;
+
+    /** Status of a response when no range overlaps the bitstream */
+    public static final int SC_REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+    /** More ranges than this (after merging) are answered with the whole bitstream */
+    private static final int MAX_RANGES = 20;
+
+    /** Boundary between the parts of a multipart/byteranges response */
+    private static final String BOUNDARY = "DSPACE_BYTERANGES_BOUNDARY";
+
+    private static final String CRLF = "\r\n";
+
+    /** Ranges to send, or null for the whole bitstream */
+    private final List<Range> ranges;
+
+    /** Size of the bitstream in bytes */
+    private final long size;
+
+    /**
+     * A range of bytes, from first to last inclusive.
+     */
+    public static class Range
+    {
+        private final long first;
+
+        private final long last;
+
+        Range(long first, long last)
+        {
+            this.first = first;
+            this.last = last;
+        }
+
+        /** Return the position of the first byte */
+        public long getFirst()
+        {
+            return first;
+        }
+
+        /** Return the position of the last byte */
+        public long getLast()
+        {
+            return last;
+        }
+
+        /** Return the number of bytes */
+        public long getLength()
+        {
+            return last - first + 1;
+        }
+    }
+
+    private RangeRequest(List<Range> ranges, long size)
+    {
+        this.ranges = ranges;
+        this.size = size;
+    }
+
+    /**
+     * Work out which bytes of a bitstream to send.
+     *
+     * @param range
+     *            the Range header of the request, or null
+     * @param ifRange
+     *            the If-Range header of the request, or null
+     * @param etag
+     *            the entity tag of the bitstream, as from {@link #getETag}, or null
+     * @param lastModified
+     *            the time the bitstream was last modified in milliseconds, or -1
+     * @param size
+     *            the size of the bitstream in bytes
+     * @return the bytes to send
+     */
+    public static RangeRequest parse(String range, String ifRange, String etag, long lastModified, long size)
+    {
+        if (range == null || size < 0 || !isCurrent(ifRange, etag, lastModified))
+        {
+            return new RangeRequest(null, size);
+        }
+
+        String specs = range.trim();
+        if (!specs.regionMatches(true, 0, "bytes=", 0, 6))
+        {
+            // Unknown unit: ignore the header
+            return new RangeRequest(null, size);
+        }
+
+        List<Range> ranges = new ArrayList<Range>();
+        for (String spec : specs.substring(6).split(","))
+        {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0)
+            {
+                return new RangeRequest(null, size);
+            }
+
+            long first;
+            long last;
+            try
+            {
+                if (dash == 0)
+                {
+                    // Suffix range: the last n bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0)
+                    {
+                        return new RangeRequest(null, size);
+                    }
+                    first = Math.max(0, size - suffix);
+                    last = (suffix == 0) ? -1 : size - 1;
+                }
+                else
+                {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    last = (dash == spec.length() - 1) ? size - 1
+                            : Long.parseLong(spec.substring(dash + 1));
+                    if (first < 0 || last < first)
+                    {
+                        return new RangeRequest(null, size);
+                    }
+                    last = Math.min(last, size - 1);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                return new RangeRequest(null, size);
+            }
+
+            // Ranges starting past the end can't be satisfied
+            if (first <= last)
+            {
+                ranges.add(new Range(first, last));
+            }
+        }
+
+        ranges = merge(ranges);
+        if (ranges.size() > MAX_RANGES)
+        {
+            return new RangeRequest(null, size);
+        }
+        return new RangeRequest(ranges, size);
+    }
+
+    /**
+     * Return the strong entity tag of a bitstream, from its checksum.
+     *
+     * @param checksum
+     *            the checksum of the bitstream, or null
+     * @return the entity tag, or null if there is no checksum
+     */
+    public static String getETag(String checksum)
+    {
+        if (checksum == null || checksum.length() == 0)
+        {
+            return null;
+        }
+        return '"' + checksum + '"';
+    }
+
+    /**
+     * Return the status of the response: {@link #SC_OK}, {@link
+     * #SC_PARTIAL_CONTENT} or {@link #SC_REQUESTED_RANGE_NOT_SATISFIABLE}.
+     */
+    public int getStatus()
+    {
+        if (ranges == null)
+        {
+            return SC_OK;
+        }
+        return ranges.isEmpty() ? SC_REQUESTED_RANGE_NOT_SATISFIABLE : SC_PARTIAL_CONTENT;
+    }
+
+    /**
+     * Return true if some bytes can be sent, that is unless the status is
+     * {@link #SC_REQUESTED_RANGE_NOT_SATISFIABLE}.
+     */
+    public boolean isSatisfiable()
+    {
+        return ranges == null || !ranges.isEmpty();
+    }
+
+    /**
+     * Return true if only part of the bitstream is sent.
+     */
+    public boolean isPartial()
+    {
+        return ranges != null && !ranges.isEmpty();
+    }
+
+    /**
+     * Return true if several ranges are sent as a multipart response.
+     */
+    public boolean isMultipart()
+    {
+        return ranges != null && ranges.size() > 1;
+    }
+
+    /**
+     * Return true if the first byte of the bitstream is sent. Players and
+     * download managers fetch one bitstream in many ranges, so only the
+     * request for its start should be counted as a view.
+     */
+    public boolean includesStart()
+    {
+        return ranges == null || (!ranges.isEmpty() && ranges.get(0).getFirst() == 0);
+    }
+
+    /**
+     * Return the ranges to send, empty if the whole bitstream is sent.
+     */
+    public List<Range> getRanges()
+    {
+        return (ranges == null) ? Collections.<Range>emptyList() : Collections.unmodifiableList(ranges);
+    }
+
+    /**
+     * Return the Content-Range header of the response: the range sent, or
+     * for status 416 the size of the bitstream. Null if the whole bitstream
+     * or several ranges are sent.
+     */
+    public String getContentRange()
+    {
+        if (ranges == null || ranges.size() > 1)
+        {
+            return null;
+        }
+        if (ranges.isEmpty())
+        {
+            return "bytes */" + size;
+        }
+        return getContentRange(ranges.get(0));
+    }
+
+    /**
+     * Return the Content-Type header of the response.
+     *
+     * @param mimeType
+     *            the MIME type of the bitstream
+     */
+    public String getContentType(String mimeType)
+    {
+        return isMultipart() ? "multipart/byteranges; boundary=" + BOUNDARY : mimeType;
+    }
+
+    /**
+     * Return the Content-Length header of the response.
+     *
+     * @param mimeType
+     *            the MIME type of the bitstream
+     */
+    public long getContentLength(String mimeType)
+    {
+        if (ranges == null)
+        {
+            return size;
+        }
+
+        long length = 0;
+        for (Range range : ranges)
+        {
+            length += range.getLength();
+        }
+
+        if (isMultipart())
+        {
+            for (Range range : ranges)
+            {
+                length += getPartHeader(range, mimeType).length();
+            }
+            length += getTrailer().length();
+        }
+        return length;
+    }
+
+    /**
+     * Open the bytes to send. For partial responses each range is read from
+     * the asset store at its offset. The streams are closed by {@link #write}.
+     *
+     * @param bitstream
+     *            the bitstream to send
+     * @return one stream per range, or one stream of the whole bitstream
+     */
+    public InputStream[] retrieve(Bitstream bitstream)
+            throws IOException, SQLException, AuthorizeException
+    {
+        if (ranges == null)
+        {
+            return new InputStream[] { bitstream.retrieve() };
+        }
+
+        InputStream[] streams = new InputStream[ranges.size()];
+        try
+        {
+            for (int i = 0; i < streams.length; i++)
+            {
+                Range range = ranges.get(i);
+                streams[i] = bitstream.retrieve(range.getFirst(), range.getLength());
+            }
+        }
+        catch (IOException e)
+        {
+            close(streams);
+            throw e;
+        }
+        catch (SQLException e)
+        {
+            close(streams);
+            throw e;
+        }
+        catch (AuthorizeException e)
+        {
+            close(streams);
+            throw e;
+        }
+        return streams;
+    }
+
+    /**
+     * Write the body of the response, and close the streams.
+     *
+     * @param streams
+     *            the streams from {@link #retrieve}
+     * @param mimeType
+     *            the MIME type of the bitstream
+     * @param out
+     *            the body of the response
+     */
+    public void write(InputStream[] streams, String mimeType, OutputStream out) throws IOException
+    {
+        try
+        {
+            if (!isMultipart())
+            {
+                Utils.bufferedCopy(streams[0], out);
+            }
+            else
+            {
+                for (int i = 0; i < streams.length; i++)
+                {
+                    out.write(getPartHeader(ranges.get(i), mimeType).getBytes("ISO-8859-1"));
+                    Utils.bufferedCopy(streams[i], out);
+                }
+                out.write(getTrailer().getBytes("ISO-8859-1"));
+            }
+            out.flush();
+        }
+        finally
+        {
+            close(streams);
+        }
+    }
+
+    private String getContentRange(Range range)
+    {
+        return "bytes " + range.getFirst() + "-" + range.getLast() + "/" + size;
+    }
+
+    private String getPartHeader(Range range, String mimeType)
+    {
+        return CRLF + "--" + BOUNDARY + CRLF
+                + "Content-Type: " + mimeType + CRLF
+                + "Content-Range: " + getContentRange(range) + CRLF
+                + CRLF;
+    }
+
+    private String getTrailer()
+    {
+        return CRLF + "--" + BOUNDARY + "--" + CRLF;
+    }
+
+    /**
+     * Return true if there is no If-Range validator, or it matches the
+     * bitstream: the entity tag exactly, or a date the same second as
+     * the last modification.
+     */
+    private static boolean isCurrent(String ifRange, String etag, long lastModified)
+    {
+        if (ifRange == null)
+        {
+            return true;
+        }
+
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+        {
+            // Weak tags never match
+            return etag != null && ifRange.equals(etag);
+        }
+
+        if (lastModified < 0)
+        {
+            return false;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try
+        {
+            return format.parse(ifRange).getTime() / 1000 == lastModified / 1000;
+        }
+        catch (ParseException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Sort ranges and merge those which overlap or touch.
+     */
+    private static List<Range> merge(List<Range> ranges)
+    {
+        if (ranges.size() < 2)
+        {
+            return ranges;
+        }
+
+        Collections.sort(ranges, new Comparator<Range>()
+        {
+            public int compare(Range a, Range b)
+            {
+                return (a.first < b.first) ? -1 : ((a.first == b.first) ? 0 : 1);
+            }
+        });
+
+        List<Range> merged = new ArrayList<Range>();
+        Range current = ranges.get(0);
+        for (Range range : ranges.subList(1, ranges.size()))
+        {
+            if (range.first <= current.last + 1)
+            {
+                current = new Range(current.first, Math.max(current.last, range.last));
+            }
+            else
+            {
+                merged.add(current);
+                current = range;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    private static void close(InputStream[] streams)
+    {
+        for (InputStream stream : streams)
+        {
+            if (stream != null)
+            {
+                try
+                {
+                    stream.close();
+                }
+                catch (IOException e)
+                {
+                    // Nothing more can be done
+                }
+            }
+        }
+    }
+}
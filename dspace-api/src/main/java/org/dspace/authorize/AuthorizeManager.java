@@ -10,7 +10,12 @@ package org.dspace.authorize;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.dspace.content.*;
 import org.dspace.core.Constants;
@@ -38,6 +43,9 @@ import org.dspace.storage.rdbms.TableRowIterator;
  */
 public class AuthorizeManager
 {
+    /** Maximum number of objects whose policies are read by a single query */
+    private static final int PREFETCH_BATCH_SIZE = 500;
+
     /**
      * Utility method, checks that the current user of the given context can
      * perform all of the specified actions on the given object. An
@@ -279,6 +287,27 @@ public class AuthorizeManager
             return true;
         }
 
+        // has the same decision already been taken in this context?
+        Boolean cachedResult = c.getCachedAuthorizationResult(o.getType(), o.getID(), action, useInheritance);
+        if (cachedResult != null)
+        {
+            return cachedResult;
+        }
+
+        boolean result = evaluate(c, o, action, e, useInheritance);
+        c.cacheAuthorizationResult(o.getType(), o.getID(), action, useInheritance, result);
+        return result;
+    }
+
+    /**
+     * Evaluate the policies of the given object for the given user, without
+     * consulting the authorization cache of the context.
+     *
+     * @see #authorize(Context, DSpaceObject, int, EPerson, boolean)
+     */
+    private static boolean evaluate(Context c, DSpaceObject o, int action,
+                                    EPerson e, boolean useInheritance) throws SQLException
+    {
         // is eperson set? if not, userid = 0 (anonymous)
         int userid = 0;
         if (e != null)
@@ -319,6 +348,131 @@ public class AuthorizeManager
         return false;
     }
 
+    /**
+     * Take the decisions on the given action for many objects at once, and
+     * remember them in the context, so that the following calls of
+     * <code>authorizeAction</code> or <code>authorizeActionBoolean</code> on
+     * those objects need no query. The policies are read with one query per
+     * type of object and per {@link #PREFETCH_BATCH_SIZE} objects.
+     * <p>
+     * Only decisions the policies of the objects settle on their own are
+     * remembered: access granted by a policy, and access denied when ADMIN
+     * rights on the parents cannot change the answer (anonymous user, or no
+     * inheritance). Other decisions are still taken one object at a time
+     * when asked for.
+     *
+     * @param c
+     *         current context
+     * @param objects
+     *         objects to authorize; may contain nulls
+     * @param action
+     *         ID of the action, from <code>org.dspace.core.Constants</code>
+     * @throws SQLException
+     *         if there's a database problem
+     */
+    public static void prefetchAuthorization(Context c, List<? extends DSpaceObject> objects,
+                                             int action) throws SQLException
+    {
+        if (objects == null || objects.isEmpty() || isAdmin(c))
+        {
+            // administrators are authorized without reading any policy
+            return;
+        }
+
+        EPerson e = c.getCurrentUser();
+        int userid = (e == null) ? 0 : e.getID();
+
+        Map<Integer, Set<Integer>> idsByType = new HashMap<Integer, Set<Integer>>();
+        for (DSpaceObject o : objects)
+        {
+            if (o != null)
+            {
+                Set<Integer> ids = idsByType.get(o.getType());
+                if (ids == null)
+                {
+                    ids = new LinkedHashSet<Integer>();
+                    idsByType.put(o.getType(), ids);
+                }
+                ids.add(o.getID());
+            }
+        }
+
+        for (Map.Entry<Integer, Set<Integer>> entry : idsByType.entrySet())
+        {
+            int type = entry.getKey();
+            List<Integer> ids = new ArrayList<Integer>(entry.getValue());
+
+            for (int start = 0; start < ids.size(); start += PREFETCH_BATCH_SIZE)
+            {
+                List<Integer> batch = ids.subList(start, Math.min(start + PREFETCH_BATCH_SIZE, ids.size()));
+                Set<Integer> granted = new HashSet<Integer>();
+
+                StringBuilder query = new StringBuilder("SELECT * FROM resourcepolicy WHERE resource_type_id= ? " +
+                        "AND action_id= ? AND resource_id IN (");
+                Object[] params = new Object[batch.size() + 2];
+                params[0] = type;
+                params[1] = action;
+                for (int i = 0; i < batch.size(); i++)
+                {
+                    query.append(i == 0 ? "?" : ", ?");
+                    params[i + 2] = batch.get(i);
+                }
+                query.append(")");
+
+                TableRowIterator tri = DatabaseManager.queryTable(c, "resourcepolicy", query.toString(), params);
+                try
+                {
+                    while (tri.hasNext())
+                    {
+                        TableRow row = tri.next();
+                        int id = row.getIntColumn("resource_id");
+                        if (granted.contains(id))
+                        {
+                            continue;
+                        }
+
+                        ResourcePolicy rp = (ResourcePolicy) c.fromCache(
+                                ResourcePolicy.class, row.getIntColumn("policy_id"));
+                        if (rp == null)
+                        {
+                            rp = new ResourcePolicy(c, row);
+                        }
+
+                        if (rp.isDateValid()
+                                && (((rp.getEPersonID() != -1) && (rp.getEPersonID() == userid))
+                                    || ((rp.getGroupID() != -1) && Group.isMember(c, rp.getGroupID()))))
+                        {
+                            granted.add(id);
+                        }
+                    }
+                }
+                finally
+                {
+                    tri.close();
+                }
+
+                for (Integer id : batch)
+                {
+                    if (granted.contains(id))
+                    {
+                        c.cacheAuthorizationResult(type, id, action, true, true);
+                        c.cacheAuthorizationResult(type, id, action, false, true);
+                    }
+                    else
+                    {
+                        // without inheritance, only a system administrator
+                        // could have been authorized otherwise
+                        c.cacheAuthorizationResult(type, id, action, false, false);
+                        if (e == null)
+                        {
+                            c.cacheAuthorizationResult(type, id, action, true, false);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     ///////////////////////////////////////////////
     // admin check methods
     ///////////////////////////////////////////////
@@ -821,6 +975,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? ",
                 o.getType(), o.getID());
+        c.clearAuthorizationCache();
     }
 
     /**
@@ -839,6 +994,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? AND rptype <> ? ",
                 o.getType(), o.getID(), type);
+        c.clearAuthorizationCache();
     }
 
 
@@ -860,6 +1016,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? AND rptype=? ",
                 o.getType(), o.getID(), type);
+        c.clearAuthorizationCache();
     }
 
     /**
@@ -891,6 +1048,7 @@ public class AuthorizeManager
                             "resource_id= ? AND action_id= ? ",
                     dso.getType(), dso.getID(), actionID);
         }
+        context.clearAuthorizationCache();
     }
 
     /**
@@ -909,6 +1067,7 @@ public class AuthorizeManager
     {
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "epersongroup_id= ? ", groupID);
+        c.clearAuthorizationCache();
     }
 
     /**
@@ -932,6 +1091,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? AND epersongroup_id= ? ",
                 o.getType(), o.getID(), g.getID());
+        c.clearAuthorizationCache();
     }
 
     /**
@@ -954,6 +1114,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? AND eperson_id= ? ",
                 o.getType(), o.getID(), e.getID());
+        c.clearAuthorizationCache();
     }
 
     /**
@@ -193,6 +193,9 @@ public class ResourcePolicy
         // FIXME: authorizations
         // Remove ourself
         DatabaseManager.delete(myContext, myRow);
+
+        // decisions based on this policy are no longer valid
+        myContext.clearAuthorizationCache();
     }
 
     /**
@@ -476,6 +479,9 @@ public class ResourcePolicy
 
         // FIXME: Check authorisation
         DatabaseManager.update(myContext, myRow);
+
+        // decisions based on this policy are no longer valid
+        myContext.clearAuthorizationCache();
     }
 
 
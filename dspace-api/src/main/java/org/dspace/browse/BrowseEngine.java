@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import org.apache.log4j.Logger;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
 import org.dspace.sort.SortOption;
@@ -161,6 +162,7 @@ public class BrowseEngine
 
         // now run the query
         List<BrowseItem> results = dao.doQuery();
+        prefetchMetadata(results);
 
         // construct the mostly empty BrowseInfo object to pass back
         BrowseInfo browseInfo = new BrowseInfo(results, 0, scope.getResultsPerPage(), 0);
@@ -347,6 +349,8 @@ public class BrowseEngine
                     dao.setOffset(offset);
                     results = dao.doQuery();
                 }
+
+                prefetchMetadata(results);
             }
             else
             {
@@ -801,4 +805,24 @@ public class BrowseEngine
 
         return count;
     }
+
+    /**
+     * Load the metadata of all the items on a browse page in bulk, rather
+     * than one query per item when the page is rendered.
+     *
+     * @param results   the browse items of the page
+     * @throws BrowseException
+     */
+    private void prefetchMetadata(List<BrowseItem> results)
+        throws BrowseException
+    {
+        try
+        {
+            DSpaceObject.prefetchMetadata(context, results);
+        }
+        catch (SQLException e)
+        {
+            throw new BrowseException(e);
+        }
+    }
 }
@@ -8,6 +8,7 @@
 package org.dspace.browse;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -519,6 +520,7 @@ public class BrowseInfo
     		{
     			items[i] = Item.find(context, bis[i].getID());
     		}
+    		DSpaceObject.prefetchMetadata(context, Arrays.asList(items));
     		return items;
     	}
     	catch (SQLException e)
@@ -85,6 +85,12 @@ public class BrowseItem extends DSpaceObject
 	 * @throws SQLException
 	 */
 	public Metadatum[] getMetadata(String schema, String element, String qualifier, String lang) {
+        // if the metadata has been prefetched, answer from memory
+        if (isMetadataLoaded())
+        {
+            return super.getMetadata(schema, element, qualifier, lang);
+        }
+
         try
         {
             BrowseItemDAO dao = BrowseDAOFactory.getItemInstance(ourContext);
@@ -7,14 +7,21 @@
  */
 package org.dspace.browse;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeManager;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.discovery.DiscoverFacetField;
@@ -26,6 +33,8 @@ import org.dspace.discovery.DiscoverResult.SearchDocument;
 import org.dspace.discovery.SearchService;
 import org.dspace.discovery.SearchServiceException;
 import org.dspace.discovery.configuration.DiscoveryConfigurationParameters;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
 import org.dspace.utils.DSpace;
 
 /**
@@ -67,6 +76,42 @@ public class SolrBrowseDAO implements BrowseDAO
     /** Log4j log */
     private static Logger log = Logger.getLogger(SolrBrowseDAO.class);
 
+    /** Number of distinct values between two sampled sort values */
+    static final int DISTINCT_SAMPLE_INTERVAL = 100;
+
+    /**
+     * Distinct values of the browse indexes by index, scope and reader, so
+     * that they are not all read again for every page. Sized and aged by
+     * browse.solr.distinct.cache.size (default 100) and
+     * browse.solr.distinct.cache.ttl in seconds (default 300).
+     */
+    private static final Cache<String, DistinctValues> distinctValuesCache = CacheBuilder.newBuilder()
+            .maximumSize(ConfigurationManager.getIntProperty("browse.solr.distinct.cache.size", 100))
+            .expireAfterWrite(ConfigurationManager.getIntProperty("browse.solr.distinct.cache.ttl", 300),
+                    TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * The number of distinct values of a browse, and the sort value of every
+     * {@link #DISTINCT_SAMPLE_INTERVAL}th of them.
+     */
+    private static class DistinctValues
+    {
+        /** Number of items in scope when the values were counted */
+        final long items;
+
+        final int count;
+
+        final String[] samples;
+
+        DistinctValues(long items, int count, String[] samples)
+        {
+            this.items = items;
+            this.count = count;
+            this.samples = samples;
+        }
+    }
+
     /** The DSpace context */
     private Context context;
 
@@ -133,6 +178,9 @@ public class SolrBrowseDAO implements BrowseDAO
 
     private DiscoverResult sResponse = null;
 
+    /** Distinct values of the browse, once counted */
+    private DistinctValues distinctValues = null;
+
     private boolean itemsWithdrawn = false;
     private boolean itemsDiscoverable = true;
 
@@ -145,45 +193,33 @@ public class SolrBrowseDAO implements BrowseDAO
             DiscoverQuery query = new DiscoverQuery();
             addLocationScopeFilter(query);
             addStatusFilter(query);
-            if (distinct)
+            query.setMaxResults(limit/* > 0 ? limit : 20*/);
+            if (offset > 0)
             {
-                DiscoverFacetField dff = new DiscoverFacetField(facetField,
-                        DiscoveryConfigurationParameters.TYPE_TEXT, -1,
-                        DiscoveryConfigurationParameters.SORT.VALUE);
-                query.addFacetField(dff);
-                query.setFacetMinCount(1);
-                query.setMaxResults(0);
+                query.setStart(offset);
             }
-            else
-            {
-                query.setMaxResults(limit/* > 0 ? limit : 20*/);
-                if (offset > 0)
-                {
-                    query.setStart(offset);
-                }
 
-                // caution check first authority, value is always present!
-                if (authority != null)
-                {
-                    query.addFilterQueries("{!field f="+facetField + "_authority_filter}"
-                            + authority);
-                }
-                else if (value != null && !valuePartial)
-                {
-                    query.addFilterQueries("{!field f="+facetField + "_value_filter}" + value);
-                }
-                else if (valuePartial)
-                {
-                    query.addFilterQueries("{!field f="+facetField + "_partial}" + value);
-                }
-                // filter on item to be sure to don't include any other object
-                // indexed in the Discovery Search core
-                query.addFilterQueries("search.resourcetype:" + Constants.ITEM);
-                if (orderField != null)
-                {
-                    query.setSortField("bi_" + orderField + "_sort",
-                            ascending ? SORT_ORDER.asc : SORT_ORDER.desc);
-                }
+            // caution check first authority, value is always present!
+            if (authority != null)
+            {
+                query.addFilterQueries("{!field f="+facetField + "_authority_filter}"
+                        + authority);
+            }
+            else if (value != null && !valuePartial)
+            {
+                query.addFilterQueries("{!field f="+facetField + "_value_filter}" + value);
+            }
+            else if (valuePartial)
+            {
+                query.addFilterQueries("{!field f="+facetField + "_partial}" + value);
+            }
+            // filter on item to be sure to don't include any other object
+            // indexed in the Discovery Search core
+            query.addFilterQueries("search.resourcetype:" + Constants.ITEM);
+            if (orderField != null)
+            {
+                query.setSortField("bi_" + orderField + "_sort",
+                        ascending ? SORT_ORDER.asc : SORT_ORDER.desc);
             }
             try
             {
@@ -198,6 +234,107 @@ public class SolrBrowseDAO implements BrowseDAO
         return sResponse;
     }
 
+    /**
+     * Get the number of distinct values of the browse index in the current
+     * scope, with a sample of their sort values, from the cache if the
+     * number of items in scope has not changed since they were counted.
+     */
+    private DistinctValues getDistinctValues() throws BrowseException
+    {
+        if (distinctValues == null)
+        {
+            // the number of items in scope costs no facet value at all
+            long items = searchDistinct(0, 0).getTotalSearchResults();
+
+            String key = getDistinctValuesKey();
+            DistinctValues cached = distinctValuesCache.getIfPresent(key);
+            if (cached != null && cached.items == items)
+            {
+                distinctValues = cached;
+            }
+            else
+            {
+                // Counting the values is the only time all of them are read
+                List<FacetResult> facets = searchDistinct(0, -1).getFacetResult(facetField);
+                String[] samples = new String[(facets.size() + DISTINCT_SAMPLE_INTERVAL - 1) / DISTINCT_SAMPLE_INTERVAL];
+                for (int i = 0; i < samples.length; i++)
+                {
+                    samples[i] = facets.get(i * DISTINCT_SAMPLE_INTERVAL).getSortValue();
+                }
+                distinctValues = new DistinctValues(items, facets.size(), samples);
+                distinctValuesCache.put(key, distinctValues);
+            }
+        }
+        return distinctValues;
+    }
+
+    /**
+     * Get a page of the distinct values of the browse index, in ascending
+     * order, along with the number of items in scope.
+     *
+     * @param facetOffset
+     *            index of the first value
+     * @param facetLimit
+     *            number of values, -1 for all of them
+     */
+    private DiscoverResult searchDistinct(int facetOffset, int facetLimit) throws BrowseException
+    {
+        DiscoverQuery query = new DiscoverQuery();
+        addLocationScopeFilter(query);
+        addStatusFilter(query);
+        DiscoverFacetField dff = new DiscoverFacetField(facetField,
+                DiscoveryConfigurationParameters.TYPE_TEXT, facetLimit,
+                DiscoveryConfigurationParameters.SORT.VALUE, facetOffset);
+        query.addFacetField(dff);
+        query.setFacetMinCount(1);
+        query.setMaxResults(0);
+        try
+        {
+            return searcher.search(context, query, itemsWithdrawn || !itemsDiscoverable);
+        }
+        catch (SearchServiceException e)
+        {
+            throw new BrowseException(e);
+        }
+    }
+
+    /**
+     * Key of the distinct values in the cache: the index, the scope and
+     * whoever reads them, as the search only returns items they may read.
+     */
+    private String getDistinctValuesKey() throws BrowseException
+    {
+        StringBuilder key = new StringBuilder(facetField);
+        key.append('|').append(containerIDField).append('|').append(containerID);
+        key.append('|').append(itemsWithdrawn).append('|').append(itemsDiscoverable).append('|');
+        try
+        {
+            if (AuthorizeManager.isAdmin(context))
+            {
+                key.append("admin");
+            }
+            else
+            {
+                EPerson currentUser = context.getCurrentUser();
+                if (currentUser != null)
+                {
+                    key.append('e').append(currentUser.getID());
+                }
+                List<Integer> groupIDs = new ArrayList<Integer>(Group.allMemberGroupIDs(context, currentUser));
+                Collections.sort(groupIDs);
+                for (Integer groupID : groupIDs)
+                {
+                    key.append('g').append(groupID);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new BrowseException(e);
+        }
+        return key.toString();
+    }
+
     private void addStatusFilter(DiscoverQuery query)
     {
         if (itemsWithdrawn)
@@ -228,17 +365,15 @@ public class SolrBrowseDAO implements BrowseDAO
     @Override
     public int doCountQuery() throws BrowseException
     {
-        DiscoverResult resp = getSolrResponse();
         int count = 0;
         if (distinct)
         {
-            List<FacetResult> facetResults = resp.getFacetResult(facetField);
-            count = facetResults.size();
+            count = getDistinctValues().count;
         }
         else
         {
             // we need to cast to int to respect the BrowseDAO contract...
-            count = (int) resp.getTotalSearchResults();
+            count = (int) getSolrResponse().getTotalSearchResults();
             // FIXME null the response cache
             // the BrowseEngine send fake argument to the BrowseDAO for the
             // count...
@@ -250,34 +385,38 @@ public class SolrBrowseDAO implements BrowseDAO
     @Override
     public List doValueQuery() throws BrowseException
     {
-        DiscoverResult resp = getSolrResponse();
-        List<FacetResult> facet = resp.getFacetResult(facetField);
         int count = doCountQuery();
         int start = offset > 0 ? offset : 0;
         int max = limit > 0 ? limit : count; //if negative, return everything
+
+        // Solr returns the values in ascending order only, so a descending
+        // page is read as the matching ascending page, reversed
+        int facetOffset = start;
+        int facetLimit = max;
+        if (!ascending)
+        {
+            int end = count - start;
+            facetOffset = Math.max(0, end - max);
+            facetLimit = end - facetOffset;
+        }
+
         List<String[]> result = new ArrayList<String[]>();
-        if (ascending)
+        if (facetLimit <= 0 || facetOffset >= count)
         {
-            for (int i = start; i < (start + max) && i < count; i++)
-            {
-                FacetResult c = facet.get(i);
-                String freq = showFrequencies ? String.valueOf(c.getCount())
-                        : "";
-                result.add(new String[] { c.getDisplayedValue(),
-                        c.getAuthorityKey(), freq });
-            }
+            return result;
         }
-        else
+
+        List<FacetResult> facet = searchDistinct(facetOffset, facetLimit).getFacetResult(facetField);
+        for (FacetResult c : facet)
         {
-            for (int i = count - start - 1; i >= count - (start + max)
-                    && i >= 0; i--)
-            {
-                FacetResult c = facet.get(i);
-                String freq = showFrequencies ? String.valueOf(c.getCount())
-                        : "";
-                result.add(new String[] { c.getDisplayedValue(),
-                        c.getAuthorityKey(), freq });
-            }
+            String freq = showFrequencies ? String.valueOf(c.getCount())
+                    : "";
+            result.add(new String[] { c.getDisplayedValue(),
+                    c.getAuthorityKey(), freq });
+        }
+        if (!ascending)
+        {
+            Collections.reverse(result);
         }
 
         return result;
@@ -361,19 +500,30 @@ public class SolrBrowseDAO implements BrowseDAO
     public int doDistinctOffsetQuery(String column, String value,
             boolean isAscending) throws BrowseException
     {
-        DiscoverResult resp = getSolrResponse();
-        List<FacetResult> facets = resp.getFacetResult(facetField);
-        Comparator comparator = new SolrBrowseDAO.FacetValueComparator();
-        Collections.sort(facets, comparator);
-        int x = Collections.binarySearch(facets, value, comparator);
-        int ascValue = (x >= 0) ? x : -(x + 1);
+        // Find the sampled block the value falls in, then read that block
+        // only, rather than every value
+        DistinctValues values = getDistinctValues();
+        int block = Arrays.binarySearch(values.samples, value);
+        block = (block >= 0) ? block - 1 : -(block + 1) - 1;
+
+        int ascValue = 0;
+        if (block >= 0)
+        {
+            ascValue = block * DISTINCT_SAMPLE_INTERVAL;
+            List<FacetResult> facets = searchDistinct(ascValue, DISTINCT_SAMPLE_INTERVAL)
+                    .getFacetResult(facetField);
+            Comparator comparator = new SolrBrowseDAO.FacetValueComparator();
+            int x = Collections.binarySearch(facets, value, comparator);
+            ascValue += (x >= 0) ? x : -(x + 1);
+        }
+
         if (isAscending)
         {
             return ascValue;
         }
         else
         {
-            return doCountQuery() - ascValue;
+            return values.count - ascValue;
         }
     }
     
@@ -137,6 +137,45 @@ public final class BitstreamInfoDAO extends DAOSupport
         + "order by trunc(last_process_end_date, 'mi'), "
         + "bitstream_id " + "ASC) WHERE rownum=1";
     
+    /**
+     * Selects a batch of bitstreams in order of last processing end date,
+     * starting after the given end date and bitstream id. As for
+     * GET_OLDEST_BITSTREAM the timestamp is truncated to milliseconds, so that
+     * it compares equal to the java Date it was read into.
+     */
+    public static final String GET_OLDEST_BITSTREAMS_AFTER = "select bitstream_id, last_process_end_date "
+            + "from most_recent_checksum "
+            + "where to_be_processed = true "
+            + "and (date_trunc('milliseconds', last_process_end_date) > ? "
+            + "or (date_trunc('milliseconds', last_process_end_date) = ? and bitstream_id > ?)) "
+            + "order by date_trunc('milliseconds', last_process_end_date), bitstream_id ASC LIMIT ?";
+
+    public static final String GET_OLDEST_BITSTREAMS_AFTER_ORACLE = "SELECT * FROM (select bitstream_id, last_process_end_date "
+        + "from most_recent_checksum "
+        + "where to_be_processed = 1 "
+        + "and (last_process_end_date > ? or (last_process_end_date = ? and bitstream_id > ?)) "
+        + "order by last_process_end_date, bitstream_id ASC) WHERE rownum <= ?";
+
+    /**
+     * Selects a batch of bitstreams in order of last processing end date,
+     * starting after the given end date and bitstream id, ensuring that no
+     * bitstream is checked more than once since the date parameter used.
+     */
+    public static final String GET_OLDEST_BITSTREAMS_AFTER_DATE = "select bitstream_id, last_process_end_date "
+            + "from most_recent_checksum "
+            + "where to_be_processed = true "
+            + "and last_process_start_date < ? "
+            + "and (date_trunc('milliseconds', last_process_end_date) > ? "
+            + "or (date_trunc('milliseconds', last_process_end_date) = ? and bitstream_id > ?)) "
+            + "order by date_trunc('milliseconds', last_process_end_date), bitstream_id ASC LIMIT ?";
+
+    public static final String GET_OLDEST_BITSTREAMS_AFTER_DATE_ORACLE = "SELECT * FROM (select bitstream_id, last_process_end_date "
+        + "from most_recent_checksum "
+        + "where to_be_processed = 1 "
+        + "and last_process_start_date < ? "
+        + "and (last_process_end_date > ? or (last_process_end_date = ? and bitstream_id > ?)) "
+        + "order by last_process_end_date, bitstream_id ASC) WHERE rownum <= ?";
+
     /** SQL query to retrieve bitstreams for a given item. */
     private static final String ITEM_BITSTREAMS = "SELECT b2b.bitstream_id "
             + "FROM bundle2bitstream b2b, item2bundle i2b WHERE "
@@ -191,18 +230,7 @@ public final class BitstreamInfoDAO extends DAOSupport
         {
             conn = DatabaseManager.getConnection();
             stmt = conn.prepareStatement(UPDATE_CHECKSUM);
-            stmt.setString(1, (info.getCalculatedChecksum() != null) ? info
-                    .getCalculatedChecksum() : "");
-            stmt.setString(2, info.getStoredChecksum());
-            stmt.setBoolean(3, ChecksumCheckResults.CHECKSUM_MATCH.equals(info
-                    .getChecksumCheckResult()));
-            stmt.setBoolean(4, info.getToBeProcessed());
-            stmt.setTimestamp(5, new Timestamp(info.getProcessStartDate()
-                    .getTime()));
-            stmt.setTimestamp(6, new Timestamp(info.getProcessEndDate()
-                    .getTime()));
-            stmt.setString(7, info.getChecksumCheckResult());
-            stmt.setInt(8, info.getBitstreamId());
+            setUpdateParameters(stmt, info);
             stmt.executeUpdate();
             conn.commit();
         }
@@ -217,6 +245,65 @@ public final class BitstreamInfoDAO extends DAOSupport
         }
     }
 
+    /**
+     * Updates most_recent_checksum with the latest checksums and results of
+     * a batch of checks, and records them in checksum_history, in a single
+     * transaction.
+     * 
+     * @param infos
+     *            The BitstreamInfos to update.
+     */
+    public void update(List<BitstreamInfo> infos)
+    {
+        if (infos.isEmpty())
+        {
+            return;
+        }
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try
+        {
+            conn = DatabaseManager.getConnection();
+            stmt = conn.prepareStatement(UPDATE_CHECKSUM);
+            for (BitstreamInfo info : infos)
+            {
+                setUpdateParameters(stmt, info);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            checksumHistoryDAO.insertHistory(infos, conn);
+            conn.commit();
+        }
+        catch (SQLException e)
+        {
+            LOG.error("Problem updating checksum rows. " + e.getMessage(), e);
+            throw new IllegalStateException("Problem updating checksum rows. " + e.getMessage(), e);
+        }
+        finally
+        {
+            cleanup(stmt, conn);
+        }
+    }
+
+    private void setUpdateParameters(PreparedStatement stmt, BitstreamInfo info) throws SQLException
+    {
+        stmt.setString(1, (info.getCalculatedChecksum() != null) ? info
+                .getCalculatedChecksum() : "");
+        stmt.setString(2, info.getStoredChecksum());
+        stmt.setBoolean(3, ChecksumCheckResults.CHECKSUM_MATCH.equals(info
+                .getChecksumCheckResult()));
+        stmt.setBoolean(4, info.getToBeProcessed());
+        stmt.setTimestamp(5, new Timestamp(info.getProcessStartDate()
+                .getTime()));
+        stmt.setTimestamp(6, new Timestamp(info.getProcessEndDate()
+                .getTime()));
+        stmt.setString(7, info.getChecksumCheckResult());
+        stmt.setInt(8, info.getBitstreamId());
+    }
+
     /**
      * Find a bitstream by its id.
      * 
@@ -478,6 +565,82 @@ public final class BitstreamInfoDAO extends DAOSupport
         }
     }
 
+    /**
+     * Returns a batch of the oldest bitstreams, in order of last processing
+     * end date, which come after the given bitstream in that order. Only the
+     * bitstream id and last processing end date of each are filled in.
+     * Paging by the last bitstream of the previous batch, rather than asking
+     * again for the oldest, means bitstreams which are being checked aren't
+     * handed out twice.
+     * 
+     * @param lessThanDate
+     *            only return bitstreams last started before this date, or
+     *            null for all bitstreams
+     * @param afterEndDate
+     *            last processing end date of the last bitstream of the
+     *            previous batch, or null for the first batch
+     * @param afterId
+     *            id of the last bitstream of the previous batch
+     * @param limit
+     *            maximum number of bitstreams to return
+     * @return the bitstreams, empty if there are no more
+     */
+    public List<BitstreamInfo> getOldestBitstreams(Timestamp lessThanDate, Timestamp afterEndDate,
+            int afterId, int limit)
+    {
+        List<BitstreamInfo> infos = new ArrayList<BitstreamInfo>();
+
+        Connection conn = null;
+        PreparedStatement prepStmt = null;
+        ResultSet rs = null;
+
+        if (afterEndDate == null)
+        {
+            afterEndDate = new Timestamp(0);
+            afterId = -1;
+        }
+
+        try
+        {
+            conn = DatabaseManager.getConnection();
+            int index = 1;
+            if (lessThanDate != null)
+            {
+                prepStmt = conn.prepareStatement(DatabaseManager.isOracle()
+                        ? GET_OLDEST_BITSTREAMS_AFTER_DATE_ORACLE : GET_OLDEST_BITSTREAMS_AFTER_DATE);
+                prepStmt.setTimestamp(index++, lessThanDate);
+            }
+            else
+            {
+                prepStmt = conn.prepareStatement(DatabaseManager.isOracle()
+                        ? GET_OLDEST_BITSTREAMS_AFTER_ORACLE : GET_OLDEST_BITSTREAMS_AFTER);
+            }
+            prepStmt.setTimestamp(index++, afterEndDate);
+            prepStmt.setTimestamp(index++, afterEndDate);
+            prepStmt.setInt(index++, afterId);
+            prepStmt.setInt(index++, limit);
+
+            rs = prepStmt.executeQuery();
+            while (rs.next())
+            {
+                BitstreamInfo info = new BitstreamInfo(rs.getInt(1));
+                info.setProcessEndDate(rs.getTimestamp(2));
+                infos.add(info);
+            }
+        }
+        catch (SQLException e)
+        {
+            LOG.error("get oldest bitstreams " + e.getMessage(), e);
+            throw new IllegalStateException("get oldest bitstreams. " + e.getMessage(), e);
+        }
+        finally
+        {
+            cleanup(prepStmt, conn, rs);
+        }
+
+        return infos;
+    }
+
     /**
      * Get the bitstream ids for a given Item
      * 
@@ -9,13 +9,23 @@ package org.dspace.checker;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.DigestInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Utils;
 
 /**
@@ -25,6 +35,16 @@ import org.dspace.core.Utils;
  * against the last calculated checksum for that bitstream.
  * </p>
  * 
+ * <p>
+ * Bitstreams are checked by <code>checker.threads</code> workers (default 1)
+ * sharing the dispatcher, each reading through its own direct buffer of
+ * <code>checker.buffer.size</code> bytes. Results are written to the database
+ * in batches of <code>checker.batch.size</code>. Setting
+ * <code>checker.throttle</code> limits the bytes read per second by all the
+ * workers together, so that the checker can run alongside production.
+ * Progress (MB/s and bitstreams per asset store) is logged every minute.
+ * </p>
+ * 
  * @author Jim Downing
  * @author Grace Carpenter
  * @author Nathan Sarr
@@ -41,8 +61,38 @@ public final class CheckerCommand
     /** Default digest algorithm (MD5). */
     private static final String DEFAULT_DIGEST_ALGORITHM = "MD5";
 
-    /** 4 Meg byte array for reading file. */
-    private int BYTE_ARRAY_SIZE = 4 * 1024;
+    /** Default size of the buffer each worker reads bitstreams through (4 Meg). */
+    private static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /** Default number of results written to the database at a time. */
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** How often progress is logged, in milliseconds. */
+    private static final long REPORT_INTERVAL = 60 * 1000;
+
+    /** Number of worker threads. */
+    private int threads = ConfigurationManager.getIntProperty("checker.threads", 1);
+
+    /** Size of the buffer each worker reads bitstreams through. */
+    private int bufferSize = ConfigurationManager.getIntProperty("checker.buffer.size", DEFAULT_BUFFER_SIZE);
+
+    /** Number of results written to the database at a time. */
+    private int batchSize = ConfigurationManager.getIntProperty("checker.batch.size", DEFAULT_BATCH_SIZE);
+
+    /** Limit on the bytes read per second, or null for no limit. */
+    private Throttle throttle = null;
+
+    /** First error which stopped a worker, to stop the others. */
+    private volatile RuntimeException failure = null;
+
+    /** Time processing began, for progress reports. */
+    private long progressStart;
+
+    /** Time of the last progress report. */
+    private long lastReport;
+
+    /** Number of bitstreams and bytes checked, by store number. */
+    private Map<Integer, long[]> progress = new TreeMap<Integer, long[]>();
 
     /** BitstreamInfoDAO dependency. */
     private BitstreamInfoDAO bitstreamInfoDAO = null;
@@ -50,11 +100,6 @@ public final class CheckerCommand
     /** BitstreamDAO dependency. */
     private BitstreamDAO bitstreamDAO = null;
 
-    /**
-     * Checksum history Data access object
-     */
-    private ChecksumHistoryDAO checksumHistoryDAO = null;
-
     /** start time for current process. */
     private Date processStartDate = null;
 
@@ -78,7 +123,12 @@ public final class CheckerCommand
     {
         bitstreamInfoDAO = new BitstreamInfoDAO();
         bitstreamDAO = new BitstreamDAO();
-        checksumHistoryDAO = new ChecksumHistoryDAO();
+
+        long bytesPerSecond = ConfigurationManager.getLongProperty("checker.throttle", 0);
+        if (bytesPerSecond > 0)
+        {
+            throttle = new Throttle(bytesPerSecond);
+        }
     }
 
     /**
@@ -111,32 +161,219 @@ public final class CheckerCommand
         // bitstream table - this always done.
         bitstreamInfoDAO.updateMissingBitstreams();
 
-        int id = dispatcher.next();
+        progressStart = System.currentTimeMillis();
+        lastReport = progressStart;
+        failure = null;
 
-        while (id != BitstreamDispatcher.SENTINEL)
+        if (threads <= 1)
         {
-            LOG.debug("Processing bitstream id = " + id);
-            BitstreamInfo info = checkBitstream(id);
+            new Worker().run();
+        }
+        else
+        {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int i = 0; i < threads; i++)
+            {
+                pool.execute(new Worker());
+            }
+            pool.shutdown();
 
-            if (reportVerbose
-                    || !ChecksumCheckResults.CHECKSUM_MATCH.equals(info.getChecksumCheckResult()))
+            try
             {
-                collector.collect(info);
+                while (!pool.awaitTermination(1, TimeUnit.MINUTES))
+                {
+                    // wait for the workers to run out of bitstreams
+                }
             }
+            catch (InterruptedException e)
+            {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
 
-            id = dispatcher.next();
+        reportProgress();
+
+        if (failure != null)
+        {
+            throw failure;
         }
     }
 
+    /**
+     * A worker checking the bitstreams handed out by the dispatcher, until
+     * there are no more or another worker fails.
+     */
+    private class Worker implements Runnable
+    {
+        /** Buffer for reading bitstreams. */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+
+        /** Results to be written to the database. */
+        private final List<BitstreamInfo> updates = new ArrayList<BitstreamInfo>();
+
+        public void run()
+        {
+            try
+            {
+                int id = dispatcher.next();
+
+                while (id != BitstreamDispatcher.SENTINEL && failure == null
+                        && !Thread.currentThread().isInterrupted())
+                {
+                    LOG.debug("Processing bitstream id = " + id);
+                    BitstreamInfo info = checkBitstream(id, buffer, updates);
+
+                    if (updates.size() >= batchSize)
+                    {
+                        bitstreamInfoDAO.update(updates);
+                        updates.clear();
+                    }
+
+                    if (reportVerbose
+                            || !ChecksumCheckResults.CHECKSUM_MATCH.equals(info.getChecksumCheckResult()))
+                    {
+                        synchronized (collector)
+                        {
+                            collector.collect(info);
+                        }
+                    }
+
+                    recordProgress(info);
+
+                    id = dispatcher.next();
+                }
+
+                bitstreamInfoDAO.update(updates);
+            }
+            catch (RuntimeException e)
+            {
+                LOG.error("Checksum checker stopped: " + e.getMessage(), e);
+                if (failure == null)
+                {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Limit on the bytes read per second, shared by all the workers.
+     */
+    private static class Throttle
+    {
+        private final long bytesPerSecond;
+
+        private final long start = System.currentTimeMillis();
+
+        private long bytes = 0;
+
+        Throttle(long bytesPerSecond)
+        {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /**
+         * Wait until reading another count bytes keeps within the limit.
+         */
+        void acquire(long count)
+        {
+            long wait;
+            synchronized (this)
+            {
+                bytes += count;
+                wait = bytes * 1000 / bytesPerSecond - (System.currentTimeMillis() - start);
+            }
+
+            if (wait > 0)
+            {
+                try
+                {
+                    Thread.sleep(wait);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Count a checked bitstream, and log progress if it is time to.
+     */
+    private void recordProgress(BitstreamInfo info)
+    {
+        boolean report = false;
+        synchronized (progress)
+        {
+            if (info.getBitstreamFound())
+            {
+                long[] store = progress.get(info.getStoreNumber());
+                if (store == null)
+                {
+                    store = new long[2];
+                    progress.put(info.getStoreNumber(), store);
+                }
+                store[0]++;
+                store[1] += info.getSize();
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= REPORT_INTERVAL)
+            {
+                lastReport = now;
+                report = true;
+            }
+        }
+
+        if (report)
+        {
+            reportProgress();
+        }
+    }
+
+    /**
+     * Log the bitstreams and bytes checked so far, in total and by store.
+     */
+    private void reportProgress()
+    {
+        StringBuilder stores = new StringBuilder();
+        long count = 0;
+        long bytes = 0;
+        synchronized (progress)
+        {
+            for (Map.Entry<Integer, long[]> store : progress.entrySet())
+            {
+                count += store.getValue()[0];
+                bytes += store.getValue()[1];
+                stores.append("; store ").append(store.getKey()).append(": ")
+                        .append(store.getValue()[0]).append(" bitstreams, ")
+                        .append(store.getValue()[1] / (1024 * 1024)).append(" MB");
+            }
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - progressStart);
+        LOG.info("Checked " + count + " bitstreams, " + (bytes / (1024 * 1024)) + " MB in "
+                + (elapsed / 1000) + "s ("
+                + String.format("%.1f", bytes * 1000.0 / elapsed / (1024 * 1024)) + " MB/s)"
+                + stores);
+    }
+
     /**
      * Check a specified bitstream.
      * 
      * @param id
      *            the bitstream id
+     * @param buffer
+     *            buffer to read the bitstream through
+     * @param updates
+     *            results to be written to the database, added to if the
+     *            bitstream was processed
      * 
      * @return the information about the bitstream and its checksum data
      */
-    private BitstreamInfo checkBitstream(final int id)
+    private BitstreamInfo checkBitstream(final int id, ByteBuffer buffer, List<BitstreamInfo> updates)
     {
         // get bitstream info from bitstream table
         BitstreamInfo info = bitstreamInfoDAO.findByBitstreamId(id);
@@ -164,10 +401,12 @@ public final class CheckerCommand
         {
             // bitstream id is marked 'deleted' in bitstream table.
             processDeletedBitstream(info);
+            updates.add(info);
         }
         else
         {
-            processBitstream(info);
+            processBitstream(info, buffer);
+            updates.add(info);
         }
 
         return info;
@@ -180,6 +419,8 @@ public final class CheckerCommand
      *            InputStream to digest.
      * @param algorithm
      *            the algorithm to use when digesting.
+     * @param buffer
+     *            buffer to read the stream through.
      * @todo Document the algorithm parameter
      * @return digest
      * 
@@ -189,22 +430,34 @@ public final class CheckerCommand
      * @throws java.io.IOException
      *             If an exception arises whilst reading the stream
      */
-    private String digestStream(InputStream stream, String algorithm)
+    private String digestStream(InputStream stream, String algorithm, ByteBuffer buffer)
             throws java.security.NoSuchAlgorithmException, java.io.IOException
     {
-        // create the digest stream
-        DigestInputStream dStream = new DigestInputStream(stream, MessageDigest
-                .getInstance(algorithm));
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
 
-        byte[] bytes = new byte[BYTE_ARRAY_SIZE];
-
-        // make sure all the data is read by the digester
-        int bytesRead = -1;
-        do {
-            bytesRead = dStream.read(bytes, 0, BYTE_ARRAY_SIZE);
-        } while (bytesRead != -1);
+        // files in a local asset store are read through their channel
+        // straight into the direct buffer
+        ReadableByteChannel channel = Channels.newChannel(stream);
+        try
+        {
+            buffer.clear();
+            while (channel.read(buffer) != -1)
+            {
+                buffer.flip();
+                if (throttle != null)
+                {
+                    throttle.acquire(buffer.remaining());
+                }
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
 
-        return Utils.toHex(dStream.getMessageDigest().digest());
+        return Utils.toHex(digest.digest());
     }
 
     /**
@@ -250,8 +503,6 @@ public final class CheckerCommand
         info.setProcessStartDate(new Date());
         info.setProcessEndDate(new Date());
         info.setToBeProcessed(false);
-        bitstreamInfoDAO.update(info);
-        checksumHistoryDAO.insertHistory(info);
     }
 
     /**
@@ -287,8 +538,10 @@ public final class CheckerCommand
      * 
      * @param info
      *            BitstreamInfo to handle
+     * @param buffer
+     *            buffer to read the bitstream through
      */
-    private void processBitstream(BitstreamInfo info)
+    private void processBitstream(BitstreamInfo info, ByteBuffer buffer)
     {
         info.setProcessStartDate(new Date());
 
@@ -305,7 +558,7 @@ public final class CheckerCommand
             info.setBitstreamFound(true);
 
             String checksum = digestStream(bitstream, info
-                    .getChecksumAlgorithm());
+                    .getChecksumAlgorithm(), buffer);
 
             info.setCalculatedChecksum(checksum);
 
@@ -342,11 +595,9 @@ public final class CheckerCommand
         }
         finally
         {
+            // the new checksum and comparison result are recorded in the db
+            // with the rest of the worker's batch
             info.setProcessEndDate(new Date());
-
-            // record new checksum and comparison result in db
-            bitstreamInfoDAO.update(info);
-            checksumHistoryDAO.insertHistory(info);
         }
     }
 
@@ -413,6 +664,28 @@ public final class CheckerCommand
         processStartDate = startDate == null ? null : new Date(startDate.getTime());
     }
 
+    /**
+     * Get the number of worker threads checking bitstreams.
+     * 
+     * @return number of threads
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Set the number of worker threads checking bitstreams. Each needs a
+     * database connection while it records results.
+     * 
+     * @param threads
+     *            number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
     /**
      * Determine if any errors are reported
      * 
@@ -12,6 +12,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -139,6 +140,49 @@ public class ChecksumHistoryDAO extends DAOSupport
         }
     }
 
+    /**
+     * Inserts results of a batch of checksum checks into the checksum_history
+     * table. The caller commits the connection.
+     * 
+     * @param infos
+     *            the BitstreamInfos representing the checksum checks.
+     * @param conn
+     *            the connection to insert with.
+     * @throws SQLException
+     *             if a database error occurs.
+     */
+    protected void insertHistory(List<BitstreamInfo> infos, Connection conn) throws SQLException
+    {
+        PreparedStatement stmt = null;
+
+        try
+        {
+            if (DatabaseManager.isOracle())
+            {
+                stmt = conn.prepareStatement(INSERT_HISTORY_ORACLE);
+            }
+            else
+            {
+                stmt = conn.prepareStatement(INSERT_HISTORY);
+            }
+            for (BitstreamInfo info : infos)
+            {
+                stmt.setInt(1, info.getBitstreamId());
+                stmt.setTimestamp(2, new java.sql.Timestamp(info.getProcessStartDate().getTime()));
+                stmt.setTimestamp(3, new java.sql.Timestamp(info.getProcessEndDate().getTime()));
+                stmt.setString(4, info.getStoredChecksum());
+                stmt.setString(5, info.getCalculatedChecksum());
+                stmt.setString(6, info.getChecksumCheckResult());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        finally
+        {
+            cleanup(stmt);
+        }
+    }
+
     /**
      * Deletes the bitstream from the bitstream_history table if it exist.
      * 
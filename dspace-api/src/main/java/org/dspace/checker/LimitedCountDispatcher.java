@@ -67,7 +67,7 @@ public class LimitedCountDispatcher implements BitstreamDispatcher
      * @throws SQLException
      *             if database error occurs.
      */
-    public int next()
+    public synchronized int next()
     {
         if (remaining > 0)
         {
@@ -7,11 +7,19 @@
  */
 package org.dspace.checker;
 
+import java.sql.Timestamp;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * An implementation of the selection strategy that selects bitstreams in the
  * order that they were last checked, looping endlessly.
+ * <p>
+ * Bitstreams are fetched a batch at a time, each batch starting after the
+ * last bitstream of the previous one. Bitstreams still being checked by one
+ * worker are therefore not handed to another, and the dispatcher can be
+ * shared by the threads of a {@link CheckerCommand}.
  * 
  * @author Jim Downing
  * @author Grace Carpenter
@@ -36,6 +44,15 @@ public class SimpleDispatcher implements BitstreamDispatcher
      */
     private BitstreamInfoDAO bitstreamInfoDAO;
 
+    /** Number of bitstreams fetched from the database at a time. */
+    private static final int BATCH_SIZE = 100;
+
+    /** Bitstreams fetched but not yet dispatched. */
+    private LinkedList<BitstreamInfo> batch = new LinkedList<BitstreamInfo>();
+
+    /** The last bitstream dispatched, or null at the start of a pass. */
+    private BitstreamInfo last = null;
+
     /**
      * Creates a new SimpleDispatcher.
      * 
@@ -65,18 +82,51 @@ public class SimpleDispatcher implements BitstreamDispatcher
      * @see org.dspace.checker.BitstreamDispatcher#next()
      */
     public synchronized int next()
+    {
+        if (batch.isEmpty())
+        {
+            fetch();
+
+            // Start another pass when looping endlessly
+            if (batch.isEmpty() && loopContinuously && last != null)
+            {
+                last = null;
+                fetch();
+            }
+
+            if (batch.isEmpty())
+            {
+                return SENTINEL;
+            }
+        }
+
+        last = batch.removeFirst();
+        return last.getBitstreamId();
+    }
+
+    /**
+     * Fetch the batch of bitstreams after the last one dispatched.
+     */
+    private void fetch()
     {
         // should process loop infinitely through the
         // bitstreams in most_recent_checksum table?
+        Timestamp lessThanDate = null;
         if (!loopContinuously && (processStartTime != null))
         {
-            return bitstreamInfoDAO.getOldestBitstream(new java.sql.Timestamp(
-                    processStartTime.getTime()));
+            lessThanDate = new Timestamp(processStartTime.getTime());
+        }
+
+        List<BitstreamInfo> infos;
+        if (last == null)
+        {
+            infos = bitstreamInfoDAO.getOldestBitstreams(lessThanDate, null, SENTINEL, BATCH_SIZE);
         }
         else
         {
-            return bitstreamInfoDAO.getOldestBitstream();
+            infos = bitstreamInfoDAO.getOldestBitstreams(lessThanDate,
+                    new Timestamp(last.getProcessEndDate().getTime()), last.getBitstreamId(), BATCH_SIZE);
         }
-
+        batch.addAll(infos);
     }
 }
@@ -182,6 +182,59 @@ public class Bitstream extends DSpaceObject
         return bitstreamArray;
     }
 
+    /**
+     * Get one page of the bitstreams which have not been deleted, in order of
+     * their IDs. Passing the ID of the last bitstream of a page as
+     * <code>after</code> gets the next page, at the same cost however deep
+     * it is.
+     * 
+     * @param context
+     *            DSpace context object
+     * @param after
+     *            the ID after which the page starts, or -1 for the first page
+     * @param offset
+     *            the number of bitstreams to skip after that
+     * @param limit
+     *            the largest number of bitstreams to return
+     * @return the bitstreams in the page
+     * @throws SQLException
+     */
+    public static Bitstream[] findAll(Context context, int after, int offset, int limit) throws SQLException
+    {
+        TableRowIterator tri = DatabaseManager.queryTablePage(context, "bitstream", "deleted<>'1'",
+                after, offset, limit);
+
+        List<Bitstream> bitstreams = new ArrayList<Bitstream>();
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                // First check the cache
+                Bitstream fromCache = (Bitstream) context.fromCache(
+                        Bitstream.class, row.getIntColumn("bitstream_id"));
+
+                if (fromCache != null)
+                {
+                    bitstreams.add(fromCache);
+                }
+                else
+                {
+                    bitstreams.add(new Bitstream(context, row));
+                }
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            tri.close();
+        }
+
+        return bitstreams.toArray(new Bitstream[bitstreams.size()]);
+    }
+
     /**
      * Create a new bitstream, with a new ID. The checksum and file size are
      * calculated. This method is not public, and does not check authorisation;
@@ -589,6 +642,28 @@ public class Bitstream extends DSpaceObject
                 .getIntColumn("bitstream_id"));
     }
 
+    /**
+     * Retrieve part of the contents of the bitstream, without reading the
+     * bytes before it.
+     *
+     * @param offset
+     *            the position of the first byte to read
+     * @param length
+     *            the maximum number of bytes to read, or -1 to read to the end
+     * @return a stream from which the part can be read.
+     * @throws IOException
+     * @throws SQLException
+     * @throws AuthorizeException
+     */
+    public InputStream retrieve(long offset, long length) throws IOException,
+            SQLException, AuthorizeException
+    {
+        AuthorizeManager.authorizeAction(ourContext, this, Constants.READ);
+
+        return BitstreamStorageManager.retrieve(ourContext, bRow
+                .getIntColumn("bitstream_id"), offset, length);
+    }
+
     /**
      * Get the bundles this bitstream appears in
      * 
@@ -16,6 +16,7 @@ import org.dspace.authorize.AuthorizeException;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.core.SharedObjectCache;
 import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
@@ -108,6 +109,42 @@ public class BitstreamFormat
         context.cache(this, row.getIntColumn("bitstream_format_id"));
     }
 
+    /**
+     * Class constructor for creating a BitstreamFormat object from the copy
+     * held in the shared object cache, without querying the database.
+     *
+     * @param context
+     *            the context this object exists in
+     * @param shared
+     *            the copy of the format's row and extensions
+     */
+    private BitstreamFormat(Context context, SharedCopy shared)
+    {
+        bfContext = context;
+        bfRow = shared.row.copy();
+        extensions = new ArrayList<String>(shared.extensions);
+
+        // Cache ourselves
+        context.cache(this, bfRow.getIntColumn("bitstream_format_id"));
+    }
+
+    /**
+     * Immutable copy of a format's row and extensions, as held in the
+     * {@link SharedObjectCache}.
+     */
+    private static final class SharedCopy
+    {
+        private final TableRow row;
+
+        private final List<String> extensions;
+
+        private SharedCopy(TableRow row, List<String> extensions)
+        {
+            this.row = row.copy();
+            this.extensions = new ArrayList<String>(extensions);
+        }
+    }
+
     /**
      * Get a bitstream format from the database.
      * 
@@ -131,6 +168,13 @@ public class BitstreamFormat
             return fromCache;
         }
 
+        // Then the cache shared between contexts
+        SharedCopy shared = (SharedCopy) SharedObjectCache.get(BitstreamFormat.class, id);
+        if (shared != null)
+        {
+            return new BitstreamFormat(context, shared);
+        }
+
         TableRow row = DatabaseManager.find(context, "bitstreamformatregistry",
                 id);
 
@@ -153,7 +197,12 @@ public class BitstreamFormat
                     "bitstream_format_id=" + id));
         }
 
-        return new BitstreamFormat(context, row);
+        BitstreamFormat format = new BitstreamFormat(context, row);
+        if (SharedObjectCache.isEnabled())
+        {
+            SharedObjectCache.put(BitstreamFormat.class, id, new SharedCopy(row, format.extensions));
+        }
+        return format;
     }
 
     /**
@@ -599,6 +648,9 @@ public class BitstreamFormat
         }
 
         DatabaseManager.update(bfContext, bfRow);
+
+        // Formats don't fire events, so drop the shared copy right away
+        SharedObjectCache.invalidate(BitstreamFormat.class, getID());
     }
 
     /**
@@ -641,6 +693,7 @@ public class BitstreamFormat
 
         // Delete this format from database
         DatabaseManager.delete(bfContext, bfRow);
+        SharedObjectCache.invalidate(BitstreamFormat.class, getID());
 
         log.info(LogManager.getHeader(bfContext, "delete_bitstream_format",
                 "bitstream_format_id=" + getID() + ",bitstreams_changed="
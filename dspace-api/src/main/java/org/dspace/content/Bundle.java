@@ -60,6 +60,22 @@ public class Bundle extends DSpaceObject
      *            the corresponding row in the table
      */
     Bundle(Context context, TableRow row) throws SQLException
+    {
+        this(context, row, findBitstreamRows(context, row.getIntColumn("bundle_id")));
+    }
+
+    /**
+     * Construct a bundle object with the given table row and the already
+     * loaded rows of its bitstreams
+     *
+     * @param context
+     *            the context this object exists in
+     * @param row
+     *            the corresponding row in the table
+     * @param bitstreamRows
+     *            the rows of its bitstreams, in order
+     */
+    Bundle(Context context, TableRow row, List<TableRow> bitstreamRows) throws SQLException
     {
         super(context);
 
@@ -69,70 +85,128 @@ public class Bundle extends DSpaceObject
 
         bundleRow = row;
         bitstreams = new ArrayList<Bitstream>();
-        String bitstreamOrderingField  = ConfigurationManager.getProperty("webui.bitstream.order.field");
-        String bitstreamOrderingDirection   = ConfigurationManager.getProperty("webui.bitstream.order.direction");
 
-        if (bitstreamOrderingField == null)
+        for (TableRow r : bitstreamRows)
         {
-            bitstreamOrderingField = "sequence_id";
-        }
+            // First check the cache
+            Bitstream fromCache = (Bitstream) context.fromCache(
+                    Bitstream.class, r.getIntColumn("bitstream_id"));
 
-        if (bitstreamOrderingDirection == null)
-        {
-            bitstreamOrderingDirection = "ASC";
+            if (fromCache != null)
+            {
+                bitstreams.add(fromCache);
+            }
+            else
+            {
+                //Since bitstreams can be ordered by a column in bundle2bitstream
+                //We cannot use queryTable & so we need to add our table later on
+                r.setTable("bitstream");
+                bitstreams.add(new Bitstream(ourContext, r));
+            }
         }
 
+        // Cache ourselves
+        context.cache(this, row.getIntColumn("bundle_id"));
+
+        modified = false;
+    }
+
+    /**
+     * Get the rows of the bitstreams in a bundle, in the configured order.
+     */
+    private static List<TableRow> findBitstreamRows(Context context, int bundleID) throws SQLException
+    {
         StringBuilder query = new StringBuilder();
         query.append("SELECT bitstream.*,bundle2bitstream.bitstream_order FROM bitstream, bundle2bitstream WHERE");
         query.append(" bundle2bitstream.bitstream_id=bitstream.bitstream_id AND");
         query.append(" bundle2bitstream.bundle_id= ?");
         query.append(" ORDER BY ");
-        query.append(bitstreamOrderingField);
-        query.append(" ");
-        query.append(bitstreamOrderingDirection);
+        query.append(getBitstreamOrder());
 
         // Get bitstreams
-        TableRowIterator tri = DatabaseManager.query(
-                ourContext,
-                query.toString(),
-                bundleRow.getIntColumn("bundle_id"));
-
+        TableRowIterator tri = DatabaseManager.query(context, query.toString(), bundleID);
         try
         {
-            while (tri.hasNext())
-            {
-                TableRow r = tri.next();
+            return tri.toList();
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            tri.close();
+        }
+    }
 
-                // First check the cache
-                Bitstream fromCache = (Bitstream) context.fromCache(
-                        Bitstream.class, r.getIntColumn("bitstream_id"));
+    /**
+     * Get the rows of the bitstreams in many bundles with one query per
+     * {@link DSpaceObject#PREFETCH_BATCH_SIZE} bundles.
+     *
+     * @return map of bundle ID to the rows of its bitstreams, in the
+     *         configured order; bundles without bitstreams are left out
+     */
+    static Map<Integer, List<TableRow>> findBitstreamRows(Context context, List<Integer> bundleIDs)
+            throws SQLException
+    {
+        Map<Integer, List<TableRow>> rows = new HashMap<Integer, List<TableRow>>();
+        for (int start = 0; start < bundleIDs.size(); start += PREFETCH_BATCH_SIZE)
+        {
+            List<Integer> batch = bundleIDs.subList(start, Math.min(start + PREFETCH_BATCH_SIZE, bundleIDs.size()));
 
-                if (fromCache != null)
-                {
-                    bitstreams.add(fromCache);
-                }
-                else
+            StringBuilder query = new StringBuilder();
+            query.append("SELECT bitstream.*,bundle2bitstream.bitstream_order,bundle2bitstream.bundle_id FROM bitstream, bundle2bitstream WHERE");
+            query.append(" bundle2bitstream.bitstream_id=bitstream.bitstream_id AND");
+            query.append(" bundle2bitstream.bundle_id IN (");
+            for (int i = 0; i < batch.size(); i++)
+            {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(") ORDER BY ");
+            query.append(getBitstreamOrder());
+
+            TableRowIterator tri = DatabaseManager.query(context, query.toString(), batch.toArray());
+            try
+            {
+                while (tri.hasNext())
                 {
-                    //Since bitstreams can be ordered by a column in bundle2bitstream
-                    //We cannot use queryTable & so we need to add our table later on
-                    r.setTable("bitstream");
-                    bitstreams.add(new Bitstream(ourContext, r));
+                    TableRow r = tri.next();
+                    int bundleID = r.getIntColumn("bundle_id");
+                    List<TableRow> bundleRows = rows.get(bundleID);
+                    if (bundleRows == null)
+                    {
+                        bundleRows = new ArrayList<TableRow>();
+                        rows.put(bundleID, bundleRows);
+                    }
+                    bundleRows.add(r);
                 }
             }
-        }
-        finally
-        {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
+            finally
             {
                 tri.close();
             }
         }
+        return rows;
+    }
 
-        // Cache ourselves
-        context.cache(this, row.getIntColumn("bundle_id"));
+    /**
+     * Get the ORDER BY clause of the bitstreams in a bundle, from
+     * <code>webui.bitstream.order.field</code> and
+     * <code>webui.bitstream.order.direction</code>.
+     */
+    private static String getBitstreamOrder()
+    {
+        String bitstreamOrderingField  = ConfigurationManager.getProperty("webui.bitstream.order.field");
+        String bitstreamOrderingDirection   = ConfigurationManager.getProperty("webui.bitstream.order.direction");
 
-        modified = false;
+        if (bitstreamOrderingField == null)
+        {
+            bitstreamOrderingField = "sequence_id";
+        }
+
+        if (bitstreamOrderingDirection == null)
+        {
+            bitstreamOrderingDirection = "ASC";
+        }
+
+        return bitstreamOrderingField + " " + bitstreamOrderingDirection;
     }
 
     /**
@@ -482,26 +556,40 @@ public class Bundle extends DSpaceObject
             bitstreamMap.put(bitstream.getID(), bitstream);
         }
 
+        //Map the bundle2bitstream rows of the bundle by bitstream identifier
+        Map<Integer, TableRow> mappingRows = new HashMap<Integer, TableRow>();
+        TableRowIterator tri = DatabaseManager.queryTable(ourContext, "bundle2bitstream",
+                "SELECT * FROM bundle2bitstream WHERE bundle_id= ? ", getID());
+        try {
+            while (tri.hasNext()) {
+                TableRow row = tri.next();
+                mappingRows.put(row.getIntColumn("bitstream_id"), row);
+            }
+        } finally {
+            tri.close();
+        }
+
         //We need to also reoder our cached bitstreams list
         bitstreams = new ArrayList<Bitstream>();
+        List<TableRow> changedRows = new ArrayList<TableRow>();
         for (int i = 0; i < bitstreamIds.length; i++) {
             int bitstreamId = bitstreamIds[i];
 
             //TODO: take into account the asc & desc ! from the dspace.cfg
-            TableRow row = DatabaseManager.querySingleTable(ourContext, "bundle2bitstream",
-                    "SELECT * FROM bundle2bitstream WHERE bitstream_id= ? ", bitstreamId);
+            TableRow row = mappingRows.get(bitstreamId);
 
             if(row == null){
                 //This should never occur but just in case
                 log.warn(LogManager.getHeader(ourContext, "Invalid bitstream id while changing bitstream order", "Bundle: " + getID() + ", bitstream id: " + bitstreamId));
             }else{
                 row.setColumn("bitstream_order", i);
-                DatabaseManager.update(ourContext, row);
+                changedRows.add(row);
             }
 
             // Place the bitstream in the list of bitstreams in this bundle
             bitstreams.add(bitstreamMap.get(bitstreamId));
         }
+        DatabaseManager.updateBatch(ourContext, changedRows);
 
         //The order of the bitstreams has changed, ensure that we update the last modified of our item
         Item owningItem = (Item) getParentObject();
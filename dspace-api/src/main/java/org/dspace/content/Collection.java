@@ -98,6 +98,23 @@ public class Collection extends DSpaceObject
      * @throws SQLException
      */
     Collection(Context context, TableRow row) throws SQLException
+    {
+        this(context, row, null);
+    }
+
+    /**
+     * Construct a collection with the given table row and Handle, as kept in
+     * the shared object cache
+     *
+     * @param context
+     *            the context this object exists in
+     * @param row
+     *            the corresponding row in the table
+     * @param handle
+     *            the Handle of the collection, or null to look it up
+     * @throws SQLException
+     */
+    Collection(Context context, TableRow row, String handle) throws SQLException
     {
         super(context);
 
@@ -140,7 +157,7 @@ public class Collection extends DSpaceObject
         admins = groupFromColumn("admin");
 
         // Get our Handle if any
-        handle = HandleManager.findHandle(context, this);
+        this.handle = (handle != null) ? handle : HandleManager.findHandle(context, this);
 
         // Cache ourselves
         context.cache(this, row.getIntColumn("collection_id"));
@@ -171,6 +188,15 @@ public class Collection extends DSpaceObject
             return fromCache;
         }
 
+        // Then the cache shared between contexts
+        SharedObjectSnapshot shared = (SharedObjectSnapshot) SharedObjectCache.get(Collection.class, id);
+        if (shared != null)
+        {
+            Collection collection = new Collection(context, shared.getRow(), shared.getHandle());
+            collection.metadataCache.set(shared.getMetadata());
+            return collection;
+        }
+
         TableRow row = DatabaseManager.find(context, "collection", id);
 
         if (row == null)
@@ -191,7 +217,12 @@ public class Collection extends DSpaceObject
                     "collection_id=" + id));
         }
 
-        return new Collection(context, row);
+        Collection collection = new Collection(context, row);
+        if (SharedObjectCache.isEnabled())
+        {
+            SharedObjectCache.put(Collection.class, id, new SharedObjectSnapshot(row, collection.getMetadata(), collection.getHandle()));
+        }
+        return collection;
     }
 
     /**
@@ -372,13 +403,18 @@ public class Collection extends DSpaceObject
             }else{
                 query += " ORDER BY m.text_value";
             }
-            query += " limit ? offset ?";
+            if(DatabaseManager.isOracle()){
+                // Oracle 12c and later
+                query += " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+            }else{
+                query += " OFFSET ? LIMIT ?";
+            }
             tri = DatabaseManager.query(context,
                     query,
                     Constants.COLLECTION,
                     MetadataField.findByElement(context, MetadataSchema.find(context, MetadataSchema.DC_SCHEMA).getSchemaID(), "title", null).getFieldID(),
-                    limit,
-                    offset
+                    offset,
+                    limit
             );
         } catch (SQLException e) {
             log.error("Find all Collections offset/limit - ",e);
@@ -421,6 +457,57 @@ public class Collection extends DSpaceObject
         return collectionArray;
     }
 
+    /**
+     * Get one page of the collections in the system, in order of their IDs.
+     * Passing the ID of the last collection of a page as <code>after</code>
+     * gets the next page, at the same cost however deep it is.
+     * 
+     * @param context
+     *            DSpace context object
+     * @param after
+     *            the ID after which the page starts, or -1 for the first page
+     * @param offset
+     *            the number of collections to skip after that
+     * @param limit
+     *            the largest number of collections to return
+     * 
+     * @return the collections in the page
+     */
+    public static Collection[] findAll(Context context, int after, int offset, int limit) throws SQLException
+    {
+        TableRowIterator tri = DatabaseManager.queryTablePage(context, "collection", null, after, offset, limit);
+
+        List<Collection> collections = new ArrayList<Collection>();
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                // First check the cache
+                Collection fromCache = (Collection) context.fromCache(
+                        Collection.class, row.getIntColumn("collection_id"));
+
+                if (fromCache != null)
+                {
+                    collections.add(fromCache);
+                }
+                else
+                {
+                    collections.add(new Collection(context, row));
+                }
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            tri.close();
+        }
+
+        return collections.toArray(new Collection[collections.size()]);
+    }
+
     /**
      * Get the in_archive items in this collection. The order is indeterminate.
      *
@@ -461,6 +548,30 @@ public class Collection extends DSpaceObject
         return new ItemIterator(ourContext, rows);
     }
 
+    /**
+     * Get one page of the in_archive items in this collection, in order of
+     * their IDs. Passing the ID of the last item of a page as
+     * <code>after</code> gets the next page, at the same cost however deep
+     * it is.
+     * 
+     * @param after
+     *            the ID after which the page starts, or -1 for the first page
+     * @param offset
+     *            the number of items to skip after that
+     * @param limit
+     *            the largest number of items to return
+     * @return an iterator over the items in the page.
+     * @throws SQLException
+     */
+    public ItemIterator getItems(int after, int offset, int limit) throws SQLException
+    {
+        TableRowIterator rows = DatabaseManager.queryTablePage(ourContext, "item",
+                "in_archive='1' AND item_id IN (SELECT item_id FROM collection2item WHERE collection_id = ?)",
+                after, offset, limit, getID());
+
+        return new ItemIterator(ourContext, rows);
+    }
+
     /**
      * Get all the items in this collection. The order is indeterminate.
      *
@@ -1350,6 +1461,27 @@ public class Collection extends DSpaceObject
      */
     public Community[] getCommunities() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.get(ourContext);
+        if (hierarchy != null)
+        {
+            // each owning community, followed by its ancestors
+            List<Integer> ids = new ArrayList<Integer>();
+            for (int owner : hierarchy.getCommunities(getID()))
+            {
+                ids.add(owner);
+                for (int ancestor : hierarchy.getAncestors(owner))
+                {
+                    ids.add(ancestor);
+                }
+            }
+            int[] communityIDs = new int[ids.size()];
+            for (int i = 0; i < communityIDs.length; i++)
+            {
+                communityIDs[i] = ids.get(i);
+            }
+            return CommunityHierarchy.findCommunities(ourContext, communityIDs);
+        }
+
         // Get the bundle table rows
         TableRowIterator tri = DatabaseManager.queryTable(ourContext,"community",
                         "SELECT community.* FROM community, community2collection WHERE " +
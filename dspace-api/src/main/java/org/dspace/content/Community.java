@@ -74,6 +74,22 @@ public class Community extends DSpaceObject
      *            the corresponding row in the table
      */
     Community(Context context, TableRow row) throws SQLException
+    {
+        this(context, row, null);
+    }
+
+    /**
+     * Construct a community object from a database row and its Handle, as kept
+     * in the shared object cache.
+     * 
+     * @param context
+     *            the context this object exists in
+     * @param row
+     *            the corresponding row in the table
+     * @param handle
+     *            the Handle of the community, or null to look it up
+     */
+    Community(Context context, TableRow row, String handle) throws SQLException
     {
         super(context);
 
@@ -95,7 +111,7 @@ public class Community extends DSpaceObject
         }
 
         // Get our Handle if any
-        handle = HandleManager.findHandle(context, this);
+        this.handle = (handle != null) ? handle : HandleManager.findHandle(context, this);
 
         // Cache ourselves
         context.cache(this, row.getIntColumn("community_id"));
@@ -128,6 +144,15 @@ public class Community extends DSpaceObject
             return fromCache;
         }
 
+        // Then the cache shared between contexts
+        SharedObjectSnapshot shared = (SharedObjectSnapshot) SharedObjectCache.get(Community.class, id);
+        if (shared != null)
+        {
+            Community community = new Community(context, shared.getRow(), shared.getHandle());
+            community.metadataCache.set(shared.getMetadata());
+            return community;
+        }
+
         TableRow row = DatabaseManager.find(context, "community", id);
 
         if (row == null)
@@ -148,7 +173,12 @@ public class Community extends DSpaceObject
                         "community_id=" + id));
             }
 
-            return new Community(context, row);
+            Community community = new Community(context, row);
+            if (SharedObjectCache.isEnabled())
+            {
+                SharedObjectCache.put(Community.class, id, new SharedObjectSnapshot(row, community.getMetadata(), community.getHandle()));
+            }
+            return community;
         }
     }
 
@@ -381,6 +411,159 @@ public class Community extends DSpaceObject
         return communityArray;
     }
 
+    /**
+     * Get one page of the communities in the system, alphabetically sorted
+     * by community name. The page is cut out by the database.
+     * 
+     * @param context
+     *            DSpace context object
+     * @param limit
+     *            the largest number of communities to return
+     * @param offset
+     *            the number of communities to skip
+     * 
+     * @return the communities in the page
+     */
+    public static Community[] findAll(Context context, Integer limit, Integer offset) throws SQLException
+    {
+        String query = "SELECT c.* FROM community c " +
+                "LEFT JOIN metadatavalue m on (m.resource_id = c.community_id and m.resource_type_id = ? and m.metadata_field_id = ?) ";
+        return findPage(context, query, limit, offset);
+    }
+
+    /**
+     * Get one page of the top-level communities in the system, alphabetically
+     * sorted by community name. The page is cut out by the database.
+     * 
+     * @param context
+     *            DSpace context object
+     * @param limit
+     *            the largest number of communities to return
+     * @param offset
+     *            the number of communities to skip
+     * 
+     * @return the top-level communities in the page
+     */
+    public static Community[] findAllTop(Context context, Integer limit, Integer offset) throws SQLException
+    {
+        String query = "SELECT c.* FROM community c  "
+                + "LEFT JOIN metadatavalue m on (m.resource_id = c.community_id and m.resource_type_id = ? and m.metadata_field_id = ?) "
+                + "WHERE NOT c.community_id IN (SELECT child_comm_id FROM community2community) ";
+        return findPage(context, query, limit, offset);
+    }
+
+    /**
+     * Get one page of the communities in the system, in order of their IDs.
+     * Passing the ID of the last community of a page as <code>after</code>
+     * gets the next page, at the same cost however deep it is.
+     * 
+     * @param context
+     *            DSpace context object
+     * @param after
+     *            the ID after which the page starts, or -1 for the first page
+     * @param offset
+     *            the number of communities to skip after that
+     * @param limit
+     *            the largest number of communities to return
+     * 
+     * @return the communities in the page
+     */
+    public static Community[] findAll(Context context, int after, int offset, int limit) throws SQLException
+    {
+        return readCommunities(context,
+                DatabaseManager.queryTablePage(context, "community", null, after, offset, limit));
+    }
+
+    /**
+     * Get one page of the top-level communities in the system, in order of
+     * their IDs. Passing the ID of the last community of a page as
+     * <code>after</code> gets the next page.
+     * 
+     * @param context
+     *            DSpace context object
+     * @param after
+     *            the ID after which the page starts, or -1 for the first page
+     * @param offset
+     *            the number of communities to skip after that
+     * @param limit
+     *            the largest number of communities to return
+     * 
+     * @return the top-level communities in the page
+     */
+    public static Community[] findAllTop(Context context, int after, int offset, int limit) throws SQLException
+    {
+        return readCommunities(context, DatabaseManager.queryTablePage(context, "community",
+                "NOT community_id IN (SELECT child_comm_id FROM community2community)", after, offset, limit));
+    }
+
+    /**
+     * Run a query for communities, joined to their titles, sorted by title
+     * and cut to one page.
+     */
+    private static Community[] findPage(Context context, String query, Integer limit, Integer offset)
+            throws SQLException
+    {
+        TableRowIterator tri = null;
+        try {
+            if(DatabaseManager.isOracle()){
+                // Oracle 12c and later
+                query += " ORDER BY cast(m.text_value as varchar2(128)) OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+            }else{
+                query += " ORDER BY m.text_value OFFSET ? LIMIT ?";
+            }
+
+            tri = DatabaseManager.query(context,
+                    query,
+                    Constants.COMMUNITY,
+                    MetadataField.findByElement(context, MetadataSchema.find(context, MetadataSchema.DC_SCHEMA).getSchemaID(), "title", null).getFieldID(),
+                    offset,
+                    limit
+            );
+        } catch (SQLException e) {
+            log.error("Find Communities offset/limit - ",e);
+            throw e;
+        }
+
+        return readCommunities(context, tri);
+    }
+
+    /**
+     * Return the communities of the rows, from the cache where possible, and
+     * close the iterator.
+     */
+    private static Community[] readCommunities(Context context, TableRowIterator tri) throws SQLException
+    {
+        List<Community> communities = new ArrayList<Community>();
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                // First check the cache
+                Community fromCache = (Community) context.fromCache(
+                        Community.class, row.getIntColumn("community_id"));
+
+                if (fromCache != null)
+                {
+                    communities.add(fromCache);
+                }
+                else
+                {
+                    communities.add(new Community(context, row));
+                }
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            tri.close();
+        }
+
+        return communities.toArray(new Community[communities.size()]);
+    }
+
     /**
      * Get the internal ID of this collection
      * 
@@ -653,6 +836,12 @@ public class Community extends DSpaceObject
      */
     public Collection[] getCollections() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.get(ourContext);
+        if (hierarchy != null)
+        {
+            return CommunityHierarchy.findCollections(ourContext, hierarchy.getCollections(getID()));
+        }
+
         List<Collection> collections = new ArrayList<Collection>();
 
         // Get the table rows
@@ -724,6 +913,12 @@ public class Community extends DSpaceObject
      */
     public Community[] getSubcommunities() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.get(ourContext);
+        if (hierarchy != null)
+        {
+            return CommunityHierarchy.findCommunities(ourContext, hierarchy.getSubcommunities(getID()));
+        }
+
         List<Community> subcommunities = new ArrayList<Community>();
 
         // Get the table rows
@@ -797,6 +992,13 @@ public class Community extends DSpaceObject
      */
     public Community getParentCommunity() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.get(ourContext);
+        if (hierarchy != null)
+        {
+            int parentID = hierarchy.getParent(getID());
+            return (parentID < 0) ? null : Community.find(ourContext, parentID);
+        }
+
         Community parentCommunity = null;
 
         // Get the table rows
@@ -848,6 +1050,12 @@ public class Community extends DSpaceObject
      */
     public Community[] getAllParents() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.get(ourContext);
+        if (hierarchy != null)
+        {
+            return CommunityHierarchy.findCommunities(ourContext, hierarchy.getAncestors(getID()));
+        }
+
         List<Community> parentList = new ArrayList<Community>();
         Community parent = getParentCommunity();
 
@@ -872,6 +1080,12 @@ public class Community extends DSpaceObject
 
     public Collection[] getAllCollections() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.get(ourContext);
+        if (hierarchy != null)
+        {
+            return CommunityHierarchy.findCollections(ourContext, hierarchy.getAllCollections(getID()));
+        }
+
         List<Collection> collectionList = new ArrayList<Collection>();
         for (Community subcommunity : getSubcommunities())
         {
@@ -0,0 +1,490 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Event;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Immutable snapshot of the community and collection hierarchy, shared by all
+ * the contexts of this JVM, so that walking the hierarchy (parents, ancestors,
+ * sub-communities and collections) costs no query. Sub-communities and
+ * collections are kept in the order of their titles, as they are listed.
+ * <P>
+ * The snapshot is read from the database when first needed, in two queries.
+ * It is dropped by the {@link org.dspace.core.SharedObjectCacheConsumer} when
+ * communities or collections are created, moved, renamed or deleted, and
+ * the next reader builds a new one; readers holding the previous snapshot
+ * keep using it. Changes made by other JVMs send no event here, so each
+ * context checks the snapshot once, before first using it, against the
+ * number of links between communities and collections and their largest
+ * ID, which costs one small query, and a new one is read if they differ.
+ * Renames only change the order of the lists, and are seen once the
+ * snapshot expires, after <code>cache.hierarchy.ttl</code> seconds (default
+ * 3600).
+ * <P>
+ * A context which has itself changed the hierarchy, and not yet committed,
+ * gets no snapshot, and callers read the hierarchy from the database as
+ * before. So does every context when <code>cache.hierarchy.enabled</code>
+ * is false.
+ */
+public class CommunityHierarchy
+{
+    private static final Logger log = Logger.getLogger(CommunityHierarchy.class);
+
+    private static final int[] NONE = new int[0];
+
+    /** The current snapshot, or null if it must be built again */
+    private static volatile CommunityHierarchy current = null;
+
+    /** Incremented by every invalidation, so that a snapshot built meanwhile is not kept */
+    private static long generation = 0;
+
+    /** Parent of each community having one */
+    private final Map<Integer, Integer> parents;
+
+    /** Sub-communities of each community, in title order */
+    private final Map<Integer, int[]> subcommunities;
+
+    /** Collections of each community, in title order */
+    private final Map<Integer, int[]> collections;
+
+    /** Communities each collection belongs to directly */
+    private final Map<Integer, int[]> owners;
+
+    /** Ancestors of each community having a parent, the parent first */
+    private final Map<Integer, int[]> ancestors;
+
+    /** When the snapshot was read */
+    private final long created;
+
+    /** Number and largest ID of the links between communities, then of those to collections */
+    private final long[] version;
+
+    private CommunityHierarchy(Map<Integer, Integer> parents, Map<Integer, int[]> subcommunities,
+            Map<Integer, int[]> collections, Map<Integer, int[]> owners, long[] version)
+    {
+        this.parents = parents;
+        this.subcommunities = subcommunities;
+        this.collections = collections;
+        this.owners = owners;
+        this.version = version;
+        this.created = System.currentTimeMillis();
+
+        ancestors = new HashMap<Integer, int[]>(parents.size() * 2);
+        for (Integer community : parents.keySet())
+        {
+            List<Integer> chain = new ArrayList<Integer>();
+            Integer parent = parents.get(community);
+            // the size check guards against a cycle in corrupt data
+            while (parent != null && chain.size() <= parents.size())
+            {
+                chain.add(parent);
+                parent = parents.get(parent);
+            }
+            ancestors.put(community, toArray(chain));
+        }
+    }
+
+    /**
+     * Get the hierarchy snapshot, reading it from the database if there is
+     * none yet, it has expired or the links have changed since it was read.
+     *
+     * @param context
+     *            DSpace context, used to read a new snapshot
+     * @return the snapshot, or <code>null</code> if the context has changed
+     *         the hierarchy since its last commit or snapshots are disabled
+     * @throws SQLException
+     */
+    public static CommunityHierarchy get(Context context) throws SQLException
+    {
+        if (context.isHierarchyModified()
+                || !ConfigurationManager.getBooleanProperty("cache.hierarchy.enabled", true))
+        {
+            return null;
+        }
+
+        CommunityHierarchy snapshot = current;
+        long ttl = ConfigurationManager.getLongProperty("cache.hierarchy.ttl", 3600) * 1000;
+        if (snapshot != null && System.currentTimeMillis() - snapshot.created > ttl)
+        {
+            snapshot = null;
+        }
+        // check it once per context, for changes made by other JVMs
+        if (snapshot != null && context.getCheckedHierarchy() != snapshot
+                && !Arrays.equals(snapshot.version, readVersion(context)))
+        {
+            log.info("Community hierarchy changed by another process, reading it again");
+            snapshot = null;
+        }
+
+        if (snapshot == null)
+        {
+            long started;
+            synchronized (CommunityHierarchy.class)
+            {
+                started = generation;
+            }
+
+            snapshot = read(context);
+
+            synchronized (CommunityHierarchy.class)
+            {
+                // keep it only if nothing changed while it was read
+                if (started == generation)
+                {
+                    current = snapshot;
+                }
+            }
+        }
+        context.setCheckedHierarchy(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Drop the current snapshot, because the hierarchy has changed.
+     */
+    public static void invalidate()
+    {
+        synchronized (CommunityHierarchy.class)
+        {
+            generation++;
+            current = null;
+        }
+    }
+
+    /**
+     * Whether an event changes the hierarchy: a community or collection is
+     * created, deleted or renamed, or a community gets or loses a
+     * sub-community or collection.
+     *
+     * @param event
+     *            the event
+     * @return true if a snapshot taken before the event is out of date
+     */
+    public static boolean isHierarchyChange(Event event)
+    {
+        int subject = event.getSubjectType();
+        if (subject != Constants.COMMUNITY && subject != Constants.COLLECTION)
+        {
+            return false;
+        }
+
+        switch (event.getEventType())
+        {
+            case Event.CREATE:
+            case Event.DELETE:
+            case Event.MODIFY_METADATA:
+                return true;
+            case Event.ADD:
+            case Event.REMOVE:
+                return event.getObjectType() == Constants.COMMUNITY
+                        || event.getObjectType() == Constants.COLLECTION;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the ID of the parent of a community, or -1 if it is a
+     *         top-level community
+     */
+    public int getParent(int communityID)
+    {
+        Integer parent = parents.get(communityID);
+        return (parent == null) ? -1 : parent;
+    }
+
+    /**
+     * @return the IDs of the ancestors of a community, its parent first
+     */
+    public int[] getAncestors(int communityID)
+    {
+        return copy(ancestors.get(communityID));
+    }
+
+    /**
+     * @return the IDs of the sub-communities of a community, in title order
+     */
+    public int[] getSubcommunities(int communityID)
+    {
+        return copy(subcommunities.get(communityID));
+    }
+
+    /**
+     * @return the IDs of the collections of a community, in title order
+     */
+    public int[] getCollections(int communityID)
+    {
+        return copy(collections.get(communityID));
+    }
+
+    /**
+     * @return the IDs of the collections of a community and of all its
+     *         sub-communities, those of the sub-communities first
+     */
+    public int[] getAllCollections(int communityID)
+    {
+        List<Integer> all = new ArrayList<Integer>();
+        addAllCollections(communityID, all, 0);
+        return toArray(all);
+    }
+
+    /**
+     * @return the IDs of the communities a collection belongs to directly
+     */
+    public int[] getCommunities(int collectionID)
+    {
+        return copy(owners.get(collectionID));
+    }
+
+    /**
+     * @return whether a community is an ancestor of another one
+     */
+    public boolean isAncestor(int ancestorID, int communityID)
+    {
+        for (int id : getAncestors(communityID))
+        {
+            if (id == ancestorID)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find communities by ID, in the order given, with one query for those
+     * not already in memory.
+     */
+    static Community[] findCommunities(Context context, int[] ids) throws SQLException
+    {
+        List<Community> found = new ArrayList<Community>(ids.length);
+        for (DSpaceObject dso : find(context, Constants.COMMUNITY, ids))
+        {
+            found.add((Community) dso);
+        }
+        return found.toArray(new Community[found.size()]);
+    }
+
+    /**
+     * Find collections by ID, in the order given, with one query for those
+     * not already in memory.
+     */
+    static Collection[] findCollections(Context context, int[] ids) throws SQLException
+    {
+        List<Collection> found = new ArrayList<Collection>(ids.length);
+        for (DSpaceObject dso : find(context, Constants.COLLECTION, ids))
+        {
+            found.add((Collection) dso);
+        }
+        return found.toArray(new Collection[found.size()]);
+    }
+
+    private static List<DSpaceObject> find(Context context, int type, int[] ids) throws SQLException
+    {
+        List<Integer> idList = new ArrayList<Integer>(ids.length);
+        for (int id : ids)
+        {
+            idList.add(id);
+        }
+        Map<Integer, DSpaceObject> byID = DSpaceObject.find(context, type, idList);
+
+        List<DSpaceObject> found = new ArrayList<DSpaceObject>(ids.length);
+        for (int id : ids)
+        {
+            // deleted since the snapshot was read, by another JVM
+            if (byID.get(id) != null)
+            {
+                found.add(byID.get(id));
+            }
+        }
+        return found;
+    }
+
+    private void addAllCollections(int communityID, List<Integer> all, int depth)
+    {
+        // the depth check guards against a cycle in corrupt data
+        if (depth > parents.size())
+        {
+            return;
+        }
+        for (int subcommunity : getSubcommunities(communityID))
+        {
+            addAllCollections(subcommunity, all, depth + 1);
+        }
+        for (int collection : getCollections(communityID))
+        {
+            all.add(collection);
+        }
+    }
+
+    /**
+     * Read the number and the largest ID of the links between communities,
+     * and of those between communities and collections, in one query.
+     * Creating, moving or deleting a community or collection changes them.
+     */
+    private static long[] readVersion(Context context) throws SQLException
+    {
+        long[] version = new long[4];
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT 0 AS link_table, COUNT(*) AS links, MAX(id) AS last_id FROM community2community "
+                + "UNION ALL SELECT 1 AS link_table, COUNT(*) AS links, MAX(id) AS last_id FROM community2collection "
+                + "ORDER BY link_table");
+        try
+        {
+            for (int i = 0; tri.hasNext(); i += 2)
+            {
+                TableRow row = tri.next();
+                version[i] = row.getLongColumn("links");
+                version[i + 1] = row.getLongColumn("last_id");
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return version;
+    }
+
+    /**
+     * Read the hierarchy from the database.
+     */
+    private static CommunityHierarchy read(Context context) throws SQLException
+    {
+        long start = System.currentTimeMillis();
+        // read first, so that a change made meanwhile is found by the next check
+        long[] version = readVersion(context);
+        int titleFieldID = MetadataField.findByElement(context,
+                MetadataSchema.find(context, MetadataSchema.DC_SCHEMA).getSchemaID(), "title", null).getFieldID();
+        String orderByTitle = DatabaseManager.isOracle() ? " ORDER BY cast(m.text_value as varchar2(128))"
+                : " ORDER BY m.text_value";
+
+        Map<Integer, Integer> parents = new HashMap<Integer, Integer>();
+        Map<Integer, List<Integer>> subcommunities = new HashMap<Integer, List<Integer>>();
+        Set<Long> addedSubcommunities = new HashSet<Long>();
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT c2c.parent_comm_id AS parent_id, c2c.child_comm_id AS child_id FROM community2community c2c "
+                + "LEFT JOIN metadatavalue m ON (m.resource_id = c2c.child_comm_id AND m.resource_type_id = ? "
+                + "AND m.metadata_field_id = ?)" + orderByTitle,
+                Constants.COMMUNITY, titleFieldID);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int parent = row.getIntColumn("parent_id");
+                int child = row.getIntColumn("child_id");
+                if (add(subcommunities, addedSubcommunities, parent, child))
+                {
+                    parents.put(child, parent);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        Map<Integer, List<Integer>> collections = new HashMap<Integer, List<Integer>>();
+        Map<Integer, List<Integer>> owners = new HashMap<Integer, List<Integer>>();
+        Set<Long> addedCollections = new HashSet<Long>();
+        Set<Long> addedOwners = new HashSet<Long>();
+        tri = DatabaseManager.query(context,
+                "SELECT c2c.community_id AS parent_id, c2c.collection_id AS child_id FROM community2collection c2c "
+                + "LEFT JOIN metadatavalue m ON (m.resource_id = c2c.collection_id AND m.resource_type_id = ? "
+                + "AND m.metadata_field_id = ?)" + orderByTitle,
+                Constants.COLLECTION, titleFieldID);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int community = row.getIntColumn("parent_id");
+                int collection = row.getIntColumn("child_id");
+                if (add(collections, addedCollections, community, collection))
+                {
+                    add(owners, addedOwners, collection, community);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        CommunityHierarchy snapshot = new CommunityHierarchy(parents, freeze(subcommunities), freeze(collections),
+                freeze(owners), version);
+        log.info("Read community hierarchy: " + parents.size() + " sub-communities, " + owners.size()
+                + " collections in " + (System.currentTimeMillis() - start) + " ms");
+        return snapshot;
+    }
+
+    /**
+     * Add a value to the list of a key, unless it is there already (a
+     * community or collection with several titles is listed once per title).
+     *
+     * @return true if the value was added
+     */
+    private static boolean add(Map<Integer, List<Integer>> lists, Set<Long> added, int key, int value)
+    {
+        if (!added.add(((long) key << 32) | (value & 0xffffffffL)))
+        {
+            return false;
+        }
+        List<Integer> list = lists.get(key);
+        if (list == null)
+        {
+            list = new ArrayList<Integer>();
+            lists.put(key, list);
+        }
+        list.add(value);
+        return true;
+    }
+
+    private static Map<Integer, int[]> freeze(Map<Integer, List<Integer>> lists)
+    {
+        Map<Integer, int[]> frozen = new LinkedHashMap<Integer, int[]>(lists.size() * 2);
+        for (Map.Entry<Integer, List<Integer>> entry : lists.entrySet())
+        {
+            frozen.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        return frozen;
+    }
+
+    private static int[] toArray(List<Integer> list)
+    {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static int[] copy(int[] array)
+    {
+        return (array == null) ? NONE : array.clone();
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+
+/**
+ * Names of the communities and collections, shared by all the contexts of
+ * this JVM, for pages which show many of them by name only: location facets,
+ * breadcrumbs and the like.
+ * <P>
+ * Entries are invalidated by the
+ * {@link org.dspace.core.SharedObjectCacheConsumer} when a community or
+ * collection is modified, and expire after <code>cache.names.ttl</code>
+ * seconds (default 3600) in any case, since changes made by other JVMs are
+ * not seen. At most <code>cache.names.size</code> names (default 10000) are
+ * kept.
+ */
+public class ContainerNameCache
+{
+    private static final Cache<Long, String> names = CacheBuilder.newBuilder()
+            .maximumSize(ConfigurationManager.getIntProperty("cache.names.size", 10000))
+            .expireAfterWrite(ConfigurationManager.getIntProperty("cache.names.ttl", 3600), TimeUnit.SECONDS)
+            .build();
+
+    /** Default constructor */
+    private ContainerNameCache()
+    {
+    }
+
+    /**
+     * Get the name of a community or collection, reading it from the
+     * database only if it is not cached.
+     *
+     * @param context
+     *            DSpace context, used on a cache miss
+     * @param type
+     *            <code>Constants.COMMUNITY</code> or
+     *            <code>Constants.COLLECTION</code>
+     * @param id
+     *            ID of the community or collection
+     * @return its name, empty if it has none, or <code>null</code> if it
+     *         does not exist or is of another type
+     * @throws SQLException
+     */
+    public static String getName(Context context, int type, int id) throws SQLException
+    {
+        if (type != Constants.COMMUNITY && type != Constants.COLLECTION)
+        {
+            return null;
+        }
+
+        Long key = key(type, id);
+        String name = names.getIfPresent(key);
+        if (name == null)
+        {
+            DSpaceObject dso = DSpaceObject.find(context, type, id);
+            if (dso == null)
+            {
+                return null;
+            }
+            name = dso.getName();
+            names.put(key, name);
+        }
+        return name;
+    }
+
+    /**
+     * Get the name of a community or collection already at hand, reading its
+     * metadata only if the name is not cached.
+     *
+     * @param container
+     *            the community or collection
+     * @return its name, empty if it has none
+     */
+    public static String getName(DSpaceObject container)
+    {
+        Long key = key(container.getType(), container.getID());
+        String name = names.getIfPresent(key);
+        if (name == null)
+        {
+            name = container.getName();
+            names.put(key, name);
+        }
+        return name;
+    }
+
+    /**
+     * Remove the name of a community or collection from the cache, because
+     * it has been modified or deleted. Other types are ignored.
+     *
+     * @param type
+     *            type of the object
+     * @param id
+     *            ID of the object
+     */
+    public static void invalidate(int type, int id)
+    {
+        if (type == Constants.COMMUNITY || type == Constants.COLLECTION)
+        {
+            names.invalidate(key(type, id));
+        }
+    }
+
+    /**
+     * Remove all the names from the cache.
+     */
+    public static void invalidateAll()
+    {
+        names.invalidateAll();
+    }
+
+    private static Long key(int type, int id)
+    {
+        return ((long) type << 32) | (id & 0xffffffffL);
+    }
+}
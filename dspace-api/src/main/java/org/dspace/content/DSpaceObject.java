@@ -22,6 +22,7 @@ import org.dspace.content.authority.MetadataAuthorityManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.core.SharedObjectCache;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 import org.dspace.event.Event;
@@ -59,6 +60,9 @@ public abstract class DSpaceObject
     /** The Dublin Core metadata - inner class for lazy loading */
     protected MetadataCache metadataCache = new MetadataCache();
 
+    /** Maximum number of objects whose metadata is prefetched by a single query */
+    static final int PREFETCH_BATCH_SIZE = 500;
+
 
     /**
      * Construct a DSpaceOBject with the given table row
@@ -123,6 +127,10 @@ public abstract class DSpaceObject
             }
         }
 
+        // Rows removed from and added to the DB, written in batches
+        List<TableRow> deletedRows = new ArrayList<TableRow>();
+        List<TableRow> insertedRows = new ArrayList<TableRow>();
+
         // Now the precalculations are done, iterate through the existing metadata
         // looking for matches
         TableRowIterator tri = retrieveMetadata();
@@ -222,7 +230,7 @@ public abstract class DSpaceObject
                     // delete this row from the DB
                     if (removeRow)
                     {
-                        DatabaseManager.delete(ourContext, tr);
+                        deletedRows.add(tr);
                         modifiedMetadata = true;
                     }
                 }
@@ -232,7 +240,7 @@ public abstract class DSpaceObject
                 tri.close();
             }
 
-
+            DatabaseManager.deleteBatch(ourContext, deletedRows);
         }
 
         // Add missing in-memory DC
@@ -244,20 +252,22 @@ public abstract class DSpaceObject
                 Metadatum dcv = getMetadata().get(dcIdx);
 
                 // Write Metadatum
-                MetadataValue metadata = new MetadataValue();
-                metadata.setResourceId(getID());
-                metadata.setResourceTypeId(getType());
-                metadata.setFieldId(dcFields[dcIdx].getFieldID());
-                metadata.setValue(dcv.value);
-                metadata.setLanguage(dcv.language);
-                metadata.setPlace(placeNum[dcIdx]);
-                metadata.setAuthority(dcv.authority);
-                metadata.setConfidence(dcv.confidence);
-                metadata.create(ourContext);
+                TableRow row = DatabaseManager.row("MetadataValue");
+                row.setColumn("resource_id", getID());
+                row.setColumn("resource_type_id", getType());
+                row.setColumn("metadata_field_id", dcFields[dcIdx].getFieldID());
+                row.setColumn("text_value", dcv.value);
+                row.setColumn("text_lang", dcv.language);
+                row.setColumn("place", placeNum[dcIdx]);
+                row.setColumn("authority", dcv.authority);
+                row.setColumn("confidence", dcv.confidence);
+                insertedRows.add(row);
                 modifiedMetadata = true;
             }
         }
 
+        DatabaseManager.insertBatch(ourContext, insertedRows);
+
         if(modifiedMetadata) {
             ourContext.addEvent(new Event(Event.MODIFY_METADATA, getType(), getID(), getDetails(), getIdentifiers(ourContext)));
             modifiedMetadata = false;
@@ -425,6 +435,119 @@ public abstract class DSpaceObject
         return null;
     }
 
+    /**
+     * Generic find of many objects of the same type at once. Items,
+     * collections and communities not already in memory are read with one
+     * <code>IN (...)</code> query per {@link #PREFETCH_BATCH_SIZE} objects,
+     * and their metadata is prefetched; other types are found one by one.
+     *
+     * @param context - the context
+     * @param type - type number
+     * @param ids - ids within table of type'd objects
+     * @return the objects found by id; ids that do not exist are left out.
+     * @throws SQLException only upon failure accessing the database.
+     */
+    public static Map<Integer, DSpaceObject> find(Context context, int type, List<Integer> ids)
+        throws SQLException
+    {
+        Map<Integer, DSpaceObject> result = new HashMap<Integer, DSpaceObject>();
+        String table;
+        Class<? extends DSpaceObject> objectClass;
+        switch (type)
+        {
+            case Constants.ITEM      : table = "item"; objectClass = Item.class; break;
+            case Constants.COLLECTION: table = "collection"; objectClass = Collection.class; break;
+            case Constants.COMMUNITY : table = "community"; objectClass = Community.class; break;
+            default:
+                for (Integer id : ids)
+                {
+                    DSpaceObject dso = find(context, type, id);
+                    if (dso != null)
+                    {
+                        result.put(id, dso);
+                    }
+                }
+                return result;
+        }
+
+        // Objects in the context cache, or the cache shared between contexts, need no query
+        List<Integer> missing = new ArrayList<Integer>();
+        for (Integer id : new LinkedHashSet<Integer>(ids))
+        {
+            if (context.fromCache(objectClass, id) != null
+                    || (type != Constants.ITEM && SharedObjectCache.get(objectClass, id) != null))
+            {
+                result.put(id, find(context, type, id));
+            }
+            else
+            {
+                missing.add(id);
+            }
+        }
+
+        List<DSpaceObject> loaded = new ArrayList<DSpaceObject>();
+        List<TableRow> loadedRows = new ArrayList<TableRow>();
+        for (int start = 0; start < missing.size(); start += PREFETCH_BATCH_SIZE)
+        {
+            List<Integer> batch = missing.subList(start, Math.min(start + PREFETCH_BATCH_SIZE, missing.size()));
+            StringBuilder query = new StringBuilder("SELECT * FROM " + table + " WHERE " + table + "_id IN (");
+            for (int i = 0; i < batch.size(); i++)
+            {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+
+            TableRowIterator tri = DatabaseManager.queryTable(context, table, query.toString(), batch.toArray());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    DSpaceObject dso;
+                    switch (type)
+                    {
+                        case Constants.ITEM      : dso = new Item(context, row); break;
+                        case Constants.COLLECTION: dso = new Collection(context, row); break;
+                        default                  : dso = new Community(context, row); break;
+                    }
+                    result.put(dso.getID(), dso);
+                    loaded.add(dso);
+                    loadedRows.add(row);
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+
+        prefetchMetadata(context, loaded);
+        if (type == Constants.ITEM)
+        {
+            List<Item> items = new ArrayList<Item>(loaded.size());
+            for (DSpaceObject dso : loaded)
+            {
+                items.add((Item) dso);
+            }
+            Item.prefetchHandles(context, items);
+        }
+        else if (SharedObjectCache.isEnabled())
+        {
+            for (int i = 0; i < loaded.size(); i++)
+            {
+                DSpaceObject dso = loaded.get(i);
+                SharedObjectCache.put(objectClass, dso.getID(), new SharedObjectSnapshot(loadedRows.get(i), dso.getMetadata(), dso.getHandle()));
+            }
+        }
+
+        if (log.isDebugEnabled())
+        {
+            log.debug(LogManager.getHeader(context, "find_" + table,
+                    "count=" + ids.size() + ",loaded=" + loaded.size()));
+        }
+        return result;
+    }
+
     /**
      * Return the dspace object where an ADMIN action right is sufficient to
      * grant the initial authorize check.
@@ -1251,6 +1374,177 @@ public abstract class DSpaceObject
         modifiedMetadata = true;
     }
 
+    /**
+     * Convert a row of the MetadataValue table into a Metadatum, resolving its
+     * field and schema.
+     *
+     * @return the Metadatum, or null if the field or schema can't be found
+     */
+    private static Metadatum toMetadatum(Context c, TableRow resultRow, Logger log) throws SQLException
+    {
+        // Get the associated metadata field and schema information
+        int fieldID = resultRow.getIntColumn("metadata_field_id");
+        MetadataField field = MetadataField.find(c, fieldID);
+
+        if (field == null)
+        {
+            log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resultRow.getIntColumn("resource_type_id") + " and resourceId=" + resultRow.getIntColumn("resource_id"));
+            return null;
+        }
+
+        MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
+        if (schema == null)
+        {
+            log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
+            return null;
+        }
+
+        // Make a Metadatum object
+        Metadatum dcv = new Metadatum();
+        dcv.element = field.getElement();
+        dcv.qualifier = field.getQualifier();
+        dcv.value = resultRow.getStringColumn("text_value");
+        dcv.language = resultRow.getStringColumn("text_lang");
+        //dcv.namespace = schema.getNamespace();
+        dcv.schema = schema.getName();
+        dcv.authority = resultRow.getStringColumn("authority");
+        dcv.confidence = resultRow.getIntColumn("confidence");
+        return dcv;
+    }
+
+    /**
+     * Whether the metadata of this object has already been loaded (or
+     * prefetched) into memory.
+     *
+     * @return true if no further query is needed to read the metadata
+     */
+    protected boolean isMetadataLoaded()
+    {
+        return metadataCache.isLoaded();
+    }
+
+    /**
+     * Load the metadata of many DSpaceObjects at once, instead of issuing one
+     * query per object when each object's metadata is first read. Objects are
+     * grouped by type and their metadata is fetched with one
+     * <code>IN (...)</code> query per {@link #PREFETCH_BATCH_SIZE} objects.
+     * Objects whose metadata is already in memory are left untouched, so
+     * unsaved modifications are never overwritten.
+     *
+     * @param context
+     *            DSpace context
+     * @param objects
+     *            the objects whose metadata should be loaded; may contain nulls
+     * @throws SQLException
+     */
+    public static void prefetchMetadata(Context context, List<? extends DSpaceObject> objects)
+            throws SQLException
+    {
+        if (objects == null || objects.isEmpty())
+        {
+            return;
+        }
+
+        // Group the objects still needing metadata by type, then by id
+        Map<Integer, Map<Integer, List<DSpaceObject>>> byType = new HashMap<Integer, Map<Integer, List<DSpaceObject>>>();
+        for (DSpaceObject dso : objects)
+        {
+            if (dso == null || dso.metadataCache.isLoaded())
+            {
+                continue;
+            }
+
+            Map<Integer, List<DSpaceObject>> byID = byType.get(dso.getType());
+            if (byID == null)
+            {
+                byID = new LinkedHashMap<Integer, List<DSpaceObject>>();
+                byType.put(dso.getType(), byID);
+            }
+
+            List<DSpaceObject> sameID = byID.get(dso.getID());
+            if (sameID == null)
+            {
+                sameID = new ArrayList<DSpaceObject>(1);
+                byID.put(dso.getID(), sameID);
+            }
+            sameID.add(dso);
+        }
+
+        for (Map.Entry<Integer, Map<Integer, List<DSpaceObject>>> typeEntry : byType.entrySet())
+        {
+            int type = typeEntry.getKey();
+            List<Integer> ids = new ArrayList<Integer>(typeEntry.getValue().keySet());
+
+            for (int start = 0; start < ids.size(); start += PREFETCH_BATCH_SIZE)
+            {
+                List<Integer> batch = ids.subList(start, Math.min(start + PREFETCH_BATCH_SIZE, ids.size()));
+                Map<Integer, List<Metadatum>> loaded = retrieveMetadata(context, type, batch);
+
+                for (Integer id : batch)
+                {
+                    List<Metadatum> metadata = loaded.get(id);
+                    List<DSpaceObject> targets = typeEntry.getValue().get(id);
+                    for (int i = 0; i < targets.size(); i++)
+                    {
+                        // each object gets its own list, as they may be edited independently
+                        List<Metadatum> copy = new ArrayList<Metadatum>();
+                        if (metadata != null)
+                        {
+                            copy.addAll(metadata);
+                        }
+                        targets.get(i).metadataCache.set(copy);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieve the metadata of several objects of the same type in one query.
+     *
+     * @return map of resource id to its metadata values, in field and place order
+     */
+    private static Map<Integer, List<Metadatum>> retrieveMetadata(Context context, int type, List<Integer> ids)
+            throws SQLException
+    {
+        StringBuilder query = new StringBuilder("SELECT * FROM MetadataValue WHERE resource_type_id = ? AND resource_id IN (");
+        Object[] params = new Object[ids.size() + 1];
+        params[0] = type;
+        for (int i = 0; i < ids.size(); i++)
+        {
+            query.append(i == 0 ? "?" : ", ?");
+            params[i + 1] = ids.get(i);
+        }
+        query.append(") ORDER BY resource_id, metadata_field_id, place");
+
+        Map<Integer, List<Metadatum>> result = new HashMap<Integer, List<Metadatum>>();
+        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataValue", query.toString(), params);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                Metadatum dcv = toMetadatum(context, row, log);
+                if (dcv != null)
+                {
+                    int id = row.getIntColumn("resource_id");
+                    List<Metadatum> metadata = result.get(id);
+                    if (metadata == null)
+                    {
+                        metadata = new ArrayList<Metadatum>();
+                        result.put(id, metadata);
+                    }
+                    metadata.add(dcv);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return result;
+    }
+
     class MetadataCache
     {
         List<Metadatum> metadata = null;
@@ -1270,39 +1564,10 @@ public abstract class DSpaceObject
                     {
                         while (tri.hasNext())
                         {
-                            TableRow resultRow = tri.next();
-
-                            // Get the associated metadata field and schema information
-                            int fieldID = resultRow.getIntColumn("metadata_field_id");
-                            MetadataField field = MetadataField.find(c, fieldID);
-
-                            if (field == null)
-                            {
-                                log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resourceTypeId + " and resourceId=" + resourceId);
-                            }
-                            else
+                            Metadatum dcv = toMetadatum(c, tri.next(), log);
+                            if (dcv != null)
                             {
-                                MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
-                                if (schema == null)
-                                {
-                                    log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
-                                }
-                                else
-                                {
-                                    // Make a Metadatum object
-                                    Metadatum dcv = new Metadatum();
-                                    dcv.element = field.getElement();
-                                    dcv.qualifier = field.getQualifier();
-                                    dcv.value = resultRow.getStringColumn("text_value");
-                                    dcv.language = resultRow.getStringColumn("text_lang");
-                                    //dcv.namespace = schema.getNamespace();
-                                    dcv.schema = schema.getName();
-                                    dcv.authority = resultRow.getStringColumn("authority");
-                                    dcv.confidence = resultRow.getIntColumn("confidence");
-
-                                    // Add it to the list
-                                    metadata.add(dcv);
-                                }
+                                metadata.add(dcv);
                             }
                         }
                     }
@@ -1325,6 +1590,11 @@ public abstract class DSpaceObject
             metadata = m;
         }
 
+        boolean isLoaded()
+        {
+            return metadata != null;
+        }
+
         TableRowIterator retrieveMetadata(int resourceId, int resourceTypeId) throws SQLException
         {
             return DatabaseManager.queryTable(ourContext, "MetadataValue",
@@ -13,8 +13,12 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.dspace.app.util.AuthorizeUtil;
@@ -105,9 +109,6 @@ public class Item extends DSpaceObject
         modified = false;
         clearDetails();
 
-        // Get our Handle if any
-        handle = HandleManager.findHandle(context, this);
-
         // Cache ourselves
         context.cache(this, row.getIntColumn("item_id"));
     }
@@ -193,7 +194,8 @@ public class Item extends DSpaceObject
 
     /**
      * Get all the items in the archive. Only items with the "in archive" flag
-     * set are included. The order of the list is indeterminate.
+     * set are included. The items are returned in order of their IDs, and are
+     * read from the database a page at a time.
      *
      * @param context
      *            DSpace context object
@@ -202,16 +204,15 @@ public class Item extends DSpaceObject
      */
     public static ItemIterator findAll(Context context) throws SQLException
     {
-        String myQuery = "SELECT * FROM item WHERE in_archive='1'";
-
-        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery);
+        TableRowIterator rows = DatabaseManager.queryTableByKey(context, "item", "in_archive='1'");
 
         return new ItemIterator(context, rows);
     }
     
     /**
      * Get all "final" items in the archive, both archived ("in archive" flag) or
-     * withdrawn items are included. The order of the list is indeterminate.
+     * withdrawn items are included. The items are returned in order of their
+     * IDs, and are read from the database a page at a time.
      *
      * @param context
      *            DSpace context object
@@ -220,13 +221,36 @@ public class Item extends DSpaceObject
      */
 	public static ItemIterator findAllUnfiltered(Context context) throws SQLException
     {
-        String myQuery = "SELECT * FROM item WHERE in_archive='1' or withdrawn='1'";
-
-        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery);
+        TableRowIterator rows = DatabaseManager.queryTableByKey(context, "item", "in_archive='1' or withdrawn='1'");
 
         return new ItemIterator(context, rows);
 	}
 
+    /**
+     * Get one page of the "final" items, archived or withdrawn, in order of
+     * their IDs. The page is cut out by the database; passing the ID of the
+     * last item of a page as <code>after</code> gets the next page at the
+     * same cost however deep it is.
+     *
+     * @param context
+     *            DSpace context object
+     * @param after
+     *            the ID after which the page starts, or -1 for the first page
+     * @param offset
+     *            the number of items to skip after that
+     * @param limit
+     *            the largest number of items to return
+     * @return an iterator over the items in the page.
+     * @throws SQLException
+     */
+    public static ItemIterator findAllUnfiltered(Context context, int after, int offset, int limit) throws SQLException
+    {
+        TableRowIterator rows = DatabaseManager.queryTablePage(context, "item", "in_archive='1' or withdrawn='1'",
+                after, offset, limit);
+
+        return new ItemIterator(context, rows);
+    }
+
     /**
      * Find all the items in the archive by a given submitter. The order is
      * indeterminate. Only items with the "in archive" flag set are included.
@@ -695,6 +719,155 @@ public class Item extends DSpaceObject
         return bundleArray;
     }
 
+    /**
+     * Look up the handles of many items at once, instead of one query per
+     * item when {@link #getHandle()} is first called.
+     *
+     * @param context
+     *            DSpace context object
+     * @param items
+     *            the items; may contain nulls
+     * @throws SQLException
+     */
+    public static void prefetchHandles(Context context, List<Item> items) throws SQLException
+    {
+        Map<Integer, List<Item>> byID = new LinkedHashMap<Integer, List<Item>>();
+        for (Item item : items)
+        {
+            if (item != null && item.handle == null)
+            {
+                List<Item> sameID = byID.get(item.getID());
+                if (sameID == null)
+                {
+                    sameID = new ArrayList<Item>(1);
+                    byID.put(item.getID(), sameID);
+                }
+                sameID.add(item);
+            }
+        }
+
+        if (byID.isEmpty())
+        {
+            return;
+        }
+
+        Map<Integer, String> handles = HandleManager.findHandles(context, Constants.ITEM,
+                new ArrayList<Integer>(byID.keySet()));
+        for (Map.Entry<Integer, String> entry : handles.entrySet())
+        {
+            for (Item item : byID.get(entry.getKey()))
+            {
+                item.handle = entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * Load the bundles and bitstreams of many items at once, with their
+     * metadata, instead of several queries per item when
+     * {@link #getBundles()} is first called. Items whose bundles are already
+     * loaded are left untouched.
+     *
+     * @param context
+     *            DSpace context object
+     * @param items
+     *            the items; may contain nulls
+     * @throws SQLException
+     */
+    public static void prefetchBundles(Context context, List<Item> items) throws SQLException
+    {
+        Map<Integer, List<Item>> byID = new LinkedHashMap<Integer, List<Item>>();
+        for (Item item : items)
+        {
+            if (item != null && item.bundles == null)
+            {
+                List<Item> sameID = byID.get(item.getID());
+                if (sameID == null)
+                {
+                    sameID = new ArrayList<Item>(1);
+                    byID.put(item.getID(), sameID);
+                }
+                sameID.add(item);
+            }
+        }
+
+        List<Integer> ids = new ArrayList<Integer>(byID.keySet());
+        List<Bundle> allBundles = new ArrayList<Bundle>();
+        List<Bitstream> allBitstreams = new ArrayList<Bitstream>();
+
+        for (int start = 0; start < ids.size(); start += PREFETCH_BATCH_SIZE)
+        {
+            List<Integer> batch = ids.subList(start, Math.min(start + PREFETCH_BATCH_SIZE, ids.size()));
+
+            StringBuilder query = new StringBuilder("SELECT bundle.*, item2bundle.item_id FROM bundle, item2bundle WHERE " +
+                    "item2bundle.bundle_id=bundle.bundle_id AND item2bundle.item_id IN (");
+            for (int i = 0; i < batch.size(); i++)
+            {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+
+            List<TableRow> bundleRows;
+            TableRowIterator tri = DatabaseManager.queryTable(context, "bundle", query.toString(), batch.toArray());
+            try
+            {
+                bundleRows = tri.toList();
+            }
+            finally
+            {
+                tri.close();
+            }
+
+            List<Integer> bundleIDs = new ArrayList<Integer>();
+            for (TableRow row : bundleRows)
+            {
+                if (context.fromCache(Bundle.class, row.getIntColumn("bundle_id")) == null)
+                {
+                    bundleIDs.add(row.getIntColumn("bundle_id"));
+                }
+            }
+            Map<Integer, List<TableRow>> bitstreamRows = Bundle.findBitstreamRows(context, bundleIDs);
+
+            Map<Integer, List<Bundle>> bundlesByItem = new HashMap<Integer, List<Bundle>>();
+            for (TableRow row : bundleRows)
+            {
+                int bundleID = row.getIntColumn("bundle_id");
+                Bundle bundle = (Bundle) context.fromCache(Bundle.class, bundleID);
+                if (bundle == null)
+                {
+                    List<TableRow> rows = bitstreamRows.get(bundleID);
+                    bundle = new Bundle(context, row,
+                            rows == null ? Collections.<TableRow>emptyList() : rows);
+                }
+                allBundles.add(bundle);
+                allBitstreams.addAll(Arrays.asList(bundle.getBitstreams()));
+
+                List<Bundle> itemBundles = bundlesByItem.get(row.getIntColumn("item_id"));
+                if (itemBundles == null)
+                {
+                    itemBundles = new ArrayList<Bundle>();
+                    bundlesByItem.put(row.getIntColumn("item_id"), itemBundles);
+                }
+                itemBundles.add(bundle);
+            }
+
+            for (Integer id : batch)
+            {
+                List<Bundle> itemBundles = bundlesByItem.get(id);
+                for (Item item : byID.get(id))
+                {
+                    // each item gets its own list, as they may be edited independently
+                    item.bundles = (itemBundles == null)
+                            ? new ArrayList<Bundle>() : new ArrayList<Bundle>(itemBundles);
+                }
+            }
+        }
+
+        // Bundle and bitstream names are metadata
+        prefetchMetadata(context, allBundles);
+        prefetchMetadata(context, allBitstreams);
+    }
+
     /**
      * Get the bundles matching a bundle name (name corresponds roughly to type)
      *
@@ -10,8 +10,10 @@ package org.dspace.content;
 import java.sql.SQLException;
 
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
@@ -43,6 +45,12 @@ public class ItemIterator
 
     /** a real iterator which works over the item ids when present */
     private Iterator<Integer> iditr;
+
+    /** items read ahead whose metadata has been loaded in bulk */
+    private LinkedList<Item> prefetched = new LinkedList<Item>();
+
+    /** how many items to read ahead and load metadata for at once */
+    private int prefetchSize = ConfigurationManager.getIntProperty("itemiterator.prefetch.size", 100);
     
     /**
      * Construct an item iterator using a set of TableRow objects from
@@ -81,7 +89,11 @@ public class ItemIterator
      */
     public boolean hasNext() throws SQLException
     {
-    	if (iditr != null)
+        if (!prefetched.isEmpty())
+        {
+            return true;
+        }
+    	else if (iditr != null)
     	{
     		return iditr.hasNext();
     	}
@@ -101,7 +113,16 @@ public class ItemIterator
      */
     public Item next() throws SQLException
     {
-    	if (iditr != null)
+        if (prefetched.isEmpty() && prefetchSize > 1)
+        {
+            prefetch();
+        }
+
+        if (!prefetched.isEmpty())
+        {
+            return prefetched.removeFirst();
+        }
+    	else if (iditr != null)
     	{
     		return nextByID();
     	}
@@ -111,6 +132,42 @@ public class ItemIterator
     	}
     	return null;
     }
+
+    /**
+     * Read ahead up to <code>itemiterator.prefetch.size</code> items and load
+     * their metadata and handles with a single query each, rather than one
+     * query per item.
+     *
+     * @throws SQLException
+     */
+    private void prefetch() throws SQLException
+    {
+        while (prefetched.size() < prefetchSize)
+        {
+            Item item = null;
+            if (iditr != null)
+            {
+                item = nextByID();
+            }
+            else if (itemRows != null)
+            {
+                item = nextByRow();
+            }
+
+            if (item == null)
+            {
+                if ((iditr == null || !iditr.hasNext()) && (itemRows == null || !itemRows.hasNext()))
+                {
+                    break;
+                }
+                continue;
+            }
+            prefetched.add(item);
+        }
+
+        DSpaceObject.prefetchMetadata(ourContext, prefetched);
+        Item.prefetchHandles(ourContext, prefetched);
+    }
     
     /**
      * This private method knows how to get the next result out of the 
@@ -153,7 +210,11 @@ public class ItemIterator
     public int nextID()
     	throws SQLException
     {
-    	if (iditr != null)
+        if (!prefetched.isEmpty())
+        {
+            return prefetched.removeFirst().getID();
+        }
+    	else if (iditr != null)
     	{
     		return nextByIDID();
     	}
@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dspace.storage.rdbms.TableRow;
+
+/**
+ * Immutable copy of the database row and metadata of a DSpaceObject, as held
+ * in the {@link org.dspace.core.SharedObjectCache}. Every object built from a
+ * snapshot gets its own copies of the row and metadata, so that objects are
+ * never shared between contexts.
+ * <P>
+ * The Handle is kept too, so that a hit costs no query for it. The logo,
+ * template item and groups of an object are still found by ID when it is
+ * built from a snapshot, through the cache of the requesting context, and
+ * only when they are set.
+ */
+final class SharedObjectSnapshot
+{
+    /** Copy of the object's row */
+    private final TableRow row;
+
+    /** Copy of the object's metadata */
+    private final List<Metadatum> metadata;
+
+    /** The object's Handle, or null */
+    private final String handle;
+
+    SharedObjectSnapshot(TableRow row, List<Metadatum> metadata, String handle)
+    {
+        this.row = row.copy();
+        this.metadata = copy(metadata);
+        this.handle = handle;
+    }
+
+    /**
+     * @return a new copy of the object's row
+     */
+    TableRow getRow()
+    {
+        return row.copy();
+    }
+
+    /**
+     * @return a new copy of the object's metadata
+     */
+    List<Metadatum> getMetadata()
+    {
+        return copy(metadata);
+    }
+
+    /**
+     * @return the object's Handle, or null if it has none
+     */
+    String getHandle()
+    {
+        return handle;
+    }
+
+    private static List<Metadatum> copy(List<Metadatum> metadata)
+    {
+        List<Metadatum> copy = new ArrayList<Metadatum>(metadata.size());
+        for (Metadatum dcv : metadata)
+        {
+            copy.add(dcv.copy());
+        }
+        return copy;
+    }
+}
@@ -8,10 +8,13 @@
 package org.dspace.core;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.dspace.content.CommunityHierarchy;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 import org.dspace.event.Dispatcher;
@@ -47,6 +50,15 @@ public class Context
     /** Database connection */
     private Connection connection;
 
+    /**
+     * Prepared statements kept open on the connection for reuse, keyed by
+     * their SQL, least recently used first
+     */
+    private Map<String, PreparedStatement> statementCache;
+
+    /** Maximum number of statements in the cache, 0 disabling it */
+    private int statementCacheMaxSize;
+
     /** Current user - null means anonymous access */
     private EPerson currentUser;
 
@@ -68,15 +80,72 @@ public class Context
      */
     private Stack<String> authStateClassCallHistory;
 
-    /** Object cache for this context */
-    private Map<String, Object> objectCache;
+    /**
+     * Object cache for this context, keyed by {@link #cacheKey(Class, int)}.
+     * Kept in access order so that the least recently used objects can be
+     * evicted once the cache is bounded.
+     */
+    private Map<Long, Object> objectCache;
+
+    /** Maximum number of objects in the cache, 0 meaning unbounded */
+    private int objectCacheMaxSize;
+
+    /** Number of objects evicted from the cache because it was full */
+    private long objectCacheEvictions;
+
+    /** Number of lookups answered from the cache */
+    private long objectCacheHits;
+
+    /** Number of lookups not found in the cache */
+    private long objectCacheMisses;
+
+    /** Source of the small integers identifying each cached class */
+    private static final AtomicInteger cachedClassCounter = new AtomicInteger();
+
+    /** Small integer identifying each cached class, used in cache keys */
+    private static final ClassValue<Integer> cachedClassIndex = new ClassValue<Integer>()
+    {
+        @Override
+        protected Integer computeValue(Class<?> type)
+        {
+            return cachedClassCounter.incrementAndGet();
+        }
+    };
 
     /** Group IDs of special groups user is a member of */
     private List<Integer> specialGroups;
 
+    /**
+     * Sorted IDs of all the groups the current user is a member of, directly,
+     * through sub-groups or as special groups; <code>null</code> until first
+     * needed
+     */
+    private int[] groupMemberships;
+
+    /**
+     * Authorization decisions already taken for the current user in this
+     * context, keyed by object type, object ID, action and inheritance flag
+     */
+    private Map<Long, Boolean> authorizedActionsCache;
+
+    /** Number of authorization decisions answered from the cache */
+    private long authorizationCacheHits;
+
+    /** Number of authorization decisions that had to be evaluated */
+    private long authorizationCacheMisses;
+
+    /** Number of SQL statements executed through this context */
+    private long statementCount;
+
     /** Content events */
     private LinkedList<Event> events = null;
 
+    /** Whether the events change the community and collection hierarchy */
+    private boolean hierarchyModified = false;
+
+    /** The hierarchy snapshot last checked against the database by this context */
+    private CommunityHierarchy checkedHierarchy = null;
+
     /** Event dispatcher name */
     private String dispName = null;
 
@@ -121,13 +190,30 @@ public class Context
         connection = DatabaseManager.getConnection();
         connection.setAutoCommit(false);
 
+        statementCacheMaxSize = ConfigurationManager.getIntProperty("db.statementcache.size", 20);
+        statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+
         currentUser = null;
         currentLocale = I18nUtil.DEFAULTLOCALE;
         extraLogInfo = "";
         ignoreAuth = false;
 
-        objectCache = new HashMap<String, Object>();
+        objectCacheMaxSize = ConfigurationManager.getIntProperty("context.cache.size", 0);
+        objectCache = new LinkedHashMap<Long, Object>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Object> eldest)
+            {
+                if (objectCacheMaxSize > 0 && size() > objectCacheMaxSize)
+                {
+                    objectCacheEvictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
         specialGroups = new ArrayList<Integer>();
+        authorizedActionsCache = new HashMap<Long, Boolean>();
 
         authStateChangeHistory = new Stack<Boolean>();
         authStateClassCallHistory = new Stack<String>();
@@ -154,6 +240,7 @@ public class Context
     public void setCurrentUser(EPerson user)
     {
         currentUser = user;
+        clearGroupMembershipCache();
     }
 
     /**
@@ -340,8 +427,16 @@ public class Context
         {
             // Free the DB connection
             // If connection is closed or null, this is a no-op
+            closeCachedStatements();
             DatabaseManager.freeConnection(connection);
             connection = null;
+            if (log.isDebugEnabled())
+            {
+                log.debug(LogManager.getHeader(this, "authorization_cache",
+                        "hits=" + authorizationCacheHits + ",misses=" + authorizationCacheMisses));
+                log.debug(LogManager.getHeader(this, "statements", "count=" + statementCount));
+                log.debug(LogManager.getHeader(this, "object_cache", getCacheStatistics()));
+            }
             clearCache();
         }
     }
@@ -398,6 +493,7 @@ public class Context
         finally
         {
             events = null;
+            hierarchyModified = false;
             if (dispatcher != null)
             {
                 EventManager.returnDispatcher(dispName, dispatcher);
@@ -406,6 +502,82 @@ public class Context
 
     }
 
+    /**
+     * Get a prepared statement previously cached on this context's
+     * connection.
+     *
+     * @param sql
+     *            the SQL of the statement
+     * @return the statement, or <code>null</code> if it isn't cached
+     */
+    public PreparedStatement getCachedStatement(String sql)
+    {
+        return statementCache.get(sql);
+    }
+
+    /**
+     * Keep a prepared statement open for reuse until this context is
+     * completed or aborted. Statements cached this way must not be closed by
+     * their users. If the cache is full, the least recently used statement is
+     * closed; if the cache is disabled (<code>db.statementcache.size = 0</code>)
+     * nothing is cached.
+     *
+     * @param sql
+     *            the SQL of the statement
+     * @param statement
+     *            the statement, prepared on this context's connection
+     * @return <code>true</code> if the statement was cached
+     */
+    public boolean cacheStatement(String sql, PreparedStatement statement)
+    {
+        if (statementCacheMaxSize <= 0)
+        {
+            return false;
+        }
+
+        statementCache.put(sql, statement);
+        if (statementCache.size() > statementCacheMaxSize)
+        {
+            Iterator<PreparedStatement> eldest = statementCache.values().iterator();
+            closeStatement(eldest.next());
+            eldest.remove();
+        }
+        return true;
+    }
+
+    /**
+     * Remove a statement from the statement cache, e.g. because it failed.
+     * The statement is not closed, that is left to the caller.
+     *
+     * @param sql
+     *            the SQL of the statement
+     */
+    public void removeCachedStatement(String sql)
+    {
+        statementCache.remove(sql);
+    }
+
+    private void closeCachedStatements()
+    {
+        for (PreparedStatement statement : statementCache.values())
+        {
+            closeStatement(statement);
+        }
+        statementCache.clear();
+    }
+
+    private static void closeStatement(PreparedStatement statement)
+    {
+        try
+        {
+            statement.close();
+        }
+        catch (SQLException sqle)
+        {
+            log.warn("Unable to close cached statement", sqle);
+        }
+    }
+
     /**
      * Select an event dispatcher, <code>null</code> selects the default
      * 
@@ -441,6 +613,45 @@ public class Context
         }
 
         events.add(event);
+        if (CommunityHierarchy.isHierarchyChange(event))
+        {
+            hierarchyModified = true;
+        }
+    }
+
+    /**
+     * Whether communities or collections have been created, moved, renamed
+     * or deleted in this context since it was last committed, in which case
+     * the shared {@link CommunityHierarchy} is out of date for it.
+     *
+     * @return true if the hierarchy has been changed
+     */
+    public boolean isHierarchyModified()
+    {
+        return hierarchyModified;
+    }
+
+    /**
+     * Get the {@link CommunityHierarchy} snapshot this context last checked
+     * against the database, so that it is checked once only.
+     *
+     * @return the snapshot, or null if none has been checked
+     */
+    public CommunityHierarchy getCheckedHierarchy()
+    {
+        return checkedHierarchy;
+    }
+
+    /**
+     * Set the {@link CommunityHierarchy} snapshot this context has checked
+     * against the database.
+     *
+     * @param hierarchy
+     *            the snapshot
+     */
+    public void setCheckedHierarchy(CommunityHierarchy hierarchy)
+    {
+        checkedHierarchy = hierarchy;
     }
 
     /**
@@ -507,6 +718,7 @@ public class Context
             {
                 // Free the DB connection
                 // If connection is closed or null, this is a no-op
+                closeCachedStatements();
                 DatabaseManager.freeConnection(connection);
             }
             catch (Exception ex)
@@ -515,6 +727,7 @@ public class Context
             }
             connection = null;
             events = null;
+            hierarchyModified = false;
             clearCache();
         }
     }
@@ -545,7 +758,7 @@ public class Context
     }
 
     /**
-     * Store an object in the object cache.
+     * Retrieve an object from the object cache.
      * 
      * @param objectClass
      *            Java Class of object to check for in cache
@@ -557,13 +770,22 @@ public class Context
      */
     public Object fromCache(Class<?> objectClass, int id)
     {
-        String key = objectClass.getName() + id;
-
-        return objectCache.get(key);
+        Object o = objectCache.get(cacheKey(objectClass, id));
+        if (o == null)
+        {
+            objectCacheMisses++;
+        }
+        else
+        {
+            objectCacheHits++;
+        }
+        return o;
     }
 
     /**
-     * Store an object in the object cache.
+     * Store an object in the object cache. If the cache is bounded (see
+     * <code>context.cache.size</code>) and full, the least recently used
+     * object is evicted.
      * 
      * @param o
      *            the object to store
@@ -575,8 +797,7 @@ public class Context
         // bypass cache if in read-only mode
         if (! isReadOnly())
         {
-            String key = o.getClass().getName() + id;
-            objectCache.put(key, o);
+            objectCache.put(cacheKey(o.getClass(), id), o);
         }
     }
 
@@ -590,8 +811,7 @@ public class Context
      */
     public void removeCached(Object o, int id)
     {
-        String key = o.getClass().getName() + id;
-        objectCache.remove(key);
+        objectCache.remove(cacheKey(o.getClass(), id));
     }
 
     /**
@@ -600,6 +820,7 @@ public class Context
     public void clearCache()
     {
         objectCache.clear();
+        clearGroupMembershipCache();
     }
 
     /**
@@ -618,6 +839,186 @@ public class Context
         return objectCache.size();
     }
 
+    /**
+     * Get a summary of the object cache usage of this context: current size,
+     * maximum size (0 if unbounded), hits, misses and evictions. Like
+     * {@link #getCacheSize()} this is meant for diagnostics logging.
+     *
+     * @return the cache statistics, as a human readable string
+     */
+    public String getCacheStatistics()
+    {
+        return "size=" + objectCache.size() + ",max=" + objectCacheMaxSize
+                + ",hits=" + objectCacheHits + ",misses=" + objectCacheMisses
+                + ",evictions=" + objectCacheEvictions;
+    }
+
+    /**
+     * Get the number of objects evicted from the object cache because it
+     * reached its maximum size.
+     *
+     * @return evictions since the context was created
+     */
+    public long getCacheEvictions()
+    {
+        return objectCacheEvictions;
+    }
+
+    /**
+     * Build the key of an object in the object caches: the index of its class
+     * in the upper 32 bits, its ID in the lower 32 bits.
+     *
+     * @param objectClass
+     *            Java Class of the object
+     * @param id
+     *            ID of the object
+     * @return the cache key
+     */
+    static long cacheKey(Class<?> objectClass, int id)
+    {
+        return ((long) cachedClassIndex.get(objectClass).intValue() << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the IDs of all the groups the current user is a member of, as
+     * previously stored by {@link #cacheGroupMemberships(int[])}.
+     *
+     * @return sorted array of group IDs, which must not be modified, or
+     *         <code>null</code> if the memberships have not been loaded yet
+     */
+    public int[] getCachedGroupMemberships()
+    {
+        return groupMemberships;
+    }
+
+    /**
+     * Store the IDs of all the groups the current user is a member of, so
+     * that membership checks can be answered without querying the database.
+     * The cache lasts until the current user or the special groups change,
+     * or until {@link #clearGroupMembershipCache()} is called.
+     *
+     * @param groupIDs
+     *            sorted array of group IDs, which must not be modified afterwards
+     */
+    public void cacheGroupMemberships(int[] groupIDs)
+    {
+        groupMemberships = groupIDs;
+    }
+
+    /**
+     * Forget the group memberships of the current user, and the
+     * authorization decisions which were based on them. Called whenever
+     * group memberships are modified through this context.
+     */
+    public void clearGroupMembershipCache()
+    {
+        groupMemberships = null;
+        clearAuthorizationCache();
+    }
+
+    /**
+     * Look up a previously taken authorization decision for the current user.
+     *
+     * @param dsoType
+     *            type of the object, from <code>org.dspace.core.Constants</code>
+     * @param dsoID
+     *            ID of the object
+     * @param action
+     *            action, from <code>org.dspace.core.Constants</code>
+     * @param useInheritance
+     *            whether ADMIN rights on parent objects were considered
+     * @return the cached decision, or <code>null</code> if there is none
+     */
+    public Boolean getCachedAuthorizationResult(int dsoType, int dsoID, int action, boolean useInheritance)
+    {
+        Boolean result = authorizedActionsCache.get(authorizationKey(dsoType, dsoID, action, useInheritance));
+        if (result == null)
+        {
+            authorizationCacheMisses++;
+        }
+        else
+        {
+            authorizationCacheHits++;
+        }
+        return result;
+    }
+
+    /**
+     * Remember an authorization decision for the current user, until the
+     * user, their special groups, a policy or a group membership changes.
+     *
+     * @param dsoType
+     *            type of the object, from <code>org.dspace.core.Constants</code>
+     * @param dsoID
+     *            ID of the object
+     * @param action
+     *            action, from <code>org.dspace.core.Constants</code>
+     * @param useInheritance
+     *            whether ADMIN rights on parent objects were considered
+     * @param result
+     *            the decision
+     */
+    public void cacheAuthorizationResult(int dsoType, int dsoID, int action, boolean useInheritance, boolean result)
+    {
+        authorizedActionsCache.put(authorizationKey(dsoType, dsoID, action, useInheritance), result);
+    }
+
+    /**
+     * Forget all the authorization decisions taken so far. Called whenever
+     * policies or group memberships are modified through this context.
+     */
+    public void clearAuthorizationCache()
+    {
+        authorizedActionsCache.clear();
+    }
+
+    /**
+     * Get the number of authorization decisions answered from the cache.
+     *
+     * @return cache hits since the context was created
+     */
+    public long getAuthorizationCacheHits()
+    {
+        return authorizationCacheHits;
+    }
+
+    /**
+     * Get the number of authorization decisions that were not cached and had
+     * to be evaluated against the database.
+     *
+     * @return cache misses since the context was created
+     */
+    public long getAuthorizationCacheMisses()
+    {
+        return authorizationCacheMisses;
+    }
+
+    /**
+     * Count one more SQL statement executed through this context. Called by
+     * <code>DatabaseManager</code>.
+     */
+    public void incrementStatementCount()
+    {
+        statementCount++;
+    }
+
+    /**
+     * Get the number of SQL statements executed through this context, for
+     * diagnostics and to check that pages of objects are loaded in bulk.
+     *
+     * @return statements executed since the context was created
+     */
+    public long getStatementCount()
+    {
+        return statementCount;
+    }
+
+    private static long authorizationKey(int dsoType, int dsoID, int action, boolean useInheritance)
+    {
+        // action may be -1, so keep it in its own 16 bits
+        return ((long) dsoID << 32) | ((dsoType & 0xFFL) << 24) | ((action & 0xFFFFL) << 1) | (useInheritance ? 1L : 0L);
+    }
+
     /**
      * set membership in a special group
      * 
@@ -627,6 +1028,7 @@ public class Context
     public void setSpecialGroup(int groupID)
     {
         specialGroups.add(Integer.valueOf(groupID));
+        clearGroupMembershipCache();
 
         // System.out.println("Added " + groupID);
     }
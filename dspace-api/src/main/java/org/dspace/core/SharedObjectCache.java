@@ -0,0 +1,164 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.log4j.Logger;
+
+/**
+ * Cache shared by all the contexts of this JVM, for registry-like objects
+ * which are read very often and rarely modified (bitstream formats,
+ * communities and collections).
+ * <P>
+ * As DSpace objects are bound to the context which loaded them, this cache
+ * never holds the objects themselves, only immutable copies of their state
+ * from which a new object can be built for the requesting context without
+ * querying the database. Entries are invalidated by the
+ * {@link SharedObjectCacheConsumer} when the objects are modified, and expire
+ * after <code>cache.shared.ttl</code> seconds in any case, since changes made
+ * by other JVMs (e.g. another web application) are not seen.
+ * <P>
+ * The cache is disabled unless <code>cache.shared.enabled</code> is true.
+ *
+ * @see Context#fromCache(Class, int)
+ */
+public class SharedObjectCache
+{
+    private static final Logger log = Logger.getLogger(SharedObjectCache.class);
+
+    /** The cache, or null if disabled */
+    private static Cache<Long, Object> cache = null;
+
+    /** Whether the configuration has been read */
+    private static boolean initialized = false;
+
+    /** Default constructor */
+    private SharedObjectCache()
+    {
+    }
+
+    private static synchronized Cache<Long, Object> getCache()
+    {
+        if (!initialized)
+        {
+            if (ConfigurationManager.getBooleanProperty("cache.shared.enabled", false))
+            {
+                int size = ConfigurationManager.getIntProperty("cache.shared.size", 10000);
+                int ttl = ConfigurationManager.getIntProperty("cache.shared.ttl", 3600);
+                cache = CacheBuilder.newBuilder()
+                        .maximumSize(size)
+                        .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                        .recordStats()
+                        .build();
+                log.info("Shared object cache enabled, size=" + size + ", ttl=" + ttl + "s");
+            }
+            initialized = true;
+        }
+        return cache;
+    }
+
+    /**
+     * Whether the shared cache is in use.
+     *
+     * @return true if <code>cache.shared.enabled</code> is set
+     */
+    public static boolean isEnabled()
+    {
+        return getCache() != null;
+    }
+
+    /**
+     * Get the copy of an object's state held in the cache.
+     *
+     * @param objectClass
+     *            Java Class of the object
+     * @param id
+     *            ID of the object
+     * @return the immutable copy, or <code>null</code> if not cached
+     */
+    public static Object get(Class<?> objectClass, int id)
+    {
+        Cache<Long, Object> c = getCache();
+        if (c == null)
+        {
+            return null;
+        }
+        return c.getIfPresent(Context.cacheKey(objectClass, id));
+    }
+
+    /**
+     * Store an immutable copy of an object's state in the cache.
+     *
+     * @param objectClass
+     *            Java Class of the object
+     * @param id
+     *            ID of the object
+     * @param state
+     *            the immutable copy
+     */
+    public static void put(Class<?> objectClass, int id, Object state)
+    {
+        Cache<Long, Object> c = getCache();
+        if (c != null)
+        {
+            c.put(Context.cacheKey(objectClass, id), state);
+        }
+    }
+
+    /**
+     * Remove an object from the cache, because it has been modified or
+     * deleted.
+     *
+     * @param objectClass
+     *            Java Class of the object
+     * @param id
+     *            ID of the object
+     */
+    public static void invalidate(Class<?> objectClass, int id)
+    {
+        Cache<Long, Object> c = getCache();
+        if (c != null)
+        {
+            c.invalidate(Context.cacheKey(objectClass, id));
+        }
+    }
+
+    /**
+     * Remove all the objects from the cache.
+     */
+    public static void invalidateAll()
+    {
+        Cache<Long, Object> c = getCache();
+        if (c != null)
+        {
+            c.invalidateAll();
+        }
+    }
+
+    /**
+     * Get a summary of the cache usage: size, hits, misses and evictions,
+     * meant for diagnostics logging.
+     *
+     * @return the cache statistics, as a human readable string
+     */
+    public static String getStatistics()
+    {
+        Cache<Long, Object> c = getCache();
+        if (c == null)
+        {
+            return "disabled";
+        }
+        CacheStats stats = c.stats();
+        return "size=" + c.size() + ",hits=" + stats.hitCount() + ",misses=" + stats.missCount()
+                + ",evictions=" + stats.evictionCount();
+    }
+}
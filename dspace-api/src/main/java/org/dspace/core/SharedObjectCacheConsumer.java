@@ -0,0 +1,99 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.CommunityHierarchy;
+import org.dspace.content.ContainerNameCache;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Removes modified communities and collections from the
+ * {@link SharedObjectCache} and the {@link ContainerNameCache}, and drops the
+ * {@link CommunityHierarchy} when the hierarchy changes.
+ *
+ * Recommended filter:  Community|Collection+Add|Create|Modify|Modify_Metadata|Delete|Remove
+ */
+public class SharedObjectCacheConsumer implements Consumer
+{
+    /** log4j logger */
+    private static Logger log = Logger.getLogger(SharedObjectCacheConsumer.class);
+
+    /**
+     * Initialise the consumer
+     *
+     * @throws Exception
+     */
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    /**
+     * Consume the event
+     *
+     * @param context
+     * @param event
+     * @throws Exception
+     */
+    public void consume(Context context, Event event)
+        throws Exception
+    {
+        invalidate(event.getSubjectType(), event.getSubjectID());
+        invalidate(event.getObjectType(), event.getObjectID());
+        if (CommunityHierarchy.isHierarchyChange(event))
+        {
+            CommunityHierarchy.invalidate();
+        }
+    }
+
+    private void invalidate(int type, int id)
+    {
+        ContainerNameCache.invalidate(type, id);
+        switch (type)
+        {
+            case Constants.COMMUNITY:
+                SharedObjectCache.invalidate(Community.class, id);
+                break;
+            case Constants.COLLECTION:
+                SharedObjectCache.invalidate(Collection.class, id);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Handle the end of the event
+     *
+     * @param ctx
+     * @throws Exception
+     */
+    public void end(Context ctx)
+        throws Exception
+    {
+        if (log.isDebugEnabled())
+        {
+            log.debug("Shared object cache: " + SharedObjectCache.getStatistics());
+        }
+    }
+
+    /**
+     * Finish the event
+     *
+     * @param ctx
+     */
+    public void finish(Context ctx)
+    {
+
+    }
+}
@@ -41,7 +41,7 @@ public class IndexClient {
         Context context = new Context();
         context.setIgnoreAuthorization(true);
 
-        String usage = "org.dspace.discovery.IndexClient [-cbhf[r <item handle>]] or nothing to update/clean an existing index.";
+        String usage = "org.dspace.discovery.IndexClient [-cbehf[r <item handle>]] [-t <threads>] [-n <batch size>] or nothing to update/clean an existing index.";
         Options options = new Options();
         HelpFormatter formatter = new HelpFormatter();
         CommandLine line = null;
@@ -66,6 +66,11 @@ public class IndexClient {
                 "(re)build index, wiping out current one if it exists").create(
                 "b"));
 
+        options.addOption(OptionBuilder.isRequired(false).withDescription(
+                "reconcile the index with the db: remove documents that no longer exist, "
+                        + "and index items modified since they were indexed or missing from the index").create(
+                "e"));
+
         options.addOption(OptionBuilder.isRequired(false).withDescription(
                 "Rebuild the spellchecker, can be combined with -b and -f.").create(
                 "s"));
@@ -83,6 +88,15 @@ public class IndexClient {
         options.addOption(OptionBuilder.isRequired(false).withDescription(
                 "optimize search core").create("o"));
 
+        options.addOption(OptionBuilder.withArgName("threads").hasArg(true)
+                .withDescription("number of threads indexing items when (re)building or updating the index (default 1)")
+                .create("t"));
+
+        options.addOption(OptionBuilder.withArgName("batch size").hasArg(true)
+                .withDescription("number of documents sent to Solr at a time when (re)building or updating the index (default 1), "
+                        + "or read, removed and indexed at a time when reconciling it (default 1000)")
+                .create("n"));
+
         try {
             line = new PosixParser().parse(options, args);
         } catch (Exception e) {
@@ -106,15 +120,28 @@ public class IndexClient {
 
         IndexingService indexer = dspace.getServiceManager().getServiceByName(IndexingService.class.getName(),IndexingService.class);
 
+        int threads = 1;
+        int batchSize = 1;
+        try {
+            threads = Integer.parseInt(line.getOptionValue("t", "1"));
+            batchSize = Integer.parseInt(line.getOptionValue("n", "1"));
+        } catch (NumberFormatException e) {
+            formatter.printHelp(usage, "Invalid number: " + e.getMessage(), options, "");
+            System.exit(1);
+        }
+
         if (line.hasOption("r")) {
             log.info("Removing " + line.getOptionValue("r") + " from Index");
             indexer.unIndexContent(context, line.getOptionValue("r"));
         } else if (line.hasOption("c")) {
             log.info("Cleaning Index");
             indexer.cleanIndex(line.hasOption("f"));
+        } else if (line.hasOption("e")) {
+            log.info("Reconciling index with the database");
+            indexer.reconcileIndex(context, Integer.parseInt(line.getOptionValue("n", "1000")));
         } else if (line.hasOption("b")) {
             log.info("(Re)building index from scratch.");
-            indexer.createIndex(context);
+            indexer.updateIndex(context, true, threads, batchSize);
             checkRebuildSpellCheck(line, indexer);
         } else if (line.hasOption("o")) {
             log.info("Optimizing search core.");
@@ -124,7 +151,7 @@ public class IndexClient {
         } else {
             log.info("Updating and Cleaning Index");
             indexer.cleanIndex(line.hasOption("f"));
-            indexer.updateIndex(context, line.hasOption("f"));
+            indexer.updateIndex(context, line.hasOption("f"), threads, batchSize);
             checkRebuildSpellCheck(line, indexer);
         }
 
@@ -53,9 +53,13 @@ public interface IndexingService {
 
     void updateIndex(Context context, boolean force);
 
+    void updateIndex(Context context, boolean force, int threads, int batchSize);
+
     void cleanIndex(boolean force) throws IOException,
             SQLException, SearchServiceException;
 
+    void reconcileIndex(Context context, int batchSize) throws SearchServiceException;
+
     void commit() throws SearchServiceException;
 
     void optimize() throws SearchServiceException;
@@ -28,9 +28,16 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -65,6 +72,7 @@ import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.ContainerNameCache;
 import org.dspace.content.Metadatum;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
@@ -90,7 +98,10 @@ import org.dspace.discovery.configuration.DiscoverySortConfiguration;
 import org.dspace.discovery.configuration.DiscoverySortFieldConfiguration;
 import org.dspace.discovery.configuration.HierarchicalSidebarFacetConfiguration;
 import org.dspace.handle.HandleManager;
+import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.DatabaseUtils;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
 import org.dspace.utils.DSpace;
 import org.springframework.stereotype.Service;
 
@@ -119,6 +130,15 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
     private static final Logger log = Logger.getLogger(SolrServiceImpl.class);
 
+    /** Number of documents read or removed at a time when cleaning the index */
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+
+    /**
+     * Documents built by the current thread which have not yet been sent to
+     * Solr, or null if documents are sent as soon as they are built.
+     */
+    private final ThreadLocal<List<SolrInputDocument>> documentBatch = new ThreadLocal<List<SolrInputDocument>>();
+
     protected static final String LAST_INDEXED_FIELD = "SolrIndexer.lastIndexed";
 
     public static final String FILTER_SEPARATOR = "\n|||\n";
@@ -429,6 +449,215 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         }
     }
 
+    /**
+     * Iterates over all Items, Collections and Communities and updates them in
+     * the index, like {@link #updateIndex(Context, boolean)}, but indexes the
+     * items on several threads and sends the documents to Solr in batches.
+     * The calling thread reads the item IDs and hands them to the workers in
+     * chunks of <code>batchSize</code>; each worker has its own Context. The
+     * index is committed once, at the end.
+     *
+     * @param context the dspace context
+     * @param force whether or not to force the reindexing
+     * @param threads number of worker threads
+     * @param batchSize number of documents sent to Solr per request
+     */
+    public void updateIndex(Context context, boolean force, int threads, int batchSize)
+    {
+        if (threads <= 1 && batchSize <= 1)
+        {
+            updateIndex(context, force);
+            return;
+        }
+
+        threads = Math.max(threads, 1);
+        batchSize = Math.max(batchSize, 1);
+
+        BlockingQueue<List<Integer>> chunks = new ArrayBlockingQueue<List<Integer>>(threads * 2);
+        AtomicInteger indexed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.currentTimeMillis();
+
+        try {
+            for (int i = 0; i < threads; i++)
+            {
+                executor.execute(new IndexWorker(chunks, force, batchSize, indexed));
+            }
+
+            ItemIterator items = null;
+            try {
+                List<Integer> chunk = new ArrayList<Integer>(batchSize);
+                int queued = 0;
+                for (items = Item.findAllUnfiltered(context); items.hasNext();)
+                {
+                    chunk.add(items.nextID());
+                    if (chunk.size() == batchSize)
+                    {
+                        chunks.put(chunk);
+                        chunk = new ArrayList<Integer>(batchSize);
+
+                        if (++queued % 10 == 0)
+                        {
+                            logProgress(indexed.get(), start);
+                        }
+                    }
+                }
+                if (!chunk.isEmpty())
+                {
+                    chunks.put(chunk);
+                }
+            } finally {
+                if (items != null)
+                {
+                    items.close();
+                }
+
+                // Tell the workers there is no more work
+                for (int i = 0; i < threads; i++)
+                {
+                    chunks.put(Collections.<Integer>emptyList());
+                }
+                executor.shutdown();
+            }
+
+            while (!executor.awaitTermination(30, TimeUnit.SECONDS))
+            {
+                logProgress(indexed.get(), start);
+            }
+            logProgress(indexed.get(), start);
+
+            Collection[] collections = Collection.findAll(context);
+            for (Collection collection : collections)
+            {
+                indexContent(context, collection, force);
+                context.removeCached(collection, collection.getID());
+            }
+
+            Community[] communities = Community.findAll(context);
+            for (Community community : communities)
+            {
+                indexContent(context, community, force);
+                context.removeCached(community, community.getID());
+            }
+
+            if(getSolr() != null)
+            {
+                getSolr().commit();
+            }
+
+        } catch (Exception e)
+        {
+            log.error(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void logProgress(int indexed, long start)
+    {
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        log.info("Indexed " + indexed + " items (" + (indexed * 1000L / elapsed) + " docs/sec)");
+    }
+
+    /**
+     * Indexes chunks of items, using its own Context, until it takes an empty
+     * chunk from the queue.
+     */
+    private class IndexWorker implements Runnable
+    {
+        private final BlockingQueue<List<Integer>> chunks;
+
+        private final boolean force;
+
+        private final int batchSize;
+
+        private final AtomicInteger indexed;
+
+        IndexWorker(BlockingQueue<List<Integer>> chunks, boolean force, int batchSize, AtomicInteger indexed)
+        {
+            this.chunks = chunks;
+            this.force = force;
+            this.batchSize = batchSize;
+            this.indexed = indexed;
+        }
+
+        public void run()
+        {
+            Context context = null;
+            List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(batchSize);
+            documentBatch.set(batch);
+
+            try {
+                context = new Context();
+                context.turnOffAuthorisationSystem();
+            } catch (SQLException e)
+            {
+                // Keep draining the queue so that the producer is not blocked
+                log.error("Unable to create a context for indexing: " + e.getMessage(), e);
+            }
+
+            try {
+                List<Integer> chunk;
+                while (!(chunk = chunks.take()).isEmpty())
+                {
+                    if (context == null)
+                    {
+                        continue;
+                    }
+
+                    try {
+                        for (Integer id : chunk)
+                        {
+                            Item item = Item.find(context, id);
+                            if (item != null)
+                            {
+                                indexContent(context, item, force);
+                                item.decache();
+                            }
+                            indexed.incrementAndGet();
+
+                            if (batch.size() >= batchSize)
+                            {
+                                sendBatch(batch);
+                            }
+                        }
+                        sendBatch(batch);
+                    } catch (Exception e)
+                    {
+                        log.error("Error while indexing items " + chunk + ": " + e.getMessage(), e);
+                        batch.clear();
+                    } finally {
+                        context.clearCache();
+                    }
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            } finally {
+                documentBatch.remove();
+                if (context != null && context.isValid())
+                {
+                    context.abort();
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the documents of a batch to Solr and empty the batch.
+     */
+    protected void sendBatch(List<SolrInputDocument> batch) throws IOException, SolrServerException
+    {
+        if (!batch.isEmpty())
+        {
+            if (getSolr() != null)
+            {
+                getSolr().add(batch);
+            }
+            batch.clear();
+        }
+    }
+
     /**
      * Iterates over all documents in the Lucene index and verifies they are in
      * database, if not, they are removed.
@@ -454,47 +683,241 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             {
                 getSolr().deleteByQuery("search.resourcetype:[2 TO 4]");
             } else {
-                SolrQuery query = new SolrQuery();
-                query.setQuery("search.resourcetype:[2 TO 4]");
-                QueryResponse rsp = getSolr().query(query);
-                SolrDocumentList docs = rsp.getResults();
+                reconcileIndex(context, RECONCILE_BATCH_SIZE, false);
+            }
+        } catch(Exception e)
+        {
 
-                Iterator iter = docs.iterator();
-                while (iter.hasNext())
-                {
+            throw new SearchServiceException(e.getMessage(), e);
+        } finally
+        {
+            context.abort();
+        }
+    }
 
-                 SolrDocument doc = (SolrDocument) iter.next();
+    /**
+     * Compares the whole index with the database and brings it up to date:
+     * documents of objects which no longer exist (or of items no longer
+     * archived or withdrawn) are removed, and items modified since they were
+     * indexed, or missing from the index, are indexed again, as are missing
+     * collections and communities. The index is committed once, at the end.
+     * <p/>
+     * The documents are read from Solr, and the objects from the database, in
+     * order of their IDs, one page at a time, and the two lists are compared
+     * as they are read, so memory use does not grow with the size of the
+     * repository.
+     *
+     * @param context the dspace context
+     * @param batchSize number of documents read, removed or indexed at a time
+     * @throws SearchServiceException if something went wrong with the solr server
+     */
+    public void reconcileIndex(Context context, int batchSize) throws SearchServiceException
+    {
+        try {
+            if (getSolr() != null)
+            {
+                reconcileIndex(context, Math.max(batchSize, 1), true);
+            }
+        } catch (Exception e)
+        {
+            throw new SearchServiceException(e.getMessage(), e);
+        }
+    }
 
-                String handle = (String) doc.getFieldValue("handle");
+    /**
+     * Reconcile the documents of items, collections and communities with the
+     * database, then commit the index.
+     *
+     * @param reindex whether stale and missing objects are indexed, or only
+     *            orphan documents removed
+     */
+    private void reconcileIndex(Context context, int batchSize, boolean reindex)
+            throws SQLException, IOException, SolrServerException
+    {
+        long start = System.currentTimeMillis();
+        int[] types = {Constants.ITEM, Constants.COLLECTION, Constants.COMMUNITY};
+        for (int type : types)
+        {
+            String table = Constants.typeText[type].toLowerCase();
+            String condition = (type == Constants.ITEM) ? "in_archive='1' OR withdrawn='1'" : null;
 
-                DSpaceObject o = HandleManager.resolveToObject(context, handle);
+            // counts of documents checked, removed, stale and missing
+            int[] counts = new int[4];
+            List<String> orphans = new ArrayList<String>(batchSize);
+            List<Integer> outdated = new ArrayList<Integer>(batchSize);
 
-                if (o == null)
+            IndexedDocumentIterator indexed = new IndexedDocumentIterator(type, batchSize);
+            TableRowIterator rows = DatabaseManager.queryTableByKey(context, table, condition);
+            try {
+                SolrDocument doc = indexed.hasNext() ? indexed.next() : null;
+                TableRow row = rows.hasNext() ? rows.next() : null;
+                while (doc != null || row != null)
                 {
-                    log.info("Deleting: " + handle);
-                    /*
-                          * Use IndexWriter to delete, its easier to manage
-                          * write.lock
-                          */
-                    unIndexContent(context, handle);
-                } else {
-                    context.removeCached(o, o.getID());
-                    log.debug("Keeping: " + handle);
+                    int docID = (doc == null) ? Integer.MAX_VALUE : (Integer) doc.getFirstValue("search.resourceid");
+                    int rowID = (row == null) ? Integer.MAX_VALUE : row.getIntColumn(table + "_id");
+
+                    if (docID < rowID)
+                    {
+                        orphans.add(type + "-" + docID);
+                        counts[1]++;
+                    }
+                    else if (rowID < docID)
+                    {
+                        if (reindex)
+                        {
+                            outdated.add(rowID);
+                        }
+                        counts[3]++;
+                    }
+                    else if (type == Constants.ITEM && isStale(doc, row.getDateColumn("last_modified")))
+                    {
+                        if (reindex)
+                        {
+                            outdated.add(rowID);
+                        }
+                        counts[2]++;
+                    }
+
+                    if (docID <= rowID)
+                    {
+                        counts[0]++;
+                        doc = indexed.hasNext() ? indexed.next() : null;
+                    }
+                    if (rowID <= docID)
+                    {
+                        row = rows.hasNext() ? rows.next() : null;
+                    }
+
+                    if (orphans.size() >= batchSize)
+                    {
+                        getSolr().deleteById(orphans);
+                        orphans.clear();
+                    }
+                    if (outdated.size() >= batchSize)
+                    {
+                        reindexBatch(context, type, outdated);
+                    }
                 }
+                if (!orphans.isEmpty())
+                {
+                    getSolr().deleteById(orphans);
+                }
+                reindexBatch(context, type, outdated);
+            } finally {
+                rows.close();
             }
-            }
-        } catch(Exception e)
-        {
 
-            throw new SearchServiceException(e.getMessage(), e);
-        } finally
+            log.info("Reconciled " + table + " index: " + counts[0] + " documents, " + counts[1] + " removed, "
+                    + counts[2] + " stale and " + counts[3] + " missing" + (reindex ? " indexed" : " left") + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        getSolr().commit();
+    }
+
+    /**
+     * Whether an item was modified after its document was indexed.
+     */
+    private boolean isStale(SolrDocument doc, Date lastModified)
+    {
+        Object lastIndexed = doc.getFieldValue(LAST_INDEXED_FIELD);
+        return lastModified != null && (!(lastIndexed instanceof Date) || ((Date) lastIndexed).before(lastModified));
+    }
+
+    /**
+     * Index the objects of a batch, sending their documents to Solr in one
+     * request, and empty the batch.
+     */
+    private void reindexBatch(Context context, int type, List<Integer> ids)
+            throws SQLException, IOException, SolrServerException
+    {
+        if (ids.isEmpty())
         {
-            context.abort();
+            return;
+        }
+
+        List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(ids.size());
+        documentBatch.set(batch);
+        try {
+            for (DSpaceObject dso : DSpaceObject.find(context, type, ids).values())
+            {
+                switch (type)
+                {
+                    case Constants.ITEM:
+                        buildDocument(context, (Item) dso);
+                        break;
+                    case Constants.COLLECTION:
+                        buildDocument(context, (Collection) dso);
+                        break;
+                    default:
+                        buildDocument(context, (Community) dso);
+                        break;
+                }
+            }
+            sendBatch(batch);
+        } finally {
+            documentBatch.remove();
+            context.clearCache();
+            ids.clear();
         }
+    }
+
+    /**
+     * Iterates over the documents of one type of object in the index, in
+     * order of their IDs, reading them a page at a time with a Solr cursor.
+     * Only the ID and the time the object was last indexed are read.
+     */
+    private class IndexedDocumentIterator implements Iterator<SolrDocument>
+    {
+        private final SolrQuery query;
+
+        private String cursorMark = CursorMarkParams.CURSOR_MARK_START;
 
+        private Iterator<SolrDocument> page = null;
 
+        private boolean done = false;
 
+        IndexedDocumentIterator(int type, int pageSize)
+        {
+            query = new SolrQuery("search.resourcetype:" + type);
+            query.setFields("search.resourceid", LAST_INDEXED_FIELD);
+            query.setRows(pageSize);
+            // a cursor needs the unique key as the last sort field
+            query.addSort("search.resourceid", SolrQuery.ORDER.asc);
+            query.addSort("search.uniqueid", SolrQuery.ORDER.asc);
+        }
+
+        public boolean hasNext()
+        {
+            while (!done && (page == null || !page.hasNext()))
+            {
+                query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+                QueryResponse rsp;
+                try {
+                    rsp = getSolr().query(query);
+                } catch (SolrServerException e)
+                {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                page = rsp.getResults().iterator();
+                done = cursorMark.equals(rsp.getNextCursorMark());
+                cursorMark = rsp.getNextCursorMark();
+            }
+            return page != null && page.hasNext();
+        }
+
+        public SolrDocument next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
 
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
@@ -722,9 +1145,17 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     req.setParam(ExtractingParams.UNKNOWN_FIELD_PREFIX, "attr_");
                     req.setParam(ExtractingParams.MAP_PREFIX + "content", "fulltext");
                     req.setParam(ExtractingParams.EXTRACT_FORMAT, "text");
-                    req.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+                    if (documentBatch.get() == null)
+                    {
+                        req.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+                    }
                     req.process(getSolr());
                 }
+                else if (documentBatch.get() != null)
+                {
+                    // Sent with the rest of the batch
+                    documentBatch.get().add(doc);
+                }
                 else
                 {
                     getSolr().add(doc);
@@ -1536,10 +1967,10 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         if("location.comm".equals(field) || "location.coll".equals(field))
         {
             int type = field.equals("location.comm") ? Constants.COMMUNITY : Constants.COLLECTION;
-            DSpaceObject commColl = DSpaceObject.find(context, type, Integer.parseInt(value));
-            if(commColl != null)
+            String name = ContainerNameCache.getName(context, type, Integer.parseInt(value));
+            if(name != null)
             {
-                return commColl.getName();
+                return name;
             }
 
         }
@@ -1787,9 +2218,11 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             result.setTotalSearchResults(solrQueryResponse.getResults().getNumFound());
 
             List<String> searchFields = query.getSearchFields();
-            for (SolrDocument doc : solrQueryResponse.getResults())
+            List<DSpaceObject> dsos = findDSpaceObjects(context, solrQueryResponse.getResults());
+            for (int d = 0; d < dsos.size(); d++)
             {
-                DSpaceObject dso = findDSpaceObject(context, doc);
+                SolrDocument doc = solrQueryResponse.getResults().get(d);
+                DSpaceObject dso = dsos.get(d);
 
                 if(dso != null)
                 {
@@ -1829,6 +2262,9 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 }
             }
 
+            // Load the metadata of the whole page at once, the result list will be rendered anyway
+            DSpaceObject.prefetchMetadata(context, result.getDspaceObjects());
+
             //Resolve our facet field values
             List<FacetField> facetFields = solrQueryResponse.getFacetFields();
             if(facetFields != null)
@@ -1912,6 +2348,54 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return result;
     }
 
+    /**
+     * Find the objects of a page of results, grouped by type so that each
+     * type is read with one query instead of one per document.
+     *
+     * @return the object of each document, in the same order, null for
+     *         those that could not be found
+     */
+    protected static List<DSpaceObject> findDSpaceObjects(Context context, SolrDocumentList docs) throws SQLException {
+        Map<Integer, List<Integer>> idsByType = new HashMap<Integer, List<Integer>>();
+        for (SolrDocument doc : docs)
+        {
+            Integer type = (Integer) doc.getFirstValue("search.resourcetype");
+            Integer id = (Integer) doc.getFirstValue("search.resourceid");
+            if (type != null && id != null)
+            {
+                List<Integer> ids = idsByType.get(type);
+                if (ids == null)
+                {
+                    ids = new ArrayList<Integer>();
+                    idsByType.put(type, ids);
+                }
+                ids.add(id);
+            }
+        }
+
+        Map<Integer, Map<Integer, DSpaceObject>> found = new HashMap<Integer, Map<Integer, DSpaceObject>>();
+        for (Map.Entry<Integer, List<Integer>> entry : idsByType.entrySet())
+        {
+            found.put(entry.getKey(), DSpaceObject.find(context, entry.getKey(), entry.getValue()));
+        }
+
+        List<DSpaceObject> result = new ArrayList<DSpaceObject>(docs.size());
+        for (SolrDocument doc : docs)
+        {
+            Integer type = (Integer) doc.getFirstValue("search.resourcetype");
+            Integer id = (Integer) doc.getFirstValue("search.resourceid");
+            if (type != null && id != null)
+            {
+                result.add(found.get(type).get(id));
+            }
+            else
+            {
+                result.add(findDSpaceObject(context, doc));
+            }
+        }
+        return result;
+    }
+
     protected static DSpaceObject findDSpaceObject(Context context, SolrDocument doc) throws SQLException {
 
         Integer type = (Integer) doc.getFirstValue("search.resourcetype");
@@ -1983,14 +2467,9 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             QueryResponse rsp = getSolr().query(solrQuery);
             SolrDocumentList docs = rsp.getResults();
 
-            Iterator iter = docs.iterator();
             List<DSpaceObject> result = new ArrayList<DSpaceObject>();
-            while (iter.hasNext())
+            for (DSpaceObject o : findDSpaceObjects(context, docs))
             {
-                SolrDocument doc = (SolrDocument) iter.next();
-
-                DSpaceObject o = DSpaceObject.find(context, (Integer) doc.getFirstValue("search.resourcetype"), (Integer) doc.getFirstValue("search.resourceid"));
-
                 if (o != null)
                 {
                     result.add(o);
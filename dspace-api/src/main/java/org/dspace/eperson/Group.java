@@ -9,6 +9,7 @@ package org.dspace.eperson;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -375,9 +376,48 @@ public class Group extends DSpaceObject
             return true;
         }
 
-        EPerson currentuser = c.getCurrentUser();
+        return Arrays.binarySearch(currentUserGroupIDs(c), groupid) >= 0;
+    }
+
+    /**
+     * Get the IDs of all the groups the current user of the context is a
+     * member of, loading them only once per context.
+     *
+     * @param c
+     *            context
+     * @return sorted array of group IDs, which must not be modified
+     * @throws SQLException
+     */
+    private static int[] currentUserGroupIDs(Context c) throws SQLException
+    {
+        int[] groupIDs = c.getCachedGroupMemberships();
+        if (groupIDs == null)
+        {
+            Set<Integer> loaded = loadMemberGroupIDs(c, c.getCurrentUser());
+            groupIDs = new int[loaded.size()];
+            int idx = 0;
+            for (Integer groupID : loaded)
+            {
+                groupIDs[idx++] = groupID.intValue();
+            }
+            Arrays.sort(groupIDs);
+            c.cacheGroupMemberships(groupIDs);
+        }
+        return groupIDs;
+    }
 
-        return epersonInGroup(c, groupid, currentuser);
+    /**
+     * Whether the given eperson is the current user of the context (both
+     * being <code>null</code> for anonymous access).
+     */
+    private static boolean isCurrentUser(Context c, EPerson e)
+    {
+        EPerson currentUser = c.getCurrentUser();
+        if (currentUser == null)
+        {
+            return e == null;
+        }
+        return e != null && currentUser.getID() == e.getID();
     }
 
     /**
@@ -414,6 +454,32 @@ public class Group extends DSpaceObject
      */
     public static Set<Integer> allMemberGroupIDs(Context c, EPerson e)
             throws SQLException
+    {
+        if (isCurrentUser(c, e))
+        {
+            // answer from the memberships cached in the context
+            int[] cached = currentUserGroupIDs(c);
+            Set<Integer> groupIDs = new HashSet<Integer>(cached.length * 2);
+            for (int groupID : cached)
+            {
+                groupIDs.add(Integer.valueOf(groupID));
+            }
+            return groupIDs;
+        }
+
+        return loadMemberGroupIDs(c, e);
+    }
+
+    /**
+     * Query the database for all the group memberships of an eperson.
+     *
+     * @param c
+     * @param e
+     * @return Set of Integer groupIDs
+     * @throws SQLException
+     */
+    private static Set<Integer> loadMemberGroupIDs(Context c, EPerson e)
+            throws SQLException
     {
         Set<Integer> groupIDs = new HashSet<Integer>();
         
@@ -656,14 +722,6 @@ public class Group extends DSpaceObject
         return epeopleIDs;
     }
 
-    private static boolean epersonInGroup(Context c, int groupID, EPerson e)
-            throws SQLException
-    {
-        Set<Integer> groupIDs = Group.allMemberGroupIDs(c, e);
-
-        return groupIDs.contains(Integer.valueOf(groupID));
-    }
-
     /**
      * find the group by its ID
      * 
@@ -1072,6 +1130,9 @@ public class Group extends DSpaceObject
 
         epeople.clear();
 
+        // memberships have changed, cached memberships and decisions are stale
+        ourContext.clearGroupMembershipCache();
+
         log.info(LogManager.getHeader(ourContext, "delete_group", "group_id="
                 + getID()));
 
@@ -1154,6 +1215,12 @@ public class Group extends DSpaceObject
             clearDetails();
         }
 
+        // memberships are about to change, cached memberships and decisions are stale
+        if (epeopleChanged || groupsChanged)
+        {
+            ourContext.clearGroupMembershipCache();
+        }
+
         // Redo eperson mappings if they've changed
         if (epeopleChanged)
         {
@@ -9,7 +9,9 @@ package org.dspace.handle;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.dspace.content.Collection;
@@ -42,6 +44,9 @@ public class HandleManager
     /** log4j category */
     private static Logger log = Logger.getLogger(HandleManager.class);
 
+    /** Maximum number of objects whose handles are looked up by a single query */
+    private static final int BATCH_SIZE = 500;
+
     /** Prefix registered to no one */
     static final String EXAMPLE_PREFIX = "123456789";
 
@@ -415,22 +420,93 @@ public class HandleManager
         }
         else
         {
-            //TODO: Move this code away from the HandleManager & into the Identifier provider
-            //Attempt to retrieve a handle that does NOT look like {handle.part}/{handle.part}.{version}
-            String result = rows.next().getStringColumn("handle");
+            String result = null;
             while (rows.hasNext())
             {
-                TableRow row = rows.next();
-                //Ensure that the handle doesn't look like this 12346/213.{version}
-                //If we find a match that indicates that we have a proper handle
-                if(!row.getStringColumn("handle").matches(".*/.*\\.\\d+"))
+                result = preferredHandle(result, rows.next().getStringColumn("handle"));
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Return the handles of many objects of the same type, with one query per
+     * few hundred objects rather than one per object. The handle chosen for
+     * each object is the one {@link #findHandle} would return.
+     *
+     * @param context
+     *            DSpace context
+     * @param type
+     *            type of the objects, from <code>org.dspace.core.Constants</code>
+     * @param ids
+     *            IDs of the objects
+     * @return map of object ID to handle; objects without a handle are left out
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static Map<Integer, String> findHandles(Context context, int type, List<Integer> ids)
+            throws SQLException
+    {
+        Map<Integer, String> handles = new HashMap<Integer, String>();
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE)
+        {
+            List<Integer> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+
+            StringBuilder sql = new StringBuilder("SELECT * FROM Handle WHERE resource_type_id = ? AND resource_id IN (");
+            Object[] params = new Object[batch.size() + 1];
+            params[0] = type;
+            for (int i = 0; i < batch.size(); i++)
+            {
+                sql.append(i == 0 ? "?" : ", ?");
+                params[i + 1] = batch.get(i);
+            }
+            sql.append(") ORDER BY handle_id");
+
+            TableRowIterator rows = DatabaseManager.queryTable(context, "Handle", sql.toString(), params);
+            try
+            {
+                while (rows.hasNext())
                 {
-                    result = row.getStringColumn("handle");
+                    TableRow row = rows.next();
+                    int id = row.getIntColumn("resource_id");
+                    handles.put(id, preferredHandle(handles.get(id), row.getStringColumn("handle")));
                 }
             }
+            finally
+            {
+                rows.close();
+            }
+        }
 
-            return result;
+        if (type == Constants.SITE)
+        {
+            for (Integer id : ids)
+            {
+                if (!handles.containsKey(id))
+                {
+                    handles.put(id, Site.getSiteHandle());
+                }
+            }
+        }
+        return handles;
+    }
+
+    /**
+     * Choose between the handle found so far for an object and another of
+     * its handles.
+     */
+    private static String preferredHandle(String result, String candidate)
+    {
+        //TODO: Move this code away from the HandleManager & into the Identifier provider
+        //Attempt to retrieve a handle that does NOT look like {handle.part}/{handle.part}.{version}
+        //Ensure that the handle doesn't look like this 12346/213.{version}
+        //If we find a match that indicates that we have a proper handle
+        if (result == null || !candidate.matches(".*/.*\\.\\d+"))
+        {
+            return candidate;
         }
+        return result;
     }
 
     /**
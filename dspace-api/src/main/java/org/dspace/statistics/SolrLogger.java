@@ -212,19 +212,8 @@ public class SolrLogger
 
         try
         {
-            SolrInputDocument doc1 = getCommonSolrDoc(dspaceObject, request, currentUser);
+            SolrInputDocument doc1 = getViewSolrDoc(dspaceObject, capture(dspaceObject, request, currentUser));
             if (doc1 == null) return;
-            if(dspaceObject instanceof Bitstream)
-            {
-                Bitstream bit = (Bitstream) dspaceObject;
-                Bundle[] bundles = bit.getBundles();
-                for (Bundle bundle : bundles) {
-                    doc1.addField("bundleName", bundle.getName());
-                }
-            }
-
-            doc1.addField("statistics_type", StatisticsType.VIEW.text());
-
 
             solr.add(doc1);
             //commits are executed automatically using the solr autocommit
@@ -274,6 +263,83 @@ public class SolrLogger
 	}
     
 
+    /**
+     * Return true if views can be stored, i.e. the statistics core and the
+     * location database are both available.
+     */
+    static boolean isViewLoggingEnabled()
+    {
+        return solr != null && locationService != null;
+    }
+
+    /**
+     * Store views queued by the {@link SolrLoggerQueue} into Solr, with one
+     * request for all of them.
+     *
+     * @param views the views to store.
+     * @throws SQLException in case of a database exception
+     * @throws IOException in case of a communication error with Solr
+     * @throws SolrServerException in case of a Solr error
+     */
+    static void postViews(List<SolrLoggerQueue.View> views) throws SQLException, IOException, SolrServerException
+    {
+        if (!isViewLoggingEnabled())
+        {
+            return;
+        }
+
+        Context context = new Context();
+        try
+        {
+            List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>(views.size());
+            for (SolrLoggerQueue.View view : views)
+            {
+                DSpaceObject dspaceObject = (view.id < 0) ? null : DSpaceObject.find(context, view.type, view.id);
+                SolrInputDocument doc1 = getViewSolrDoc(dspaceObject, view);
+                if (doc1 != null)
+                {
+                    docs.add(doc1);
+                }
+            }
+
+            if (!docs.isEmpty())
+            {
+                solr.add(docs);
+            }
+        }
+        finally
+        {
+            context.abort();
+        }
+    }
+
+    /**
+     * Returns a solr input document for a view, posted directly or queued by
+     * the {@link SolrLoggerQueue}.
+     * @param dspaceObject the object used.
+     * @param view the values captured from the request.
+     * @return a solr input document, or null if the view is not logged
+     * @throws SQLException in case of a database exception
+     */
+    private static SolrInputDocument getViewSolrDoc(DSpaceObject dspaceObject, SolrLoggerQueue.View view) throws SQLException {
+        SolrInputDocument doc1 = getCommonSolrDoc(dspaceObject, view);
+        if (doc1 == null)
+        {
+            return null;
+        }
+
+        if(dspaceObject instanceof Bitstream)
+        {
+            for (Bundle bundle : ((Bitstream) dspaceObject).getBundles()) {
+                doc1.addField("bundleName", bundle.getName());
+            }
+        }
+
+        doc1.addField("statistics_type", StatisticsType.VIEW.text());
+
+        return doc1;
+    }
+
     /**
      * Returns a solr input document containing common information about the statistics
      * regardless if we are logging a search or a view of a DSpace object
@@ -284,7 +350,37 @@ public class SolrLogger
      * @throws SQLException in case of a database exception
      */
     private static SolrInputDocument getCommonSolrDoc(DSpaceObject dspaceObject, HttpServletRequest request, EPerson currentUser) throws SQLException {
-        boolean isSpiderBot = request != null && SpiderDetector.isSpider(request);
+        return getCommonSolrDoc(dspaceObject, capture(dspaceObject, request, currentUser));
+    }
+
+    /**
+     * Capture the values of a request needed by its statistics document.
+     * @param dspaceObject the object used.
+     * @param request the current request context, or null.
+     * @param currentUser the current session's user.
+     * @return the values, all null but the time and user if there is no request
+     */
+    private static SolrLoggerQueue.View capture(DSpaceObject dspaceObject, HttpServletRequest request, EPerson currentUser) {
+        if (request == null)
+        {
+            return new SolrLoggerQueue.View(dspaceObject, null, null, null, null, null, currentUser);
+        }
+        return new SolrLoggerQueue.View(dspaceObject, request.getRemoteAddr(), request.getHeader("X-Forwarded-For"),
+                request.getRemoteHost(), request.getHeader("User-Agent"), request.getHeader("referer"), currentUser);
+    }
+
+    /**
+     * Returns a solr input document containing common information about the statistics
+     * regardless if we are logging a search or a view of a DSpace object
+     * @param dspaceObject the object used.
+     * @param view the values captured from the request, all null but the
+     *        time and user if there was no request.
+     * @return a solr input document, or null if the event is not logged
+     * @throws SQLException in case of a database exception
+     */
+    private static SolrInputDocument getCommonSolrDoc(DSpaceObject dspaceObject, SolrLoggerQueue.View view) throws SQLException {
+        boolean isSpiderBot = view.remoteAddr != null && SpiderDetector.isSpider(view.remoteAddr,
+                view.xforwarderfor, view.remoteHost, view.userAgent);
         if(isSpiderBot &&
                 !ConfigurationManager.getBooleanProperty("usage-statistics", "logBots", true))
         {
@@ -294,17 +390,17 @@ public class SolrLogger
         SolrInputDocument doc1 = new SolrInputDocument();
         // Save our basic info that we already have
 
-        if(request != null){
-            String ip = request.getRemoteAddr();
+        if(view.remoteAddr != null){
+            String ip = view.remoteAddr;
 
-            if (isUseProxies() && request.getHeader("X-Forwarded-For") != null) {
+            if (isUseProxies() && view.xforwarderfor != null) {
                 /* This header is a comma delimited list */
-                for (String xfip : request.getHeader("X-Forwarded-For").split(",")) {
+                for (String xfip : view.xforwarderfor.split(",")) {
                     /* proxy itself will sometime populate this header with the same value in
                     remote address. ordering in spec is vague, we'll just take the last
                     not equal to the proxy
                     */
-                    if (!request.getHeader("X-Forwarded-For").contains(ip)) {
+                    if (!view.xforwarderfor.contains(ip)) {
                         ip = xfip.trim();
                     }
                 }
@@ -313,8 +409,8 @@ public class SolrLogger
             doc1.addField("ip", ip);
 
             //Also store the referrer
-            if(request.getHeader("referer") != null){
-                doc1.addField("referrer", request.getHeader("referer"));
+            if(view.referrer != null){
+                doc1.addField("referrer", view.referrer);
             }
 
             try
@@ -327,10 +423,10 @@ public class SolrLogger
                 log.error("Failed DNS Lookup for IP:" + ip);
                 log.debug(e.getMessage(),e);
             }
-		    if(request.getHeader("User-Agent") != null)
-		    {
-		        doc1.addField("userAgent", request.getHeader("User-Agent"));
-		    }
+            if(view.userAgent != null)
+            {
+                doc1.addField("userAgent", view.userAgent);
+            }
             // Save the location information if valid, save the event without
             // location information if not valid
             if(locationService != null)
@@ -347,16 +443,13 @@ public class SolrLogger
                     }
                     catch (Exception e)
                     {
-                        System.out
-                                .println("COUNTRY ERROR: " + location.countryCode);
+                        log.error("COUNTRY ERROR: " + location.countryCode);
                     }
                     doc1.addField("countryCode", location.countryCode);
                     doc1.addField("city", location.city);
                     doc1.addField("latitude", location.latitude);
                     doc1.addField("longitude", location.longitude);
                     doc1.addField("isBot",isSpiderBot);
-
-
                 }
             }
         }
@@ -366,11 +459,11 @@ public class SolrLogger
             doc1.addField("type", dspaceObject.getType());
             storeParents(doc1, dspaceObject);
         }
-        // Save the current time
-        doc1.addField("time", DateFormatUtils.format(new Date(), DATE_FORMAT_8601));
-        if (currentUser != null)
+        // Save the time of the event, not of the post
+        doc1.addField("time", DateFormatUtils.format(view.time, DATE_FORMAT_8601));
+        if (view.epersonID >= 0)
         {
-            doc1.addField("epersonid", currentUser.getID());
+            doc1.addField("epersonid", view.epersonID);
         }
 
         return doc1;
@@ -751,7 +844,7 @@ public class SolrLogger
                 };
 
                 /* query for ip, exclude results previously set as bots. */
-                processor.execute("ip:"+ip+ "* AND -isBot:true");
+                processor.execute(ipQuery(ip) + " AND -isBot:true");
 
                 solr.commit();
 
@@ -795,15 +888,32 @@ public class SolrLogger
         }
     }
 
+    /**
+     * Delete the hits of an address, or of an address prefix ending with
+     * its separator, such as "10.1." or "2001:db8:".
+     */
     public static void deleteIP(String ip)
     {
         try {
-            solr.deleteByQuery("ip:"+ip + "*");
+            solr.deleteByQuery(ipQuery(ip));
         } catch (Exception e) {
             log.error(e.getMessage(),e);
         }
     }
 
+    /**
+     * Query for the hits of an address, or of an address prefix ending with
+     * "." or ":", so that "10.1." matches 10.1.2.3 but not 10.10.2.3.
+     */
+    private static String ipQuery(String ip)
+    {
+        if (ip.endsWith(".") || ip.endsWith(":"))
+        {
+            return "ip:" + ClientUtils.escapeQueryChars(ip) + "*";
+        }
+        return "ip:" + ClientUtils.escapeQueryChars(ip);
+    }
+
 
     public static void deleteRobotsByIP()
     {
@@ -1227,7 +1337,7 @@ public class SolrLogger
                     first = false;
                 }
 
-                query.append(" NOT(ip: ").append(ip).append(")");
+                query.append(" NOT(ip: ").append(ClientUtils.escapeQueryChars(ip)).append(")");
             }
             filterQuery = query.toString();
         }
@@ -0,0 +1,345 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.eperson.EPerson;
+
+/**
+ * Queue which takes view events off the request thread. The request thread
+ * only copies the few values needed from the request; background workers
+ * look up the DNS name, location and parents of each view and post the
+ * documents to the statistics core in batches.
+ * <p>
+ * Configured in solr-statistics.cfg:
+ * <ul>
+ * <li>async.enabled - queue view events (default true)</li>
+ * <li>async.queue.size - maximum number of waiting events (default 10000)</li>
+ * <li>async.threads - number of workers (default 1)</li>
+ * <li>async.batch.size - maximum number of documents per post (default 100)</li>
+ * <li>async.flush.interval - maximum milliseconds an event waits for a
+ * batch to fill (default 5000)</li>
+ * <li>async.overflow - what to do with an event when the queue is full:
+ * "caller" posts it on the request thread, "block" waits for room in the
+ * queue, "drop" discards it (default caller)</li>
+ * </ul>
+ * The workers are daemon threads: {@link #shutdown()} is called when a
+ * webapp stops, by the {@link org.dspace.app.util.DSpaceContextListener}, and
+ * when a command run by the launcher ends, and posts the events still
+ * waiting.
+ */
+public final class SolrLoggerQueue
+{
+    private static final Logger log = Logger.getLogger(SolrLoggerQueue.class);
+
+    private static final boolean enabled = ConfigurationManager.getBooleanProperty("solr-statistics", "async.enabled", true);
+
+    private static final int threads = Math.max(1, ConfigurationManager.getIntProperty("solr-statistics", "async.threads", 1));
+
+    private static final int batchSize = Math.max(1, ConfigurationManager.getIntProperty("solr-statistics", "async.batch.size", 100));
+
+    private static final long flushInterval = Math.max(1, ConfigurationManager.getIntProperty("solr-statistics", "async.flush.interval", 5000));
+
+    private static final String overflow = ConfigurationManager.getProperty("solr-statistics", "async.overflow");
+
+    private static final BlockingQueue<View> queue = new ArrayBlockingQueue<View>(
+            Math.max(1, ConfigurationManager.getIntProperty("solr-statistics", "async.queue.size", 10000)));
+
+    private static final AtomicLong enqueued = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicLong posted = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+
+    private static List<Thread> workers = null;
+
+    private static volatile boolean running = false;
+
+    /** Default constructor */
+    private SolrLoggerQueue()
+    {
+    }
+
+    /**
+     * Return true if view events should be queued rather than posted on the
+     * request thread.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Queue a view of an object.
+     *
+     * @param dspaceObject the object used.
+     * @param request the current request context.
+     * @param currentUser the current session's user.
+     */
+    public static void postView(DSpaceObject dspaceObject, HttpServletRequest request, EPerson currentUser)
+    {
+        enqueue(new View(dspaceObject, request.getRemoteAddr(), request.getHeader("X-Forwarded-For"),
+                request.getRemoteHost(), request.getHeader("User-Agent"), request.getHeader("referer"),
+                currentUser));
+    }
+
+    /**
+     * Queue a view of an object.
+     *
+     * @param dspaceObject the object used.
+     * @param ip the address of the client.
+     * @param userAgent the User-Agent of the client, or null.
+     * @param xforwarderfor the X-Forwarded-For header, or null.
+     * @param currentUser the current session's user.
+     */
+    public static void postView(DSpaceObject dspaceObject, String ip, String userAgent, String xforwarderfor,
+            EPerson currentUser)
+    {
+        enqueue(new View(dspaceObject, ip, xforwarderfor, null, userAgent, null, currentUser));
+    }
+
+    private static void enqueue(View view)
+    {
+        if (!SolrLogger.isViewLoggingEnabled())
+        {
+            return;
+        }
+
+        if (!running)
+        {
+            start();
+        }
+
+        // Shut down, so nothing would take the event off the queue
+        if (!running)
+        {
+            post(Collections.singletonList(view));
+            return;
+        }
+
+        if (queue.offer(view))
+        {
+            enqueued.incrementAndGet();
+            return;
+        }
+
+        if ("drop".equals(overflow))
+        {
+            if (dropped.incrementAndGet() % 1000 == 1)
+            {
+                log.warn("Usage event queue is full, dropping events. " + getStatistics());
+            }
+        }
+        else if ("block".equals(overflow) && running)
+        {
+            try
+            {
+                queue.put(view);
+                enqueued.incrementAndGet();
+            }
+            catch (InterruptedException e)
+            {
+                dropped.incrementAndGet();
+                Thread.currentThread().interrupt();
+            }
+        }
+        else
+        {
+            post(Collections.singletonList(view));
+        }
+    }
+
+    /**
+     * Start the workers, unless they are already running or the queue has
+     * been shut down.
+     */
+    private static synchronized void start()
+    {
+        if (running || workers != null)
+        {
+            return;
+        }
+
+        running = true;
+        workers = new ArrayList<Thread>(threads);
+        for (int i = 0; i < threads; i++)
+        {
+            Thread worker = new Thread(new Worker(), "SolrLoggerQueue-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Stop accepting events and wait for the workers to post the events
+     * still in the queue. Events arriving afterwards are posted on the
+     * calling thread.
+     */
+    public static synchronized void shutdown()
+    {
+        if (!running)
+        {
+            return;
+        }
+
+        running = false;
+        for (Thread worker : workers)
+        {
+            try
+            {
+                worker.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Anything queued while the workers were finishing
+        List<View> remaining = new ArrayList<View>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty())
+        {
+            post(remaining);
+        }
+
+        log.info("Usage event queue shut down. " + getStatistics());
+    }
+
+    /**
+     * Return the number of events waiting in the queue.
+     */
+    public static int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Return a summary of the queue's activity, for logging.
+     */
+    public static String getStatistics()
+    {
+        return "depth=" + queue.size() + ",enqueued=" + enqueued.get() + ",dropped=" + dropped.get()
+                + ",posted=" + posted.get() + ",failed=" + failed.get();
+    }
+
+    private static void post(List<View> views)
+    {
+        try
+        {
+            SolrLogger.postViews(views);
+            posted.addAndGet(views.size());
+        }
+        catch (Exception e)
+        {
+            failed.addAndGet(views.size());
+            log.error("Unable to post " + views.size() + " usage events: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Takes events off the queue and posts them when a batch is full, when
+     * the oldest event in the batch has waited for the flush interval, or
+     * when the queue is shut down.
+     */
+    private static class Worker implements Runnable
+    {
+        public void run()
+        {
+            List<View> batch = new ArrayList<View>(batchSize);
+            long deadline = 0;
+
+            while (running || !queue.isEmpty() || !batch.isEmpty())
+            {
+                long wait = batch.isEmpty() ? flushInterval : deadline - System.currentTimeMillis();
+                View view = null;
+                try
+                {
+                    if (running && wait > 0)
+                    {
+                        view = queue.poll(Math.min(wait, 1000), TimeUnit.MILLISECONDS);
+                    }
+                    else
+                    {
+                        view = queue.poll();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    if (!batch.isEmpty())
+                    {
+                        post(batch);
+                    }
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (view != null)
+                {
+                    if (batch.isEmpty())
+                    {
+                        deadline = System.currentTimeMillis() + flushInterval;
+                    }
+                    batch.add(view);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+
+                if (!batch.isEmpty() && (batch.size() >= batchSize || !running
+                        || System.currentTimeMillis() >= deadline))
+                {
+                    post(batch);
+                    batch = new ArrayList<View>(batchSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * The values of a view needed to build its statistics document.
+     */
+    static class View
+    {
+        final int type;
+        final int id;
+        final String remoteAddr;
+        final String xforwarderfor;
+        final String remoteHost;
+        final String userAgent;
+        final String referrer;
+        final int epersonID;
+        final Date time;
+
+        View(DSpaceObject dspaceObject, String remoteAddr, String xforwarderfor, String remoteHost,
+                String userAgent, String referrer, EPerson currentUser)
+        {
+            this.type = (dspaceObject == null) ? -1 : dspaceObject.getType();
+            this.id = (dspaceObject == null) ? -1 : dspaceObject.getID();
+            this.remoteAddr = remoteAddr;
+            this.xforwarderfor = xforwarderfor;
+            this.remoteHost = remoteHost;
+            this.userAgent = userAgent;
+            this.referrer = referrer;
+            this.epersonID = (currentUser == null) ? -1 : currentUser.getID();
+            this.time = new Date();
+        }
+    }
+}
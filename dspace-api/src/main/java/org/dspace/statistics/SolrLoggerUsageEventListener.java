@@ -37,6 +37,13 @@ public class SolrLoggerUsageEventListener extends AbstractUsageEventListener {
 			
 			    EPerson currentUser = ue.getContext() == null ? null : ue.getContext().getCurrentUser();
 
+                if(UsageEvent.Action.VIEW == ue.getAction() && SolrLoggerQueue.isEnabled()){
+                	if(ue.getRequest()!=null){
+                		SolrLoggerQueue.postView(ue.getObject(), ue.getRequest(), currentUser);
+                	} else {
+                		SolrLoggerQueue.postView(ue.getObject(), ue.getIp(), ue.getUserAgent(), ue.getXforwarderfor(), currentUser);
+                	}
+                }else
                 if(UsageEvent.Action.VIEW == ue.getAction()){
                 	if(ue.getRequest()!=null){
                 		SolrLogger.postView(ue.getObject(), ue.getRequest(), currentUser);
@@ -7,13 +7,23 @@
  */
 package org.dspace.statistics.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.dspace.core.ConfigurationManager;
 import org.xbill.DNS.*;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * XBill DNS resolver to retrieve hostnames for client IP addresses.
+ * <p>
+ * Reverse lookups share one resolver and are cached, so that repeated hits
+ * from the same address cost one DNS query. Names are kept for
+ * <code>resolver.cache.ttl</code> seconds (default 3600); addresses without
+ * a name, or whose lookup failed, for <code>resolver.cache.negative.ttl</code>
+ * seconds (default 300). Each cache holds at most
+ * <code>resolver.cache.size</code> addresses (default 10000).
  * TODO: deal with IPv6 addresses.
  * 
  * @author kevinvandevelde at atmire.com
@@ -21,6 +31,28 @@ import java.io.IOException;
  */
 public class DnsLookup {
 
+    private static final int cacheSize = ConfigurationManager.getIntProperty("usage-statistics",
+            "resolver.cache.size", 10000);
+
+    /** Host names by address */
+    private static final Cache<String, String> names = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(ConfigurationManager.getIntProperty("usage-statistics",
+                    "resolver.cache.ttl", 3600), TimeUnit.SECONDS)
+            .build();
+
+    /** Addresses without a host name, mapped to the reason the lookup failed, or null */
+    private static final Cache<String, String> unresolved = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(ConfigurationManager.getIntProperty("usage-statistics",
+                    "resolver.cache.negative.ttl", 300), TimeUnit.SECONDS)
+            .build();
+
+    /** Marks an address which has no PTR record, as opposed to a failed lookup */
+    private static final String NO_NAME = "";
+
+    private static Resolver resolver = null;
+
     /**
      * Resolve an IP address to a host name.
      *
@@ -29,30 +61,82 @@ public class DnsLookup {
      * @throws IOException from infrastructure.
      */
     public static String reverseDns(String hostIp) throws IOException {
-         Resolver res = new ExtendedResolver();
-         
-         // set the timeout, defaults to 200 milliseconds
-         int timeout = ConfigurationManager.getIntProperty("usage-statistics", "resolver.timeout", 200);
-         res.setTimeout(0, timeout);
-
-         Name name = ReverseMap.fromAddress(hostIp);
-         int type = Type.PTR;
-         int dclass = DClass.IN;
-         Record rec = Record.newRecord(name, type, dclass);
-         Message query = Message.newQuery(rec);
-         Message response = res.send(query);
-
-         Record[] answers = response.getSectionArray(Section.ANSWER);
-         if (answers.length == 0)
-         {
-             return hostIp;
-         }
-         else
-         {
-             return answers[0].rdataToString();
-         }
+        String hostName = names.getIfPresent(hostIp);
+        if (hostName != null)
+        {
+            return hostName;
+        }
+
+        String failure = unresolved.getIfPresent(hostIp);
+        if (failure != null)
+        {
+            if (failure == NO_NAME)
+            {
+                return hostIp;
+            }
+            throw new IOException(failure);
+        }
+
+        Message response;
+        try
+        {
+            Name name = ReverseMap.fromAddress(hostIp);
+            int type = Type.PTR;
+            int dclass = DClass.IN;
+            Record rec = Record.newRecord(name, type, dclass);
+            Message query = Message.newQuery(rec);
+            response = getResolver().send(query);
+        }
+        catch (IOException e)
+        {
+            unresolved.put(hostIp, "Reverse lookup of " + hostIp + " failed: " + e.getMessage());
+            throw e;
+        }
+
+        Record[] answers = response.getSectionArray(Section.ANSWER);
+        if (answers.length == 0)
+        {
+            unresolved.put(hostIp, NO_NAME);
+            return hostIp;
+        }
+        else
+        {
+            hostName = answers[0].rdataToString();
+            names.put(hostIp, hostName);
+            return hostName;
+        }
    }
 
+    /**
+     * Return the resolver shared by all lookups, creating it on first use.
+     */
+    static synchronized Resolver getResolver() throws IOException
+    {
+        if (resolver == null)
+        {
+            Resolver res = new ExtendedResolver();
+
+            // set the timeout, defaults to 200 milliseconds
+            int timeout = ConfigurationManager.getIntProperty("usage-statistics", "resolver.timeout", 200);
+            res.setTimeout(0, timeout);
+            resolver = res;
+        }
+        return resolver;
+    }
+
+    /**
+     * Replace the resolver used for reverse lookups, and forget all cached
+     * lookups. Used by tests to install a local stub resolver.
+     *
+     * @param res the resolver to use, or null to create the default one again.
+     */
+    static synchronized void setResolver(Resolver res)
+    {
+        resolver = res;
+        names.invalidateAll();
+        unresolved.invalidateAll();
+    }
+
     /**
      * Resolve a host name to an IPv4 address.
      * @throws IOException from infrastructure or no resolution.
@@ -60,10 +144,7 @@ public class DnsLookup {
     public static String forward(String hostname)
             throws IOException
     {
-        Resolver res = new ExtendedResolver();
-        int timeout = ConfigurationManager.getIntProperty("usage-statistics",
-                "resolver.timeout", 200);
-        res.setTimeout(0, timeout);
+        Resolver res = getResolver();
 
         Name name = Name.fromString(hostname, Name.root);
         Record rec = Record.newRecord(name, Type.A, DClass.IN);
@@ -7,184 +7,446 @@
  */
 package org.dspace.statistics.util;
 
-import java.util.HashMap;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 /**
- * A Spare v4 IPTable implementation that uses nested HashMaps
- * to optimize IP address matching over ranges of IP addresses.
+ * A table of IPv4 and IPv6 address blocks, stored as binary radix trees over
+ * the numeric addresses so that a lookup walks at most one node per address
+ * bit and allocates nothing.
+ * <p>
+ * Entries may be single addresses, CIDR blocks (<code>10.0.0.0/8</code>,
+ * <code>2001:db8::/32</code>), ranges between two addresses
+ * (<code>63.148.99.224 - 63.148.99.255</code>, split into the CIDR blocks
+ * covering them), or the first three parts of an IPv4 address
+ * (<code>192.168.1</code>, meaning <code>192.168.1.0/24</code>).
  *
  * @author mdiggory at atmire.com
  */
 public class IPTable {
 
-    /* A lookup tree for IP addresses and SubnetRanges */
-    private Map<String, Map<String, Map<String, Set<String>>>> map =
-            new HashMap<String, Map<String, Map<String, Set<String>>>>();
+    /* Lookup trees for IPv4 and IPv6 blocks */
+    private final Tree v4 = new Tree(32);
+
+    private final Tree v6 = new Tree(128);
 
     /**
-     * Can be full v4 IP, subnet or range string
+     * Can be full v4 or v6 IP, CIDR block, range, or the first three parts
+     * of a v4 IP.
      *
      * @param ip
      */
     public void add(String ip) throws IPFormatException {
 
-        String[] start;
-
-        String[] end;
-
         String[] range = ip.split("-");
 
         if (range.length >= 2) {
 
-            start = range[0].trim().split("/")[0].split("\\.");
-            end = range[1].trim().split("/")[0].split("\\.");
+            long[] start = parseAddress(range[0].trim(), ip);
+            long[] end = parseAddress(range[1].trim(), ip);
 
-            if (start.length != 4 || end.length != 4)
+            if (start.length != end.length)
             {
-                throw new IPFormatException(ip + " - Ranges need to be full IPv4 Addresses");
+                throw new IPFormatException(ip + " - Ranges need to be two IPv4 or two IPv6 Addresses");
             }
 
-            if (!(start[0].equals(end[0]) && start[1].equals(end[1]) && start[2].equals(end[2]))) {
-                throw new IPFormatException(ip + " - Ranges can only be across the last subnet x.y.z.0 - x.y.z.254");
+            if (start.length == 1) {
+                addRange(v4, 0, start[0], 0, end[0], ip);
+            } else {
+                addRange(v6, start[0], start[1], end[0], end[1], ip);
             }
 
         } else {
-            //need to ignore CIDR notation for the moment.
-            //ip = ip.split("\\/")[0];
 
-            String[] subnets = ip.split("\\.");
+            String address = ip.trim();
+            int prefix = -1;
 
-            if (subnets.length < 3) {
-                throw new IPFormatException(ip + " - require at least three subnet places (255.255.255.0");
+            int slash = address.indexOf('/');
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(address.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IPFormatException(ip + " - CIDR prefix length is not a number");
+                }
+                address = address.substring(0, slash).trim();
+            }
 
+            if (address.indexOf(':') < 0 && address.split("\\.").length == 3) {
+                if (slash >= 0) {
+                    throw new IPFormatException(ip + " - CIDR blocks need a full IPv4 Address");
+                }
+                address = address + ".0";
+                prefix = 24;
             }
 
-            start = subnets;
-            end = subnets;
-        }
+            long[] parsed = parseAddress(address, ip);
 
-        if (start.length >= 3) {
+            if (parsed.length == 1) {
+                if (prefix < 0) {
+                    prefix = 32;
+                }
+                if (prefix > 32) {
+                    throw new IPFormatException(ip + " - IPv4 prefix length must be 0 - 32");
+                }
+                v4.add(0, parsed[0], prefix);
+            } else {
+                if (prefix < 0) {
+                    prefix = 128;
+                }
+                if (prefix > 128) {
+                    throw new IPFormatException(ip + " - IPv6 prefix length must be 0 - 128");
+                }
+                v6.add(parsed[0], parsed[1], prefix);
+            }
+        }
+    }
 
+    /** Check whether a given address is contained in this netblock.
+     *
+     * @param ip the address to be tested
+     * @return true if {@code ip} is within this table's limits
+     * @throws IPFormatException
+     */
+    public boolean contains(String ip) throws IPFormatException {
 
-            Map<String, Map<String, Set<String>>> first = map.get(start[0]);
+        long v4Address = parseIPv4(ip);
+        if (v4Address >= 0)
+        {
+            return v4.contains(0, v4Address);
+        }
 
-            if (first == null) {
-                first = new HashMap<String, Map<String, Set<String>>>();
-                map.put(start[0], first);
-            }
+        if (ip.indexOf(':') < 0)
+        {
+            throw new IPFormatException("needs to be a single IP address");
+        }
 
-            Map<String, Set<String>> second = first.get(start[1]);
+        long[] parsed = parseAddress(ip.trim(), ip);
+        if (parsed.length == 1)
+        {
+            return v4.contains(0, parsed[0]);
+        }
+        return v6.contains(parsed[0], parsed[1]);
+    }
 
+    /**
+     * Check whether a parsed IPv4 address is contained in this table.
+     *
+     * @param address the address, most significant byte first
+     * @return true if {@code address} is within this table's limits
+     */
+    public boolean containsIPv4(int address) {
+        return v4.contains(0, address & 0xFFFFFFFFL);
+    }
 
-            if (second == null) {
-                second = new HashMap<String, Set<String>>();
-                first.put(start[1], second);
-            }
+    /**
+     * Check whether a parsed IPv6 address is contained in this table.
+     *
+     * @param high the first 64 bits of the address
+     * @param low the last 64 bits of the address
+     * @return true if the address is within this table's limits
+     */
+    public boolean containsIPv6(long high, long low) {
+        return v6.contains(high, low);
+    }
 
-            Set<String> third = second.get(start[2]);
+    /** Convert to a Set of addresses and address prefixes, as used by the
+     * Solr prefix queries on the statistics core: "a.b.c." stands for
+     * a.b.c.0/24, "a:b:" for a:b::/32, and whole addresses for themselves
+     * only. Blocks which don't end on such a
+     * boundary are listed as the smaller blocks or addresses inside them;
+     * IPv6 blocks which would need more than 256 of those are left out.
+     *
+     * @return this table's content as a Set
+     */
+    public Set<String> toSet() {
+        HashSet<String> set = new HashSet<String>();
+        v4.collect(set, 8, 0xFF, 10, ".");
+        v6.collect(set, 16, 0xFFFF, 16, ":");
+        return set;
+    }
 
-            if (third == null) {
-                third = new HashSet<String>();
-                second.put(start[2], third);
-            }
+    /**
+     * Add the smallest set of CIDR blocks covering a range of addresses.
+     */
+    private static void addRange(Tree tree, long startHigh, long startLow, long endHigh, long endLow,
+            String ip) throws IPFormatException {
 
-            //now populate fourth place (* or value 0-254);
+        if (compare(startHigh, startLow, endHigh, endLow) > 0) {
+            throw new IPFormatException(ip + " - Range start is after its end");
+        }
 
-            if (start.length == 3) {
-                third.add("*");
+        while (true) {
+            // Largest block aligned at start which does not pass the end
+            int size = 0;
+            while (size < tree.width) {
+                int bits = size + 1;
+                if (bits < tree.width && !isAligned(startHigh, startLow, bits)) {
+                    break;
+                }
+                if (bits == tree.width && (startHigh != 0 || startLow != 0)) {
+                    break;
+                }
+                long[] last = lastOf(startHigh, startLow, bits);
+                if (compare(last[0], last[1], endHigh, endLow) > 0) {
+                    break;
+                }
+                size = bits;
             }
 
-            if (third.contains("*")) {
+            tree.add(startHigh, startLow, tree.width - size);
+
+            long[] last = lastOf(startHigh, startLow, size);
+            if (compare(last[0], last[1], endHigh, endLow) >= 0) {
                 return;
             }
 
-            if (start.length >= 4) {
-                int s = Integer.valueOf(start[3]);
-                int e = Integer.valueOf(end[3]);
-                for (int i = s; i <= e; i++) {
-                    third.add(String.valueOf(i));
-                }
-            }
+            // Next address after the block
+            startLow = last[1] + 1;
+            startHigh = (startLow == 0) ? last[0] + 1 : last[0];
         }
     }
 
-    /** Check whether a given address is contained in this netblock.
-     * 
-     * @param ip the address to be tested
-     * @return true if {@code ip} is within this table's limits
-     * @throws IPFormatException
-     */
-    public boolean contains(String ip) throws IPFormatException {
+    /** True if the lowest {@code bits} bits of the address are zero */
+    private static boolean isAligned(long high, long low, int bits) {
+        if (bits >= 64) {
+            return low == 0 && (bits == 64 || (high & ((1L << (bits - 64)) - 1)) == 0);
+        }
+        return (low & ((1L << bits) - 1)) == 0;
+    }
 
-        String[] subnets = ip.split("\\.");
+    /** The address with its lowest {@code bits} bits set */
+    private static long[] lastOf(long high, long low, int bits) {
+        if (bits >= 128) {
+            return new long[] { -1L, -1L };
+        }
+        if (bits >= 64) {
+            long mask = (bits == 64) ? 0 : (1L << (bits - 64)) - 1;
+            return new long[] { high | mask, -1L };
+        }
+        long mask = (bits == 0) ? 0 : (1L << bits) - 1;
+        return new long[] { high, low | mask };
+    }
 
-        if (subnets.length != 4)
-        {
-            throw new IPFormatException("needs to be a single IP address");
+    /** Compare two addresses as unsigned 128 bit numbers */
+    private static int compare(long high1, long low1, long high2, long low2) {
+        if (high1 != high2) {
+            return (high1 + Long.MIN_VALUE < high2 + Long.MIN_VALUE) ? -1 : 1;
+        }
+        if (low1 != low2) {
+            return (low1 + Long.MIN_VALUE < low2 + Long.MIN_VALUE) ? -1 : 1;
         }
+        return 0;
+    }
 
-        Map<String, Map<String, Set<String>>> first = map.get(subnets[0]);
+    /**
+     * Parse a dotted decimal IPv4 address without allocating.
+     *
+     * @param ip the address, possibly surrounded by white space
+     * @return the address as an unsigned number, or -1 if {@code ip} is not
+     * an IPv4 address
+     */
+    static long parseIPv4(String ip) {
+        int start = 0;
+        int end = ip.length();
+        while (start < end && Character.isWhitespace(ip.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(ip.charAt(end - 1))) {
+            end--;
+        }
 
-        if (first == null)
-        {
-            return false;
+        long address = 0;
+        int part = 0;
+        int digits = 0;
+        int parts = 0;
+        for (int i = start; i <= end; i++) {
+            char c = (i < end) ? ip.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                if (++digits > 3 || part > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && parts < 4) {
+                address = (address << 8) | part;
+                parts++;
+                part = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
         }
+        return (parts == 4) ? address : -1;
+    }
 
-        Map<String, Set<String>> second = first.get(subnets[1]);
+    /**
+     * Parse an IPv4 or IPv6 address.
+     *
+     * @return one element holding an IPv4 address, or two holding the high
+     * and low halves of an IPv6 address
+     */
+    private static long[] parseAddress(String address, String ip) throws IPFormatException {
 
-        if (second == null)
-        {
-            return false;
+        long v4Address = parseIPv4(address);
+        if (v4Address >= 0) {
+            return new long[] { v4Address };
         }
 
-        Set<String> third = second.get(subnets[2]);
-
-        if (third == null)
-        {
-            return false;
+        if (address.indexOf(':') < 0) {
+            throw new IPFormatException(ip + " - not an IPv4 or IPv6 Address");
         }
 
-        return third.contains(subnets[3]) || third.contains("*");
+        // A string containing ':' is parsed as a literal, never looked up
+        byte[] bytes;
+        try {
+            InetAddress parsed = InetAddress.getByName(address);
+            if (parsed instanceof Inet4Address) {
+                // IPv4-mapped IPv6 address
+                return new long[] { parseIPv4(parsed.getHostAddress()) };
+            }
+            bytes = parsed.getAddress();
+        } catch (UnknownHostException e) {
+            throw new IPFormatException(ip + " - not an IPv6 Address");
+        }
 
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xFF);
+            low = (low << 8) | (bytes[i + 8] & 0xFF);
+        }
+        return new long[] { high, low };
     }
 
-    /** Convert to a Set.
-     * @return this table's content as a Set
+    /**
+     * A binary radix tree of address blocks. Node n's children are at
+     * children[2n] (bit 0) and children[2n + 1] (bit 1), 0 meaning none;
+     * node 0 is the root. A node marked in blocks ends a block, and its
+     * subtree is dropped since every address below it is already covered.
      */
-    public Set<String> toSet() {
-        HashSet<String> set = new HashSet<String>();
+    private static final class Tree {
 
-        for (Map.Entry<String, Map<String, Map<String, Set<String>>>> first : map.entrySet()) {
-            String firstString = first.getKey();
-            Map<String, Map<String, Set<String>>> secondMap = first.getValue();
+        /** Number of bits in an address */
+        private final int width;
 
-            for (Map.Entry<String, Map<String, Set<String>>> second : secondMap.entrySet()) {
-                String secondString = second.getKey();
-                Map<String, Set<String>> thirdMap = second.getValue();
+        private int[] children = new int[256];
 
-                for (Map.Entry<String, Set<String>> third : thirdMap.entrySet()) {
-                    String thirdString = third.getKey();
-                    Set<String> fourthSet = third.getValue();
+        private final BitSet blocks = new BitSet();
 
-                    if (fourthSet.contains("*")) {
-                        set.add(firstString + "." + secondString + "." + thirdString);
+        private int size = 1;
+
+        Tree(int width) {
+            this.width = width;
+        }
+
+        /** Bit i of the address, counting from the most significant */
+        private int bit(long high, long low, int i) {
+            int position = width - 1 - i;
+            return (int) (((position >= 64) ? high >>> (position - 64) : low >>> position) & 1);
+        }
+
+        void add(long high, long low, int prefix) {
+            int node = 0;
+            for (int i = 0; i < prefix; i++) {
+                if (blocks.get(node)) {
+                    return;
+                }
+                int slot = 2 * node + bit(high, low, i);
+                if (children[slot] == 0) {
+                    if (2 * size + 2 > children.length) {
+                        children = Arrays.copyOf(children, children.length * 2);
+                    }
+                    children[slot] = size++;
+                }
+                node = children[slot];
+            }
+            blocks.set(node);
+            children[2 * node] = 0;
+            children[2 * node + 1] = 0;
+        }
+
+        boolean contains(long high, long low) {
+            int node = 0;
+            for (int i = 0; i < width; i++) {
+                if (blocks.get(node)) {
+                    return true;
+                }
+                node = children[2 * node + bit(high, low, i)];
+                if (node == 0) {
+                    return false;
+                }
+            }
+            return blocks.get(node);
+        }
+
+        /**
+         * Add the blocks to a set, written as groups of {@code groupBits}
+         * bits in the given radix separated by {@code separator}.
+         */
+        void collect(Set<String> set, int groupBits, int groupMask, int radix, String separator) {
+            collect(set, 0, 0, 0, 0, groupBits, groupMask, radix, separator);
+        }
+
+        private void collect(Set<String> set, int node, long high, long low, int depth,
+                int groupBits, int groupMask, int radix, String separator) {
+            if (blocks.get(node)) {
+                int groups = (depth + groupBits - 1) / groupBits;
+                if (groups == 0) {
+                    groups = 1;
+                }
+                int extra = groups * groupBits - depth;
+                if (extra > 8) {
+                    return;
+                }
+                for (long n = 0; n < (1L << extra); n++) {
+                    long h = high;
+                    long l = low;
+                    int shift = width - groups * groupBits;
+                    if (shift >= 64) {
+                        h |= n << (shift - 64);
                     } else {
-                        for (String fourth : fourthSet) {
-                            set.add(firstString + "." + secondString + "." + thirdString + "." + fourth);
+                        l |= n << shift;
+                    }
+                    StringBuilder text = new StringBuilder();
+                    for (int g = 0; g < groups; g++) {
+                        int position = width - (g + 1) * groupBits;
+                        long value = (position >= 64) ? h >>> (position - 64) : l >>> position;
+                        if (g > 0) {
+                            text.append(separator);
                         }
+                        text.append(Long.toString(value & groupMask, radix));
                     }
+                    if (groups * groupBits < width) {
+                        text.append(separator);
+                    }
+                    set.add(text.toString());
+                }
+                return;
+            }
 
+            for (int b = 0; b < 2; b++) {
+                int child = children[2 * node + b];
+                if (child != 0) {
+                    int position = width - 1 - depth;
+                    long h = high;
+                    long l = low;
+                    if (b == 1) {
+                        if (position >= 64) {
+                            h |= 1L << (position - 64);
+                        } else {
+                            l |= 1L << position;
+                        }
+                    }
+                    collect(set, child, h, l, depth + 1, groupBits, groupMask, radix, separator);
                 }
             }
         }
-
-        return set;
     }
 
-
     /**
      * Exception Class to deal with IPFormat errors.
      */
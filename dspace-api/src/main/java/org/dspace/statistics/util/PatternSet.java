@@ -0,0 +1,531 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A set of regular expressions which are searched for in a string all at
+ * once, as a replacement for calling <code>matcher(s).find()</code> on each
+ * of them in turn.
+ * <p>
+ * Most spider patterns are plain words, or contain a word which any match
+ * must include (e.g. "crawler" in <code>^crawler(\s|\+)</code>). Those words
+ * are put in a single Aho-Corasick automaton, so one pass over the string
+ * finds every pattern which could match. Patterns which are plain words match
+ * right away; the others are then run as regular expressions, but only when
+ * their word was found. Patterns without such a word are joined into one
+ * alternation which is run on every string.
+ */
+final class PatternSet
+{
+    /** Patterns which can't be split on "|" or joined with others */
+    private static final Pattern OPAQUE = Pattern.compile("\\(\\?[^:]|\\\\[0-9k]");
+
+    /** Number of patterns in the set */
+    private final int size;
+
+    /** Regular expression of each branch found by the automaton, null for plain words */
+    private final Pattern[] branches;
+
+    /** Automaton: characters leading out of each state, sorted */
+    private final char[][] labels;
+
+    /** Automaton: state reached by each character in labels */
+    private final int[][] targets;
+
+    /** Automaton: state to fall back to when a character leads nowhere */
+    private final int[] fail;
+
+    /** Automaton: branches whose word ends in each state */
+    private final int[][] outputs;
+
+    /** Patterns without a required word, run on every string */
+    private final List<Pattern> unfiltered = new ArrayList<Pattern>();
+
+    /**
+     * Compile a set of patterns.
+     *
+     * @param patterns
+     *            regular expressions, as accepted by {@link Pattern#compile(String)}
+     * @throws java.util.regex.PatternSyntaxException
+     *             if a pattern is not a valid regular expression
+     */
+    PatternSet(Collection<String> patterns)
+    {
+        List<String> words = new ArrayList<String>();
+        List<Pattern> filtered = new ArrayList<Pattern>();
+        StringBuilder alternation = new StringBuilder();
+
+        for (String pattern : patterns)
+        {
+            Pattern compiled = Pattern.compile(pattern);
+
+            if (OPAQUE.matcher(pattern).find())
+            {
+                unfiltered.add(compiled);
+                continue;
+            }
+
+            for (String branch : splitAlternatives(pattern))
+            {
+                String word = literal(branch);
+                if (word != null && word.length() > 0)
+                {
+                    words.add(word);
+                    filtered.add(null);
+                    continue;
+                }
+
+                word = requiredLiteral(branch);
+                if (word != null)
+                {
+                    words.add(word);
+                    filtered.add(Pattern.compile(branch));
+                }
+                else
+                {
+                    if (alternation.length() > 0)
+                    {
+                        alternation.append('|');
+                    }
+                    alternation.append("(?:").append(branch).append(')');
+                }
+            }
+        }
+
+        if (alternation.length() > 0)
+        {
+            unfiltered.add(Pattern.compile(alternation.toString()));
+        }
+
+        size = patterns.size();
+        branches = filtered.toArray(new Pattern[filtered.size()]);
+
+        // Build the trie of words
+        List<Map<Character, Integer>> children = new ArrayList<Map<Character, Integer>>();
+        List<List<Integer>> ends = new ArrayList<List<Integer>>();
+        children.add(new HashMap<Character, Integer>());
+        ends.add(new ArrayList<Integer>());
+
+        for (int i = 0; i < words.size(); i++)
+        {
+            int state = 0;
+            for (char c : words.get(i).toCharArray())
+            {
+                Integer next = children.get(state).get(c);
+                if (next == null)
+                {
+                    next = children.size();
+                    children.add(new HashMap<Character, Integer>());
+                    ends.add(new ArrayList<Integer>());
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+            ends.get(state).add(i);
+        }
+
+        // Link each state to the state of its longest proper suffix, breadth first
+        int states = children.size();
+        fail = new int[states];
+        LinkedList<Integer> queue = new LinkedList<Integer>(children.get(0).values());
+        while (!queue.isEmpty())
+        {
+            int state = queue.removeFirst();
+            for (Map.Entry<Character, Integer> child : children.get(state).entrySet())
+            {
+                int target = child.getValue();
+                int suffix = fail[state];
+                while (suffix != 0 && !children.get(suffix).containsKey(child.getKey()))
+                {
+                    suffix = fail[suffix];
+                }
+                Integer next = children.get(suffix).get(child.getKey());
+                fail[target] = (next == null || next == target) ? 0 : next;
+                ends.get(target).addAll(ends.get(fail[target]));
+                queue.addLast(target);
+            }
+        }
+
+        labels = new char[states][];
+        targets = new int[states][];
+        outputs = new int[states][];
+        for (int state = 0; state < states; state++)
+        {
+            Map<Character, Integer> edges = children.get(state);
+            labels[state] = new char[edges.size()];
+            int i = 0;
+            for (char c : edges.keySet())
+            {
+                labels[state][i++] = c;
+            }
+            Arrays.sort(labels[state]);
+            targets[state] = new int[labels[state].length];
+            for (i = 0; i < labels[state].length; i++)
+            {
+                targets[state][i] = edges.get(labels[state][i]);
+            }
+
+            List<Integer> found = ends.get(state);
+            outputs[state] = new int[found.size()];
+            for (i = 0; i < found.size(); i++)
+            {
+                outputs[state][i] = found.get(i);
+            }
+        }
+    }
+
+    /**
+     * Return true if any pattern in the set is found in the string.
+     *
+     * @param input the string to search, or null
+     * @return true if a pattern matches part of the string
+     */
+    boolean find(String input)
+    {
+        if (input == null)
+        {
+            return false;
+        }
+
+        boolean[] tried = null;
+        int state = 0;
+        for (int i = 0; i < input.length(); i++)
+        {
+            char c = input.charAt(i);
+            int next = step(state, c);
+            while (next < 0 && state != 0)
+            {
+                state = fail[state];
+                next = step(state, c);
+            }
+            state = (next < 0) ? 0 : next;
+
+            for (int branch : outputs[state])
+            {
+                if (branches[branch] == null)
+                {
+                    return true;
+                }
+
+                if (tried == null)
+                {
+                    tried = new boolean[branches.length];
+                }
+                if (!tried[branch])
+                {
+                    tried[branch] = true;
+                    if (branches[branch].matcher(input).find())
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        for (Pattern pattern : unfiltered)
+        {
+            if (pattern.matcher(input).find())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Return the number of patterns in the set.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return true if the set has no patterns.
+     */
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    private int step(int state, char c)
+    {
+        int i = Arrays.binarySearch(labels[state], c);
+        return (i < 0) ? -1 : targets[state][i];
+    }
+
+    /**
+     * Split a regular expression on the "|" operators which are not inside a
+     * group or character class.
+     */
+    static List<String> splitAlternatives(String regex)
+    {
+        List<String> branches = new ArrayList<String>();
+        int start = 0;
+        int i = 0;
+        while (i < regex.length())
+        {
+            char c = regex.charAt(i);
+            if (c == '\\')
+            {
+                i += 2;
+            }
+            else if (c == '[')
+            {
+                i = skipClass(regex, i);
+            }
+            else if (c == '(')
+            {
+                i = skipGroup(regex, i);
+            }
+            else if (c == '|')
+            {
+                branches.add(regex.substring(start, i));
+                start = ++i;
+            }
+            else
+            {
+                i++;
+            }
+        }
+        branches.add(regex.substring(start));
+        return branches;
+    }
+
+    /**
+     * Return the string matched by a regular expression which consists of
+     * plain and escaped characters only, or null if it has any operator.
+     */
+    static String literal(String regex)
+    {
+        StringBuilder word = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++)
+        {
+            char c = regex.charAt(i);
+            if (c == '\\')
+            {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1)))
+                {
+                    return null;
+                }
+                word.append(regex.charAt(++i));
+            }
+            else if ("^$.|?*+()[]{}".indexOf(c) >= 0)
+            {
+                return null;
+            }
+            else
+            {
+                word.append(c);
+            }
+        }
+        return word.toString();
+    }
+
+    /**
+     * Return the longest run of plain characters which every match of a
+     * regular expression (without "|" outside groups) must contain, or null
+     * if there is none.
+     */
+    static String requiredLiteral(String regex)
+    {
+        String longest = null;
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length())
+        {
+            char c = regex.charAt(i);
+            char plain = 0;
+            int next;
+
+            if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1)))
+            {
+                plain = regex.charAt(i + 1);
+                next = i + 2;
+            }
+            else if (c == '\\')
+            {
+                // Character class or other special escape
+                next = skipQuantifier(regex, skipEscape(regex, i));
+            }
+            else if (c == '[')
+            {
+                next = skipQuantifier(regex, skipClass(regex, i));
+            }
+            else if (c == '(')
+            {
+                next = skipQuantifier(regex, skipGroup(regex, i));
+            }
+            else if ("^$.|?*+)]{}".indexOf(c) >= 0)
+            {
+                next = skipQuantifier(regex, i + 1);
+            }
+            else
+            {
+                plain = c;
+                next = i + 1;
+            }
+
+            if (plain != 0 && next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0)
+            {
+                // Optional character: it ends the run without being part of it
+                plain = 0;
+                next = skipQuantifier(regex, next);
+            }
+            else if (plain != 0 && next < regex.length() && regex.charAt(next) == '+')
+            {
+                // Repeated character: it ends the run
+                run.append(plain);
+                plain = 0;
+                next = skipQuantifier(regex, next);
+            }
+
+            if (plain != 0)
+            {
+                run.append(plain);
+            }
+            else if (run.length() > 0)
+            {
+                if (longest == null || run.length() > longest.length())
+                {
+                    longest = run.toString();
+                }
+                run.setLength(0);
+            }
+            i = next;
+        }
+
+        if (run.length() > 0 && (longest == null || run.length() > longest.length()))
+        {
+            longest = run.toString();
+        }
+        return longest;
+    }
+
+    private static int skipEscape(String regex, int i)
+    {
+        i += 2;
+        if (i < regex.length() && regex.charAt(i) == '{')
+        {
+            // \p{...}, \x{...}
+            int end = regex.indexOf('}', i);
+            return (end < 0) ? regex.length() : end + 1;
+        }
+        return i;
+    }
+
+    private static int skipClass(String regex, int i)
+    {
+        int depth = 0;
+        i++;
+        if (i < regex.length() && regex.charAt(i) == '^')
+        {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']')
+        {
+            i++;
+        }
+        while (i < regex.length())
+        {
+            char c = regex.charAt(i);
+            if (c == '\\')
+            {
+                i += 2;
+                continue;
+            }
+            if (c == '[')
+            {
+                depth++;
+            }
+            else if (c == ']')
+            {
+                if (depth == 0)
+                {
+                    return i + 1;
+                }
+                depth--;
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+    private static int skipGroup(String regex, int i)
+    {
+        int depth = 0;
+        while (i < regex.length())
+        {
+            char c = regex.charAt(i);
+            if (c == '\\')
+            {
+                i += 2;
+                continue;
+            }
+            if (c == '[')
+            {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(')
+            {
+                depth++;
+            }
+            else if (c == ')')
+            {
+                depth--;
+                if (depth == 0)
+                {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+    private static int skipQuantifier(String regex, int i)
+    {
+        if (i >= regex.length())
+        {
+            return i;
+        }
+
+        char c = regex.charAt(i);
+        if (c == '?' || c == '*' || c == '+')
+        {
+            i++;
+        }
+        else if (c == '{')
+        {
+            int end = regex.indexOf('}', i);
+            i = (end < 0) ? regex.length() : end + 1;
+        }
+        else
+        {
+            return i;
+        }
+
+        // Lazy or possessive
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+'))
+        {
+            i++;
+        }
+        return i;
+    }
+}
@@ -15,8 +15,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import javax.servlet.http.HttpServletRequest;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.dspace.core.ConfigurationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,10 +46,30 @@ public class SpiderDetector {
     private static IPTable table = null;
 
     /** Collection of regular expressions to match known spiders' agents. */
-    private static List<Pattern> agents = new ArrayList<Pattern>();
+    private static volatile PatternSet agents = null;
 
     /** Collection of regular expressions to match known spiders' domain names. */
-    private static List<Pattern> domains = new ArrayList<Pattern>();
+    private static volatile PatternSet domains = null;
+
+    /**
+     * Verdicts on recently seen User-Agent values, most recently used kept.
+     * Sized by usage-statistics spider.cache.size (default 10000).
+     */
+    private static final Cache<String, Boolean> agentVerdicts = CacheBuilder.newBuilder()
+            .maximumSize(ConfigurationManager.getIntProperty("usage-statistics", "spider.cache.size", 10000))
+            .build();
+
+    /**
+     * Verdicts on client addresses and host names, so that a client sending
+     * many requests is only matched against the address and domain lists
+     * once. Sized and aged by usage-statistics spider.cache.size (default
+     * 10000) and spider.cache.ttl in seconds (default 3600).
+     */
+    private static final Cache<String, Boolean> verdicts = CacheBuilder.newBuilder()
+            .maximumSize(ConfigurationManager.getIntProperty("usage-statistics", "spider.cache.size", 10000))
+            .expireAfterWrite(ConfigurationManager.getIntProperty("usage-statistics", "spider.cache.ttl", 3600),
+                    TimeUnit.SECONDS)
+            .build();
 
     /**
      * Utility method which reads lines from a file & returns them in a Set.
@@ -114,7 +138,7 @@ public class SpiderDetector {
                         {
                             for (String ip : readPatterns(file)) {
                                 log.debug("Loading {}", ip);
-                                if (!Character.isDigit(ip.charAt(0)))
+                                if (!Character.isDigit(ip.charAt(0)) && ip.indexOf(':') < 0)
                                 {
                                     try {
                                         ip = DnsLookup.forward(ip);
@@ -124,7 +148,11 @@ public class SpiderDetector {
                                         continue;
                                     }
                                 }
-                                table.add(ip);
+                                try {
+                                    table.add(ip);
+                                } catch (IPTable.IPFormatException e) {
+                                    log.warn("Not loading {}:  {}", ip, e.getMessage());
+                                }
                             }
                             log.info("Loaded Spider IP file: " + file);
                         }
@@ -147,11 +175,11 @@ public class SpiderDetector {
      * @param directory simple directory name (e.g. "agents").
      *      "${dspace.dir}/config/spiders" will be prepended to yield the path to
      *      the directory of pattern files.
-     * @param patternList patterns read from the files in {@code directory} will
-     *      be added to this List.
+     * @return the patterns read from the files in {@code directory}.
      */
-    private static void loadPatterns(String directory, List<Pattern> patternList)
+    private static PatternSet loadPatterns(String directory)
     {
+        List<String> patternList = new ArrayList<String>();
         String dspaceHome = ConfigurationManager.getProperty("dspace.dir");
         File spidersDir = new File(dspaceHome, "config/spiders");
         File patternsDir = new File(spidersDir, directory);
@@ -171,7 +199,15 @@ public class SpiderDetector {
                 }
                 for (String pattern : patterns)
                 {
-                    patternList.add(Pattern.compile(pattern));
+                    try
+                    {
+                        Pattern.compile(pattern);
+                        patternList.add(pattern);
+                    } catch (PatternSyntaxException ex)
+                    {
+                        log.error("Pattern {} in {} not loaded:  {}",
+                                pattern, file.getPath(), ex.getMessage());
+                    }
                 }
                 log.info("Loaded pattern file:  {}", file.getPath());
             }
@@ -180,6 +216,43 @@ public class SpiderDetector {
         {
             log.info("No patterns loaded from {}", patternsDir.getPath());
         }
+        return new PatternSet(patternList);
+    }
+
+    /**
+     * Return the agent patterns, loading them on first use.
+     */
+    private static PatternSet getAgents()
+    {
+        if (agents == null)
+        {
+            synchronized (SpiderDetector.class)
+            {
+                if (agents == null)
+                {
+                    agents = loadPatterns("agents");
+                }
+            }
+        }
+        return agents;
+    }
+
+    /**
+     * Return the domain name patterns, loading them on first use.
+     */
+    private static PatternSet getDomains()
+    {
+        if (domains == null)
+        {
+            synchronized (SpiderDetector.class)
+            {
+                if (domains == null)
+                {
+                    domains = loadPatterns("domains");
+                }
+            }
+        }
+        return domains;
     }
 
     /**
@@ -200,20 +273,37 @@ public class SpiderDetector {
         // See if any agent patterns match
         if (null != agent)
         {
-            if (agents.isEmpty())
-                loadPatterns("agents", agents);
+            Boolean agentVerdict = agentVerdicts.getIfPresent(agent);
+            if (agentVerdict == null)
+            {
+                agentVerdict = getAgents().find(agent);
+                agentVerdicts.put(agent, agentVerdict);
+            }
 
-            for (Pattern candidate : agents)
+            if (agentVerdict)
             {
-                // prevent matcher() invocation from a null Pattern object
-                if (null != candidate && candidate.matcher(agent).find())
-                {
-                    return true;
-                }
+                return true;
             }
         }
 
-        // No.  See if any IP addresses match
+        // No.  See if the address or host name is known
+        String key = clientIP + ' ' + proxyIPs + ' ' + hostname;
+        Boolean verdict = verdicts.getIfPresent(key);
+        if (verdict == null)
+        {
+            verdict = isSpiderAddress(clientIP, proxyIPs, hostname);
+            verdicts.put(key, verdict);
+        }
+
+        return verdict;
+    }
+
+    /**
+     * Match a client's addresses and host name against the spider lists.
+     */
+    private static boolean isSpiderAddress(String clientIP, String proxyIPs, String hostname)
+    {
+        // See if any IP addresses match
         if (isUseProxies() && proxyIPs != null) {
             /* This header is a comma delimited list */
             for (String xfip : proxyIPs.split(",")) {
@@ -228,21 +318,9 @@ public class SpiderDetector {
             return true;
 
         // No.  See if any DNS names match
-        if (null != hostname)
+        if (null != hostname && getDomains().find(hostname))
         {
-            if (domains.isEmpty())
-            {
-                loadPatterns("domains", domains);
-            }
-
-            for (Pattern candidate : domains)
-            {
-                // prevent matcher() invocation from a null Pattern object
-                if (null != candidate && candidate.matcher(hostname).find())
-                {
-                    return true;
-                }
-            }
+            return true;
         }
 
         // Not a known spider.
@@ -0,0 +1,164 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+/**
+ * An asset store: somewhere the bits of bitstreams are kept. Each store
+ * number configured in <code>dspace.cfg</code> has its own BitStore, and
+ * {@link BitstreamStorageManager} picks the store of a bitstream by the
+ * <code>store_number</code> column of its row.
+ * <p>
+ * Bitstreams are addressed by their path relative to the root of the store,
+ * as worked out by BitstreamStorageManager from the <code>internal_id</code>.
+ * Implementations must have a public no-argument constructor, and are set up
+ * by {@link #init(int)} before any other call.
+ *
+ * @see BitstreamStorageManager
+ */
+public interface BitStore
+{
+    /** Key of the size in bytes (a Long) in the map returned by about() */
+    public static final String SIZE_BYTES = "size_bytes";
+
+    /** Key of the time of last modification in milliseconds (a Long) */
+    public static final String MODIFIED = "modified";
+
+    /** Key of the checksum, as a hex string */
+    public static final String CHECKSUM = "checksum";
+
+    /** Key of the name of the checksum algorithm */
+    public static final String CHECKSUM_ALGORITHM = "checksum_algorithm";
+
+    /** Key of a description of where the bits are, for logging */
+    public static final String LOCATION = "location";
+
+    /**
+     * Set up the store from its configuration.
+     *
+     * @param storeNumber
+     *            The number of the store, whose settings in dspace.cfg have
+     *            no suffix for store 0 and the suffix ".n" for store n
+     * @exception IOException
+     *                If the store is misconfigured or can't be reached
+     */
+    public void init(int storeNumber) throws IOException;
+
+    /**
+     * Store a stream of bits. The stream is read to its end but not closed.
+     * No reader of the path sees a partly written bitstream.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @param in
+     *            The bits to store
+     * @return The number of bytes stored
+     * @exception IOException
+     *                If a problem occurs while storing the bits
+     */
+    public long put(String path, InputStream in) throws IOException;
+
+    /**
+     * Retrieve the bits of a bitstream.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @return The stream of bits, to be closed by the caller
+     * @exception java.io.FileNotFoundException
+     *                If there is no such bitstream
+     * @exception IOException
+     *                If a problem occurs while opening the bits
+     */
+    public InputStream get(String path) throws IOException;
+
+    /**
+     * Retrieve part of the bits of a bitstream.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @param offset
+     *            The position of the first byte to read
+     * @param length
+     *            The maximum number of bytes to read, or -1 to read to the end
+     * @return The stream of bits, to be closed by the caller
+     * @exception IOException
+     *                If a problem occurs while opening the bits
+     */
+    public InputStream getRange(String path, long offset, long length) throws IOException;
+
+    /**
+     * Copy part of the bits of a bitstream to a channel, without passing them
+     * through the Java heap where the store allows it.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @param offset
+     *            The position of the first byte to copy
+     * @param length
+     *            The maximum number of bytes to copy, or -1 to copy to the end
+     * @param target
+     *            The channel to write to; it is not closed
+     * @return The number of bytes copied
+     * @exception IOException
+     *                If a problem occurs while copying the bits
+     */
+    public long transferTo(String path, long offset, long length, WritableByteChannel target)
+            throws IOException;
+
+    /**
+     * Delete the bits of a bitstream, and any directories left empty.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @return true if the bits were deleted
+     * @exception IOException
+     *                If a problem occurs while deleting the bits
+     */
+    public boolean delete(String path) throws IOException;
+
+    /**
+     * Return true if the store holds a bitstream at the path.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @exception IOException
+     *                If the store can't be reached
+     */
+    public boolean exists(String path) throws IOException;
+
+    /**
+     * Return the size of a bitstream in bytes.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @exception IOException
+     *                If there is no such bitstream, or the store can't be reached
+     */
+    public long size(String path) throws IOException;
+
+    /**
+     * Describe a bitstream: its {@link #SIZE_BYTES size}, {@link #MODIFIED
+     * time of last modification} and {@link #LOCATION location}, and if
+     * requested its {@link #CHECKSUM checksum} and {@link #CHECKSUM_ALGORITHM
+     * checksum algorithm}.
+     *
+     * @param path
+     *            The path of the bitstream in the store
+     * @param checksum
+     *            true to work out the checksum, which may mean reading all
+     *            the bits
+     * @return The description, or null if there is no such bitstream
+     * @exception IOException
+     *                If a problem occurs while reading the bits
+     */
+    public Map<String, Object> about(String path, boolean checksum) throws IOException;
+}
@@ -10,6 +10,7 @@ package org.dspace.storage.bitstore;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -17,6 +18,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.dspace.checker.BitstreamInfoDAO;
@@ -26,14 +28,6 @@ import org.dspace.core.Utils;
 import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.TableRow;
 
-import edu.sdsc.grid.io.FileFactory;
-import edu.sdsc.grid.io.GeneralFile;
-import edu.sdsc.grid.io.GeneralFileOutputStream;
-import edu.sdsc.grid.io.local.LocalFile;
-import edu.sdsc.grid.io.srb.SRBAccount;
-import edu.sdsc.grid.io.srb.SRBFile;
-import edu.sdsc.grid.io.srb.SRBFileSystem;
-
 /**
  * <P>
  * Stores, retrieves and deletes bitstreams.
@@ -49,6 +43,14 @@ import edu.sdsc.grid.io.srb.SRBFileSystem;
  * </P>
  * 
  * <P>
+ * Each asset store is a {@link BitStore}. A store with an
+ * <code>assetstore.dir</code> setting is a {@link LocalBitStore}, one with
+ * <code>srb.*</code> settings an {@link SRBBitStore}; any other implementation
+ * can be chosen with <code>assetstore.class</code> (<code>.n</code> for
+ * store n).
+ * </P>
+ * 
+ * <P>
  * Mods by David Little, UCSD Libraries 12/21/04 to allow the registration of
  * files (bitstreams) into DSpace.
  * </P>
@@ -67,24 +69,8 @@ public class BitstreamStorageManager
     /** log4j log */
     private static Logger log = Logger.getLogger(BitstreamStorageManager.class);
 
-	/**
-	 * The asset store locations. The information for each GeneralFile in the
-	 * array comes from dspace.cfg, so see the comments in that file.
-	 *
-	 * If an array element refers to a conventional (non_SRB) asset store, the
-	 * element will be a LocalFile object (similar to a java.io.File object)
-	 * referencing a local directory under which the bitstreams are stored.
-	 *
-	 * If an array element refers to an SRB asset store, the element will be an
-	 * SRBFile object referencing an SRB 'collection' (directory) under which
-	 * the bitstreams are stored.
-	 *
-	 * An SRBFile object is obtained by (1) using dspace.cfg properties to
-	 * create an SRBAccount object (2) using the account to create an
-	 * SRBFileSystem object (similar to a connection) (3) using the
-	 * SRBFileSystem object to create an SRBFile object
-	 */
-	private static GeneralFile[] assetStores;
+    /** The asset stores, by store number */
+    private static BitStore[] assetStores;
 
     /** The asset store to use for new bitstreams */
     private static int incoming;
@@ -111,99 +97,53 @@ public class BitstreamStorageManager
     /* Read in the asset stores from the config. */
     static
     {
-        List<Object> stores = new ArrayList<Object>();
-
-		// 'assetstore.dir' is always store number 0
-		String sAssetstoreDir = ConfigurationManager
-				.getProperty("assetstore.dir");
- 
-		// see if conventional assetstore or srb
-		if (sAssetstoreDir != null) {
-			stores.add(sAssetstoreDir); // conventional (non-srb)
-		} else if (ConfigurationManager.getProperty("srb.host") != null) {
-			stores.add(new SRBAccount( // srb
-					ConfigurationManager.getProperty("srb.host"),
-					ConfigurationManager.getIntProperty("srb.port"),
-					ConfigurationManager.getProperty("srb.username"),
-					ConfigurationManager.getProperty("srb.password"),
-					ConfigurationManager.getProperty("srb.homedirectory"),
-					ConfigurationManager.getProperty("srb.mdasdomainname"),
-					ConfigurationManager
-							.getProperty("srb.defaultstorageresource"),
-					ConfigurationManager.getProperty("srb.mcatzone")));
-		} else {
-			log.error("No default assetstore");
-		}
+        List<BitStore> stores = new ArrayList<BitStore>();
 
-		// read in assetstores .1, .2, ....
-		for (int i = 1;; i++) { // i == 0 is default above
-			sAssetstoreDir = ConfigurationManager.getProperty("assetstore.dir."
-					+ i);
-
-			// see if 'i' conventional assetstore or srb
-			if (sAssetstoreDir != null) { 		// conventional (non-srb)
-				stores.add(sAssetstoreDir);
-			} else if (ConfigurationManager.getProperty("srb.host." + i)
-					!= null) { // srb
-				stores.add(new SRBAccount(
-						ConfigurationManager.getProperty("srb.host." + i),
-						ConfigurationManager.getIntProperty("srb.port." + i),
-						ConfigurationManager.getProperty("srb.username." + i),
-						ConfigurationManager.getProperty("srb.password." + i),
-						ConfigurationManager
-								.getProperty("srb.homedirectory." + i),
-						ConfigurationManager
-								.getProperty("srb.mdasdomainname." + i),
-						ConfigurationManager
-								.getProperty("srb.defaultstorageresource." + i),
-						ConfigurationManager.getProperty("srb.mcatzone." + i)));
-			} else {
-				break; // must be at the end of the assetstores
-			}
-		}
+        // 'assetstore.dir' is always store number 0; read in assetstores
+        // .1, .2, ... until one isn't configured
+        for (int i = 0;; i++)
+        {
+            String suffix = (i == 0) ? "" : "." + i;
+            String className = ConfigurationManager.getProperty("assetstore.class" + suffix);
 
-		// convert list to array
-		// the elements (objects) in the list are class
-		//   (1) String - conventional non-srb assetstore
-		//   (2) SRBAccount - srb assetstore
-		assetStores = new GeneralFile[stores.size()];
-		for (int i = 0; i < stores.size(); i++) {
-			Object o = stores.get(i);
-			if (o == null) { // I don't know if this can occur
-				log.error("Problem with assetstore " + i);
-			}
-			if (o instanceof String) {
-				assetStores[i] = new LocalFile((String) o);
-			} else if (o instanceof SRBAccount) {
-				SRBFileSystem srbFileSystem = null;
-				try {
-					srbFileSystem = new SRBFileSystem((SRBAccount) o);
-				} catch (NullPointerException e) {
-					log.error("No SRBAccount for assetstore " + i);
-				} catch (IOException e) {
-					log.error("Problem getting SRBFileSystem for assetstore"
-							+ i);
-				}
-				if (srbFileSystem == null) {
-					log.error("SRB FileSystem is null for assetstore " + i);
-				}
-				String sSRBAssetstore = null;
-				if (i == 0) { // the zero (default) assetstore has no suffix
-					sSRBAssetstore = ConfigurationManager
-							.getProperty("srb.parentdir");
-				} else {
-					sSRBAssetstore = ConfigurationManager
-							.getProperty("srb.parentdir." + i);
-				}
-				if (sSRBAssetstore == null) {
-					log.error("srb.parentdir is undefined for assetstore " + i);
-				}
-				assetStores[i] = new SRBFile(srbFileSystem, sSRBAssetstore);
-			} else {
-				log.error("Unexpected " + o.getClass().toString()
-						+ " with assetstore " + i);
-			}
-		}
+            // see if 'i' conventional assetstore or srb
+            if (className == null)
+            {
+                if (ConfigurationManager.getProperty("assetstore.dir" + suffix) != null)
+                {
+                    className = LocalBitStore.class.getName();
+                }
+                else if (ConfigurationManager.getProperty("srb.host" + suffix) != null)
+                {
+                    className = SRBBitStore.class.getName();
+                }
+                else if (i == 0)
+                {
+                    log.error("No default assetstore");
+                    stores.add(null);
+                    continue;
+                }
+                else
+                {
+                    break; // must be at the end of the assetstores
+                }
+            }
+
+            BitStore store = null;
+            try
+            {
+                store = (BitStore) Class.forName(className.trim()).newInstance();
+                store.init(i);
+            }
+            catch (Exception e)
+            {
+                log.error("Problem with assetstore " + i + ": " + e.getMessage(), e);
+                store = null;
+            }
+            stores.add(store);
+        }
+
+        assetStores = stores.toArray(new BitStore[stores.size()]);
 
         // Read asset store to put new files in. Default is 0.
         incoming = ConfigurationManager.getIntProperty("assetstore.incoming");
@@ -285,21 +225,13 @@ public class BitstreamStorageManager
             throw sqle;
         }
 
-        // Where on the file system will this new bitstream go?
-		GeneralFile file = getFile(bitstream);
-
-        // Make the parent dirs if necessary
-		GeneralFile parent = file.getParentFile();
-
-        if (!parent.exists())
+        // Where will this new bitstream go?
+        BitStore store = getStore(bitstream);
+        if (store == null)
         {
-            parent.mkdirs();
+            throw new IOException("Assetstore " + incoming + " for new bitstreams is not available");
         }
-
-        //Create the corresponding file and open it
-        file.createNewFile();
-
-		GeneralFileOutputStream fos = FileFactory.newFileOutputStream(file);
+        String path = getPath(bitstream);
 
 		// Read through a digest input stream that will work out the MD5
         DigestInputStream dis = null;
@@ -314,11 +246,19 @@ public class BitstreamStorageManager
             log.warn("Caught NoSuchAlgorithmException", nsae);
         }
 
-        Utils.bufferedCopy(dis, fos);
-        fos.close();
-        is.close();
+        // Close the stream even if storing fails, so that whatever is
+        // writing to it (such as a filter's pipe) stops
+        long size;
+        try
+        {
+            size = store.put(path, (dis != null) ? dis : is);
+        }
+        finally
+        {
+            is.close();
+        }
 
-        bitstream.setColumn("size_bytes", file.length());
+        bitstream.setColumn("size_bytes", size);
 
         if (dis != null)
         {
@@ -335,7 +275,7 @@ public class BitstreamStorageManager
         if (log.isDebugEnabled())
         {
             log.debug("Stored bitstream " + bitstreamId + " in file "
-                    + file.getAbsolutePath());
+                    + path + " of assetstore " + store);
         }
 
         return bitstreamId;
@@ -383,95 +323,28 @@ public class BitstreamStorageManager
 		}
 
 		// get a reference to the file
-		GeneralFile file = getFile(bitstream);
-
-		// read through a DigestInputStream that will work out the MD5
-		//
-		// DSpace refers to checksum, writes it in METS, and uses it as an
-		// AIP filename (!), but never seems to validate with it. Furthermore,
-		// DSpace appears to hardcode the algorithm to MD5 in some places--see 
-		// METSExport.java.
-		//
-		// To remain compatible with DSpace we calculate an MD5 checksum on 
-		// LOCAL registered files. But for REMOTE (e.g. SRB) files we 
-		// calculate an MD5 on just the fileNAME. The reasoning is that in the 
-		// case of a remote file, calculating an MD5 on the file itself will
-		// generate network traffic to read the file's bytes. In this case it 
-		// would be better have a proxy process calculate MD5 and store it as 
-		// an SRB metadata attribute so it can be retrieved simply from SRB.
-		//
-		// TODO set this up as a proxy server process so no net activity
-		
-		// FIXME this is a first class HACK! for the reasons described above
-		if (file instanceof LocalFile) 
-		{
-
-			// get MD5 on the file for local file
-			DigestInputStream dis = null;
-			try 
-			{
-				dis = new DigestInputStream(FileFactory.newFileInputStream(file), 
-						MessageDigest.getInstance("MD5"));
-			} 
-			catch (NoSuchAlgorithmException e) 
-			{
-				log.warn("Caught NoSuchAlgorithmException", e);
-				throw new IOException("Invalid checksum algorithm", e);
-			}
-			catch (IOException e) 
-			{
-				log.error("File: " + file.getAbsolutePath() 
-						+ " to be registered cannot be opened - is it "
-						+ "really there?");
-				throw e;
-			}
-			final int BUFFER_SIZE = 1024 * 4;
-			final byte[] buffer = new byte[BUFFER_SIZE];
-			while (true) 
-			{
-				final int count = dis.read(buffer, 0, BUFFER_SIZE);
-				if (count == -1) 
-				{
-					break;
-				}
-			}
-			bitstream.setColumn("checksum", Utils.toHex(dis.getMessageDigest()
-					.digest()));
-			dis.close();
-		} 
-		else if (file instanceof SRBFile)
+		BitStore store = getStore(bitstream);
+		if (store == null)
 		{
-			if (!file.exists())
-			{
-				log.error("File: " + file.getAbsolutePath() 
-						+ " is not in SRB MCAT");
-				throw new IOException("File is not in SRB MCAT");
-			}
-
-			// get MD5 on just the filename (!) for SRB file
-			int iLastSlash = bitstreamPath.lastIndexOf('/');
-			String sFilename = bitstreamPath.substring(iLastSlash + 1);
-			MessageDigest md = null;
-			try 
-			{
-				md = MessageDigest.getInstance("MD5");
-			} 
-			catch (NoSuchAlgorithmException e) 
-			{
-				log.error("Caught NoSuchAlgorithmException", e);
-				throw new IOException("Invalid checksum algorithm", e);
-			}
-			bitstream.setColumn("checksum", 
-					Utils.toHex(md.digest(sFilename.getBytes())));
+			throw new IOException("Assetstore " + assetstore + " is not available");
 		}
-		else
+		String path = getPath(bitstream);
+
+		// work out the MD5 that DSpace refers to as the checksum, writes in
+		// METS, and uses as an AIP filename (!). Stores which can't read the
+		// bits cheaply (e.g. SRB) may calculate it on the file name instead,
+		// see SRBBitStore.
+		Map<String, Object> about = store.about(path, true);
+		if (about == null)
 		{
-			throw new IOException("Unrecognized file type - "
-					+ "not local, not SRB");
+			log.error("File: " + path + " to be registered cannot be found "
+					+ "in assetstore " + store + " - is it really there?");
+			throw new IOException("File to be registered is not in assetstore " + assetstore);
 		}
 
-		bitstream.setColumn("checksum_algorithm", "MD5");
-		bitstream.setColumn("size_bytes", file.length());
+		bitstream.setColumn("checksum", (String) about.get(BitStore.CHECKSUM));
+		bitstream.setColumn("checksum_algorithm", (String) about.get(BitStore.CHECKSUM_ALGORITHM));
+		bitstream.setColumn("size_bytes", ((Long) about.get(BitStore.SIZE_BYTES)).longValue());
 		bitstream.setColumn("deleted", false);
 		DatabaseManager.update(context, bitstream);
 
@@ -479,7 +352,7 @@ public class BitstreamStorageManager
 		if (log.isDebugEnabled()) 
 		{
 			log.debug("Stored bitstream " + bitstreamId + " in file "
-					+ file.getAbsolutePath());
+					+ about.get(BitStore.LOCATION));
 		}
 		return bitstreamId;
 	}
@@ -520,9 +393,75 @@ public class BitstreamStorageManager
     {
         TableRow bitstream = DatabaseManager.find(context, "bitstream", id);
 
-		GeneralFile file = getFile(bitstream);
+        BitStore store = getStore(bitstream);
 
-		return (file != null) ? FileFactory.newFileInputStream(file) : null;
+        return (store != null) ? store.get(getPath(bitstream)) : null;
+    }
+
+    /**
+     * Retrieve part of the bits for the bitstream with ID. If the bitstream
+     * does not exist, returns null.
+     * 
+     * @param context
+     *            The current context
+     * @param id
+     *            The ID of the bitstream to retrieve
+     * @param offset
+     *            The position of the first byte to read
+     * @param length
+     *            The maximum number of bytes to read, or -1 to read to the end
+     * @exception IOException
+     *                If a problem occurs while retrieving the bits
+     * @exception SQLException
+     *                If a problem occurs accessing the RDBMS
+     * 
+     * @return The stream of bits, or null
+     */
+    public static InputStream retrieve(Context context, int id, long offset, long length)
+            throws SQLException, IOException
+    {
+        TableRow bitstream = DatabaseManager.find(context, "bitstream", id);
+
+        BitStore store = getStore(bitstream);
+
+        return (store != null) ? store.getRange(getPath(bitstream), offset, length) : null;
+    }
+
+    /**
+     * Copy part of the bits for the bitstream with ID to a channel. Stores
+     * on the local file system let the operating system copy the bits
+     * without reading them into memory.
+     * 
+     * @param context
+     *            The current context
+     * @param id
+     *            The ID of the bitstream to copy
+     * @param offset
+     *            The position of the first byte to copy
+     * @param length
+     *            The maximum number of bytes to copy, or -1 to copy to the end
+     * @param target
+     *            The channel to write to; it is not closed
+     * @exception IOException
+     *                If a problem occurs while copying the bits, or the
+     *                bitstream does not exist
+     * @exception SQLException
+     *                If a problem occurs accessing the RDBMS
+     * 
+     * @return The number of bytes copied
+     */
+    public static long transferTo(Context context, int id, long offset, long length,
+            WritableByteChannel target) throws SQLException, IOException
+    {
+        TableRow bitstream = DatabaseManager.find(context, "bitstream", id);
+
+        BitStore store = getStore(bitstream);
+        if (store == null)
+        {
+            throw new IOException("No asset store for bitstream " + id);
+        }
+
+        return store.transferTo(getPath(bitstream), offset, length, target);
     }
 
     /**
@@ -587,10 +526,12 @@ public class BitstreamStorageManager
                 TableRow row = iterator.next();
                 int bid = row.getIntColumn("bitstream_id");
 
-				GeneralFile file = getFile(row);
+				BitStore store = getStore(row);
+				String path = getPath(row);
+				Map<String, Object> about = (store != null) ? store.about(path, false) : null;
 
                 // Make sure entries which do not exist are removed
-                if (file == null || !file.exists())
+                if (about == null)
                 {
                     log.debug("file is null");
                     if (deleteDbRecords)
@@ -612,7 +553,7 @@ public class BitstreamStorageManager
 
                 // This is a small chance that this is a file which is
                 // being stored -- get it next time.
-                if (isRecent(file))
+                if (isRecent(((Long) about.get(BitStore.MODIFIED)).longValue()))
                 {
                 	log.debug("file is recent");
                     continue;
@@ -642,10 +583,10 @@ public class BitstreamStorageManager
                 TableRow duplicateBitRow = DatabaseManager.querySingleTable(context, "Bitstream", "SELECT * FROM Bitstream WHERE internal_id = ? AND bitstream_id <> ?", row.getStringColumn("internal_id"), bid);
                 if(duplicateBitRow == null)
                 {
-                    boolean success = file.delete();
+                    boolean success = store.delete(path);
 
                     String message = ("Deleted bitstream " + bid + " (file "
-                                + file.getAbsolutePath() + ") with result "
+                                + about.get(BitStore.LOCATION) + ") with result "
                                 + success);
                     if (log.isDebugEnabled())
                     {
@@ -655,18 +596,6 @@ public class BitstreamStorageManager
                     {
                         System.out.println(message);
                     }
-
-                    // if the file was deleted then
-                    // try deleting the parents
-                    // Otherwise the cleanup script is set to
-                    // leave the db records then the file
-                    // and directories have already been deleted
-                    // if this is turned off then it still looks like the
-                    // file exists
-                    if( success )
-                    {
-                        deleteParents(file);
-                    }
                 }
 
                 // Make sure to commit our outstanding work every 100
@@ -728,72 +657,61 @@ public class BitstreamStorageManager
     ////////////////////////////////////////
 
     /**
-     * Return true if this file is too recent to be deleted, false otherwise.
+     * Return the asset store with the given number, or null if there is no
+     * such store or it could not be set up.
      * 
-     * @param file
-     *            The file to check
-     * @return True if this file is too recent to be deleted
+     * @param storeNumber
+     *            The store number, as in the store_number column
+     * @return The asset store
      */
-    private static boolean isRecent(GeneralFile file)
+    public static BitStore getStore(int storeNumber)
     {
-        long lastmod = file.lastModified();
-        long now = new java.util.Date().getTime();
+        // Default to zero ('assetstore.dir') for backwards compatibility
+        if (storeNumber == -1)
+        {
+            storeNumber = 0;
+        }
 
-        if (lastmod >= now)
+        if (storeNumber < 0 || storeNumber >= assetStores.length)
         {
-            return true;
+            log.error("No assetstore " + storeNumber);
+            return null;
         }
 
-        // Less than one hour old
-        return (now - lastmod) < (1 * 60 * 1000);
+        return assetStores[storeNumber];
     }
 
     /**
-     * Delete empty parent directories.
+     * Return true if a file is too recent to be deleted, false otherwise.
      * 
-     * @param file
-     *            The file with parent directories to delete
+     * @param lastmod
+     *            The time the file was last modified
+     * @return True if this file is too recent to be deleted
      */
-    private static synchronized void deleteParents(GeneralFile file)
+    private static boolean isRecent(long lastmod)
     {
-        if (file == null )
-        {
-            return;
-        }
- 
-		GeneralFile tmp = file;
+        long now = new java.util.Date().getTime();
 
-        for (int i = 0; i < directoryLevels; i++)
+        if (lastmod >= now)
         {
-
-			GeneralFile directory = tmp.getParentFile();
-			GeneralFile[] files = directory.listFiles();
-
-            // Only delete empty directories
-            if (files.length != 0)
-            {
-                break;
-            }
-
-            directory.delete();
-            tmp = directory;
+            return true;
         }
+
+        // Less than one hour old
+        return (now - lastmod) < (1 * 60 * 1000);
     }
 
     /**
-     * Return the file corresponding to a bitstream. It's safe to pass in
+     * Return the asset store holding a bitstream. It's safe to pass in
      * <code>null</code>.
      * 
      * @param bitstream
      *            the database table row for the bitstream. Can be
      *            <code>null</code>
      * 
-     * @return The corresponding file in the file system, or <code>null</code>
-     * 
-     * @exception IOException
-     *                If a problem occurs while determining the file
+     * @return The asset store, or <code>null</code>
      */
-    private static GeneralFile getFile(TableRow bitstream) throws IOException
+    private static BitStore getStore(TableRow bitstream)
     {
         // Check that bitstream is not null
         if (bitstream == null)
@@ -801,26 +719,24 @@ public class BitstreamStorageManager
             return null;
         }
 
-        // Get the store to use
-        int storeNumber = bitstream.getIntColumn("store_number");
-
-        // Default to zero ('assetstore.dir') for backwards compatibility
-        if (storeNumber == -1)
-        {
-            storeNumber = 0;
-        }
-
-		GeneralFile assetstore = assetStores[storeNumber];
+        return getStore(bitstream.getIntColumn("store_number"));
+    }
 
+    /**
+     * Return the path of a bitstream relative to its asset store.
+     * 
+     * @param bitstream
+     *            the database table row for the bitstream
+     * 
+     * @return The path of the bitstream in the asset store
+     */
+    private static String getPath(TableRow bitstream)
+    {
 		// turn the internal_id into a file path relative to the assetstore
 		// directory
 		String sInternalId = bitstream.getStringColumn("internal_id");
 
-		// there are 4 cases:
-		// -conventional bitstream, conventional storage
-		// -conventional bitstream, srb storage
-		// -registered bitstream, conventional storage
-		// -registered bitstream, srb storage
+		// there are 2 cases:
 		// conventional bitstream - dspace ingested, dspace random name/path
 		// registered bitstream - registered to dspace, any name/path
 		String sIntermediatePath = null;
@@ -842,29 +758,11 @@ public class BitstreamStorageManager
 			sIntermediatePath = getIntermediatePath(sInternalId);
 		}
 
-		StringBuffer bufFilename = new StringBuffer();
-		if (assetstore instanceof LocalFile) {
-			bufFilename.append(assetstore.getCanonicalPath());
-			bufFilename.append(File.separator);
-			bufFilename.append(sIntermediatePath);
-			bufFilename.append(sInternalId);
-			if (log.isDebugEnabled()) {
-				log.debug("Local filename for " + sInternalId + " is "
-						+ bufFilename.toString());
-			}
-			return new LocalFile(bufFilename.toString());
-		}
-		if (assetstore instanceof SRBFile) {
-			bufFilename.append(sIntermediatePath);
-			bufFilename.append(sInternalId);
-			if (log.isDebugEnabled()) {
-				log.debug("SRB filename for " + sInternalId + " is "
-						+ ((SRBFile) assetstore).toString()
-						+ bufFilename.toString());
-			}
-			return new SRBFile((SRBFile) assetstore, bufFilename.toString());
+		if (log.isDebugEnabled()) {
+			log.debug("Filename for " + sInternalId + " is "
+					+ sIntermediatePath + sInternalId);
 		}
-		return null;
+		return sIntermediatePath + sInternalId;
     }
 
 	/**
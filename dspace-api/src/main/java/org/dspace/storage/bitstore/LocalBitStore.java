@@ -0,0 +1,352 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Utils;
+
+/**
+ * An asset store in a directory of the local (or a mounted) file system,
+ * configured by <code>assetstore.dir</code> for store 0 and
+ * <code>assetstore.dir.n</code> for store n.
+ * <p>
+ * New bitstreams are written to a temporary file next to their final name
+ * and moved into place, atomically where the file system allows, so that
+ * readers never see a partly written file. Ranged reads seek in the file,
+ * and {@link #transferTo} lets the operating system copy the bits straight
+ * to the target channel.
+ */
+public class LocalBitStore implements BitStore
+{
+    /** log4j log */
+    private static Logger log = Logger.getLogger(LocalBitStore.class);
+
+    /** Size of the buffer used to work out checksums */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Draws the names of temporary files */
+    private static final Random random = new Random();
+
+    /** The directory holding the bitstreams */
+    private Path root;
+
+    /**
+     * Create a store to be set up by {@link #init(int)}.
+     */
+    public LocalBitStore()
+    {
+    }
+
+    /**
+     * Create a store in the given directory.
+     *
+     * @param root
+     *            The directory holding the bitstreams
+     */
+    public LocalBitStore(Path root)
+    {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public void init(int storeNumber) throws IOException
+    {
+        String property = (storeNumber == 0) ? "assetstore.dir" : "assetstore.dir." + storeNumber;
+        String dir = ConfigurationManager.getProperty(property);
+        if (dir == null)
+        {
+            throw new IOException(property + " is not set for assetstore " + storeNumber);
+        }
+
+        root = Paths.get(dir).toAbsolutePath().normalize();
+        if (Files.isDirectory(root))
+        {
+            root = root.toRealPath();
+        }
+    }
+
+    public long put(String path, InputStream in) throws IOException
+    {
+        Path file = resolve(path);
+        Path temp = file.resolveSibling("." + file.getFileName() + "." + Long.toHexString(random.nextLong())
+                + ".tmp");
+        OutputStream out = createTempFile(temp);
+
+        try
+        {
+            long size;
+            try
+            {
+                size = IOUtils.copyLarge(in, out);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            try
+            {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+
+            if (log.isDebugEnabled())
+            {
+                log.debug("Stored " + size + " bytes in file " + file);
+            }
+            return size;
+        }
+        finally
+        {
+            if (temp != null)
+            {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    public InputStream get(String path) throws IOException
+    {
+        // A plain FileInputStream, so that Channels.newChannel() hands readers
+        // such as the checksum checker the file's own channel
+        return new FileInputStream(resolve(path).toFile());
+    }
+
+    public InputStream getRange(String path, long offset, long length) throws IOException
+    {
+        SeekableByteChannel channel;
+        try
+        {
+            channel = Files.newByteChannel(resolve(path), StandardOpenOption.READ);
+        }
+        catch (NoSuchFileException e)
+        {
+            throw notFound(e);
+        }
+
+        try
+        {
+            channel.position(offset);
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    public long transferTo(String path, long offset, long length, WritableByteChannel target)
+            throws IOException
+    {
+        FileChannel channel;
+        try
+        {
+            channel = FileChannel.open(resolve(path), StandardOpenOption.READ);
+        }
+        catch (NoSuchFileException e)
+        {
+            throw notFound(e);
+        }
+
+        try
+        {
+            long end = channel.size();
+            if (length >= 0 && offset + length < end)
+            {
+                end = offset + length;
+            }
+
+            long position = offset;
+            while (position < end)
+            {
+                long count = channel.transferTo(position, end - position, target);
+                if (count <= 0)
+                {
+                    break;
+                }
+                position += count;
+            }
+            return Math.max(0, position - offset);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    public boolean delete(String path) throws IOException
+    {
+        Path file = resolve(path);
+        if (!Files.deleteIfExists(file))
+        {
+            return false;
+        }
+
+        // Delete empty parent directories, but never the store itself
+        Path directory = file.getParent();
+        while (directory != null && directory.startsWith(root) && !directory.equals(root))
+        {
+            try
+            {
+                Files.delete(directory);
+            }
+            catch (DirectoryNotEmptyException e)
+            {
+                break;
+            }
+            catch (NoSuchFileException e)
+            {
+                // Removed by another cleanup
+            }
+            directory = directory.getParent();
+        }
+        return true;
+    }
+
+    public boolean exists(String path) throws IOException
+    {
+        return Files.isRegularFile(resolve(path));
+    }
+
+    public long size(String path) throws IOException
+    {
+        try
+        {
+            return Files.size(resolve(path));
+        }
+        catch (NoSuchFileException e)
+        {
+            throw notFound(e);
+        }
+    }
+
+    public Map<String, Object> about(String path, boolean checksum) throws IOException
+    {
+        Path file = resolve(path);
+        if (!Files.isRegularFile(file))
+        {
+            return null;
+        }
+
+        Map<String, Object> about = new HashMap<String, Object>();
+        about.put(SIZE_BYTES, Files.size(file));
+        about.put(MODIFIED, Files.getLastModifiedTime(file).toMillis());
+        about.put(LOCATION, file.toString());
+
+        if (checksum)
+        {
+            MessageDigest md;
+            try
+            {
+                md = MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                throw new IOException("Invalid checksum algorithm", e);
+            }
+
+            InputStream in = Files.newInputStream(file);
+            try
+            {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = in.read(buffer)) != -1)
+                {
+                    md.update(buffer, 0, count);
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+
+            about.put(CHECKSUM, Utils.toHex(md.digest()));
+            about.put(CHECKSUM_ALGORITHM, "MD5");
+        }
+
+        return about;
+    }
+
+    public String toString()
+    {
+        return String.valueOf(root);
+    }
+
+    /**
+     * Return the file of a bitstream, which must be inside the store.
+     */
+    private Path resolve(String path) throws IOException
+    {
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.equals(root))
+        {
+            throw new IOException("Bitstream path " + path + " is outside assetstore " + root);
+        }
+        return file;
+    }
+
+    /**
+     * Create and open a temporary file in the directory of a bitstream,
+     * making the directory if necessary. Unlike {@link Files#createTempFile},
+     * which makes files only their owner may read, the file gets the same
+     * permissions as any other file the process writes, as bitstreams
+     * always did.
+     */
+    private OutputStream createTempFile(Path temp) throws IOException
+    {
+        try
+        {
+            Files.createDirectories(temp.getParent());
+            return Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+        catch (NoSuchFileException e)
+        {
+            // The directory was removed by a concurrent cleanup
+            Files.createDirectories(temp.getParent());
+            return Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+    }
+
+    private static FileNotFoundException notFound(NoSuchFileException e)
+    {
+        FileNotFoundException notFound = new FileNotFoundException(e.getFile());
+        notFound.initCause(e);
+        return notFound;
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Utils;
+
+import edu.sdsc.grid.io.FileFactory;
+import edu.sdsc.grid.io.GeneralFile;
+import edu.sdsc.grid.io.GeneralFileOutputStream;
+import edu.sdsc.grid.io.srb.SRBAccount;
+import edu.sdsc.grid.io.srb.SRBFile;
+import edu.sdsc.grid.io.srb.SRBFileSystem;
+
+/**
+ * An asset store in an SRB (Storage Resource Broker) collection, configured
+ * by the <code>srb.*</code> properties in dspace.cfg (with the suffix ".n"
+ * for store n). Kept for existing SRB installations.
+ *
+ * @author Peter Breton, Robert Tansley, David Little, Nathan Sarr
+ */
+public class SRBBitStore implements BitStore
+{
+    /** log4j log */
+    private static Logger log = Logger.getLogger(SRBBitStore.class);
+
+    /** Number of directory levels between the collection and a bitstream */
+    private static final int directoryLevels = 3;
+
+    /** The SRB collection holding the bitstreams */
+    private SRBFile root;
+
+    public void init(int storeNumber) throws IOException
+    {
+        String suffix = (storeNumber == 0) ? "" : "." + storeNumber;
+
+        SRBAccount account = new SRBAccount(
+                ConfigurationManager.getProperty("srb.host" + suffix),
+                ConfigurationManager.getIntProperty("srb.port" + suffix),
+                ConfigurationManager.getProperty("srb.username" + suffix),
+                ConfigurationManager.getProperty("srb.password" + suffix),
+                ConfigurationManager.getProperty("srb.homedirectory" + suffix),
+                ConfigurationManager.getProperty("srb.mdasdomainname" + suffix),
+                ConfigurationManager.getProperty("srb.defaultstorageresource" + suffix),
+                ConfigurationManager.getProperty("srb.mcatzone" + suffix));
+
+        SRBFileSystem srbFileSystem = new SRBFileSystem(account);
+
+        String parentDir = ConfigurationManager.getProperty("srb.parentdir" + suffix);
+        if (parentDir == null)
+        {
+            throw new IOException("srb.parentdir" + suffix + " is undefined for assetstore " + storeNumber);
+        }
+
+        root = new SRBFile(srbFileSystem, parentDir);
+    }
+
+    public long put(String path, InputStream in) throws IOException
+    {
+        GeneralFile file = getFile(path);
+
+        // Make the parent dirs if necessary
+        GeneralFile parent = file.getParentFile();
+        if (!parent.exists())
+        {
+            parent.mkdirs();
+        }
+
+        //Create the corresponding file and open it
+        file.createNewFile();
+
+        GeneralFileOutputStream fos = FileFactory.newFileOutputStream(file);
+        try
+        {
+            Utils.bufferedCopy(in, fos);
+        }
+        finally
+        {
+            fos.close();
+        }
+
+        return file.length();
+    }
+
+    public InputStream get(String path) throws IOException
+    {
+        return FileFactory.newFileInputStream(getFile(path));
+    }
+
+    public InputStream getRange(String path, long offset, long length) throws IOException
+    {
+        InputStream in = get(path);
+        try
+        {
+            long skipped = 0;
+            while (skipped < offset)
+            {
+                long count = in.skip(offset - skipped);
+                if (count <= 0)
+                {
+                    break;
+                }
+                skipped += count;
+            }
+        }
+        catch (IOException e)
+        {
+            in.close();
+            throw e;
+        }
+
+        return new BoundedInputStream(in, length);
+    }
+
+    public long transferTo(String path, long offset, long length, WritableByteChannel target)
+            throws IOException
+    {
+        InputStream in = getRange(path, offset, length);
+        try
+        {
+            OutputStream out = Channels.newOutputStream(target);
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int count;
+            while ((count = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, count);
+                total += count;
+            }
+            return total;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public boolean delete(String path) throws IOException
+    {
+        GeneralFile file = getFile(path);
+        boolean success = file.delete();
+
+        if (success)
+        {
+            deleteParents(file);
+        }
+        return success;
+    }
+
+    public boolean exists(String path) throws IOException
+    {
+        return getFile(path).exists();
+    }
+
+    public long size(String path) throws IOException
+    {
+        return getFile(path).length();
+    }
+
+    public Map<String, Object> about(String path, boolean checksum) throws IOException
+    {
+        GeneralFile file = getFile(path);
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        Map<String, Object> about = new HashMap<String, Object>();
+        about.put(SIZE_BYTES, file.length());
+        about.put(MODIFIED, file.lastModified());
+        about.put(LOCATION, file.toString());
+
+        if (checksum)
+        {
+            // Reading a remote file to work out its MD5 would copy all its
+            // bytes over the network, so the MD5 of just the file NAME is
+            // used. It would be better to have a proxy process calculate the
+            // MD5 and store it as an SRB metadata attribute.
+            String filename = path.substring(path.lastIndexOf('/') + 1);
+            MessageDigest md;
+            try
+            {
+                md = MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                log.error("Caught NoSuchAlgorithmException", e);
+                throw new IOException("Invalid checksum algorithm", e);
+            }
+            about.put(CHECKSUM, Utils.toHex(md.digest(filename.getBytes())));
+            about.put(CHECKSUM_ALGORITHM, "MD5");
+        }
+
+        return about;
+    }
+
+    public String toString()
+    {
+        return String.valueOf(root);
+    }
+
+    private GeneralFile getFile(String path)
+    {
+        if (log.isDebugEnabled())
+        {
+            log.debug("SRB filename for " + path + " is " + root + path);
+        }
+        return new SRBFile(root, path);
+    }
+
+    /**
+     * Delete empty parent directories.
+     *
+     * @param file
+     *            The file with parent directories to delete
+     */
+    private static synchronized void deleteParents(GeneralFile file)
+    {
+        GeneralFile tmp = file;
+
+        for (int i = 0; i < directoryLevels; i++)
+        {
+            GeneralFile directory = tmp.getParentFile();
+            GeneralFile[] files = directory.listFiles();
+
+            // Only delete empty directories
+            if (files.length != 0)
+            {
+                break;
+            }
+
+            directory.delete();
+            tmp = directory;
+        }
+    }
+}
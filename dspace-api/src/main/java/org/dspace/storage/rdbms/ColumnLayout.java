@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The ordered set of columns of a {@link TableRow}, shared by all rows with
+ * the same columns. A row stores its values in an array, and the layout maps
+ * column names to positions in that array.
+ * <p>
+ * Layouts are immutable apart from the name lookup table, which remembers
+ * every spelling of a column name (e.g. "ITEM_ID" as returned by some JDBC
+ * drivers) so that it is only canonicalized once.
+ */
+final class ColumnLayout
+{
+    /** Maximum number of distinct column lists for which layouts are kept */
+    private static final int MAX_LAYOUTS = 1000;
+
+    /** Layouts by the column list they were created from */
+    private static final ConcurrentMap<List<String>, ColumnLayout> layouts =
+            new ConcurrentHashMap<List<String>, ColumnLayout>();
+
+    /** The canonicalized column names, in order */
+    private final String[] columns;
+
+    /** Position of each column, by any spelling of its name seen so far */
+    private final ConcurrentMap<String, Integer> index;
+
+    private ColumnLayout(List<String> columnNames)
+    {
+        List<String> canonicalized = new ArrayList<String>(columnNames.size());
+        index = new ConcurrentHashMap<String, Integer>();
+
+        for (String column : columnNames)
+        {
+            String name = ColumnInfo.canonicalize(column);
+            if (!index.containsKey(name))
+            {
+                index.put(name, canonicalized.size());
+                canonicalized.add(name);
+            }
+        }
+
+        columns = canonicalized.toArray(new String[canonicalized.size()]);
+    }
+
+    /**
+     * Return the layout for the given column names.
+     *
+     * @param columnNames
+     *            The column names (case-insensitive)
+     * @return The layout
+     */
+    static ColumnLayout forColumns(List<String> columnNames)
+    {
+        ColumnLayout layout = layouts.get(columnNames);
+
+        if (layout == null)
+        {
+            layout = new ColumnLayout(columnNames);
+
+            if (layouts.size() < MAX_LAYOUTS)
+            {
+                // Copy the key so later changes to the caller's list can't corrupt the map
+                ColumnLayout existing = layouts.putIfAbsent(
+                        Collections.unmodifiableList(new ArrayList<String>(columnNames)), layout);
+                if (existing != null)
+                {
+                    layout = existing;
+                }
+            }
+        }
+
+        return layout;
+    }
+
+    /**
+     * Return the position of a column, or -1 if there is no such column.
+     *
+     * @param column
+     *            The column name (case-insensitive)
+     * @return The position of the column
+     */
+    int indexOf(String column)
+    {
+        Integer position = index.get(column);
+
+        if (position == null)
+        {
+            position = index.get(ColumnInfo.canonicalize(column));
+            if (position == null)
+            {
+                return -1;
+            }
+
+            index.putIfAbsent(column, position);
+        }
+
+        return position;
+    }
+
+    /**
+     * Return the number of columns.
+     */
+    int size()
+    {
+        return columns.length;
+    }
+
+    /**
+     * Return the canonicalized name of the column at the given position.
+     */
+    String getColumn(int position)
+    {
+        return columns[position];
+    }
+
+    /**
+     * Return true if both layouts have the same columns, in any order.
+     */
+    boolean hasSameColumns(ColumnLayout other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+
+        if (columns.length != other.columns.length)
+        {
+            return false;
+        }
+
+        for (String column : columns)
+        {
+            if (other.indexOf(column) < 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public String toString()
+    {
+        return Arrays.toString(columns);
+    }
+}
@@ -21,14 +21,17 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import javax.naming.InitialContext;
 import javax.sql.DataSource;
@@ -57,6 +60,12 @@ public class DatabaseManager
 
     private static Map<String, String> insertSQL = new HashMap<String, String>();
 
+    /** Full-column insert SQL, used when the primary key is assigned before the insert */
+    private static Map<String, String> genericInsertSQL = new HashMap<String, String>();
+
+    /** Maximum number of rows sent to the database in a single JDBC batch */
+    private static final int BATCH_SIZE = 1000;
+
     private static boolean isOracle = false;
     private static boolean isPostgres = false;
 
@@ -95,6 +104,12 @@ public class DatabaseManager
      */
     private static Map<String, Map<String, ColumnInfo>> info = new HashMap<String, Map<String, ColumnInfo>>();
 
+    /**
+     * A map of column layouts, shared by all rows of a table. The key is the
+     * canonicalized table name.
+     */
+    private static Map<String, ColumnLayout> layouts = new ConcurrentHashMap<String, ColumnLayout>();
+
     /**
      * Protected Constructor to prevent instantiation except by derived classes.
      */
@@ -213,6 +228,136 @@ public class DatabaseManager
      *                If a database error occurs
      */
     public static TableRowIterator queryTable(Context context, String table, String query, Object... parameters ) throws SQLException {
+        return doQueryTable(context, table, query, 0, parameters);
+    }
+
+    /**
+     * Return an iterator over all rows of a table which match a condition,
+     * in order of the primary key. The rows are read one page of
+     * <code>db.fetchsize</code> rows (default 1000) at a time, each page
+     * starting after the primary key of the last row read, so the scan uses
+     * constant memory and is not affected by commits between pages. Each
+     * page is read with a forward-only, read-only cursor fetching the whole
+     * page at once.
+     *
+     * @param context
+     *            The context object
+     * @param table
+     *            The name of the table
+     * @param condition
+     *            An SQL condition on the rows of the table, as it would
+     *            appear in a WHERE clause, or null for all rows
+     * @param parameters
+     * 			  A set of SQL parameters to be included in the condition.
+     * @return A TableRowIterator with the matching rows
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static TableRowIterator queryTableByKey(Context context, String table, String condition, Object... parameters) throws SQLException
+    {
+        String primaryKey = getPrimaryKeyColumn(table);
+
+        StringBuilder query = new StringBuilder("SELECT * FROM ").append(table).append(" WHERE ");
+        if (condition != null)
+        {
+            query.append("(").append(condition).append(") AND ");
+        }
+        query.append(primaryKey).append(" > ? ORDER BY ").append(primaryKey);
+
+        // Limit each page without adding columns to the rows
+        String pageQuery;
+        if (isOracle)
+        {
+            pageQuery = "SELECT * FROM (" + query + ") WHERE ROWNUM <= ?";
+        }
+        else
+        {
+            pageQuery = query.append(" LIMIT ?").toString();
+        }
+
+        int pageSize = getFetchSize();
+        if (pageSize <= 0)
+        {
+            pageSize = 1000;
+        }
+
+        return new KeysetTableRowIterator(context, canonicalize(table), pageQuery, primaryKey, pageSize, parameters);
+    }
+
+    /**
+     * Return one page of the rows of a table which match a condition, in
+     * order of the primary key. The page starts after the row with the given
+     * primary key and skips <code>offset</code> further rows, both in the
+     * database. Paging by key (offset 0, starting after the last row of the
+     * previous page) costs the same however deep the page is, and is not
+     * thrown out by rows added or removed between pages.
+     *
+     * @param context
+     *            The context object
+     * @param table
+     *            The name of the table
+     * @param condition
+     *            An SQL condition on the rows of the table, as it would
+     *            appear in a WHERE clause, or null for all rows
+     * @param after
+     *            The primary key after which the page starts, or -1 to start
+     *            with the first row
+     * @param offset
+     *            The number of rows to skip after that
+     * @param limit
+     *            The largest number of rows in the page
+     * @param parameters
+     * 			  A set of SQL parameters to be included in the condition.
+     * @return A TableRowIterator with the rows of the page
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static TableRowIterator queryTablePage(Context context, String table, String condition,
+            int after, int offset, int limit, Object... parameters) throws SQLException
+    {
+        String primaryKey = getPrimaryKeyColumn(table);
+
+        StringBuilder where = new StringBuilder(" WHERE ");
+        if (condition != null)
+        {
+            where.append("(").append(condition).append(") AND ");
+        }
+        where.append(primaryKey).append(" > ?");
+
+        Object[] pageParameters = Arrays.copyOf(parameters, parameters.length + 3);
+        pageParameters[parameters.length] = Integer.valueOf(after);
+
+        String query;
+        if (isOracle)
+        {
+            // Number the keys of the page, so that its rows have only the
+            // columns of the table
+            query = "SELECT * FROM " + table + " WHERE " + primaryKey + " IN (SELECT " + primaryKey
+                    + " FROM (SELECT " + primaryKey + ", ROWNUM rn FROM (SELECT " + primaryKey
+                    + " FROM " + table + where + " ORDER BY " + primaryKey + ") WHERE ROWNUM <= ?)"
+                    + " WHERE rn > ?) ORDER BY " + primaryKey;
+            pageParameters[parameters.length + 1] = Integer.valueOf(offset + limit);
+            pageParameters[parameters.length + 2] = Integer.valueOf(offset);
+        }
+        else
+        {
+            query = "SELECT * FROM " + table + where + " ORDER BY " + primaryKey + " LIMIT ? OFFSET ?";
+            pageParameters[parameters.length + 1] = Integer.valueOf(limit);
+            pageParameters[parameters.length + 2] = Integer.valueOf(offset);
+        }
+
+        return doQueryTable(context, table, query, 0, pageParameters);
+    }
+
+    /**
+     * Run a query for rows of the given table.
+     *
+     * @param fetchSize
+     *            The number of rows to fetch from the database at a time, or
+     *            0 to leave it to the JDBC driver.
+     */
+    static TableRowIterator doQueryTable(Context context, String table, String query, int fetchSize, Object[] parameters) throws SQLException
+    {
         if (log.isDebugEnabled())
         {
             StringBuilder sb = new StringBuilder("Running query \"").append(query).append("\"  with parameters: ");
@@ -230,10 +375,16 @@ public class DatabaseManager
         PreparedStatement statement = null;
         try
         {
-            statement = context.getDBConnection().prepareStatement(query);
+            statement = context.getDBConnection().prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize > 0)
+            {
+                statement.setFetchSize(fetchSize);
+            }
 
             loadParameters(statement, parameters);
 
+            context.incrementStatementCount();
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery(), canonicalize(table));
 
             retTRI.setStatement(statement);
@@ -258,6 +409,14 @@ public class DatabaseManager
         }
     }
 
+    /**
+     * The number of rows read at a time by scans over whole tables.
+     */
+    private static int getFetchSize()
+    {
+        return ConfigurationManager.getIntProperty("db.fetchsize", 1000);
+    }
+
     /**
      * Return an iterator with the results of the query.
      *
@@ -295,6 +454,7 @@ public class DatabaseManager
         {
             loadParameters(statement,parameters);
 
+            context.incrementStatementCount();
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery());
 
             retTRI.setStatement(statement);
@@ -438,27 +598,18 @@ public class DatabaseManager
 
         try
         {
-        	statement = context.getDBConnection().prepareStatement(query);
+        	statement = prepareCachedStatement(context, query);
         	loadParameters(statement, parameters);
 
+        	context.incrementStatementCount();
         	return statement.executeUpdate();
         } catch (SQLException e) {
             log.error("SQL query updateQuery Error - ", e);
+            context.removeCachedStatement(query);
             throw e;
         } finally
         {
-            if (statement != null)
-            {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException sqle)
-                {
-                    log.error("SQL updateQuery Error - ",sqle);
-                    throw sqle;
-                }
-            }
+            releaseStatement(context, query, statement);
         }
     }
 
@@ -475,7 +626,7 @@ public class DatabaseManager
 
     {
         try {
-            TableRow row = new TableRow(canonicalize(table), getColumnNames(table));
+            TableRow row = new TableRow(canonicalize(table), getColumnLayout(table));
             insert(context, row);
             return row;
         } catch (SQLException e) {
@@ -693,7 +844,7 @@ public class DatabaseManager
      */
     public static TableRow row(String table) throws SQLException
     {
-        return new TableRow(canonicalize(table), getColumnNames(table));
+        return new TableRow(canonicalize(table), getColumnLayout(table));
     }
 
     /**
@@ -735,40 +886,123 @@ public class DatabaseManager
      */
     public static int update(Context context, TableRow row) throws SQLException
     {
-        String table = row.getTable();
+        List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+        String sql = getUpdateSQL(row, columns);
 
-        StringBuilder sql = new StringBuilder().append("update ").append(table)
-                .append(" set ");
+        // Only execute the update if there is anything to update
+        if (sql != null)
+        {
+            return executeUpdate(context, sql, columns, row);
+        }
 
-        List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
-        ColumnInfo pk = getPrimaryKeyColumnInfo(table);
-        Collection<ColumnInfo> info = getColumnInfo(table);
+        return 1;
+    }
 
-        String separator = "";
-        for (ColumnInfo col : info)
+    /**
+     * Insert a list of table rows into the RDBMS, sending them in JDBC
+     * batches rather than one statement per row. The rows may belong to
+     * different tables. As with {@link #insert(Context, TableRow)}, the
+     * primary key column of each row is set to its newly assigned ID.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to insert
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static void insertBatch(Context context, List<TableRow> rows) throws SQLException
+    {
+        for (Map.Entry<String, List<TableRow>> entry : groupByTable(rows).entrySet())
         {
-            // Only update this column if it has changed
-            if (!col.isPrimaryKey())
+            String table = entry.getKey();
+            List<TableRow> tableRows = entry.getValue();
+
+            String primaryKey = getPrimaryKeyColumn(table);
+            int[] ids = getNextIDs(context, table, tableRows.size());
+            for (int i = 0; i < ids.length; i++)
             {
-                if (row.hasColumnChanged(col.getName()))
-                {
-                    sql.append(separator).append(col.getName()).append(" = ?");
-                    columns.add(col);
-                    separator = ", ";
-                }
+                tableRows.get(i).setColumn(primaryKey, ids[i]);
             }
+
+            executeBatch(context, getGenericInsertSQL(table), getColumnInfo(table), tableRows);
         }
+    }
 
-        // Only execute the update if there is anything to update
-        if (columns.size() > 0)
+    /**
+     * Update changes of a list of table rows to the RDBMS, sending rows with
+     * the same changed columns in JDBC batches. Note that if the update fails,
+     * the values in the rows will NOT be reverted.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to update
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static void updateBatch(Context context, List<TableRow> rows) throws SQLException
+    {
+        Map<String, List<ColumnInfo>> columnsBySQL = new HashMap<String, List<ColumnInfo>>();
+        Map<String, List<TableRow>> rowsBySQL = new LinkedHashMap<String, List<TableRow>>();
+
+        for (TableRow row : rows)
         {
-            sql.append(" where ").append(pk.getName()).append(" = ?");
-            columns.add(pk);
+            List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+            String sql = getUpdateSQL(row, columns);
+
+            // Nothing has changed in this row
+            if (sql == null)
+            {
+                continue;
+            }
 
-            return executeUpdate(context.getDBConnection(), sql.toString(), columns, row);
+            List<TableRow> sqlRows = rowsBySQL.get(sql);
+            if (sqlRows == null)
+            {
+                sqlRows = new ArrayList<TableRow>();
+                rowsBySQL.put(sql, sqlRows);
+                columnsBySQL.put(sql, columns);
+            }
+            sqlRows.add(row);
         }
 
-        return 1;
+        for (Map.Entry<String, List<TableRow>> entry : rowsBySQL.entrySet())
+        {
+            executeBatch(context, entry.getKey(), columnsBySQL.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * Delete a list of table rows from the RDBMS, sending them in JDBC batches
+     * rather than one statement per row. The rows may belong to different
+     * tables.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to delete
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static void deleteBatch(Context context, List<TableRow> rows) throws SQLException
+    {
+        for (Map.Entry<String, List<TableRow>> entry : groupByTable(rows).entrySet())
+        {
+            String table = entry.getKey();
+            ColumnInfo pk = getPrimaryKeyColumnInfo(table);
+
+            for (TableRow row : entry.getValue())
+            {
+                if (row.isColumnNull(pk.getName()))
+                {
+                    throw new IllegalArgumentException("Primary key value is null");
+                }
+            }
+
+            String sql = "DELETE FROM " + table + " WHERE " + pk.getName() + " = ? ";
+            executeBatch(context, sql, Collections.singletonList(pk), entry.getValue());
+        }
     }
 
     /**
@@ -834,13 +1068,36 @@ public class DatabaseManager
         return (info == null) ? null : info.get(column);
     }
 
+    /**
+     * Return the column layout shared by all rows of the given table.
+     *
+     * @param table
+     *            The name of the table
+     * @return The column layout of the table
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static ColumnLayout getColumnLayout(String table) throws SQLException
+    {
+        String ctable = canonicalize(table);
+        ColumnLayout layout = layouts.get(ctable);
+
+        if (layout == null)
+        {
+            layout = ColumnLayout.forColumns(getColumnNames(ctable));
+            layouts.put(ctable, layout);
+        }
+
+        return layout;
+    }
+
     /**
      * Return the names of all the columns of the given table.
      *
      * @param table
      *            The name of the table
-     * @return The names of all the columns of the given table, as a List. Each
-     *         element of the list is a String.
+     * @return The names of all the columns of the given table, as a List.
+     *         Each element of the list is a String.
      * @exception SQLException
      *                If a database error occurs
      */
@@ -938,10 +1195,10 @@ public class DatabaseManager
         int columns = meta.getColumnCount() + 1;
 
         // If we haven't been passed the column names try to generate them from the metadata / table
-        List<String> columnNames = pColumnNames != null ? pColumnNames :
-                                        ((table == null) ? getColumnNames(meta) : getColumnNames(table));
+        ColumnLayout layout = pColumnNames != null ? ColumnLayout.forColumns(pColumnNames) :
+                                        ((table == null) ? ColumnLayout.forColumns(getColumnNames(meta)) : getColumnLayout(table));
 
-        TableRow row = new TableRow(canonicalize(table), columnNames);
+        TableRow row = new TableRow(canonicalize(table), layout);
 
         // Process the columns in order
         // (This ensures maximum backwards compatibility with
@@ -1129,7 +1386,7 @@ public class DatabaseManager
      * @exception SQLException
      *                If a database error occurs
      */
-    private static void execute(Connection connection, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
+    private static void execute(Context context, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
     {
         PreparedStatement statement = null;
 
@@ -1140,28 +1397,23 @@ public class DatabaseManager
 
         try
         {
-            statement = connection.prepareStatement(sql);
+            statement = prepareCachedStatement(context, sql);
         	loadParameters(statement, columns, row);
+            context.incrementStatementCount();
             statement.execute();
         }
+        catch (SQLException sqle)
+        {
+            context.removeCachedStatement(sql);
+            throw sqle;
+        }
         finally
         {
-            if (statement != null)
-            {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException sqle)
-                {
-                    log.error("SQL execute Error - ",sqle);
-                    throw sqle;
-                }
-            }
+            releaseStatement(context, sql, statement);
         }
     }
 
-    private static int executeUpdate(Connection connection, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
+    private static int executeUpdate(Context context, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
     {
         PreparedStatement statement = null;
 
@@ -1172,25 +1424,205 @@ public class DatabaseManager
 
         try
         {
-            statement = connection.prepareStatement(sql);
+            statement = prepareCachedStatement(context, sql);
         	loadParameters(statement, columns, row);
+            context.incrementStatementCount();
             return statement.executeUpdate();
         }
+        catch (SQLException sqle)
+        {
+            context.removeCachedStatement(sql);
+            throw sqle;
+        }
         finally
         {
-            if (statement != null)
+            releaseStatement(context, sql, statement);
+        }
+    }
+
+    /**
+     * Execute the given SQL once for every row, sending the rows to the
+     * database in JDBC batches of at most {@link #BATCH_SIZE}.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param sql
+     *            The SQL to execute
+     * @param columns
+     *            The columns to bind
+     * @param rows
+     *            The rows
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static void executeBatch(Context context, String sql, Collection<ColumnInfo> columns, List<TableRow> rows) throws SQLException
+    {
+        PreparedStatement statement = null;
+
+        if (log.isDebugEnabled())
+        {
+            log.debug("Running batch query \"" + sql + "\" for " + rows.size() + " rows");
+        }
+
+        try
+        {
+            statement = prepareCachedStatement(context, sql);
+
+            int pending = 0;
+            for (TableRow row : rows)
             {
-                try
+                loadParameters(statement, columns, row);
+                statement.addBatch();
+
+                if (++pending == BATCH_SIZE)
                 {
-                    statement.close();
+                    context.incrementStatementCount();
+                    statement.executeBatch();
+                    pending = 0;
                 }
-                catch (SQLException sqle)
+            }
+
+            if (pending > 0)
+            {
+                context.incrementStatementCount();
+                statement.executeBatch();
+            }
+        }
+        catch (SQLException sqle)
+        {
+            context.removeCachedStatement(sql);
+            throw sqle;
+        }
+        finally
+        {
+            releaseStatement(context, sql, statement);
+        }
+    }
+
+    /**
+     * Return a prepared statement for the given SQL on the context's
+     * connection, reusing the one held by the context's statement cache when
+     * there is one. Statements returned by this method must be handed back
+     * with {@link #releaseStatement(Context, String, PreparedStatement)}.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param sql
+     *            The SQL to prepare
+     * @return A prepared statement
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static PreparedStatement prepareCachedStatement(Context context, String sql) throws SQLException
+    {
+        PreparedStatement statement = context.getCachedStatement(sql);
+
+        if (statement == null)
+        {
+            statement = context.getDBConnection().prepareStatement(sql);
+            context.cacheStatement(sql, statement);
+        }
+        else
+        {
+            statement.clearParameters();
+        }
+
+        return statement;
+    }
+
+    /**
+     * Hand back a statement obtained from
+     * {@link #prepareCachedStatement(Context, String)}. The statement is
+     * closed unless it is still held by the context's statement cache.
+     */
+    private static void releaseStatement(Context context, String sql, PreparedStatement statement) throws SQLException
+    {
+        if (statement != null && context.getCachedStatement(sql) != statement)
+        {
+            try
+            {
+                statement.close();
+            }
+            catch (SQLException sqle)
+            {
+                log.error("SQL statement close Error - ",sqle);
+                throw sqle;
+            }
+        }
+    }
+
+    /**
+     * Build the update SQL for the changed columns of the given row.
+     *
+     * @param row
+     *            The row to update
+     * @param columns
+     *            Filled with the columns to bind, in order
+     * @return The update SQL, or null if no column has changed
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static String getUpdateSQL(TableRow row, List<ColumnInfo> columns) throws SQLException
+    {
+        String table = row.getTable();
+
+        StringBuilder sql = new StringBuilder().append("update ").append(table)
+                .append(" set ");
+
+        ColumnInfo pk = getPrimaryKeyColumnInfo(table);
+        Collection<ColumnInfo> info = getColumnInfo(table);
+
+        String separator = "";
+        for (ColumnInfo col : info)
+        {
+            // Only update this column if it has changed
+            if (!col.isPrimaryKey())
+            {
+                if (row.hasColumnChanged(col.getName()))
                 {
-                    log.error("SQL executeUpdate Error - ",sqle);
-                    throw sqle;
+                    sql.append(separator).append(col.getName()).append(" = ?");
+                    columns.add(col);
+                    separator = ", ";
                 }
             }
         }
+
+        if (columns.isEmpty())
+        {
+            return null;
+        }
+
+        sql.append(" where ").append(pk.getName()).append(" = ?");
+        columns.add(pk);
+
+        return sql.toString();
+    }
+
+    /**
+     * Group rows by their table, preserving the order of the rows.
+     */
+    private static Map<String, List<TableRow>> groupByTable(List<TableRow> rows)
+    {
+        Map<String, List<TableRow>> byTable = new LinkedHashMap<String, List<TableRow>>();
+
+        for (TableRow row : rows)
+        {
+            if (null == row.getTable())
+            {
+                throw new IllegalArgumentException("Row not associated with a table");
+            }
+
+            String table = canonicalize(row.getTable());
+            List<TableRow> tableRows = byTable.get(table);
+            if (tableRows == null)
+            {
+                tableRows = new ArrayList<TableRow>();
+                byTable.put(table, tableRows);
+            }
+            tableRows.add(row);
+        }
+
+        return byTable;
     }
 
     /**
@@ -1742,12 +2174,18 @@ public class DatabaseManager
         ResultSet rs = null;
         try
         {
-            statement = context.getDBConnection().prepareStatement(sql);
+            statement = prepareCachedStatement(context, sql);
         	loadParameters(statement, params, row);
+            context.incrementStatementCount();
             rs = statement.executeQuery();
             rs.next();
             return rs.getInt(1);
         }
+        catch (SQLException sqle)
+        {
+            context.removeCachedStatement(sql);
+            throw sqle;
+        }
         finally
         {
             if (rs != null)
@@ -1763,18 +2201,7 @@ public class DatabaseManager
                 }
             }
 
-            if (statement != null)
-            {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException sqle)
-                {
-                    log.error("SQL doInsertPostgres statement close Error - ",sqle);
-                    throw sqle;
-                }
-            }
+            releaseStatement(context, sql, statement);
         }
     }
 
@@ -1787,16 +2214,55 @@ public class DatabaseManager
      */
     private static int doInsertGeneric(Context context, TableRow row) throws SQLException
     {
-        int newID = -1;
         String table = row.getTable();
+        int newID = getNextIDs(context, table, 1)[0];
+
+        // Set the ID in the table row object
+        row.setColumn(getPrimaryKeyColumn(table), newID);
+
+        execute(context, getGenericInsertSQL(table), getColumnInfo(table), row);
+        return newID;
+    }
+
+    /**
+     * Allocate new primary key values for the given table, using the
+     * "getnextid" SQL function in Postgres, or directly with sequences in
+     * Oracle. Postgres and Oracle allocate all of the IDs in one query, other
+     * databases one query per ID.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param table
+     *            The table to allocate IDs for
+     * @param count
+     *            The number of IDs to allocate
+     * @return The new IDs
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static int[] getNextIDs(Context context, String table, int count) throws SQLException
+    {
+        int[] ids = new int[count];
+        int found = 0;
         PreparedStatement statement = null;
         ResultSet rs = null;
 
+        // H2 also reports isOracle, but does not understand CONNECT BY
+        boolean bulk = isPostgres || DBMS_ORACLE.equals(dbms_keyword);
+
         try
         {
-            // Get an ID (primary key) for this row by using the "getnextid"
-            // SQL function in Postgres, or directly with sequences in Oracle
-            if (isOracle)
+            if (isPostgres)
+            {
+                statement = context.getDBConnection().prepareStatement("SELECT getnextid(?) FROM generate_series(1, ?)");
+                loadParameters(statement, new Object[] { table, count });
+            }
+            else if (bulk)
+            {
+                statement = context.getDBConnection().prepareStatement("SELECT " + table + "_seq" + ".nextval FROM dual CONNECT BY level <= ?");
+                loadParameters(statement, new Object[] { count });
+            }
+            else if (isOracle)
             {
                 statement = context.getDBConnection().prepareStatement("SELECT " + table + "_seq" + ".nextval FROM dual");
             }
@@ -1805,9 +2271,30 @@ public class DatabaseManager
                 statement = context.getDBConnection().prepareStatement("SELECT getnextid(?) AS result");
                 loadParameters(statement, new Object[] { table });
             }
-            rs = statement.executeQuery();
-            rs.next();
-            newID = rs.getInt(1);
+
+            while (found < count)
+            {
+                if (rs == null)
+                {
+                    context.incrementStatementCount();
+                    rs = statement.executeQuery();
+                }
+
+                if (rs.next())
+                {
+                    ids[found++] = rs.getInt(1);
+                }
+                else if (bulk)
+                {
+                    break;
+                }
+                else
+                {
+                    // One ID per query on other databases
+                    rs.close();
+                    rs = null;
+                }
+            }
         }
         finally
         {
@@ -1822,18 +2309,30 @@ public class DatabaseManager
             }
         }
 
-        if (newID < 0)
+        if (found < count || (count > 0 && ids[0] < 0))
         {
             throw new SQLException("Unable to retrieve sequence ID");
         }
 
-        // Set the ID in the table row object
-        row.setColumn(getPrimaryKeyColumn(table), newID);
-        Collection<ColumnInfo> info = getColumnInfo(table);
+        return ids;
+    }
 
-        String sql = insertSQL.get(table);
+    /**
+     * Return the SQL to insert all columns of a row into the given table,
+     * including a previously assigned primary key.
+     *
+     * @param table
+     *            The name of the table
+     * @return The insert SQL
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static String getGenericInsertSQL(String table) throws SQLException
+    {
+        String sql = genericInsertSQL.get(table);
         if (sql == null)
         {
+            Collection<ColumnInfo> info = getColumnInfo(table);
             StringBuilder sqlBuilder = new StringBuilder().append("INSERT INTO ").append(table).append(" ( ");
 
             boolean firstColumn = true;
@@ -1870,11 +2369,10 @@ public class DatabaseManager
             // Watch the syntax
             sqlBuilder.append(")");
             sql = sqlBuilder.toString();
-            insertSQL.put(table, sql);
+            genericInsertSQL.put(table, sql);
         }
 
-        execute(context.getDBConnection(), sql, info, row);
-        return newID;
+        return sql;
     }
 
     public static void applyOffsetAndLimit(StringBuffer query, List<Serializable> params, int offset, int limit){
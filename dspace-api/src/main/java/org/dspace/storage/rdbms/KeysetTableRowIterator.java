@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.dspace.core.Context;
+
+/**
+ * Iterates over the rows of a table in order of the primary key, running one
+ * query per page of rows. Each page starts after the primary key of the last
+ * row read, so only one page is held open at a time and the iteration
+ * survives commits between pages.
+ *
+ * @see DatabaseManager#queryTableByKey(Context, String, String, Object...)
+ */
+class KeysetTableRowIterator extends TableRowIterator
+{
+    private final Context context;
+
+    private final String table;
+
+    /** The page query; its last two parameters are the key and the page size */
+    private final String query;
+
+    private final String keyColumn;
+
+    private final int pageSize;
+
+    /** The condition parameters, followed by room for the key and page size */
+    private final Object[] parameters;
+
+    /** The current page, or null before the first page is read */
+    private TableRowIterator page;
+
+    /** Number of rows read from the current page */
+    private int pageRows;
+
+    /** Primary key of the last row read */
+    private int lastKey = Integer.MIN_VALUE;
+
+    /** True once the last page has been read or the iterator is closed */
+    private boolean done = false;
+
+    KeysetTableRowIterator(Context context, String table, String query, String keyColumn,
+            int pageSize, Object[] parameters)
+    {
+        this.context = context;
+        this.table = table;
+        this.query = query;
+        this.keyColumn = keyColumn;
+        this.pageSize = pageSize;
+        this.parameters = Arrays.copyOf(parameters, parameters.length + 2);
+        this.parameters[parameters.length + 1] = Integer.valueOf(pageSize);
+    }
+
+    @Override
+    public TableRow next() throws SQLException
+    {
+        if (!hasNext())
+        {
+            return null;
+        }
+
+        TableRow row = page.next();
+        pageRows++;
+        lastKey = row.getIntColumn(keyColumn);
+        return row;
+    }
+
+    @Override
+    public boolean hasNext() throws SQLException
+    {
+        while (!done)
+        {
+            if (page != null)
+            {
+                if (page.hasNext())
+                {
+                    return true;
+                }
+
+                // A short page is the last one
+                if (pageRows < pageSize)
+                {
+                    close();
+                    break;
+                }
+            }
+
+            parameters[parameters.length - 2] = Integer.valueOf(lastKey);
+            page = DatabaseManager.doQueryTable(context, table, query, pageSize, parameters);
+            pageRows = 0;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void close()
+    {
+        if (page != null)
+        {
+            page.close();
+        }
+        done = true;
+    }
+}
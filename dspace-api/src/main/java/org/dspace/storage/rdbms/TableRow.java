@@ -8,10 +8,9 @@
 package org.dspace.storage.rdbms;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents a database row.
@@ -27,14 +26,18 @@ public class TableRow
     /** The name of the database table containing this row */
     private String table;
 
+    /** The columns of this row, shared with other rows of the same shape */
+    private final ColumnLayout layout;
+
     /**
-     * A map of column names to column values. The key of the map is a String,
-     * the column name; the value is an Object, either an Integer, Boolean,
-     * Date, or String. If the value is NULL_OBJECT, then the column was NULL.
+     * The column values, in the order of the layout. Each value is an Object,
+     * either an Integer, Boolean, Date, or String. If the value is
+     * NULL_OBJECT, then the column was NULL.
      */
-    private Map<String, Object> data = new HashMap<String, Object>();
+    private final Object[] values;
 
-    private Map<String, Boolean> changed = new HashMap<String, Boolean>();
+    /** The positions of the columns which have been updated */
+    private final BitSet changed;
 
     /**
      * Constructor
@@ -48,15 +51,27 @@ public class TableRow
      *            IllegalArgumentException to be thrown.
      */
     public TableRow(String table, List<String> columns)
+    {
+        this(table, ColumnLayout.forColumns(columns));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param table
+     *            The name of the database table containing this row.
+     * @param layout
+     *            The columns of this row.
+     */
+    TableRow(String table, ColumnLayout layout)
     {
         this.table = table;
+        this.layout = layout;
+        this.values = new Object[layout.size()];
+        this.changed = new BitSet(layout.size());
 
-        for (String column : columns)
-        {
-            String canonicalized = ColumnInfo.canonicalize(column);
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        Arrays.fill(values, NULL_OBJECT);
+        changed.set(0, layout.size());
     }
 
     /**
@@ -83,14 +98,7 @@ public class TableRow
      */
     public boolean hasColumn(String column)
     {
-        try
-        {
-            return canonicalizeAndCheck(column) != null;
-        }
-        catch (IllegalArgumentException e)
-        {
-            return false;
-        }
+        return layout.indexOf(column) >= 0;
     }
 
     /**
@@ -102,12 +110,13 @@ public class TableRow
      */
     public boolean hasColumnChanged(String column)
     {
-        return hasColumnChangedCanonicalized(ColumnInfo.canonicalize(column));
+        return hasColumnChangedCanonicalized(column);
     }
 
     boolean hasColumnChangedCanonicalized(String column)
     {
-        return changed.get(column) == Boolean.TRUE;
+        int index = layout.indexOf(column);
+        return index >= 0 && changed.get(index);
     }
 
     /**
@@ -119,12 +128,13 @@ public class TableRow
      */
     public boolean isColumnNull(String column)
     {
-        return isColumnNullCanonicalized(canonicalizeAndCheck(column));
+        return values[indexOf(column)] == NULL_OBJECT;
     }
 
     boolean isColumnNullCanonicalized(String column)
     {
-        return data.get(column) == NULL_OBJECT;
+        int index = layout.indexOf(column);
+        return index >= 0 && values[index] == NULL_OBJECT;
     }
 
     /**
@@ -140,13 +150,13 @@ public class TableRow
      */
     public int getIntColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -189,13 +199,13 @@ public class TableRow
      */
     public long getLongColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -233,11 +243,11 @@ public class TableRow
      */
     public BigDecimal getNumericColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
             return BigDecimal.valueOf(-1);
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
             throw new IllegalArgumentException("Column " + column + " not present");
@@ -266,13 +276,13 @@ public class TableRow
      */
     public double getDoubleColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -300,13 +310,13 @@ public class TableRow
      */
     public String getStringColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -334,13 +344,13 @@ public class TableRow
      */
     public boolean getBooleanColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
         {
             return false;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         // make sure that we tolerate integers or booleans
         if (value == null)
@@ -390,13 +400,13 @@ public class TableRow
      */
     public java.util.Date getDateColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = indexOf(column);
+        if (values[index] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -421,11 +431,11 @@ public class TableRow
      */
     public void setColumnNull(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (data.get(canonicalized) != NULL_OBJECT)
+        int index = indexOf(column);
+        if (values[index] != NULL_OBJECT)
         {
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = NULL_OBJECT;
+            changed.set(index);
         }
     }
     /**
@@ -440,25 +450,25 @@ public class TableRow
      */
     public void setColumn(String column, boolean b)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         if (DatabaseManager.isOracle())
         {
             // if oracle, use 1 or 0 for true/false
             Integer value = b ? Integer.valueOf(1) : Integer.valueOf(0);
-            if (!value.equals(data.get(canonicalized)))
+            if (!value.equals(values[index]))
             {
-                data.put(canonicalized, value);
-                changed.put(canonicalized, Boolean.TRUE);
+                values[index] = value;
+                changed.set(index);
             }
         }
         else
         {
             // default to postgres true/false
             Boolean value = b ? Boolean.TRUE : Boolean.FALSE;
-            if (!value.equals(data.get(canonicalized)))
+            if (!value.equals(values[index]))
             {
-                data.put(canonicalized, value);
-                changed.put(canonicalized, Boolean.TRUE);
+                values[index] = value;
+                changed.set(index);
             }
         }
     }
@@ -475,12 +485,12 @@ public class TableRow
      */
     public void setColumn(String column, String s)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         Object value = (s == null) ? NULL_OBJECT : s;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -496,12 +506,12 @@ public class TableRow
      */
     public void setColumn(String column, int i)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         Integer value = Integer.valueOf(i);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -517,12 +527,12 @@ public class TableRow
      */
     public void setColumn(String column, long l)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         Long value = Long.valueOf(l);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -537,12 +547,12 @@ public class TableRow
      */
     public void setColumn(String column, BigDecimal bd)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         Object value = (bd == null) ? NULL_OBJECT : bd;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, bd);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -558,12 +568,12 @@ public class TableRow
      */
     public void setColumn(String column, double d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         Double value = new Double(d);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -580,12 +590,12 @@ public class TableRow
      */
     public void setColumn(String column, java.util.Date d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = indexOf(column);
         Object value = (d == null) ? NULL_OBJECT : d;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -593,6 +603,30 @@ public class TableRow
     // Utility methods
     ////////////////////////////////////////
 
+    /**
+     * Return a copy of this row, sharing no mutable state with it.
+     *
+     * @return the copy
+     */
+    public TableRow copy()
+    {
+        TableRow copy = new TableRow(table, layout);
+
+        for (int i = 0; i < values.length; i++)
+        {
+            Object value = values[i];
+            if (value instanceof java.util.Date)
+            {
+                value = ((java.util.Date) value).clone();
+            }
+            copy.values[i] = value;
+        }
+        copy.changed.clear();
+        copy.changed.or(changed);
+
+        return copy;
+    }
+
     /**
      * Return a String representation of this object.
      * 
@@ -614,11 +648,10 @@ public class TableRow
     	
     	result.append(NEWLINE);
 
-        for (Iterator iterator = data.keySet().iterator(); iterator.hasNext();)
+        for (int i = 0; i < values.length; i++)
         {
-            String column = (String) iterator.next();
-            result.append("\t").append(column).append(" = ").append(
-                    isColumnNull(column) ? "NULL" : data.get(column)).append(
+            result.append("\t").append(layout.getColumn(i)).append(" = ").append(
+                    (values[i] == NULL_OBJECT) ? "NULL" : values[i]).append(
                     NEWLINE);
         }
 
@@ -632,7 +665,13 @@ public class TableRow
      */
     public int hashCode()
     {
-        return toString().hashCode();
+        // Independent of the order of the columns, as equals() is
+        int hash = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            hash += layout.getColumn(i).hashCode() ^ values[i].hashCode();
+        }
+        return hash;
     }
 
     /**
@@ -648,23 +687,38 @@ public class TableRow
             return false;
         }
 
-        return data.equals(((TableRow) obj).data);
-    }
+        TableRow other = (TableRow) obj;
+        if (other.layout == layout)
+        {
+            return Arrays.equals(values, other.values);
+        }
 
-    private String canonicalizeAndCheck(String column)
-    {
-        if (data.containsKey(column))
+        if (!layout.hasSameColumns(other.layout))
         {
-            return column;
+            return false;
         }
 
-        String canonicalized = ColumnInfo.canonicalize(column);
-        if (data.containsKey(canonicalized))
+        for (int i = 0; i < values.length; i++)
         {
-            return canonicalized;
+            if (!values[i].equals(other.values[other.layout.indexOf(layout.getColumn(i))]))
+            {
+                return false;
+            }
         }
 
-        throw new IllegalArgumentException("No such column '" + canonicalized + "'");
+        return true;
+    }
+
+    private int indexOf(String column)
+    {
+        int index = layout.indexOf(column);
+
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("No such column '" + ColumnInfo.canonicalize(column) + "'");
+        }
+
+        return index;
     }
 
     /**
@@ -676,9 +730,6 @@ public class TableRow
      */
     void resetChanged()
     {
-        for (String column : changed.keySet())
-        {
-            changed.put(column, Boolean.FALSE);
-        }
+        changed.clear();
     }
 }
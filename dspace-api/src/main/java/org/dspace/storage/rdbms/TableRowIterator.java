@@ -55,6 +55,15 @@ public class TableRowIterator
      */
     List<String> columnNames = null;
 
+    /**
+     * Constructor for iterators which do not read from a single ResultSet
+     */
+    TableRowIterator()
+    {
+        this.results = null;
+        statemt = null;
+    }
+
     /**
      * Constructor
      * 
@@ -126,6 +135,14 @@ public class TableRowIterator
         statemt = st;
     }
 
+    /**
+     * @return the statement used to do the query, or null if it was not set
+     */
+    Statement getStatement()
+    {
+        return statemt;
+    }
+
     /**
      * Advance to the next row and return it. Returns null if there are no more
      * rows.
@@ -0,0 +1,28 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace;
+
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Rule;
+
+/**
+ * This is the base class for benchmarks, which compare implementations
+ * rather than check them and so are left out of the normal test run: their
+ * names end with "Benchmark", which the surefire plugin does not pick up.
+ * A benchmark is run on demand, for example with
+ * <code>mvn test -Dmaven.test.skip=false -Dtest=TableRowBenchmark</code>.
+ * <P>
+ * Benchmarks need neither the database nor the DSpace kernel. Contiperf
+ * times them and writes its report to <code>target/contiperf-reports</code>;
+ * they assert no time limits, which depend on the machine.
+ */
+public abstract class AbstractBenchmark
+{
+    @Rule
+    public ContiPerfRule contiperfRules = new ContiPerfRule();
+}
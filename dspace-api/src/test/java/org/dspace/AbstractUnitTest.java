@@ -7,11 +7,14 @@
  */
 package org.dspace;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
 import java.util.TimeZone;
 
@@ -228,6 +231,60 @@ public class AbstractUnitTest
     }
     */
 
+    /**
+     * Some work on a list of objects, whose statements are counted by
+     * {@link AbstractUnitTest#countStatements}.
+     */
+    protected abstract static class CountedWork
+    {
+        /**
+         * Set up the work in the context, e.g. find the objects. The
+         * statements it takes are not counted. Does nothing by default.
+         */
+        protected void prepare(Context c, List<Integer> ids) throws Exception
+        {
+        }
+
+        /**
+         * Do the work whose statements are counted.
+         */
+        protected abstract void run(Context c, List<Integer> ids) throws Exception;
+    }
+
+    /**
+     * Do some work on a list of ids in a new context, and count the
+     * statements it takes once prepared.
+     */
+    protected long countStatements(List<Integer> ids, CountedWork work) throws Exception
+    {
+        Context c = new Context();
+        try
+        {
+            work.prepare(c, ids);
+            long before = c.getStatementCount();
+            work.run(c, ids);
+            return c.getStatementCount() - before;
+        }
+        finally
+        {
+            c.abort();
+        }
+    }
+
+    /**
+     * Check some work takes the same number of statements, and more than
+     * none, for the first two ids as for all of them. The assertions are
+     * numbered 0 and 1 after the message.
+     */
+    protected void assertConstantStatementCount(String message, List<Integer> ids, CountedWork work)
+        throws Exception
+    {
+        long small = countStatements(ids.subList(0, 2), work);
+        long large = countStatements(ids, work);
+        assertTrue(message + " 0", small > 0);
+        assertEquals(message + " 1", small, large);
+    }
+
     /**
      *  Utility method to cleanup a created Context object (to save memory).
      *  This can also be used by individual tests to cleanup context objects they create.
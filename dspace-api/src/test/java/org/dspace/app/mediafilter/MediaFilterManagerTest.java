@@ -0,0 +1,187 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.mediafilter;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mockit.Mock;
+import mockit.MockUp;
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Item;
+import org.dspace.core.Context;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for the workers of class MediaFilterManager, which filter items
+ * in their own contexts when more than one thread is asked for. The filters
+ * themselves are replaced by a mock recording which items they were run on.
+ */
+public class MediaFilterManagerTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(MediaFilterManagerTest.class);
+
+    /** Items to filter, committed so that the workers' contexts see them */
+    private List<Item> items;
+
+    /** IDs of the items filtered */
+    private Set<Integer> filtered;
+
+    private int savedThreads;
+
+    private int savedBatchSize;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            items = new ArrayList<Item>();
+            for (int i = 0; i < 7; i++)
+            {
+                Item item = Item.create(context);
+                item.setArchived(true);
+                item.update();
+                items.add(item);
+            }
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (AuthorizeException ex)
+        {
+            log.error("Authorization Error in init", ex);
+            fail("Authorization Error in init: " + ex.getMessage());
+        }
+        catch (SQLException ex)
+        {
+            log.error("SQL Error in init", ex);
+            fail("SQL Error in init: " + ex.getMessage());
+        }
+
+        filtered = Collections.synchronizedSet(new HashSet<Integer>());
+        savedThreads = MediaFilterManager.threads;
+        savedBatchSize = MediaFilterManager.batchSize;
+        MediaFilterManager.threads = 3;
+        MediaFilterManager.batchSize = 2;
+        MediaFilterManager.processed.set(0);
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        MediaFilterManager.threads = savedThreads;
+        MediaFilterManager.batchSize = savedBatchSize;
+        MediaFilterManager.processed.set(0);
+        items = null;
+        filtered = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of the workers, of class MediaFilterManager: every item handed
+     * to them is filtered once.
+     */
+    @Test
+    public void testWorkers() throws Exception
+    {
+        new MockUp<MediaFilterManager>()
+        {
+            @Mock
+            boolean applyFilters(Context c, Item item)
+            {
+                filtered.add(item.getID());
+                MediaFilterManager.processed.incrementAndGet();
+                return true;
+            }
+        };
+
+        MediaFilterManager.startWorkers();
+        for (Item item : items)
+        {
+            MediaFilterManager.applyFiltersItem(context, item);
+        }
+        MediaFilterManager.finishWorkers();
+
+        assertThat("testWorkers 0", filtered.size(), equalTo(items.size()));
+        assertThat("testWorkers 1", MediaFilterManager.processed.get(), equalTo(items.size()));
+    }
+
+    /**
+     * Test of the workers, of class MediaFilterManager, when an item fails:
+     * the other items are still filtered, including those rolled back with
+     * it, and the failure is reported once the workers are finished.
+     */
+    @Test
+    public void testWorkersAfterFailure() throws Exception
+    {
+        final int failing = items.get(2).getID();
+        new MockUp<MediaFilterManager>()
+        {
+            @Mock
+            boolean applyFilters(Context c, Item item) throws IOException
+            {
+                if (item.getID() == failing)
+                {
+                    throw new IOException("testWorkersAfterFailure");
+                }
+                filtered.add(item.getID());
+                MediaFilterManager.processed.incrementAndGet();
+                return true;
+            }
+        };
+
+        MediaFilterManager.startWorkers();
+        for (Item item : items)
+        {
+            MediaFilterManager.applyFiltersItem(context, item);
+        }
+        try
+        {
+            MediaFilterManager.finishWorkers();
+            fail("testWorkersAfterFailure 0");
+        }
+        catch (IOException e)
+        {
+            assertThat("testWorkersAfterFailure 1", e.getMessage(), equalTo("testWorkersAfterFailure"));
+        }
+
+        assertThat("testWorkersAfterFailure 2", filtered.size(), equalTo(items.size() - 1));
+        assertFalse("testWorkersAfterFailure 3", filtered.contains(failing));
+        assertThat("testWorkersAfterFailure 4", MediaFilterManager.processed.get(), equalTo(items.size() - 1));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.mediafilter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.apache.log4j.Logger;
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractBenchmark;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Measures the peak heap {@link PDFFilter} needs to extract the text of a
+ * large document in memory and streamed.
+ */
+public class PDFFilterBenchmark extends AbstractBenchmark
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(PDFFilterBenchmark.class);
+
+    /** Number of pages in the document */
+    private static final int PAGES = 2000;
+
+    private static File pdf;
+
+    @BeforeClass
+    public static void createPdf() throws Exception
+    {
+        pdf = PDFFilterTest.createPdf(PAGES);
+    }
+
+    @AfterClass
+    public static void deletePdf()
+    {
+        pdf.delete();
+    }
+
+    /**
+     * Extract the text in memory and streamed, and log the peak heap of
+     * each. The text is read as the bitstream storage would, without
+     * keeping it.
+     */
+    @Test
+    @PerfTest(invocations = 3, threads = 1)
+    public void testPeakHeap() throws Exception
+    {
+        PDFFilter filter = new PDFFilter();
+
+        resetPeakHeap();
+        long bufferedLength = PDFFilterTest.drain(filter.getText(new FileInputStream(pdf), false, 0));
+        long buffered = getPeakHeap();
+
+        resetPeakHeap();
+        long streamedLength = PDFFilterTest.drain(filter.getTextStream(new FileInputStream(pdf), 0));
+        long streamed = getPeakHeap();
+
+        log.info("Extracted " + bufferedLength + " bytes of text from " + PAGES
+                + " pages (" + pdf.length() + " bytes): peak heap "
+                + (buffered / 1024) + "KB in memory, " + (streamed / 1024) + "KB streamed");
+        assertEquals("testPeakHeap", bufferedLength, streamedLength);
+    }
+
+    private static void resetPeakHeap()
+    {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * Return the peak use of the heap since the last reset, leaving out the
+     * eden space, which fills up the same whatever is extracted.
+     */
+    private static long getPeakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && !pool.getName().contains("Eden"))
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
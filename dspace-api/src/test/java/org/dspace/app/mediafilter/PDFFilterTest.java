@@ -0,0 +1,175 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.mediafilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the text extracted by {@link PDFFilter} in memory with the text
+ * it streams.
+ */
+public class PDFFilterTest
+{
+    /** Number of pages in the large document */
+    private static final int LARGE_PAGES = 2000;
+
+    private static final String LINE = "The quick brown fox jumps over the lazy dog, again and again and again.";
+
+    private static File smallPdf;
+
+    private static File largePdf;
+
+    @BeforeClass
+    public static void createPdfs() throws Exception
+    {
+        smallPdf = createPdf(PDFFilter.PAGES_PER_RANGE * 3 + 1);
+        largePdf = createPdf(LARGE_PAGES);
+    }
+
+    @AfterClass
+    public static void deletePdfs()
+    {
+        smallPdf.delete();
+        largePdf.delete();
+    }
+
+    /**
+     * Test of getTextStream method, of class PDFFilter.
+     */
+    @Test
+    public void testGetTextStream() throws Exception
+    {
+        PDFFilter filter = new PDFFilter();
+        byte[] expected = read(filter.getText(new FileInputStream(smallPdf), false, 0));
+        byte[] streamed = read(filter.getTextStream(new FileInputStream(smallPdf), 0));
+
+        assertTrue("testGetTextStream empty", expected.length > LINE.length());
+        assertArrayEquals("testGetTextStream", expected, streamed);
+    }
+
+    /**
+     * Test of the text size limit, of class PDFFilter.
+     */
+    @Test
+    public void testMaxTextSize() throws Exception
+    {
+        PDFFilter filter = new PDFFilter();
+        assertEquals("testMaxTextSize buffered", 1000,
+                read(filter.getText(new FileInputStream(smallPdf), false, 1000)).length);
+        assertEquals("testMaxTextSize streamed", 1000,
+                read(filter.getTextStream(new FileInputStream(smallPdf), 1000)).length);
+    }
+
+    /**
+     * Test of getTextStream method, of class PDFFilter, with a document much
+     * larger than the pipe: the text is read as the bitstream storage would,
+     * without keeping it.
+     */
+    @Test
+    public void testGetTextStreamLarge() throws Exception
+    {
+        PDFFilter filter = new PDFFilter();
+        long bufferedLength = drain(filter.getText(new FileInputStream(largePdf), false, 0));
+        long streamedLength = drain(filter.getTextStream(new FileInputStream(largePdf), 0));
+
+        assertTrue("testGetTextStreamLarge empty", bufferedLength > (long) LARGE_PAGES * LINE.length());
+        assertEquals("testGetTextStreamLarge", bufferedLength, streamedLength);
+    }
+
+    /**
+     * Create a temporary PDF of the given number of pages of text.
+     */
+    static File createPdf(int pages) throws Exception
+    {
+        File file = File.createTempFile("pdffiltertest", ".pdf");
+        PDDocument doc = new PDDocument();
+        try
+        {
+            for (int i = 0; i < pages; i++)
+            {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+
+                PDPageContentStream content = new PDPageContentStream(doc, page);
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 10);
+                content.moveTextPositionByAmount(40, 750);
+                content.drawString("Page " + (i + 1));
+                for (int j = 0; j < 55; j++)
+                {
+                    content.moveTextPositionByAmount(0, -12);
+                    content.drawString(LINE);
+                }
+                content.endText();
+                content.close();
+            }
+            doc.save(file);
+        }
+        finally
+        {
+            doc.close();
+        }
+        return file;
+    }
+
+    private static byte[] read(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, count);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read a stream to the end without keeping it.
+     *
+     * @return the number of bytes read
+     */
+    static long drain(InputStream in) throws IOException
+    {
+        long total = 0;
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1)
+            {
+                total += count;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return total;
+    }
+}
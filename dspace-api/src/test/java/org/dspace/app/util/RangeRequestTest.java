@@ -0,0 +1,156 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RangeRequest}.
+ */
+public class RangeRequestTest
+{
+    private static final String ETAG = RangeRequest.getETag("0123456789abcdef");
+
+    private static final String DATE = "Sun, 06 Nov 1994 08:49:37 GMT";
+
+    private static final long MODIFIED = 784111777000L;
+
+    /**
+     * Test of parse method without a usable Range header, of class RangeRequest.
+     */
+    @Test
+    public void testWholeBitstream()
+    {
+        String[] ignored = { null, "items=0-9", "bytes=9-0", "bytes=a-b", "bytes=5", "bytes=-" };
+        for (String header : ignored)
+        {
+            RangeRequest range = RangeRequest.parse(header, null, ETAG, MODIFIED, 100);
+            assertEquals("testWholeBitstream " + header, 200, range.getStatus());
+            assertFalse("testWholeBitstream partial " + header, range.isPartial());
+            assertTrue("testWholeBitstream start " + header, range.includesStart());
+            assertNull("testWholeBitstream range " + header, range.getContentRange());
+            assertEquals("testWholeBitstream length " + header, 100, range.getContentLength("text/plain"));
+        }
+    }
+
+    /**
+     * Test of parse method with one range, of class RangeRequest.
+     */
+    @Test
+    public void testSingleRange()
+    {
+        assertEquals("testSingleRange 0", "bytes 0-9/100",
+                RangeRequest.parse("bytes=0-9", null, null, -1, 100).getContentRange());
+        assertEquals("testSingleRange 1", "bytes 90-99/100",
+                RangeRequest.parse("bytes=90-", null, null, -1, 100).getContentRange());
+        assertEquals("testSingleRange 2", "bytes 80-99/100",
+                RangeRequest.parse("bytes=-20", null, null, -1, 100).getContentRange());
+        assertEquals("testSingleRange 3", "bytes 0-99/100",
+                RangeRequest.parse("bytes=-500", null, null, -1, 100).getContentRange());
+        assertEquals("testSingleRange 4", "bytes 50-99/100",
+                RangeRequest.parse("BYTES=50-1000", null, null, -1, 100).getContentRange());
+
+        RangeRequest range = RangeRequest.parse("bytes=10-19", null, null, -1, 100);
+        assertEquals("testSingleRange status", 206, range.getStatus());
+        assertFalse("testSingleRange multipart", range.isMultipart());
+        assertFalse("testSingleRange start", range.includesStart());
+        assertEquals("testSingleRange length", 10, range.getContentLength("text/plain"));
+        assertEquals("testSingleRange type", "text/plain", range.getContentType("text/plain"));
+    }
+
+    /**
+     * Test of parse method with ranges past the end, of class RangeRequest.
+     */
+    @Test
+    public void testUnsatisfiable()
+    {
+        RangeRequest range = RangeRequest.parse("bytes=100-199, -0", null, null, -1, 100);
+        assertEquals("testUnsatisfiable status", 416, range.getStatus());
+        assertFalse("testUnsatisfiable satisfiable", range.isSatisfiable());
+        assertEquals("testUnsatisfiable range", "bytes */100", range.getContentRange());
+
+        range = RangeRequest.parse("bytes=100-199, 0-0", null, null, -1, 100);
+        assertEquals("testUnsatisfiable some", "bytes 0-0/100", range.getContentRange());
+    }
+
+    /**
+     * Test of parse method with several ranges, of class RangeRequest.
+     */
+    @Test
+    public void testMerge()
+    {
+        RangeRequest range = RangeRequest.parse("bytes=50-59, 0-9, 5-14, 15-19", null, null, -1, 100);
+        assertTrue("testMerge multipart", range.isMultipart());
+        assertEquals("testMerge count", 2, range.getRanges().size());
+        assertEquals("testMerge first", 0, range.getRanges().get(0).getFirst());
+        assertEquals("testMerge last", 19, range.getRanges().get(0).getLast());
+        assertEquals("testMerge second", 50, range.getRanges().get(1).getFirst());
+        assertTrue("testMerge start", range.includesStart());
+
+        range = RangeRequest.parse("bytes=0-49, 40-", null, null, -1, 100);
+        assertFalse("testMerge overlap", range.isMultipart());
+        assertEquals("testMerge overlap range", "bytes 0-99/100", range.getContentRange());
+
+        StringBuilder many = new StringBuilder("bytes=");
+        for (int i = 0; i < 50; i++)
+        {
+            many.append(i * 2).append('-').append(i * 2).append(',');
+        }
+        assertFalse("testMerge too many",
+                RangeRequest.parse(many.toString(), null, null, -1, 100).isPartial());
+    }
+
+    /**
+     * Test of parse method with an If-Range header, of class RangeRequest.
+     */
+    @Test
+    public void testIfRange()
+    {
+        assertTrue("testIfRange etag",
+                RangeRequest.parse("bytes=0-9", ETAG, ETAG, MODIFIED, 100).isPartial());
+        assertFalse("testIfRange other etag",
+                RangeRequest.parse("bytes=0-9", "\"other\"", ETAG, MODIFIED, 100).isPartial());
+        assertFalse("testIfRange weak etag",
+                RangeRequest.parse("bytes=0-9", "W/" + ETAG, ETAG, MODIFIED, 100).isPartial());
+        assertTrue("testIfRange date",
+                RangeRequest.parse("bytes=0-9", DATE, ETAG, MODIFIED + 500, 100).isPartial());
+        assertFalse("testIfRange modified",
+                RangeRequest.parse("bytes=0-9", DATE, ETAG, MODIFIED + 5000, 100).isPartial());
+        assertFalse("testIfRange no date",
+                RangeRequest.parse("bytes=0-9", DATE, ETAG, -1, 100).isPartial());
+    }
+
+    /**
+     * Test of write and getContentLength methods, of class RangeRequest.
+     */
+    @Test
+    public void testWrite() throws Exception
+    {
+        RangeRequest range = RangeRequest.parse("bytes=0-2, 7-9", null, null, -1, 10);
+        InputStream[] parts = {
+                new ByteArrayInputStream("abc".getBytes("US-ASCII")),
+                new ByteArrayInputStream("hij".getBytes("US-ASCII")) };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        range.write(parts, "text/plain", out);
+        String body = out.toString("US-ASCII");
+
+        assertEquals("testWrite length", range.getContentLength("text/plain"), out.size());
+        assertTrue("testWrite type", range.getContentType("text/plain").startsWith("multipart/byteranges; boundary="));
+        String boundary = range.getContentType("text/plain").substring("multipart/byteranges; boundary=".length());
+        assertTrue("testWrite first", body.contains("Content-Range: bytes 0-2/10\r\n\r\nabc\r\n--" + boundary));
+        assertTrue("testWrite second", body.contains("Content-Range: bytes 7-9/10\r\n\r\nhij"));
+        assertTrue("testWrite end", body.endsWith("\r\n--" + boundary + "--\r\n"));
+    }
+}
@@ -18,6 +18,8 @@ import org.dspace.authorize.AuthorizeManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.eperson.Group;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
 import org.junit.*;
 import static org.junit.Assert.* ;
 import static org.hamcrest.CoreMatchers.*;
@@ -792,6 +794,94 @@ public class CommunityTest extends AbstractDSpaceObjectTest
         assertThat("testGetAllCollections 5", c.getAllCollections()[1], equalTo(collOfC));
     }
 
+    /**
+     * Test of the hierarchy snapshot read by other contexts, of class
+     * Community: it matches the committed hierarchy, and is read again once
+     * the hierarchy changes.
+     */
+    @Test
+    public void testHierarchySnapshot() throws Exception
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow current Community ADD perms
+            AuthorizeManager.authorizeAction((Context) any, (Community) any,
+                    Constants.ADD); result = null;
+            // Allow *parent* Community ADD perms
+            AuthorizeManager.authorizeActionBoolean((Context) any, (Community) any,
+                    Constants.ADD); result = true;
+        }};
+
+        //community has a collection and a subcommunity, subcommunity has a collection
+        Collection collOfC = c.createCollection();
+        Community sub = Community.create(c, context);
+        Collection collOfSub = sub.createCollection();
+        assertThat("testHierarchySnapshot 0", CommunityHierarchy.get(context), nullValue());
+        context.commit();
+
+        Context other = new Context();
+        try
+        {
+            CommunityHierarchy hierarchy = CommunityHierarchy.get(other);
+            assertThat("testHierarchySnapshot 1", hierarchy, notNullValue());
+            assertThat("testHierarchySnapshot 2", hierarchy.getParent(sub.getID()), equalTo(c.getID()));
+            assertThat("testHierarchySnapshot 3", hierarchy.getParent(c.getID()), equalTo(-1));
+            assertTrue("testHierarchySnapshot 4", hierarchy.isAncestor(c.getID(), sub.getID()));
+            assertThat("testHierarchySnapshot 5", hierarchy.getAllCollections(c.getID()),
+                    equalTo(new int[] { collOfSub.getID(), collOfC.getID() }));
+            assertThat("testHierarchySnapshot 6", hierarchy.getCommunities(collOfSub.getID()),
+                    equalTo(new int[] { sub.getID() }));
+
+            Community otherSub = Community.find(other, sub.getID());
+            assertThat("testHierarchySnapshot 7", otherSub.getAllParents().length, equalTo(1));
+            assertThat("testHierarchySnapshot 8", otherSub.getAllParents()[0].getID(), equalTo(c.getID()));
+            assertThat("testHierarchySnapshot 9", Community.find(other, c.getID()).getAllCollections().length,
+                    equalTo(2));
+
+            // once found, walking the hierarchy costs no query
+            long before = other.getStatementCount();
+            otherSub.getAllParents();
+            Community.find(other, c.getID()).getAllCollections();
+            assertThat("testHierarchySnapshot 10", other.getStatementCount(), equalTo(before));
+
+            // a new collection is seen once committed
+            Collection newColl = sub.createCollection();
+            context.commit();
+            assertThat("testHierarchySnapshot 11", CommunityHierarchy.get(other).getCollections(sub.getID()).length,
+                    equalTo(2));
+            assertThat("testHierarchySnapshot 12", CommunityHierarchy.get(other).getCommunities(newColl.getID()),
+                    equalTo(new int[] { sub.getID() }));
+
+            // a link made by another process sends no event, but is found
+            // by the next context to check the snapshot
+            Collection linkedElsewhere = Collection.create(context);
+            context.commit();
+            assertThat("testHierarchySnapshot 13",
+                    CommunityHierarchy.get(other).getCommunities(linkedElsewhere.getID()).length, equalTo(0));
+            TableRow link = DatabaseManager.create(context, "community2collection");
+            link.setColumn("community_id", sub.getID());
+            link.setColumn("collection_id", linkedElsewhere.getID());
+            DatabaseManager.update(context, link);
+            context.commit();
+
+            Context next = new Context();
+            try
+            {
+                assertThat("testHierarchySnapshot 14",
+                        CommunityHierarchy.get(next).getCommunities(linkedElsewhere.getID()),
+                        equalTo(new int[] { sub.getID() }));
+            }
+            finally
+            {
+                next.abort();
+            }
+        }
+        finally
+        {
+            other.abort();
+        }
+    }
+
     /**
      * Test of createCollection method, of class Community.
      */
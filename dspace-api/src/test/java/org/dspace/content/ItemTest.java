@@ -16,6 +16,7 @@ import org.apache.commons.lang.time.DateUtils;
 import org.dspace.authorize.AuthorizeException;
 import org.apache.log4j.Logger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -30,6 +31,7 @@ import org.dspace.app.util.AuthorizeUtil;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.authorize.ResourcePolicy;
 import org.dspace.core.Constants;
+import org.dspace.handle.HandleManager;
 
 /**
  * Unit Tests for class Item
@@ -1749,4 +1751,100 @@ public class ItemTest  extends AbstractDSpaceObjectTest
         assertThat("testFindByAuthorityValue 5",result.next(),equalTo(it));
     }
 
+    /**
+     * Test of prefetchHandles and prefetchBundles methods, of class Item:
+     * loading a page of items with their names, handles, bundles, bitstreams
+     * and READ decisions costs the same number of statements whatever the
+     * size of the page.
+     */
+    @Test
+    public void testPrefetchStatementCount() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        Group anonymous = Group.find(context, 0);
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < 6; i++)
+        {
+            Item item = Item.create(context);
+            item.addMetadata("dc", "title", null, null, "prefetched item " + i);
+            item.setArchived(true);
+            item.update();
+            HandleManager.createHandle(context, item);
+            AuthorizeManager.addPolicy(context, item, Constants.READ, anonymous);
+
+            File f = new File(testProps.get("test.bitstream").toString());
+            Bitstream bitstream = item.createSingleBitstream(new FileInputStream(f), "ORIGINAL");
+            bitstream.setName("file " + i);
+            bitstream.update();
+            // only every other bitstream is readable by anonymous users
+            if (i % 2 == 0)
+            {
+                AuthorizeManager.addPolicy(context, bitstream, Constants.READ, anonymous);
+            }
+            ids.add(item.getID());
+        }
+        context.restoreAuthSystemState();
+        context.commit();
+
+        assertConstantStatementCount("testPrefetchStatementCount", ids, new PageWork());
+    }
+
+    /**
+     * Load a page of items as the REST API does, as an anonymous user,
+     * counting the statements it takes once the items are found.
+     */
+    private static class PageWork extends CountedWork
+    {
+        private List<Item> items;
+
+        @Override
+        protected void prepare(Context pageContext, List<Integer> ids) throws Exception
+        {
+            items = new ArrayList<Item>();
+            for (Integer id : ids)
+            {
+                items.add(Item.find(pageContext, id));
+            }
+        }
+
+        @Override
+        protected void run(Context pageContext, List<Integer> ids) throws Exception
+        {
+            AuthorizeManager.prefetchAuthorization(pageContext, items, Constants.READ);
+            DSpaceObject.prefetchMetadata(pageContext, items);
+            Item.prefetchHandles(pageContext, items);
+            Item.prefetchBundles(pageContext, items);
+            List<Bitstream> bitstreams = new ArrayList<Bitstream>();
+            for (Item item : items)
+            {
+                for (Bundle bundle : item.getBundles())
+                {
+                    bitstreams.addAll(Arrays.asList(bundle.getBitstreams()));
+                }
+            }
+            AuthorizeManager.prefetchAuthorization(pageContext, bitstreams, Constants.READ);
+
+            int readable = 0;
+            for (Item item : items)
+            {
+                assertTrue(AuthorizeManager.authorizeActionBoolean(pageContext, item, Constants.READ));
+                assertThat(item.getName(), notNullValue());
+                assertThat(item.getHandle(), notNullValue());
+                for (Bundle bundle : item.getBundles())
+                {
+                    assertThat(bundle.getName(), equalTo("ORIGINAL"));
+                    for (Bitstream bitstream : bundle.getBitstreams())
+                    {
+                        assertThat(bitstream.getName(), notNullValue());
+                        if (AuthorizeManager.authorizeActionBoolean(pageContext, bitstream, Constants.READ))
+                        {
+                            readable++;
+                        }
+                    }
+                }
+            }
+            assertThat(readable, equalTo((ids.size() + 1) / 2));
+        }
+    }
+
 }
@@ -442,6 +442,30 @@ public class ContextTest extends AbstractUnitTest
         cleanupContext(instance);
     }
 
+    /**
+     * Test that objects of different classes with the same ID don't collide
+     * in the cache, and that lookups are counted.
+     */
+    @Test
+    public void testCacheKeyedByClass() throws SQLException
+    {
+        // To test caching we need a new Context object
+        Context instance = new Context();
+
+        int cacheMeID = 9999999;
+        instance.cache("Look for me in your local cache!", cacheMeID);
+        instance.cache(Integer.valueOf(42), cacheMeID);
+
+        assertThat("testCacheKeyedByClass 0", instance.getCacheSize(), equalTo(2));
+        assertThat("testCacheKeyedByClass 1", (String) instance.fromCache(String.class, cacheMeID), equalTo("Look for me in your local cache!"));
+        assertThat("testCacheKeyedByClass 2", (Integer) instance.fromCache(Integer.class, cacheMeID), equalTo(42));
+        assertThat("testCacheKeyedByClass 3", instance.fromCache(Long.class, cacheMeID), nullValue());
+        assertThat("testCacheKeyedByClass 4", instance.getCacheStatistics(), containsString("hits=2,misses=1"));
+
+        // Cleanup our context
+        cleanupContext(instance);
+    }
+
     /**
      * Test of removeCached method, of class Context.
      */
@@ -572,6 +596,60 @@ public class ContextTest extends AbstractUnitTest
         cleanupContext(instance);
     }
 
+    /**
+     * Test of the group membership cache of class Context.
+     */
+    @Test
+    public void testGroupMembershipCache() throws SQLException
+    {
+        // We need a new Context object
+        Context instance = new Context();
+        instance.setCurrentUser(eperson);
+
+        // memberships are loaded on first use
+        assertThat("testGroupMembershipCache 0", instance.getCachedGroupMemberships(), nullValue());
+        assertThat("testGroupMembershipCache 1", Group.isMember(instance, Group.ANONYMOUS_ID), equalTo(true));
+        assertThat("testGroupMembershipCache 2", Group.isMember(instance, Group.ADMIN_ID), equalTo(false));
+        assertThat("testGroupMembershipCache 3", instance.getCachedGroupMemberships(), notNullValue());
+
+        // special groups are taken into account
+        instance.setSpecialGroup(Group.ADMIN_ID);
+        assertThat("testGroupMembershipCache 4", instance.getCachedGroupMemberships(), nullValue());
+        assertThat("testGroupMembershipCache 5", Group.isMember(instance, Group.ADMIN_ID), equalTo(true));
+
+        // Cleanup our context
+        cleanupContext(instance);
+    }
+
+    /**
+     * Test of the authorization decision cache of class Context.
+     */
+    @Test
+    public void testAuthorizationCache() throws SQLException
+    {
+        // We need a new Context object
+        Context instance = new Context();
+
+        assertThat("testAuthorizationCache 0", instance.getCachedAuthorizationResult(Constants.ITEM, 1, Constants.READ, true), nullValue());
+        assertThat("testAuthorizationCache 1", instance.getAuthorizationCacheMisses(), equalTo(1L));
+
+        instance.cacheAuthorizationResult(Constants.ITEM, 1, Constants.READ, true, true);
+        assertThat("testAuthorizationCache 2", instance.getCachedAuthorizationResult(Constants.ITEM, 1, Constants.READ, true), equalTo(Boolean.TRUE));
+        assertThat("testAuthorizationCache 3", instance.getAuthorizationCacheHits(), equalTo(1L));
+
+        // the key distinguishes type, action and inheritance
+        assertThat("testAuthorizationCache 4", instance.getCachedAuthorizationResult(Constants.ITEM, 1, Constants.READ, false), nullValue());
+        assertThat("testAuthorizationCache 5", instance.getCachedAuthorizationResult(Constants.ITEM, 1, Constants.WRITE, true), nullValue());
+        assertThat("testAuthorizationCache 6", instance.getCachedAuthorizationResult(Constants.BITSTREAM, 1, Constants.READ, true), nullValue());
+
+        // changing the current user invalidates the cached decisions
+        instance.setCurrentUser(eperson);
+        assertThat("testAuthorizationCache 7", instance.getCachedAuthorizationResult(Constants.ITEM, 1, Constants.READ, true), nullValue());
+
+        // Cleanup our context
+        cleanupContext(instance);
+    }
+
     /**
      * Test of finalize method, of class Context.
      */
@@ -0,0 +1,105 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.handle.HandleManager;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class SolrServiceImpl that need no Solr server.
+ */
+public class SolrServiceImplTest extends AbstractUnitTest
+{
+    /**
+     * Test of findDSpaceObjects method, of class SolrServiceImpl: the items
+     * of a page of results are found, with names and handles, in the same
+     * number of statements whatever its size. The objects come back in the
+     * order of the documents, whatever their type, with null for those that
+     * could not be found.
+     */
+    @Test
+    public void testFindDSpaceObjects() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        List<Integer> ids = new ArrayList<Integer>();
+        List<String> handles = new ArrayList<String>();
+        for (int i = 0; i < 6; i++)
+        {
+            Item item = Item.create(context);
+            item.addMetadata("dc", "title", null, null, "found item " + i);
+            item.update();
+            handles.add(HandleManager.createHandle(context, item));
+            ids.add(item.getID());
+        }
+        Community community = Community.create(null, context);
+        community.setMetadata("name", "found community");
+        community.update();
+        context.restoreAuthSystemState();
+        context.commit();
+
+        assertConstantStatementCount("testFindDSpaceObjects", ids, new CountedWork()
+        {
+            @Override
+            protected void run(Context c, List<Integer> ids) throws Exception
+            {
+                SolrDocumentList docs = new SolrDocumentList();
+                for (Integer id : ids)
+                {
+                    docs.add(document(Constants.ITEM, id));
+                }
+                for (DSpaceObject dso : SolrServiceImpl.findDSpaceObjects(c, docs))
+                {
+                    assertThat(dso.getName(), notNullValue());
+                    assertThat(dso.getHandle(), notNullValue());
+                }
+            }
+        });
+
+        SolrDocumentList docs = new SolrDocumentList();
+        docs.add(document(Constants.ITEM, ids.get(3)));
+        docs.add(document(Constants.COMMUNITY, community.getID()));
+        docs.add(document(Constants.ITEM, -1));
+        docs.add(document(Constants.ITEM, ids.get(0)));
+        // documents without type and id are resolved by handle
+        SolrDocument byHandle = new SolrDocument();
+        byHandle.addField("handle", handles.get(5));
+        docs.add(byHandle);
+
+        List<DSpaceObject> found = SolrServiceImpl.findDSpaceObjects(context, docs);
+        assertThat("testFindDSpaceObjects 2", found.size(), equalTo(docs.size()));
+        assertThat("testFindDSpaceObjects 3", found.get(0).getName(), equalTo("found item 3"));
+        assertThat("testFindDSpaceObjects 4", found.get(1).getName(), equalTo("found community"));
+        assertThat("testFindDSpaceObjects 5", found.get(2), nullValue());
+        assertThat("testFindDSpaceObjects 6", found.get(3).getName(), equalTo("found item 0"));
+        assertThat("testFindDSpaceObjects 7", found.get(4).getID(), equalTo(ids.get(5)));
+        assertThat("testFindDSpaceObjects 8", found.get(4).getType(), equalTo(Constants.ITEM));
+    }
+
+    /**
+     * A result document for an object, with the fields the indexer stores.
+     */
+    private static SolrDocument document(int type, int id)
+    {
+        SolrDocument doc = new SolrDocument();
+        doc.addField("search.resourcetype", type);
+        doc.addField("search.resourceid", id);
+        return doc;
+    }
+}
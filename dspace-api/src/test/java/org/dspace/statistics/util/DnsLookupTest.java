@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.PTRRecord;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.Section;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the reverse lookup cache of {@link DnsLookup} against a stub
+ * resolver which answers from a fixed table and counts its queries.
+ */
+public class DnsLookupTest
+{
+    private static final String NAMED_ADDRESS = "192.168.2.1";
+
+    private static final String NAMELESS_ADDRESS = "192.168.2.2";
+
+    private static final String FAILING_ADDRESS = "192.168.2.3";
+
+    private StubResolver stub;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        stub = new StubResolver();
+        stub.names.put(NAMED_ADDRESS, Name.fromString("crawler.example.com."));
+        DnsLookup.setResolver((Resolver) Proxy.newProxyInstance(Resolver.class.getClassLoader(),
+                new Class<?>[] { Resolver.class }, stub));
+    }
+
+    @After
+    public void tearDown()
+    {
+        DnsLookup.setResolver(null);
+    }
+
+    /**
+     * A resolved name is looked up once.
+     */
+    @Test
+    public void testReverseDnsCachesName() throws IOException
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals("testReverseDnsCachesName 0", "crawler.example.com.",
+                    DnsLookup.reverseDns(NAMED_ADDRESS));
+        }
+        assertEquals("testReverseDnsCachesName 1", 1, stub.queries);
+    }
+
+    /**
+     * An address without a name is looked up once, and answered with itself.
+     */
+    @Test
+    public void testReverseDnsCachesMissingName() throws IOException
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals("testReverseDnsCachesMissingName 0", NAMELESS_ADDRESS,
+                    DnsLookup.reverseDns(NAMELESS_ADDRESS));
+        }
+        assertEquals("testReverseDnsCachesMissingName 1", 1, stub.queries);
+    }
+
+    /**
+     * A failed lookup is not retried while it is cached, but still fails.
+     */
+    @Test
+    public void testReverseDnsCachesFailure()
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            try
+            {
+                DnsLookup.reverseDns(FAILING_ADDRESS);
+                fail("testReverseDnsCachesFailure 0");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+        assertEquals("testReverseDnsCachesFailure 1", 1, stub.queries);
+    }
+
+    /**
+     * Replacing the resolver forgets the cached lookups.
+     */
+    @Test
+    public void testSetResolverClearsCache() throws IOException
+    {
+        DnsLookup.reverseDns(NAMED_ADDRESS);
+        DnsLookup.setResolver((Resolver) Proxy.newProxyInstance(Resolver.class.getClassLoader(),
+                new Class<?>[] { Resolver.class }, stub));
+        DnsLookup.reverseDns(NAMED_ADDRESS);
+        assertEquals("testSetResolverClearsCache 0", 2, stub.queries);
+    }
+
+    /**
+     * Answers PTR queries from a table, fails for {@link #FAILING_ADDRESS},
+     * and ignores the resolver settings.
+     */
+    private static class StubResolver implements InvocationHandler
+    {
+        final Map<String, Name> names = new HashMap<String, Name>();
+
+        int queries = 0;
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            if (!"send".equals(method.getName()))
+            {
+                return null;
+            }
+
+            queries++;
+            Message query = (Message) args[0];
+            Name name = query.getQuestion().getName();
+            if (name.equals(Name.fromString("3.2.168.192.in-addr.arpa.")))
+            {
+                throw new IOException("Timed out");
+            }
+
+            Message response = new Message(query.getHeader().getID());
+            for (Map.Entry<String, Name> entry : names.entrySet())
+            {
+                String[] octets = entry.getKey().split("\\.");
+                Name reverse = Name.fromString(octets[3] + "." + octets[2] + "." + octets[1] + "."
+                        + octets[0] + ".in-addr.arpa.");
+                if (reverse.equals(name))
+                {
+                    response.addRecord(new PTRRecord(name, DClass.IN, 3600, entry.getValue()),
+                            Section.ANSWER);
+                }
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link IPTable}.
+ */
+public class IPTableTest
+{
+    private IPTable table;
+
+    @Before
+    public void setUp() throws IPTable.IPFormatException
+    {
+        table = new IPTable();
+        table.add("192.168.2.1");
+        table.add("10.1.2");
+        table.add("63.148.99.224 - 63.148.99.255");
+        table.add("1.2.3.5 - 1.2.4.6");
+        table.add("172.16.0.0/12");
+        table.add("2001:db8::/32");
+        table.add("::1");
+    }
+
+    /**
+     * Test of contains method with single addresses, of class IPTable.
+     */
+    @Test
+    public void testContainsAddress() throws IPTable.IPFormatException
+    {
+        assertTrue("testContainsAddress 0", table.contains("192.168.2.1"));
+        assertFalse("testContainsAddress 1", table.contains("192.168.2.2"));
+        assertTrue("testContainsAddress 2", table.contains(" 192.168.2.1"));
+    }
+
+    /**
+     * Test of contains method with three part addresses, of class IPTable.
+     */
+    @Test
+    public void testContainsSubnet() throws IPTable.IPFormatException
+    {
+        assertTrue("testContainsSubnet 0", table.contains("10.1.2.0"));
+        assertTrue("testContainsSubnet 1", table.contains("10.1.2.255"));
+        assertFalse("testContainsSubnet 2", table.contains("10.1.3.0"));
+    }
+
+    /**
+     * Test of contains method with ranges, of class IPTable.
+     */
+    @Test
+    public void testContainsRange() throws IPTable.IPFormatException
+    {
+        assertTrue("testContainsRange 0", table.contains("63.148.99.224"));
+        assertTrue("testContainsRange 1", table.contains("63.148.99.255"));
+        assertFalse("testContainsRange 2", table.contains("63.148.99.223"));
+        assertFalse("testContainsRange 3", table.contains("1.2.3.4"));
+        assertTrue("testContainsRange 4", table.contains("1.2.3.5"));
+        assertTrue("testContainsRange 5", table.contains("1.2.4.0"));
+        assertTrue("testContainsRange 6", table.contains("1.2.4.6"));
+        assertFalse("testContainsRange 7", table.contains("1.2.4.7"));
+    }
+
+    /**
+     * Test of contains method with CIDR blocks, of class IPTable.
+     */
+    @Test
+    public void testContainsCIDR() throws IPTable.IPFormatException
+    {
+        assertTrue("testContainsCIDR 0", table.contains("172.16.0.0"));
+        assertTrue("testContainsCIDR 1", table.contains("172.31.255.255"));
+        assertFalse("testContainsCIDR 2", table.contains("172.15.255.255"));
+        assertFalse("testContainsCIDR 3", table.contains("172.32.0.0"));
+    }
+
+    /**
+     * Test of contains method with IPv6 addresses, of class IPTable.
+     */
+    @Test
+    public void testContainsIPv6() throws IPTable.IPFormatException
+    {
+        assertTrue("testContainsIPv6 0", table.contains("2001:db8:ffff::1"));
+        assertFalse("testContainsIPv6 1", table.contains("2001:db9::1"));
+        assertTrue("testContainsIPv6 2", table.contains("0:0:0:0:0:0:0:1"));
+        assertFalse("testContainsIPv6 3", table.contains("::2"));
+        assertTrue("testContainsIPv6 4", table.contains("::ffff:192.168.2.1"));
+        assertTrue("testContainsIPv6 5", table.containsIPv6(0x20010db800000000L, 1));
+    }
+
+    /**
+     * Test of containsIPv4 method, of class IPTable.
+     */
+    @Test
+    public void testContainsIPv4()
+    {
+        assertTrue("testContainsIPv4 0", table.containsIPv4((192 << 24) | (168 << 16) | (2 << 8) | 1));
+        assertTrue("testContainsIPv4 1", table.containsIPv4((172 << 24) | (20 << 16)));
+        assertFalse("testContainsIPv4 2", table.containsIPv4(0));
+    }
+
+    /**
+     * Test of add and contains methods with malformed addresses, of class IPTable.
+     */
+    @Test
+    public void testFormatErrors()
+    {
+        String[] bad = { "1.2", "1.2.3.4/33", "1.2.3.256", "1.2.3.9 - 1.2.3.1", "1.2.3.4 - ::1", "::g" };
+        for (String ip : bad)
+        {
+            try
+            {
+                table.add(ip);
+                fail("testFormatErrors " + ip);
+            }
+            catch (IPTable.IPFormatException e)
+            {
+                // expected
+            }
+        }
+
+        try
+        {
+            table.contains("spider.example.com");
+            fail("testFormatErrors contains");
+        }
+        catch (IPTable.IPFormatException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Test of toSet method, of class IPTable.
+     */
+    @Test
+    public void testToSet()
+    {
+        Set<String> set = table.toSet();
+        assertTrue("testToSet 0", set.contains("192.168.2.1"));
+        assertTrue("testToSet 1", set.contains("10.1.2."));
+        assertTrue("testToSet 2", set.contains("63.148.99.230"));
+        assertTrue("testToSet 3", set.contains("172.16."));
+        assertTrue("testToSet 4", set.contains("172.31."));
+        assertFalse("testToSet 5", set.contains("172.32."));
+        assertFalse("testToSet 6", set.contains("172.16"));
+        assertFalse("testToSet 7", set.contains("10.1.2"));
+        assertTrue("testToSet 8", set.contains("2001:db8:"));
+        assertTrue("testToSet 9", set.contains("0:0:0:0:0:0:0:1"));
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractBenchmark;
+import org.dspace.core.ConfigurationManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link PatternSet} with running each spider agent pattern in turn,
+ * as SpiderDetector used to, over a mix of browser and bot user agents. The
+ * patterns are those of config/spiders/agents in the test installation,
+ * which holds the example agent list shipped with DSpace.
+ */
+public class PatternSetBenchmark extends AbstractBenchmark
+{
+    /** Number of user agents checked per invocation */
+    private static final int REQUESTS = 100000;
+
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/37.0.2062.124 Safari/537.36",
+        "Mozilla/5.0 (Windows NT 6.3; WOW64; rv:32.0) Gecko/20100101 Firefox/32.0",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_9_5) AppleWebKit/537.78.2 (KHTML, like Gecko) Version/7.0.6 Safari/537.78.2",
+        "Mozilla/5.0 (compatible; MSIE 10.0; Windows NT 6.1; WOW64; Trident/6.0)",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 8_0_2 like Mac OS X) AppleWebKit/600.1.4 (KHTML, like Gecko) Version/8.0 Mobile/12A405 Safari/600.1.4",
+        "Mozilla/5.0 (Linux; Android 4.4.2; Nexus 5 Build/KOT49H) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/37.0.2062.117 Mobile Safari/537.36",
+        "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+        "Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)",
+        "Mozilla/5.0 (compatible; Yahoo! Slurp; http://help.yahoo.com/help/us/ysearch/slurp)",
+        "Mozilla/5.0 (Windows NT 6.1; rv:31.0) Gecko/20100101 Firefox/31.0",
+    };
+
+    private static List<String> patterns;
+
+    @BeforeClass
+    public static void loadPatterns() throws IOException
+    {
+        patterns = new ArrayList<String>();
+        File agents = new File(ConfigurationManager.getProperty("dspace.dir"), "config/spiders/agents");
+        for (File file : agents.listFiles())
+        {
+            patterns.addAll(SpiderDetector.readPatterns(file));
+        }
+    }
+
+    /**
+     * Check user agents with a PatternSet
+     */
+    @Test
+    @PerfTest(invocations = 10, threads = 1)
+    public void testPatternSet()
+    {
+        PatternSet set = new PatternSet(patterns);
+        int spiders = 0;
+        for (int i = 0; i < REQUESTS; i++)
+        {
+            if (set.find(USER_AGENTS[i % USER_AGENTS.length]))
+            {
+                spiders++;
+            }
+        }
+        assertEquals("testPatternSet 0", 3 * REQUESTS / USER_AGENTS.length, spiders);
+    }
+
+    /**
+     * Check the same user agents with each pattern in turn
+     */
+    @Test
+    @PerfTest(invocations = 10, threads = 1)
+    public void testPatternList()
+    {
+        List<Pattern> list = new ArrayList<Pattern>();
+        for (String pattern : patterns)
+        {
+            list.add(Pattern.compile(pattern));
+        }
+
+        int spiders = 0;
+        for (int i = 0; i < REQUESTS; i++)
+        {
+            for (Pattern candidate : list)
+            {
+                if (candidate.matcher(USER_AGENTS[i % USER_AGENTS.length]).find())
+                {
+                    spiders++;
+                    break;
+                }
+            }
+        }
+        assertEquals("testPatternList 0", 3 * REQUESTS / USER_AGENTS.length, spiders);
+    }
+}
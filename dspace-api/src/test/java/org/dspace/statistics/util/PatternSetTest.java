@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that {@link PatternSet} finds the same strings as running each of its
+ * patterns in turn.
+ */
+public class PatternSetTest
+{
+    /**
+     * Test of literal method, of class PatternSet.
+     */
+    @Test
+    public void testLiteral()
+    {
+        assertEquals("testLiteral 0", "Googlebot", PatternSet.literal("Googlebot"));
+        assertEquals("testLiteral 1", "LWP::Simple", PatternSet.literal("LWP\\:\\:Simple"));
+        assertNull("testLiteral 2", PatternSet.literal("mail.ru"));
+        assertNull("testLiteral 3", PatternSet.literal("China\\sLocal"));
+    }
+
+    /**
+     * Test of requiredLiteral method, of class PatternSet.
+     */
+    @Test
+    public void testRequiredLiteral()
+    {
+        assertEquals("testRequiredLiteral 0", "Alexandria",
+                PatternSet.requiredLiteral("Alexandria(\\s|\\+)prototype(\\s|\\+)project"));
+        assertEquals("testRequiredLiteral 1", ".yahoo.com.",
+                PatternSet.requiredLiteral("(.*)\\.yahoo\\.com\\."));
+        assertEquals("testRequiredLiteral 2", "msnbot", PatternSet.requiredLiteral("^msnbot"));
+        assertEquals("testRequiredLiteral 3", "fish", PatternSet.requiredLiteral("[^a]fish"));
+        assertEquals("testRequiredLiteral 4", "colo", PatternSet.requiredLiteral("colou?r"));
+        assertEquals("testRequiredLiteral 5", "ab", PatternSet.requiredLiteral("ab+c?"));
+        assertNull("testRequiredLiteral 6", PatternSet.requiredLiteral("[0-9]+\\s*"));
+    }
+
+    /**
+     * Test of splitAlternatives method, of class PatternSet.
+     */
+    @Test
+    public void testSplitAlternatives()
+    {
+        assertEquals("testSplitAlternatives 0", Arrays.asList("cfnetwork", "checkbot"),
+                PatternSet.splitAlternatives("cfnetwork|checkbot"));
+        assertEquals("testSplitAlternatives 1", Arrays.asList("a(b|c)", "[|]d"),
+                PatternSet.splitAlternatives("a(b|c)|[|]d"));
+    }
+
+    /**
+     * Test of find method, of class PatternSet.
+     */
+    @Test
+    public void testFind()
+    {
+        PatternSet set = new PatternSet(Arrays.asList("Googlebot", "^msnbot",
+                "Teleport(\\s|\\+)Pro", "[^a]fish", "cfnetwork|checkbot", "[0-9]{5}",
+                "(?i)slurp"));
+
+        assertEquals("testFind 0", 7, set.size());
+        assertTrue("testFind 1", set.find("Mozilla/5.0 (compatible; Googlebot/2.1)"));
+        assertTrue("testFind 2", set.find("msnbot/1.0"));
+        assertFalse("testFind 3", set.find("not msnbot"));
+        assertTrue("testFind 4", set.find("Teleport+Pro/1.29"));
+        assertFalse("testFind 5", set.find("Teleport Lite"));
+        assertTrue("testFind 6", set.find("swordfish"));
+        assertFalse("testFind 7", set.find("afish"));
+        assertTrue("testFind 8", set.find("checkbot"));
+        assertTrue("testFind 9", set.find("build 12345"));
+        assertTrue("testFind 10", set.find("Yahoo! SLURP"));
+        assertFalse("testFind 11", set.find("Mozilla/5.0 (X11; Linux x86_64) Firefox/31.0"));
+        assertFalse("testFind 12", set.find(null));
+    }
+
+    /**
+     * Test of find method with overlapping words, of class PatternSet.
+     */
+    @Test
+    public void testFindOverlapping()
+    {
+        PatternSet set = new PatternSet(Arrays.asList("she", "^hers", "his"));
+
+        assertTrue("testFindOverlapping 0", set.find("ushers"));
+        assertTrue("testFindOverlapping 1", set.find("hershey"));
+        assertFalse("testFindOverlapping 2", set.find("uhers"));
+        assertTrue("testFindOverlapping 3", set.find("hhis"));
+    }
+
+    /**
+     * Test of find method on an empty set, of class PatternSet.
+     */
+    @Test
+    public void testFindEmpty()
+    {
+        PatternSet set = new PatternSet(Collections.<String>emptyList());
+
+        assertTrue("testFindEmpty 0", set.isEmpty());
+        assertFalse("testFindEmpty 1", set.find("Googlebot"));
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link LocalBitStore}, in a temporary directory.
+ */
+public class LocalBitStoreTest
+{
+    private static final String PATH = "12/34/56/12345678901234567890";
+
+    private static final byte[] BITS = "The quick brown fox jumps over the lazy dog".getBytes();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    private LocalBitStore store;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        root = folder.newFolder("assetstore").toPath();
+        store = new LocalBitStore(root);
+    }
+
+    /**
+     * Test of put and get methods, of class LocalBitStore.
+     */
+    @Test
+    public void testPutGet() throws IOException
+    {
+        assertFalse("testPutGet 0", store.exists(PATH));
+        assertEquals("testPutGet 1", BITS.length, store.put(PATH, new ByteArrayInputStream(BITS)));
+        assertTrue("testPutGet 2", store.exists(PATH));
+        assertEquals("testPutGet 3", BITS.length, store.size(PATH));
+
+        InputStream in = store.get(PATH);
+        try
+        {
+            assertArrayEquals("testPutGet 4", BITS, IOUtils.toByteArray(in));
+        }
+        finally
+        {
+            in.close();
+        }
+
+        // Only the bitstream is left in its directory
+        assertEquals("testPutGet 5", 1, root.resolve("12/34/56").toFile().list().length);
+    }
+
+    /**
+     * Test of put method replacing a bitstream, of class LocalBitStore.
+     */
+    @Test
+    public void testPutReplaces() throws IOException
+    {
+        store.put(PATH, new ByteArrayInputStream(BITS));
+        store.put(PATH, new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        assertEquals("testPutReplaces 0", 3, store.size(PATH));
+    }
+
+    /**
+     * Test of put method, of class LocalBitStore: the bitstream gets the
+     * permissions of any new file, not those of a private temporary file.
+     */
+    @Test
+    public void testPutPermissions() throws IOException
+    {
+        Assume.assumeTrue(Files.getFileStore(root).supportsFileAttributeView(PosixFileAttributeView.class));
+
+        store.put(PATH, new ByteArrayInputStream(BITS));
+        Path reference = Files.createFile(root.resolve("reference"));
+        assertEquals("testPutPermissions 0", Files.getPosixFilePermissions(reference),
+                Files.getPosixFilePermissions(root.resolve(PATH)));
+    }
+
+    /**
+     * Test of get method on a missing bitstream, of class LocalBitStore.
+     */
+    @Test(expected = FileNotFoundException.class)
+    public void testGetMissing() throws IOException
+    {
+        store.get(PATH);
+    }
+
+    /**
+     * Test of get method on a path leading out of the store, of class
+     * LocalBitStore.
+     */
+    @Test
+    public void testGetOutside() throws IOException
+    {
+        Files.write(root.resolveSibling("secret"), BITS);
+        String[] paths = { "../secret", "12/../../secret", root.resolveSibling("secret").toString(), "", "." };
+        for (int i = 0; i < paths.length; i++)
+        {
+            try
+            {
+                store.get(paths[i]).close();
+                fail("testGetOutside " + i);
+            }
+            catch (FileNotFoundException e)
+            {
+                fail("testGetOutside " + i + ": " + e);
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test of getRange method, of class LocalBitStore.
+     */
+    @Test
+    public void testGetRange() throws IOException
+    {
+        store.put(PATH, new ByteArrayInputStream(BITS));
+
+        InputStream in = store.getRange(PATH, 4, 5);
+        try
+        {
+            assertEquals("testGetRange 0", "quick", new String(IOUtils.toByteArray(in)));
+        }
+        finally
+        {
+            in.close();
+        }
+
+        in = store.getRange(PATH, 40, -1);
+        try
+        {
+            assertEquals("testGetRange 1", "dog", new String(IOUtils.toByteArray(in)));
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Test of transferTo method, of class LocalBitStore.
+     */
+    @Test
+    public void testTransferTo() throws IOException
+    {
+        store.put(PATH, new ByteArrayInputStream(BITS));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals("testTransferTo 0", 5, store.transferTo(PATH, 10, 5, Channels.newChannel(out)));
+        assertEquals("testTransferTo 1", "brown", out.toString());
+
+        out.reset();
+        assertEquals("testTransferTo 2", BITS.length, store.transferTo(PATH, 0, -1, Channels.newChannel(out)));
+        assertArrayEquals("testTransferTo 3", BITS, out.toByteArray());
+
+        out.reset();
+        assertEquals("testTransferTo 4", 3, store.transferTo(PATH, 40, 100, Channels.newChannel(out)));
+    }
+
+    /**
+     * Test of delete method, of class LocalBitStore.
+     */
+    @Test
+    public void testDelete() throws IOException
+    {
+        store.put(PATH, new ByteArrayInputStream(BITS));
+        store.put("12/34/78/12347890", new ByteArrayInputStream(BITS));
+
+        assertTrue("testDelete 0", store.delete(PATH));
+        assertFalse("testDelete 1", store.exists(PATH));
+        assertFalse("testDelete 2", Files.exists(root.resolve("12/34/56")));
+        assertTrue("testDelete 3", Files.exists(root.resolve("12/34/78")));
+        assertFalse("testDelete 4", store.delete(PATH));
+
+        assertTrue("testDelete 5", store.delete("12/34/78/12347890"));
+        assertFalse("testDelete 6", Files.exists(root.resolve("12")));
+        assertTrue("testDelete 7", Files.isDirectory(root));
+    }
+
+    /**
+     * Test of about method, of class LocalBitStore.
+     */
+    @Test
+    public void testAbout() throws IOException
+    {
+        assertNull("testAbout 0", store.about(PATH, false));
+
+        store.put(PATH, new ByteArrayInputStream(BITS));
+        Map<String, Object> about = store.about(PATH, true);
+        assertEquals("testAbout 1", Long.valueOf(BITS.length), about.get(BitStore.SIZE_BYTES));
+        assertEquals("testAbout 2", "9e107d9d372bb6826bd81d3542a419d6", about.get(BitStore.CHECKSUM));
+        assertEquals("testAbout 3", "MD5", about.get(BitStore.CHECKSUM_ALGORITHM));
+        assertTrue("testAbout 4", about.get(BitStore.MODIFIED) instanceof Long);
+    }
+}
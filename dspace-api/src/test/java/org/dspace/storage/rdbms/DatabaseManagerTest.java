@@ -7,6 +7,10 @@
  */
 package org.dspace.storage.rdbms;
 
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import org.dspace.AbstractUnitTest;
 import org.dspace.core.ConfigurationManager;
 import org.junit.After;
@@ -690,4 +694,138 @@ public class DatabaseManagerTest
         fail("The test case is a prototype.");
     }
 */
+
+    /**
+     * Test of insertBatch, updateBatch and deleteBatch methods, of class
+     * DatabaseManager.
+     */
+    @Test
+    public void testBatch() throws Exception
+    {
+        System.out.println("insertBatch/updateBatch/deleteBatch");
+        List<TableRow> rows = new ArrayList<TableRow>();
+        for (int i = 0; i < 3; i++)
+        {
+            TableRow row = DatabaseManager.row("handle");
+            row.setColumn("handle", "123456789/batch-" + i);
+            rows.add(row);
+        }
+
+        DatabaseManager.insertBatch(context, rows);
+        for (TableRow row : rows)
+        {
+            assertFalse("insertBatch assigns an ID", row.isColumnNull("handle_id"));
+            TableRow found = DatabaseManager.find(context, "handle", row.getIntColumn("handle_id"));
+            assertEquals("insertBatch writes the row", row.getStringColumn("handle"),
+                    found.getStringColumn("handle"));
+        }
+
+        for (TableRow row : rows)
+        {
+            row.setColumn("resource_type_id", 42);
+        }
+        DatabaseManager.updateBatch(context, rows);
+        for (TableRow row : rows)
+        {
+            TableRow found = DatabaseManager.find(context, "handle", row.getIntColumn("handle_id"));
+            assertEquals("updateBatch writes the change", 42, found.getIntColumn("resource_type_id"));
+        }
+
+        DatabaseManager.deleteBatch(context, rows);
+        for (TableRow row : rows)
+        {
+            assertNull("deleteBatch removes the row",
+                    DatabaseManager.find(context, "handle", row.getIntColumn("handle_id")));
+        }
+    }
+
+    /**
+     * Test of queryTableByKey method, of class DatabaseManager.
+     */
+    @Test
+    public void testQueryTableByKey() throws Exception
+    {
+        System.out.println("queryTableByKey");
+        List<TableRow> rows = new ArrayList<TableRow>();
+        for (int i = 0; i < 5; i++)
+        {
+            TableRow row = DatabaseManager.row("handle");
+            row.setColumn("handle", "123456789/key-" + i);
+            row.setColumn("resource_type_id", 43);
+            rows.add(row);
+        }
+        DatabaseManager.insertBatch(context, rows);
+
+        TableRowIterator iterator = DatabaseManager.queryTableByKey(context, "handle",
+                "resource_type_id = ?", 43);
+        List<TableRow> found = iterator.toList();
+
+        assertEquals("queryTableByKey finds all rows", rows.size(), found.size());
+        for (int i = 0; i < rows.size(); i++)
+        {
+            assertEquals("queryTableByKey returns rows in key order",
+                    rows.get(i).getIntColumn("handle_id"), found.get(i).getIntColumn("handle_id"));
+        }
+
+        DatabaseManager.deleteBatch(context, rows);
+    }
+
+    /**
+     * Test of doQueryTable method, of class DatabaseManager, which reads each
+     * page of queryTableByKey.
+     */
+    @Test
+    public void testDoQueryTableFetchSize() throws Exception
+    {
+        System.out.println("doQueryTable");
+        TableRowIterator iterator = DatabaseManager.doQueryTable(context, "handle",
+                "SELECT * FROM handle", 7, new Object[0]);
+        try
+        {
+            Statement statement = iterator.getStatement();
+            assertEquals("doQueryTable sets the fetch size", 7, statement.getFetchSize());
+            assertEquals("doQueryTable uses a forward-only cursor",
+                    ResultSet.TYPE_FORWARD_ONLY, statement.getResultSetType());
+            assertEquals("doQueryTable uses a read-only cursor",
+                    ResultSet.CONCUR_READ_ONLY, statement.getResultSetConcurrency());
+        }
+        finally
+        {
+            iterator.close();
+        }
+    }
+
+    /**
+     * Test of queryTablePage method, of class DatabaseManager.
+     */
+    @Test
+    public void testQueryTablePage() throws Exception
+    {
+        System.out.println("queryTablePage");
+        List<TableRow> rows = new ArrayList<TableRow>();
+        for (int i = 0; i < 5; i++)
+        {
+            TableRow row = DatabaseManager.row("handle");
+            row.setColumn("handle", "123456789/page-" + i);
+            row.setColumn("resource_type_id", 44);
+            rows.add(row);
+        }
+        DatabaseManager.insertBatch(context, rows);
+
+        List<TableRow> first = DatabaseManager.queryTablePage(context, "handle",
+                "resource_type_id = ?", -1, 1, 2, 44).toList();
+        assertEquals("queryTablePage limits the page", 2, first.size());
+        assertEquals("queryTablePage skips the offset",
+                rows.get(1).getIntColumn("handle_id"), first.get(0).getIntColumn("handle_id"));
+        assertEquals("queryTablePage returns rows in key order",
+                rows.get(2).getIntColumn("handle_id"), first.get(1).getIntColumn("handle_id"));
+
+        List<TableRow> next = DatabaseManager.queryTablePage(context, "handle",
+                "resource_type_id = ?", first.get(1).getIntColumn("handle_id"), 0, 10, 44).toList();
+        assertEquals("queryTablePage starts after the key", 2, next.size());
+        assertEquals("queryTablePage starts after the key",
+                rows.get(3).getIntColumn("handle_id"), next.get(0).getIntColumn("handle_id"));
+
+        DatabaseManager.deleteBatch(context, rows);
+    }
 }
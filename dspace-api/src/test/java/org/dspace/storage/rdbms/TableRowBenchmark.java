@@ -0,0 +1,171 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractBenchmark;
+import org.dspace.content.Metadatum;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the array-backed TableRow with the map-backed row it replaced, on
+ * the loop of DSpaceObject's metadata cache: each result row is built as
+ * DatabaseManager.process() does and read back into a Metadatum as
+ * DSpaceObject.toMetadatum() does.
+ */
+public class TableRowBenchmark extends AbstractBenchmark
+{
+    /** Number of metadata values loaded per invocation */
+    private static final int VALUES = 100000;
+
+    private static final List<String> COLUMNS = Arrays.asList("metadata_value_id",
+            "resource_id", "resource_type_id", "metadata_field_id", "text_value",
+            "text_lang", "place", "authority", "confidence");
+
+    /**
+     * Load the metadata values with TableRow
+     */
+    @Test
+    @PerfTest(invocations = 20, threads = 1)
+    public void testTableRow()
+    {
+        ColumnLayout layout = ColumnLayout.forColumns(COLUMNS);
+        List<Metadatum> metadata = new ArrayList<Metadatum>();
+        for (int i = 0; i < VALUES; i++)
+        {
+            TableRow row = new TableRow("metadatavalue", layout);
+            row.setColumn("METADATA_VALUE_ID", i);
+            row.setColumn("RESOURCE_ID", i / 10);
+            row.setColumn("RESOURCE_TYPE_ID", 2);
+            row.setColumn("METADATA_FIELD_ID", i % 64);
+            row.setColumn("TEXT_VALUE", "value");
+            row.setColumnNull("TEXT_LANG");
+            row.setColumn("PLACE", i % 10);
+            row.setColumnNull("AUTHORITY");
+            row.setColumn("CONFIDENCE", -1);
+            row.resetChanged();
+
+            if (row.getIntColumn("metadata_field_id") >= 0)
+            {
+                Metadatum dcv = new Metadatum();
+                dcv.value = row.getStringColumn("text_value");
+                dcv.language = row.getStringColumn("text_lang");
+                dcv.authority = row.getStringColumn("authority");
+                dcv.confidence = row.getIntColumn("confidence");
+                metadata.add(dcv);
+            }
+        }
+        assertEquals("testTableRow 0", VALUES, metadata.size());
+    }
+
+    /**
+     * Load the same metadata values with a map keyed by the canonicalized
+     * column name, as TableRow used to store them
+     */
+    @Test
+    @PerfTest(invocations = 20, threads = 1)
+    public void testMapRow()
+    {
+        List<Metadatum> metadata = new ArrayList<Metadatum>();
+        for (int i = 0; i < VALUES; i++)
+        {
+            MapRow row = new MapRow(COLUMNS);
+            row.set("METADATA_VALUE_ID", i);
+            row.set("RESOURCE_ID", i / 10);
+            row.set("RESOURCE_TYPE_ID", 2);
+            row.set("METADATA_FIELD_ID", i % 64);
+            row.set("TEXT_VALUE", "value");
+            row.set("TEXT_LANG", null);
+            row.set("PLACE", i % 10);
+            row.set("AUTHORITY", null);
+            row.set("CONFIDENCE", -1);
+            row.resetChanged();
+
+            if ((Integer) row.get("metadata_field_id") >= 0)
+            {
+                Metadatum dcv = new Metadatum();
+                dcv.value = (String) row.get("text_value");
+                dcv.language = (String) row.get("text_lang");
+                dcv.authority = (String) row.get("authority");
+                dcv.confidence = (Integer) row.get("confidence");
+                metadata.add(dcv);
+            }
+        }
+        assertEquals("testMapRow 0", VALUES, metadata.size());
+    }
+
+    /**
+     * The map-backed row, reduced to what the benchmark uses
+     */
+    private static class MapRow
+    {
+        private static final Object NULL_OBJECT = new Object();
+
+        private final Map<String, Object> data = new HashMap<String, Object>();
+
+        private final Map<String, Boolean> changed = new HashMap<String, Boolean>();
+
+        MapRow(List<String> columns)
+        {
+            for (String column : columns)
+            {
+                String canonicalized = column.toLowerCase();
+                data.put(canonicalized, NULL_OBJECT);
+                changed.put(canonicalized, Boolean.TRUE);
+            }
+        }
+
+        Object get(String column)
+        {
+            Object value = data.get(canonicalizeAndCheck(column));
+            return (value == NULL_OBJECT) ? null : value;
+        }
+
+        void set(String column, Object value)
+        {
+            String canonicalized = canonicalizeAndCheck(column);
+            Object stored = (value == null) ? NULL_OBJECT : value;
+            if (!stored.equals(data.get(canonicalized)))
+            {
+                data.put(canonicalized, stored);
+                changed.put(canonicalized, Boolean.TRUE);
+            }
+        }
+
+        void resetChanged()
+        {
+            for (String column : changed.keySet())
+            {
+                changed.put(column, Boolean.FALSE);
+            }
+        }
+
+        private String canonicalizeAndCheck(String column)
+        {
+            if (data.containsKey(column))
+            {
+                return column;
+            }
+
+            String canonicalized = column.toLowerCase();
+            if (data.containsKey(canonicalized))
+            {
+                return canonicalized;
+            }
+
+            throw new IllegalArgumentException("No such column '" + canonicalized + "'");
+        }
+    }
+}
@@ -453,19 +453,26 @@ public class TableRowTest
     /**
      * Test of hashCode method, of class TableRow.
      */
-/*
     @Test
     public void testHashCode()
     {
-        System.out.println("hashCode");
-        TableRow instance = null;
-        int expResult = 0;
-        int result = instance.hashCode();
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        List<String> columns = new ArrayList<String>();
+        columns.add("id");
+        columns.add("name");
+        TableRow instance = new TableRow("hashtest", columns);
+        instance.setColumn("id", 1);
+        instance.setColumn("name", "first");
+
+        List<String> reordered = new ArrayList<String>();
+        reordered.add("name");
+        reordered.add("id");
+        TableRow other = new TableRow("hashtest", reordered);
+        other.setColumn("id", 1);
+        other.setColumn("name", "first");
+
+        assertEquals("testHashCode 0", instance, other);
+        assertEquals("testHashCode 1", instance.hashCode(), other.hashCode());
     }
-*/
 
     /**
      * Test of equals method, of class TableRow.
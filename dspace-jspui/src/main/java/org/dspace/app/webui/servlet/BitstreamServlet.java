@@ -17,6 +17,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
+import org.dspace.app.util.RangeRequest;
 import org.dspace.app.webui.util.JSPManager;
 import org.dspace.app.webui.util.UIUtil;
 import org.dspace.authorize.AuthorizeException;
@@ -28,7 +29,6 @@ import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
-import org.dspace.core.Utils;
 import org.dspace.handle.HandleManager;
 import org.dspace.usage.UsageEvent;
 import org.dspace.utils.DSpace;
@@ -37,6 +37,8 @@ import org.dspace.utils.DSpace;
  * Servlet for retrieving bitstreams. The bits are simply piped to the user. If
  * there is an <code>If-Modified-Since</code> header, only a 304 status code
  * is returned if the containing item has not been modified since that date.
+ * A <code>Range</code> header is answered with just the bytes asked for (see
+ * {@link RangeRequest}).
  * <P>
  * <code>/bitstream/handle/sequence_id/filename</code>
  * 
@@ -170,16 +172,32 @@ public class BitstreamServlet extends DSpaceServlet
         log.info(LogManager.getHeader(context, "view_bitstream",
                 "bitstream_id=" + bitstream.getID()));
         
-        //new UsageEvent().fire(request, context, AbstractUsageEvent.VIEW,
-		//		Constants.BITSTREAM, bitstream.getID());
-
-        new DSpace().getEventService().fireEvent(
-        		new UsageEvent(
-        				UsageEvent.Action.VIEW, 
-        				request, 
-        				context, 
-        				bitstream));
-        
+        // Work out which bytes were asked for
+        String etag = RangeRequest.getETag(bitstream.getChecksum());
+        RangeRequest range = RangeRequest.parse(request.getHeader("Range"),
+                request.getHeader("If-Range"), etag,
+                item.getLastModified().getTime(), bitstream.getSize());
+
+        response.setHeader("Accept-Ranges", "bytes");
+        if (etag != null)
+        {
+            response.setHeader("ETag", etag);
+        }
+
+        // Count a download once, not once per range of it
+        if (range.includesStart())
+        {
+            //new UsageEvent().fire(request, context, AbstractUsageEvent.VIEW,
+            //		Constants.BITSTREAM, bitstream.getID());
+
+            new DSpace().getEventService().fireEvent(
+            		new UsageEvent(
+            				UsageEvent.Action.VIEW, 
+            				request, 
+            				context, 
+            				bitstream));
+        }
+
         // Modification date
         // Only use last-modified if this is an anonymous access
         // - caching content that may be generated under authorisation
@@ -203,15 +221,29 @@ public class BitstreamServlet extends DSpaceServlet
             }
         }
         
+        if (!range.isSatisfiable())
+        {
+            response.setHeader("Content-Range", range.getContentRange());
+            response.sendError(RangeRequest.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
         // Pipe the bits
-        InputStream is = bitstream.retrieve();
+        String mimeType = bitstream.getFormat().getMIMEType();
+        InputStream[] parts = range.retrieve(bitstream);
+
+        response.setStatus(range.getStatus());
+        if (range.getContentRange() != null)
+        {
+            response.setHeader("Content-Range", range.getContentRange());
+        }
      
 		// Set the response MIME type
-        response.setContentType(bitstream.getFormat().getMIMEType());
+        response.setContentType(range.getContentType(mimeType));
 
         // Response length
         response.setHeader("Content-Length", String
-                .valueOf(bitstream.getSize()));
+                .valueOf(range.getContentLength(mimeType)));
 
 		if(threshold != -1 && bitstream.getSize() >= threshold)
 		{
@@ -221,8 +253,6 @@ public class BitstreamServlet extends DSpaceServlet
         //DO NOT REMOVE IT - WE NEED TO FREE DB CONNECTION TO AVOID CONNECTION POOL EXHAUSTION FOR BIG FILES AND SLOW DOWNLOADS
         context.complete();
 
-        Utils.bufferedCopy(is, response.getOutputStream());
-        is.close();
-        response.getOutputStream().flush();
+        range.write(parts, mimeType, response.getOutputStream());
     }
 }
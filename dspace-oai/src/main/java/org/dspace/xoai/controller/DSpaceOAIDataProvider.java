@@ -35,6 +35,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -43,6 +44,7 @@ import java.util.Map;
 
 import static java.util.Arrays.asList;
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static org.apache.commons.io.IOUtils.copy;
 import static org.apache.log4j.Logger.getLogger;
 
 /**
@@ -81,6 +83,25 @@ public class DSpaceOAIDataProvider
         Context context = null;
         try {
             request.setCharacterEncoding("UTF-8");
+            OAIRequestParameters parameters = new OAIRequestParameters(buildParametersMap(request));
+            String identification = xoaiContext + parameters.requestID();
+
+            // Responses already cached, such as the pages of a harvest
+            // resumed with a token, need neither the database nor Solr
+            InputStream cached = cacheService.isActive() ? cacheService.get(identification) : null;
+            if (cached != null) {
+                response.setContentType("application/xml");
+                OutputStream out = response.getOutputStream();
+                try {
+                    copy(cached, out);
+                } finally {
+                    cached.close();
+                }
+                out.flush();
+                out.close();
+                return null;
+            }
+
             context = contextService.getContext();
 
             XOAIManager manager = xoaiManagerResolver.getManager();
@@ -92,18 +113,12 @@ public class DSpaceOAIDataProvider
                     resumptionTokenFormat);
 
             OutputStream out = response.getOutputStream();
-            OAIRequestParameters parameters = new OAIRequestParameters(buildParametersMap(request));
 
             response.setContentType("application/xml");
 
-            String identification = xoaiContext + parameters.requestID();
-
-            if (cacheService.isActive()) {
-                if (!cacheService.hasCache(identification))
-                    cacheService.store(identification, dataProvider.handle(parameters));
-
-                cacheService.handle(identification, out);
-            } else dataProvider.handle(parameters, out);
+            if (cacheService.isActive())
+                cacheService.store(identification, dataProvider.handle(parameters), out);
+            else dataProvider.handle(parameters, out);
 
 
             out.flush();
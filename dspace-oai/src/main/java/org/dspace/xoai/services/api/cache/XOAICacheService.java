@@ -10,14 +10,25 @@ package org.dspace.xoai.services.api.cache;
 import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMH;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 
 public interface XOAICacheService {
     boolean isActive ();
-    boolean hasCache (String requestID);
-    void handle (String requestID, OutputStream out) throws IOException;
-    void store (String requestID, OAIPMH response) throws IOException;
+
+    /**
+     * Get a cached response, with the current response date.
+     *
+     * @return the response, or null if it is not cached
+     */
+    InputStream get (String requestID) throws IOException;
+
+    /**
+     * Cache a response and write it to out, as {@link #get} would return it.
+     */
+    void store (String requestID, OAIPMH response, OutputStream out) throws IOException;
+
     void delete (String requestID);
     void deleteAll () throws IOException;
 }
@@ -14,8 +14,12 @@ import java.io.IOException;
 
 
 public interface XOAIItemCacheService {
-    boolean hasCache (Item item);
+
+    /**
+     * @return the cached metadata of the item, or null if it is not cached
+     */
     Metadata get (Item item) throws IOException;
+
     void put (Item item, Metadata metadata) throws IOException;
     void delete (Item item);
     void deleteAll() throws IOException;
@@ -0,0 +1,331 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xoai.services.impl.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A directory of cached entries, each one compressed with gzip in its own
+ * file. The files are spread over two levels of sub-directories named after
+ * the MD5 hash of their key, so that no directory holds more than a few
+ * hundred of them.
+ * <p>
+ * The total size of the compressed entries can be bounded, in which case
+ * the least recently used entries are removed to make room for new ones.
+ * Entries can also be given a maximum age. The index of the entries is kept
+ * in memory, and rebuilt from the directory when first needed.
+ */
+public class DSpaceCacheDirectory {
+    private static final Logger log = Logger.getLogger(DSpaceCacheDirectory.class);
+
+    /** Number of lookups between two logs of the statistics */
+    private static final int STATISTICS_INTERVAL = 1000;
+
+    private static final String SUFFIX = ".gz";
+
+    private final File dir;
+    private final long maxBytes;
+    private final long maxAge;
+
+    /** Entries by hash of their key, least recently used first; null until loaded */
+    private LinkedHashMap<String, Entry> entries;
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param dir
+     *            the directory of the entries
+     * @param maxBytes
+     *            maximum total size of the compressed entries, 0 for no limit
+     * @param maxAge
+     *            maximum age of the entries in milliseconds, 0 for no limit
+     */
+    public DSpaceCacheDirectory(File dir, long maxBytes, long maxAge) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Read an entry, uncompressed, counting a hit or a miss. The entry is
+     * opened while the cache is locked, so that it cannot be evicted between
+     * the lookup and the opening; once open, it can be read to the end even
+     * if it is evicted meanwhile.
+     *
+     * @return the content of the entry, or null if it is not cached
+     */
+    public InputStream openIfPresent(String key) throws IOException {
+        InputStream in = openFile(hash(key));
+        if (in == null)
+            return null;
+        try {
+            return new GZIPInputStream(new BufferedInputStream(in));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Start writing an entry. It is added to the cache, replacing any
+     * previous one, when {@link PendingEntry#commit()} is called, and left
+     * out if the stream is closed before.
+     */
+    public PendingEntry create(String key) throws IOException {
+        String hash = hash(key);
+        File file = getFile(hash);
+        File parent = file.getParentFile();
+        if (!parent.exists())
+            parent.mkdirs();
+
+        File temp = File.createTempFile(hash, ".tmp", parent);
+        return new PendingEntry(hash, temp);
+    }
+
+    /**
+     * Remove an entry.
+     */
+    public synchronized void remove(String key) {
+        removeEntry(hash(key));
+    }
+
+    /**
+     * Remove all the entries. The directory is renamed before it is deleted,
+     * so that the cache is empty at once, however many files it held.
+     */
+    public void clear() throws IOException {
+        File trash;
+        synchronized (this) {
+            entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+            totalBytes = 0;
+
+            if (!dir.exists())
+                return;
+            trash = new File(dir.getParentFile(), dir.getName() + ".deleted." + System.currentTimeMillis());
+            if (!dir.renameTo(trash))
+                trash = dir;
+        }
+        FileUtils.deleteDirectory(trash);
+    }
+
+    /**
+     * Get the number of entries, their total size and how the cache was used,
+     * as a human readable string.
+     */
+    public synchronized String getStatistics() {
+        return "entries=" + getEntries().size() + ",bytes=" + totalBytes + ",maxBytes=" + maxBytes
+                + ",hits=" + hits + ",misses=" + misses + ",evictions=" + evictions;
+    }
+
+    private synchronized void add(String hash, File temp) throws IOException {
+        File file = getFile(hash);
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Entry previous = getEntries().put(hash, new Entry(file.length(), System.currentTimeMillis()));
+        if (previous != null)
+            totalBytes -= previous.size;
+        totalBytes += file.length();
+
+        // Never evict the entry just added, which is about to be read
+        Iterator<Map.Entry<String, Entry>> eldest = getEntries().entrySet().iterator();
+        while (maxBytes > 0 && totalBytes > maxBytes && getEntries().size() > 1) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            totalBytes -= evicted.getValue().size;
+            getFile(evicted.getKey()).delete();
+            evictions++;
+        }
+    }
+
+    private synchronized InputStream openFile(String hash) {
+        Entry entry = getEntries().get(hash);
+        if (entry != null && maxAge > 0 && System.currentTimeMillis() - entry.created > maxAge) {
+            removeEntry(hash);
+            entry = null;
+        }
+        InputStream in = null;
+        if (entry != null) {
+            try {
+                in = new FileInputStream(getFile(hash));
+            } catch (FileNotFoundException e) {
+                // deleted by another process, such as "oai clean-cache"
+                getEntries().remove(hash);
+                totalBytes -= entry.size;
+            }
+        }
+
+        if (in != null)
+            hits++;
+        else
+            misses++;
+        if ((hits + misses) % STATISTICS_INTERVAL == 0)
+            log.info("Cache " + dir + ": " + getStatistics());
+
+        return in;
+    }
+
+    private void removeEntry(String hash) {
+        Entry entry = getEntries().remove(hash);
+        if (entry != null)
+            totalBytes -= entry.size;
+        getFile(hash).delete();
+    }
+
+    /**
+     * Get the index of the entries, building it from the directory, oldest
+     * files first, the first time.
+     */
+    private LinkedHashMap<String, Entry> getEntries() {
+        if (entries == null) {
+            List<File> files = new ArrayList<File>();
+            File[] top = dir.listFiles();
+            if (top != null) {
+                for (File first : top) {
+                    if (!first.isDirectory()) {
+                        // left by the previous, flat, layout
+                        first.delete();
+                        continue;
+                    }
+                    File[] middle = first.listFiles();
+                    for (File second : (middle == null) ? new File[0] : middle) {
+                        File[] leaves = second.listFiles();
+                        for (File leaf : (leaves == null) ? new File[0] : leaves) {
+                            if (leaf.getName().endsWith(SUFFIX))
+                                files.add(leaf);
+                            else
+                                leaf.delete(); // unfinished entry
+                        }
+                    }
+                }
+            }
+            Collections.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    long difference = a.lastModified() - b.lastModified();
+                    return (difference < 0) ? -1 : (difference > 0 ? 1 : 0);
+                }
+            });
+
+            entries = new LinkedHashMap<String, Entry>(Math.max(16, files.size() * 2), 0.75f, true);
+            totalBytes = 0;
+            for (File file : files) {
+                String name = file.getName();
+                entries.put(name.substring(0, name.length() - SUFFIX.length()),
+                        new Entry(file.length(), file.lastModified()));
+                totalBytes += file.length();
+            }
+        }
+        return entries;
+    }
+
+    private File getFile(String hash) {
+        return new File(dir, hash.substring(0, 2) + File.separator + hash.substring(2, 4)
+                + File.separator + hash + SUFFIX);
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            return Utils.toHex(md.digest(key.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        final long size;
+        final long created;
+
+        Entry(long size, long created) {
+            this.size = size;
+            this.created = created;
+        }
+    }
+
+    /**
+     * An entry being written, compressed, to a temporary file.
+     */
+    public class PendingEntry extends FilterOutputStream {
+        private final String hash;
+        private final File temp;
+        private boolean closed = false;
+
+        private PendingEntry(String hash, File temp) throws IOException {
+            super(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp))));
+            this.hash = hash;
+            this.temp = temp;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        /**
+         * Finish writing the entry and add it to the cache.
+         */
+        public void commit() throws IOException {
+            closed = true;
+            out.close();
+            add(hash, temp);
+        }
+
+        /**
+         * Close the stream, leaving the entry out of the cache unless it was
+         * committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    out.close();
+                } finally {
+                    temp.delete();
+                }
+            }
+        }
+    }
+}
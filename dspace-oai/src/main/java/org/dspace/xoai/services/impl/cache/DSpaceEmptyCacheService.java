@@ -11,6 +11,7 @@ import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMH;
 import org.dspace.xoai.services.api.cache.XOAICacheService;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public class DSpaceEmptyCacheService implements XOAICacheService {
@@ -20,17 +21,12 @@ public class DSpaceEmptyCacheService implements XOAICacheService {
     }
 
     @Override
-    public boolean hasCache(String requestID) {
-        return false;
-    }
-
-    @Override
-    public void handle(String requestID, OutputStream out) throws IOException {
-
+    public InputStream get(String requestID) throws IOException {
+        return null;
     }
 
     @Override
-    public void store(String requestID, OAIPMH response) throws IOException {
+    public void store(String requestID, OAIPMH response, OutputStream out) throws IOException {
 
     }
 
@@ -11,8 +11,6 @@ import com.lyncode.xoai.dataprovider.core.XOAIManager;
 import com.lyncode.xoai.dataprovider.exceptions.WritingXmlException;
 import com.lyncode.xoai.dataprovider.xml.XmlOutputContext;
 import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMH;
-import com.lyncode.xoai.util.Base64Utils;
-import org.apache.commons.io.FileUtils;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.xoai.services.api.cache.XOAICacheService;
 import org.dspace.xoai.services.api.config.ConfigurationService;
@@ -24,11 +22,16 @@ import java.io.*;
 import java.util.Date;
 
 import static com.lyncode.xoai.dataprovider.core.Granularity.Second;
-import static org.apache.commons.io.FileUtils.deleteDirectory;
-import static org.apache.commons.io.IOUtils.copy;
 import static org.apache.commons.io.IOUtils.write;
 
 
+/**
+ * Keeps the OAI-PMH responses, without their response date, compressed in
+ * the <code>requests</code> directory of <code>cache.dir</code>. Their total
+ * size is bounded by <code>cache.max.size</code> (megabytes), the least
+ * recently used responses being dropped first, and their age by
+ * <code>cache.max.age</code> (seconds).
+ */
 public class DSpaceXOAICacheService implements XOAICacheService {
     private static final String REQUEST_DIR = File.separator + "requests";
     private static String baseDir;
@@ -58,17 +61,18 @@ public class DSpaceXOAICacheService implements XOAICacheService {
 
     private XOAIManager manager;
 
+    private DSpaceCacheDirectory directory;
+
     public DSpaceXOAICacheService(XOAIManager manager) {
         this.manager = manager;
     }
 
-    private File getCacheFile(String id) {
-        File dir = new File(getBaseDir());
-        if (!dir.exists())
-            dir.mkdirs();
-
-        String name = File.separator + Base64Utils.encode(id);
-        return new File(getBaseDir() + name);
+    private synchronized DSpaceCacheDirectory getDirectory() {
+        if (directory == null)
+            directory = new DSpaceCacheDirectory(new File(getBaseDir()),
+                    ConfigurationManager.getLongProperty("oai", "cache.max.size", 512) * 1024 * 1024,
+                    ConfigurationManager.getLongProperty("oai", "cache.max.age", 0) * 1000);
+        return directory;
     }
 
     @Override
@@ -77,20 +81,16 @@ public class DSpaceXOAICacheService implements XOAICacheService {
     }
 
     @Override
-    public boolean hasCache(String requestID) {
-        return this.getCacheFile(requestID).exists();
+    public InputStream get(String requestID) throws IOException {
+        InputStream in = getDirectory().openIfPresent(requestID);
+        if (in == null)
+            return null;
+        return new SequenceInputStream(
+                new ByteArrayInputStream(getStaticHead(manager, new Date()).getBytes("UTF-8")), in);
     }
 
     @Override
-    public void handle(String requestID, OutputStream out) throws IOException {
-        InputStream in = new FileInputStream(this.getCacheFile(requestID));
-        write(getStaticHead(manager, new Date()), out);
-        copy(in, out);
-        in.close();
-    }
-
-    @Override
-    public void store(String requestID, OAIPMH response) throws IOException {
+    public void store(String requestID, OAIPMH response, OutputStream out) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         try {
             XmlOutputContext context = XmlOutputContext.emptyContext(output, Second);
@@ -98,7 +98,7 @@ public class DSpaceXOAICacheService implements XOAICacheService {
             context.getWriter().flush();
             context.getWriter().close();
 
-            String xoaiResponse = output.toString();
+            String xoaiResponse = output.toString("UTF-8");
 
             // Cutting the header (to allow one to change the response time)
             String end = "</responseDate>";
@@ -106,7 +106,16 @@ public class DSpaceXOAICacheService implements XOAICacheService {
             if (pos > 0)
                 xoaiResponse = xoaiResponse.substring(pos + (end.length()));
 
-            FileUtils.write(this.getCacheFile(requestID), xoaiResponse);
+            DSpaceCacheDirectory.PendingEntry entry = getDirectory().create(requestID);
+            try {
+                write(xoaiResponse, entry, "UTF-8");
+                entry.commit();
+            } finally {
+                entry.close();
+            }
+
+            write(getStaticHead(manager, new Date()), out, "UTF-8");
+            write(xoaiResponse, out, "UTF-8");
         } catch (XMLStreamException e) {
             throw new IOException(e);
         } catch (WritingXmlException e) {
@@ -116,12 +125,12 @@ public class DSpaceXOAICacheService implements XOAICacheService {
 
     @Override
     public void delete(String requestID) {
-        this.getCacheFile(requestID).delete();
+        getDirectory().remove(requestID);
     }
 
     @Override
     public void deleteAll() throws IOException {
-        deleteDirectory(new File(getBaseDir()));
+        getDirectory().clear();
     }
 
 }
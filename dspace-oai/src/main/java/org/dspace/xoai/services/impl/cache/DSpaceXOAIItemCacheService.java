@@ -11,106 +11,89 @@ import com.lyncode.xoai.dataprovider.exceptions.WritingXmlException;
 import com.lyncode.xoai.dataprovider.xml.XmlOutputContext;
 import com.lyncode.xoai.dataprovider.xml.xoai.Metadata;
 import com.lyncode.xoai.dataprovider.xml.xoai.XOAIParser;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.xoai.services.api.cache.XOAIItemCacheService;
 import org.dspace.xoai.services.api.config.ConfigurationService;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 import static com.lyncode.xoai.dataprovider.core.Granularity.Second;
-import static org.apache.commons.io.FileUtils.deleteDirectory;
 
 
+/**
+ * Keeps the compiled metadata of the items, compressed, in the
+ * <code>items</code> directory of <code>cache.dir</code>. Their total size
+ * is bounded by <code>cache.items.max.size</code> (megabytes), the least
+ * recently used items being dropped first, to be compiled again when
+ * needed.
+ */
 public class DSpaceXOAIItemCacheService implements XOAIItemCacheService {
     private static final String ITEMDIR = File.separator + "items";
 
     @Autowired
     ConfigurationService configurationService;
 
-    private String baseDir;
-
-    private String getBaseDir()
-    {
-        if (baseDir == null)
-            baseDir = configurationService.getProperty("oai", "cache.dir") + ITEMDIR;
-        return baseDir;
-    }
-
+    private DSpaceCacheDirectory directory;
 
-    private File getMetadataCache(Item item)
+    private synchronized DSpaceCacheDirectory getDirectory()
     {
-        File dir = new File(getBaseDir());
-        if (!dir.exists())
-            dir.mkdirs();
-
-        String name = File.separator + item.getHandle().replace('/', '_');
-        return new File(getBaseDir() + name);
-    }
-
-
-
-
-    @Override
-    public boolean hasCache(Item item) {
-        return getMetadataCache(item).exists();
+        if (directory == null)
+            directory = new DSpaceCacheDirectory(new File(configurationService.getProperty("oai", "cache.dir") + ITEMDIR),
+                    ConfigurationManager.getLongProperty("oai", "cache.items.max.size", 1024) * 1024 * 1024, 0);
+        return directory;
     }
 
 
-
-
-
     @Override
     public Metadata get(Item item) throws IOException {
-        System.out.println(FileUtils.readFileToString(getMetadataCache(item)));
-        Metadata metadata;
-        FileInputStream input = new FileInputStream(getMetadataCache(item));
+        InputStream input = getDirectory().openIfPresent(item.getHandle());
+        if (input == null)
+            return null;
         try {
-            metadata = XOAIParser.parse(input);
+            return XOAIParser.parse(input);
         } catch (XMLStreamException e) {
             throw new IOException(e);
+        } finally {
+            input.close();
         }
-        input.close();
-        
-        return metadata;
     }
 
 
-
-
-
     @Override
     public void put(Item item, Metadata metadata) throws IOException {
-        FileOutputStream output = new FileOutputStream(getMetadataCache(item));
+        DSpaceCacheDirectory.PendingEntry output = getDirectory().create(item.getHandle());
         try {
-            XmlOutputContext context = XmlOutputContext.emptyContext(output, Second);
+            XmlOutputContext context = XmlOutputContext.emptyContext(new CloseShieldOutputStream(output), Second);
             metadata.write(context);
             context.getWriter().flush();
             context.getWriter().close();
-            
-            output.close();
+
+            output.commit();
         } catch (XMLStreamException e) {
             throw new IOException(e);
         } catch (WritingXmlException e) {
             throw new IOException(e);
+        } finally {
+            output.close();
         }
     }
 
 
     @Override
     public void delete(Item item) {
-        this.getMetadataCache(item).delete();
+        getDirectory().remove(item.getHandle());
     }
 
 
     @Override
     public void deleteAll() throws IOException {
-        deleteDirectory(new File(getBaseDir()));
+        getDirectory().clear();
     }
 
 }
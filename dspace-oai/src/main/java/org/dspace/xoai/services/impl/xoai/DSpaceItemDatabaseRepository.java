@@ -70,10 +70,12 @@ public class DSpaceItemDatabaseRepository extends DSpaceItemRepository
     
     private Metadata getMetadata (org.dspace.content.Item item) throws IOException {
         if (this.useCache) {
-            if (!cacheService.hasCache(item))
-                cacheService.put(item, ItemUtils.retrieveMetadata(item));
-            
-            return cacheService.get(item);
+            Metadata metadata = cacheService.get(item);
+            if (metadata == null) {
+                metadata = ItemUtils.retrieveMetadata(item);
+                cacheService.put(item, metadata);
+            }
+            return metadata;
         } else return ItemUtils.retrieveMetadata(item);
     }
 
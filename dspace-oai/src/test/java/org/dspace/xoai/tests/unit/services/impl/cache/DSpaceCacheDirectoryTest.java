@@ -0,0 +1,158 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xoai.tests.unit.services.impl.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.dspace.xoai.services.impl.cache.DSpaceCacheDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DSpaceCacheDirectoryTest {
+    private static final String CONTENT = "<record>cached response</record>";
+
+    private File dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("oaicache").toFile();
+    }
+
+    @After
+    public void deleteDir() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void storedEntryIsReadBack() throws IOException {
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(dir, 0, 0);
+        assertThat(isCached(underTest, "verb=Identify"), is(false));
+
+        put(underTest, "verb=Identify");
+
+        assertThat(isCached(underTest, "verb=Identify"), is(true));
+        assertThat(read(underTest, "verb=Identify"), is(CONTENT));
+    }
+
+    @Test
+    public void uncommittedEntryIsLeftOut() throws IOException {
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(dir, 0, 0);
+        DSpaceCacheDirectory.PendingEntry entry = underTest.create("verb=Identify");
+        IOUtils.write(CONTENT, entry, "UTF-8");
+        entry.close();
+
+        assertThat(isCached(underTest, "verb=Identify"), is(false));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws IOException {
+        DSpaceCacheDirectory sizing = new DSpaceCacheDirectory(new File(dir, "sizing"), 0, 0);
+        put(sizing, "size");
+        long entrySize = FileUtils.sizeOfDirectory(new File(dir, "sizing"));
+
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(new File(dir, "bounded"), entrySize * 2, 0);
+        put(underTest, "first");
+        put(underTest, "second");
+        assertThat(isCached(underTest, "first"), is(true));
+
+        put(underTest, "third");
+
+        assertThat(isCached(underTest, "first"), is(true));
+        assertThat(isCached(underTest, "second"), is(false));
+        assertThat(isCached(underTest, "third"), is(true));
+    }
+
+    @Test
+    public void indexIsRebuiltFromDirectory() throws IOException {
+        put(new DSpaceCacheDirectory(dir, 0, 0), "verb=ListSets");
+
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(dir, 0, 0);
+
+        assertThat(isCached(underTest, "verb=ListSets"), is(true));
+        assertThat(read(underTest, "verb=ListSets"), is(CONTENT));
+    }
+
+    @Test
+    public void clearRemovesAllEntries() throws IOException {
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(dir, 0, 0);
+        put(underTest, "first");
+        put(underTest, "second");
+
+        underTest.clear();
+
+        assertThat(isCached(underTest, "first"), is(false));
+        assertThat(isCached(underTest, "second"), is(false));
+        assertThat(dir.exists(), is(false));
+    }
+
+    @Test
+    public void openEntryIsReadAfterEviction() throws IOException {
+        DSpaceCacheDirectory sizing = new DSpaceCacheDirectory(new File(dir, "sizing"), 0, 0);
+        put(sizing, "size");
+        long entrySize = FileUtils.sizeOfDirectory(new File(dir, "sizing"));
+
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(new File(dir, "bounded"), entrySize, 0);
+        put(underTest, "first");
+        InputStream in = underTest.openIfPresent("first");
+        try {
+            put(underTest, "second");
+
+            assertThat(isCached(underTest, "first"), is(false));
+            assertThat(IOUtils.toString(in, "UTF-8"), is(CONTENT));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void deletedEntryIsNotOpened() throws IOException {
+        DSpaceCacheDirectory underTest = new DSpaceCacheDirectory(dir, 0, 0);
+        put(underTest, "verb=Identify");
+
+        FileUtils.deleteDirectory(dir);
+
+        assertThat(underTest.openIfPresent("verb=Identify"), is(nullValue()));
+    }
+
+    private static void put(DSpaceCacheDirectory directory, String key) throws IOException {
+        DSpaceCacheDirectory.PendingEntry entry = directory.create(key);
+        try {
+            IOUtils.write(CONTENT, entry, "UTF-8");
+            entry.commit();
+        } finally {
+            entry.close();
+        }
+    }
+
+    private static boolean isCached(DSpaceCacheDirectory directory, String key) throws IOException {
+        InputStream in = directory.openIfPresent(key);
+        if (in == null)
+            return false;
+        in.close();
+        return true;
+    }
+
+    private static String read(DSpaceCacheDirectory directory, String key) throws IOException {
+        InputStream in = directory.openIfPresent(key);
+        try {
+            return IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -9,9 +9,11 @@ package org.dspace.rest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLConnection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -30,9 +32,12 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
+import org.dspace.app.util.RangeRequest;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.content.BitstreamFormat;
@@ -196,6 +201,10 @@ public class BitstreamResource extends Resource
      *            How much bitstreams in list will be. Default value is 100.
      * @param offset
      *            On which index will list starts. Default values is 0.
+     * @param after
+     *            ID of the last bitstream of the previous page. Bitstreams are
+     *            listed in order of ID, starting after it, <code>limit</code>
+     *            bitstreams the user may see unless there are no more.
      * @param headers
      *            If you want to access to item under logged user into context.
      *            In headers must be set header "rest-dspace-token" with passed
@@ -210,40 +219,59 @@ public class BitstreamResource extends Resource
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     public Bitstream[] getBitstreams(@QueryParam("expand") String expand,
             @QueryParam("limit") @DefaultValue("100") Integer limit, @QueryParam("offset") @DefaultValue("0") Integer offset,
+            @QueryParam("after") @DefaultValue("-1") Integer after,
             @QueryParam("userIP") String user_ip, @QueryParam("userAgent") String user_agent,
             @QueryParam("xforwarderfor") String xforwarderfor, @Context HttpHeaders headers, @Context HttpServletRequest request)
             throws WebApplicationException
     {
 
-        log.info("Reading bitstreams.(offset=" + offset + ",limit=" + limit + ")");
+        log.info("Reading bitstreams.(offset=" + offset + ",limit=" + limit + ",after=" + after + ")");
         org.dspace.core.Context context = null;
         List<Bitstream> bitstreams = new ArrayList<Bitstream>();
 
         try
         {
             context = createContext(getUser(headers));
-            org.dspace.content.Bitstream[] dspaceBitstreams = org.dspace.content.Bitstream.findAll(context);
-
-            if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0)))
+            if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0) && (after != null)))
             {
                 log.warn("Pagging was badly set.");
                 limit = 100;
                 offset = 0;
+                after = -1;
             }
 
-            // TODO If bitsream doesnt not exist it throw exception.
-            for (int i = offset; (i < (offset + limit)) && (i < dspaceBitstreams.length); i++)
+            // The database cuts out the pages, read until enough are visible
+            final org.dspace.core.Context pageContext = context;
+            List<org.dspace.content.Bitstream> page = new KeysetPager<org.dspace.content.Bitstream>()
             {
-                if (AuthorizeManager.authorizeActionBoolean(context, dspaceBitstreams[i], org.dspace.core.Constants.READ))
+                @Override
+                protected List<org.dspace.content.Bitstream> fetch(int after, int offset, int limit) throws SQLException
                 {
-                    if (dspaceBitstreams[i].getParentObject() != null)
-                    { // To eliminate bitstreams which cause exception, because of
-                      // reading under administrator permissions
-                        bitstreams.add(new Bitstream(dspaceBitstreams[i], expand));
-                        writeStats(dspaceBitstreams[i], UsageEvent.Action.VIEW, user_ip, user_agent,
-                                xforwarderfor, headers, request, context);
-                    }
+                    return Arrays.asList(org.dspace.content.Bitstream.findAll(pageContext, after, offset, limit));
+                }
+
+                @Override
+                protected int getID(org.dspace.content.Bitstream dspaceBitstream)
+                {
+                    return dspaceBitstream.getID();
+                }
+
+                @Override
+                protected boolean isVisible(org.dspace.content.Bitstream dspaceBitstream) throws SQLException
+                {
+                    // TODO If bitsream doesnt not exist it throw exception.
+                    // Bitstreams without a parent are left out, because they
+                    // cause exception when read under administrator permissions
+                    return AuthorizeManager.authorizeActionBoolean(pageContext, dspaceBitstream,
+                            org.dspace.core.Constants.READ) && dspaceBitstream.getParentObject() != null;
                 }
+            }.page(after, offset, limit);
+
+            for (org.dspace.content.Bitstream dspaceBitstream : page)
+            {
+                bitstreams.add(new Bitstream(dspaceBitstream, expand));
+                writeStats(dspaceBitstream, UsageEvent.Action.VIEW, user_ip, user_agent,
+                        xforwarderfor, headers, request, context);
             }
 
             context.complete();
@@ -280,10 +308,13 @@ public class BitstreamResource extends Resource
      *            If you want to access to item under logged user into context.
      *            In headers must be set header "rest-dspace-token" with passed
      *            token from login method.
-     * @return Returns response with data with content type of file. It can
-     *         return response code NOT_FOUND(404) if there was bad id of
-     *         bitstream. Or response code UNAUTHORIZED(401) if user is not
-     *         allowed to read bitstream.
+     * @return Returns response with data with content type of file. If the
+     *         request has a Range header, only the bytes asked for are read
+     *         and returned with response code PARTIAL_CONTENT(206), or
+     *         REQUESTED_RANGE_NOT_SATISFIABLE(416) if they are past the end of
+     *         the file. It can return response code NOT_FOUND(404) if there was
+     *         bad id of bitstream. Or response code UNAUTHORIZED(401) if user is
+     *         not allowed to read bitstream.
      * @throws WebApplicationException
      *             It is throw in this cases: When was problem with reading file
      *             data. Or was problem with database reading. Or was problem
@@ -299,7 +330,9 @@ public class BitstreamResource extends Resource
 
         log.info("Reading data of bitstream(id=" + bitstreamId + ").");
         org.dspace.core.Context context = null;
-        InputStream inputStream = null;
+        InputStream[] parts = null;
+        RangeRequest range = null;
+        String etag = null;
         String type = null;
 
         try
@@ -307,11 +340,22 @@ public class BitstreamResource extends Resource
             context = createContext(getUser(headers));
             org.dspace.content.Bitstream dspaceBitstream = findBitstream(context, bitstreamId, org.dspace.core.Constants.READ);
 
-            writeStats(dspaceBitstream, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor, headers,
-                    request, context);
+            etag = RangeRequest.getETag(dspaceBitstream.getChecksum());
+            range = RangeRequest.parse(request.getHeader("Range"), request.getHeader("If-Range"), etag, -1,
+                    dspaceBitstream.getSize());
+
+            // A download fetched in many ranges is counted once
+            if (range.includesStart())
+            {
+                writeStats(dspaceBitstream, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor, headers,
+                        request, context);
+            }
 
             log.trace("Bitsream(id=" + bitstreamId + ") data was successfully read.");
-            inputStream = dspaceBitstream.retrieve();
+            if (range.isSatisfiable())
+            {
+                parts = range.retrieve(dspaceBitstream);
+            }
             type = dspaceBitstream.getFormat().getMIMEType();
 
             context.complete();
@@ -341,7 +385,34 @@ public class BitstreamResource extends Resource
             processFinally(context);
         }
 
-        return Response.ok(inputStream).type(type).build();
+        if (!range.isSatisfiable())
+        {
+            return Response.status(RangeRequest.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", range.getContentRange()).header("Accept-Ranges", "bytes").build();
+        }
+
+        ResponseBuilder builder = Response.status(range.getStatus());
+        if (range.isMultipart())
+        {
+            final RangeRequest multipart = range;
+            final InputStream[] streams = parts;
+            final String mimeType = type;
+            builder.entity(new StreamingOutput()
+            {
+                public void write(OutputStream out) throws IOException
+                {
+                    multipart.write(streams, mimeType, out);
+                }
+            });
+        }
+        else
+        {
+            builder.entity(parts[0]);
+        }
+
+        return builder.type(range.getContentType(type)).header("Accept-Ranges", "bytes").header("ETag", etag)
+                .header("Content-Range", range.getContentRange())
+                .header("Content-Length", String.valueOf(range.getContentLength(type))).build();
     }
 
     /**
@@ -10,7 +10,10 @@ package org.dspace.rest;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -139,6 +142,11 @@ public class CollectionsResource extends Resource
      * @param offset
      *            Offset of start index in list of items of collection. Default
      *            value is 0.
+     * @param after
+     *            ID of the last collection of the previous page. If set,
+     *            collections are listed in order of ID, starting after it,
+     *            rather than by name, <code>limit</code> collections the user
+     *            may see unless there are no more.
      * @param headers
      *            If you want to access to collections under logged user into
      *            context. In headers must be set header "rest-dspace-token"
@@ -154,12 +162,13 @@ public class CollectionsResource extends Resource
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     public org.dspace.rest.common.Collection[] getCollections(@QueryParam("expand") String expand,
             @QueryParam("limit") @DefaultValue("100") Integer limit, @QueryParam("offset") @DefaultValue("0") Integer offset,
+            @QueryParam("after") Integer after,
             @QueryParam("userIP") String user_ip, @QueryParam("userAgent") String user_agent,
             @QueryParam("xforwarderfor") String xforwarderfor, @Context HttpHeaders headers, @Context HttpServletRequest request)
             throws WebApplicationException
     {
 
-        log.info("Reading all collections.(offset=" + offset + ",limit=" + limit + ")");
+        log.info("Reading all collections.(offset=" + offset + ",limit=" + limit + ",after=" + after + ")");
         org.dspace.core.Context context = null;
         List<Collection> collections = new ArrayList<Collection>();
 
@@ -174,17 +183,47 @@ public class CollectionsResource extends Resource
                 offset = 0;
             }
 
-            org.dspace.content.Collection[] dspaceCollections = org.dspace.content.Collection.findAll(context, limit, offset);
-            for(org.dspace.content.Collection dspaceCollection : dspaceCollections)
+            // The database cuts out the pages: by ID after a collection, read
+            // until enough are visible, or a single one by name
+            final org.dspace.core.Context pageContext = context;
+            final boolean byID = (after != null);
+            List<org.dspace.content.Collection> page = new KeysetPager<org.dspace.content.Collection>()
             {
-                if (AuthorizeManager.authorizeActionBoolean(context, dspaceCollection, org.dspace.core.Constants.READ))
+                @Override
+                protected List<org.dspace.content.Collection> fetch(int after, int offset, int limit) throws SQLException
                 {
-                    Collection collection = new org.dspace.rest.common.Collection(dspaceCollection, null, context, limit,
-                            offset);
-                    collections.add(collection);
-                    writeStats(dspaceCollection, UsageEvent.Action.VIEW, user_ip, user_agent,
-                            xforwarderfor, headers, request, context);
+                    return Arrays.asList(byID
+                            ? org.dspace.content.Collection.findAll(pageContext, after, offset, limit)
+                            : org.dspace.content.Collection.findAll(pageContext, limit, offset));
                 }
+
+                @Override
+                protected int getID(org.dspace.content.Collection dspaceCollection)
+                {
+                    return dspaceCollection.getID();
+                }
+
+                @Override
+                protected boolean isVisible(org.dspace.content.Collection dspaceCollection) throws SQLException
+                {
+                    return AuthorizeManager.authorizeActionBoolean(pageContext, dspaceCollection,
+                            org.dspace.core.Constants.READ);
+                }
+
+                @Override
+                protected void prepare(List<org.dspace.content.Collection> batch) throws SQLException
+                {
+                    org.dspace.content.DSpaceObject.prefetchMetadata(pageContext, batch);
+                }
+            }.page(byID ? after.intValue() : -1, offset, limit);
+
+            for(org.dspace.content.Collection dspaceCollection : page)
+            {
+                Collection collection = new org.dspace.rest.common.Collection(dspaceCollection, null, context, limit,
+                        offset);
+                collections.add(collection);
+                writeStats(dspaceCollection, UsageEvent.Action.VIEW, user_ip, user_agent,
+                        xforwarderfor, headers, request, context);
             }
             context.complete();
         }
@@ -221,6 +260,14 @@ public class CollectionsResource extends Resource
      * @param offset
      *            Offset of start index in array of items of collection. Default
      *            value is 0.
+     * @param after
+     *            ID of the last item of the previous page. Items are listed in
+     *            order of ID, starting after it, <code>limit</code> items the
+     *            user may see unless there are no more.
+     * @param fields
+     *            Properties of the items to return, separated by commas, for
+     *            example "name,handle". Other properties are not loaded. All
+     *            of them by default.
      * @param headers
      *            If you want to access to collection under logged user into
      *            context. In headers must be set header "rest-dspace-token"
@@ -239,13 +286,15 @@ public class CollectionsResource extends Resource
     @Path("/{collection_id}/items")
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     public org.dspace.rest.common.Item[] getCollectionItems(@PathParam("collection_id") Integer collectionId,
-            @QueryParam("expand") String expand, @QueryParam("limit") @DefaultValue("100") Integer limit,
-            @QueryParam("offset") @DefaultValue("0") Integer offset, @QueryParam("userIP") String user_ip,
+            @QueryParam("expand") String expand, @QueryParam("fields") String fields,
+            @QueryParam("limit") @DefaultValue("100") Integer limit,
+            @QueryParam("offset") @DefaultValue("0") Integer offset, @QueryParam("after") @DefaultValue("-1") Integer after,
+            @QueryParam("userIP") String user_ip,
             @QueryParam("userAgent") String user_agent, @QueryParam("xforwarderfor") String xforwarderfor,
             @Context HttpHeaders headers, @Context HttpServletRequest request) throws WebApplicationException
     {
 
-        log.info("Reading collection(id=" + collectionId + ") items.");
+        log.info("Reading collection(id=" + collectionId + ") items.(offset=" + offset + ",limit=" + limit + ",after=" + after + ")");
         org.dspace.core.Context context = null;
         List<Item> items = null;
 
@@ -257,20 +306,61 @@ public class CollectionsResource extends Resource
             writeStats(dspaceCollection, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor,
                     headers, request, context);
 
-            items = new ArrayList<Item>();
-            org.dspace.content.ItemIterator dspaceItems = dspaceCollection.getItems();
-            for (int i = 0; (dspaceItems.hasNext()) && (i < (limit + offset)); i++)
+            if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0) && (after != null)))
+            {
+                log.warn("Paging was badly set, using default values.");
+                limit = 100;
+                offset = 0;
+                after = -1;
+            }
+
+            // The database cuts out the pages, read until enough are visible
+            final org.dspace.core.Context pageContext = context;
+            final org.dspace.content.Collection pageCollection = dspaceCollection;
+            final String pageExpand = expand;
+            final String pageFields = fields;
+            List<org.dspace.content.Item> page = new KeysetPager<org.dspace.content.Item>()
             {
-                if (i >= offset)
+                @Override
+                protected List<org.dspace.content.Item> fetch(int after, int offset, int limit) throws SQLException
                 {
-                    org.dspace.content.Item dspaceItem = dspaceItems.next();
-                    if (ItemService.isItemListedForUser(context, dspaceItem))
+                    org.dspace.content.ItemIterator dspaceItems = pageCollection.getItems(after, offset, limit);
+                    List<org.dspace.content.Item> batch = new ArrayList<org.dspace.content.Item>();
+                    while (dspaceItems.hasNext())
                     {
-                        items.add(new Item(dspaceItem, expand, context));
-                        writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor,
-                                headers, request, context);
+                        batch.add(dspaceItems.next());
                     }
+                    return batch;
                 }
+
+                @Override
+                protected int getID(org.dspace.content.Item dspaceItem)
+                {
+                    return dspaceItem.getID();
+                }
+
+                @Override
+                protected boolean isVisible(org.dspace.content.Item dspaceItem) throws SQLException
+                {
+                    return ItemService.isItemListedForUser(pageContext, dspaceItem);
+                }
+
+                @Override
+                protected void prepare(List<org.dspace.content.Item> batch) throws SQLException
+                {
+                    // Load what the whole batch needs in a few queries
+                    Item.prefetch(pageContext, batch, pageExpand, pageFields);
+                }
+            }.page(after, offset, limit);
+
+            Map<Integer, Collection> parentCollections = new HashMap<Integer, Collection>();
+            items = new ArrayList<Item>();
+
+            for (org.dspace.content.Item dspaceItem : page)
+            {
+                items.add(new Item(dspaceItem, expand, fields, context, parentCollections));
+                writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor,
+                        headers, request, context);
             }
 
             context.complete();
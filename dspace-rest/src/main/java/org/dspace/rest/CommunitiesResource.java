@@ -10,6 +10,8 @@ package org.dspace.rest;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -125,6 +127,11 @@ public class CommunitiesResource extends Resource
      *            Maximum communities in array. Default value is 100.
      * @param offset
      *            Index from which will start array of communities.
+     * @param after
+     *            ID of the last community of the previous page. If set,
+     *            communities are listed in order of ID, starting after it,
+     *            rather than by name, <code>limit</code> communities the user
+     *            may see unless there are no more.
      * @param headers
      *            If you want to access to community under logged user into
      *            context. In headers must be set header "rest-dspace-token"
@@ -138,12 +145,13 @@ public class CommunitiesResource extends Resource
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     public Community[] getCommunities(@QueryParam("expand") String expand,
             @QueryParam("limit") @DefaultValue("100") Integer limit, @QueryParam("offset") @DefaultValue("0") Integer offset,
+            @QueryParam("after") Integer after,
             @QueryParam("userIP") String user_ip, @QueryParam("userAgent") String user_agent,
             @QueryParam("xforwarderfor") String xforwarderfor, @Context HttpHeaders headers, @Context HttpServletRequest request)
             throws WebApplicationException
     {
 
-        log.info("Reading all communities.(offset=" + offset + " ,limit=" + limit + ").");
+        log.info("Reading all communities.(offset=" + offset + " ,limit=" + limit + " ,after=" + after + ").");
         org.dspace.core.Context context = null;
         ArrayList<Community> communities = null;
 
@@ -151,9 +159,6 @@ public class CommunitiesResource extends Resource
         {
             context = createContext(getUser(headers));
 
-            org.dspace.content.Community[] dspaceCommunities = org.dspace.content.Community.findAll(context);
-            communities = new ArrayList<Community>();
-
             if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0)))
             {
                 log.warn("Paging was badly set, using default values.");
@@ -161,15 +166,47 @@ public class CommunitiesResource extends Resource
                 offset = 0;
             }
 
-            for (int i = offset; (i < (offset + limit)) && i < dspaceCommunities.length; i++)
+            // The database cuts out the pages: by ID after a community, read
+            // until enough are visible, or a single one by name
+            final org.dspace.core.Context pageContext = context;
+            final boolean byID = (after != null);
+            List<org.dspace.content.Community> page = new KeysetPager<org.dspace.content.Community>()
             {
-                if (AuthorizeManager.authorizeActionBoolean(context, dspaceCommunities[i], org.dspace.core.Constants.READ))
+                @Override
+                protected List<org.dspace.content.Community> fetch(int after, int offset, int limit) throws SQLException
                 {
-                    Community community = new Community(dspaceCommunities[i], expand, context);
-                    writeStats(dspaceCommunities[i], UsageEvent.Action.VIEW, user_ip, user_agent,
-                            xforwarderfor, headers, request, context);
-                    communities.add(community);
+                    return Arrays.asList(byID
+                            ? org.dspace.content.Community.findAll(pageContext, after, offset, limit)
+                            : org.dspace.content.Community.findAll(pageContext, limit, offset));
                 }
+
+                @Override
+                protected int getID(org.dspace.content.Community dspaceCommunity)
+                {
+                    return dspaceCommunity.getID();
+                }
+
+                @Override
+                protected boolean isVisible(org.dspace.content.Community dspaceCommunity) throws SQLException
+                {
+                    return AuthorizeManager.authorizeActionBoolean(pageContext, dspaceCommunity,
+                            org.dspace.core.Constants.READ);
+                }
+
+                @Override
+                protected void prepare(List<org.dspace.content.Community> batch) throws SQLException
+                {
+                    org.dspace.content.DSpaceObject.prefetchMetadata(pageContext, batch);
+                }
+            }.page(byID ? after.intValue() : -1, offset, limit);
+            communities = new ArrayList<Community>();
+
+            for (org.dspace.content.Community dspaceCommunity : page)
+            {
+                Community community = new Community(dspaceCommunity, expand, context);
+                writeStats(dspaceCommunity, UsageEvent.Action.VIEW, user_ip, user_agent,
+                        xforwarderfor, headers, request, context);
+                communities.add(community);
             }
 
             context.complete();
@@ -206,6 +243,11 @@ public class CommunitiesResource extends Resource
      * @param offset
      *            Index from which will start array of communities. Default
      *            value is 0.
+     * @param after
+     *            ID of the last community of the previous page. If set,
+     *            communities are listed in order of ID, starting after it,
+     *            rather than by name, <code>limit</code> communities the user
+     *            may see unless there are no more.
      * @param headers
      *            If you want to access to community under logged user into
      *            context. In headers must be set header "rest-dspace-token"
@@ -220,12 +262,13 @@ public class CommunitiesResource extends Resource
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     public Community[] getTopCommunities(@QueryParam("expand") String expand,
             @QueryParam("limit") @DefaultValue("20") Integer limit, @QueryParam("offset") @DefaultValue("0") Integer offset,
+            @QueryParam("after") Integer after,
             @QueryParam("userIP") String user_ip, @QueryParam("userAgent") String user_agent,
             @QueryParam("xforwarderfor") String xforwarderfor, @Context HttpHeaders headers, @Context HttpServletRequest request)
             throws WebApplicationException
     {
 
-        log.info("Reading all top communities.(offset=" + offset + " ,limit=" + limit + ").");
+        log.info("Reading all top communities.(offset=" + offset + " ,limit=" + limit + " ,after=" + after + ").");
         org.dspace.core.Context context = null;
         ArrayList<Community> communities = null;
 
@@ -233,9 +276,6 @@ public class CommunitiesResource extends Resource
         {
             context = createContext(getUser(headers));
 
-            org.dspace.content.Community[] dspaceCommunities = org.dspace.content.Community.findAllTop(context);
-            communities = new ArrayList<Community>();
-
             if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0)))
             {
                 log.warn("Pagging was badly set, using default values.");
@@ -243,15 +283,47 @@ public class CommunitiesResource extends Resource
                 offset = 0;
             }
 
-            for (int i = offset; (i < (offset + limit)) && i < dspaceCommunities.length; i++)
+            // The database cuts out the pages: by ID after a community, read
+            // until enough are visible, or a single one by name
+            final org.dspace.core.Context pageContext = context;
+            final boolean byID = (after != null);
+            List<org.dspace.content.Community> page = new KeysetPager<org.dspace.content.Community>()
             {
-                if (AuthorizeManager.authorizeActionBoolean(context, dspaceCommunities[i], org.dspace.core.Constants.READ))
+                @Override
+                protected List<org.dspace.content.Community> fetch(int after, int offset, int limit) throws SQLException
                 {
-                    Community community = new Community(dspaceCommunities[i], expand, context);
-                    writeStats(dspaceCommunities[i], UsageEvent.Action.VIEW, user_ip, user_agent,
-                            xforwarderfor, headers, request, context);
-                    communities.add(community);
+                    return Arrays.asList(byID
+                            ? org.dspace.content.Community.findAllTop(pageContext, after, offset, limit)
+                            : org.dspace.content.Community.findAllTop(pageContext, limit, offset));
                 }
+
+                @Override
+                protected int getID(org.dspace.content.Community dspaceCommunity)
+                {
+                    return dspaceCommunity.getID();
+                }
+
+                @Override
+                protected boolean isVisible(org.dspace.content.Community dspaceCommunity) throws SQLException
+                {
+                    return AuthorizeManager.authorizeActionBoolean(pageContext, dspaceCommunity,
+                            org.dspace.core.Constants.READ);
+                }
+
+                @Override
+                protected void prepare(List<org.dspace.content.Community> batch) throws SQLException
+                {
+                    org.dspace.content.DSpaceObject.prefetchMetadata(pageContext, batch);
+                }
+            }.page(byID ? after.intValue() : -1, offset, limit);
+            communities = new ArrayList<Community>();
+
+            for (org.dspace.content.Community dspaceCommunity : page)
+            {
+                Community community = new Community(dspaceCommunity, expand, context);
+                writeStats(dspaceCommunity, UsageEvent.Action.VIEW, user_ip, user_agent,
+                        xforwarderfor, headers, request, context);
+                communities.add(community);
             }
 
             context.complete();
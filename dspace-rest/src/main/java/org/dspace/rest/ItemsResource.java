@@ -12,7 +12,9 @@ import java.io.InputStream;
 import java.util.Date;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -42,6 +44,7 @@ import org.dspace.content.Metadatum;
 import org.dspace.content.service.ItemService;
 import org.dspace.eperson.Group;
 import org.dspace.rest.common.Bitstream;
+import org.dspace.rest.common.Collection;
 import org.dspace.rest.common.Item;
 import org.dspace.rest.common.MetadataEntry;
 import org.dspace.rest.exceptions.ContextException;
@@ -74,6 +77,9 @@ public class ItemsResource extends Resource
      *            returned item. Options are separeted by commas and are: "all",
      *            "metadata", "parentCollection", "parentCollectionList",
      *            "parentCommunityList" and "bitstreams".
+     * @param fields
+     *            Properties of the item to return, separated by commas. Other
+     *            properties are not loaded. All of them by default.
      * @param headers
      *            If you want to access to item under logged user into context.
      *            In headers must be set header "rest-dspace-token" with passed
@@ -91,6 +97,7 @@ public class ItemsResource extends Resource
     @Path("/{item_id}")
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     public Item getItem(@PathParam("item_id") Integer itemId, @QueryParam("expand") String expand,
+            @QueryParam("fields") String fields,
             @QueryParam("userIP") String user_ip, @QueryParam("userAgent") String user_agent,
             @QueryParam("xforwarderfor") String xforwarderfor, @Context HttpHeaders headers, @Context HttpServletRequest request)
             throws WebApplicationException
@@ -107,7 +114,7 @@ public class ItemsResource extends Resource
 
             writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor, headers, request, context);
 
-            item = new Item(dspaceItem, expand, context);
+            item = new Item(dspaceItem, expand, fields, context, null);
             context.complete();
             log.trace("Item(id=" + itemId + ") was successfully read.");
 
@@ -131,12 +138,21 @@ public class ItemsResource extends Resource
     /**
      * It returns an array of items in DSpace. You can define how many items in
      * list will be and from which index will start. Items in list are sorted by
-     * handle, not by id.
+     * id. To harvest all items, pass the id of the last item of each page as
+     * after, which costs the same however deep the page is.
      * 
      * @param limit
      *            How many items in array will be. Default value is 100.
      * @param offset
      *            On which index will array start. Default value is 0.
+     * @param after
+     *            ID of the last item of the previous page. The array starts
+     *            with the first item after it, and holds <code>limit</code>
+     *            items the user may see unless there are no more.
+     * @param fields
+     *            Properties of the items to return, separated by commas, for
+     *            example "name,handle". Other properties are not loaded. All
+     *            of them by default.
      * @param headers
      *            If you want to access to item under logged user into context.
      *            In headers must be set header "rest-dspace-token" with passed
@@ -150,13 +166,15 @@ public class ItemsResource extends Resource
      */
     @GET
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
-    public Item[] getItems(@QueryParam("expand") String expand, @QueryParam("limit") @DefaultValue("100") Integer limit,
-            @QueryParam("offset") @DefaultValue("0") Integer offset, @QueryParam("userIP") String user_ip,
+    public Item[] getItems(@QueryParam("expand") String expand, @QueryParam("fields") String fields,
+            @QueryParam("limit") @DefaultValue("100") Integer limit,
+            @QueryParam("offset") @DefaultValue("0") Integer offset, @QueryParam("after") @DefaultValue("-1") Integer after,
+            @QueryParam("userIP") String user_ip,
             @QueryParam("userAgent") String user_agent, @QueryParam("xforwarderfor") String xforwarderfor,
             @Context HttpHeaders headers, @Context HttpServletRequest request) throws WebApplicationException
     {
 
-        log.info("Reading items.(offset=" + offset + ",limit=" + limit + ").");
+        log.info("Reading items.(offset=" + offset + ",limit=" + limit + ",after=" + after + ").");
         org.dspace.core.Context context = null;
         List<Item> items = null;
 
@@ -164,28 +182,60 @@ public class ItemsResource extends Resource
         {
             context = createContext(getUser(headers));
 
-            ItemIterator dspaceItems = org.dspace.content.Item.findAllUnfiltered(context);
-            items = new ArrayList<Item>();
-
-            if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0)))
+            if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0) && (after != null)))
             {
                 log.warn("Pagging was badly set, using default values.");
                 limit = 100;
                 offset = 0;
+                after = -1;
             }
 
-            for (int i = 0; (dspaceItems.hasNext()) && (i < (limit + offset)); i++)
+            // The database cuts out the pages, read until enough are visible
+            final org.dspace.core.Context pageContext = context;
+            final String pageExpand = expand;
+            final String pageFields = fields;
+            List<org.dspace.content.Item> page = new KeysetPager<org.dspace.content.Item>()
             {
-                org.dspace.content.Item dspaceItem = dspaceItems.next();
-                if (i >= offset)
+                @Override
+                protected List<org.dspace.content.Item> fetch(int after, int offset, int limit) throws SQLException
                 {
-                    if (ItemService.isItemListedForUser(context, dspaceItem))
+                    ItemIterator dspaceItems = org.dspace.content.Item.findAllUnfiltered(pageContext, after, offset, limit);
+                    List<org.dspace.content.Item> batch = new ArrayList<org.dspace.content.Item>();
+                    while (dspaceItems.hasNext())
                     {
-                        items.add(new Item(dspaceItem, expand, context));
-                        writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor,
-                                headers, request, context);
+                        batch.add(dspaceItems.next());
                     }
+                    return batch;
+                }
+
+                @Override
+                protected int getID(org.dspace.content.Item dspaceItem)
+                {
+                    return dspaceItem.getID();
+                }
+
+                @Override
+                protected boolean isVisible(org.dspace.content.Item dspaceItem) throws SQLException
+                {
+                    return ItemService.isItemListedForUser(pageContext, dspaceItem);
                 }
+
+                @Override
+                protected void prepare(List<org.dspace.content.Item> batch) throws SQLException
+                {
+                    // Load what the whole batch needs in a few queries
+                    Item.prefetch(pageContext, batch, pageExpand, pageFields);
+                }
+            }.page(after, offset, limit);
+
+            Map<Integer, Collection> parentCollections = new HashMap<Integer, Collection>();
+            items = new ArrayList<Item>();
+
+            for (org.dspace.content.Item dspaceItem : page)
+            {
+                items.add(new Item(dspaceItem, expand, fields, context, parentCollections));
+                writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwarderfor,
+                        headers, request, context);
             }
             context.complete();
         }
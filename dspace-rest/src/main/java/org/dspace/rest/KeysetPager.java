@@ -0,0 +1,109 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts a page of objects the user may see out of a table read in order of ID.
+ * <P>
+ * The database cuts out pages of rows, but some of them may be hidden from the
+ * user, so a page read after an ID can hold fewer visible objects than asked
+ * for, or none at all, though there are more to come. When paging after an
+ * ID, the next rows are read until the page is full or the table is
+ * exhausted, so that a page shorter than the limit always means the end of
+ * the list and the ID of its last object is the cursor of the next page.
+ * <P>
+ * Paging by offset alone (<code>after</code> of -1) reads a single page of
+ * rows, as before, since the offsets of the following pages count rows.
+ *
+ * @param <T>
+ *            type of the objects listed
+ */
+abstract class KeysetPager<T>
+{
+    /**
+     * Read a page of rows from the database.
+     *
+     * @param after
+     *            the ID after which the page starts, or -1
+     * @param offset
+     *            the number of rows to skip after that
+     * @param limit
+     *            the largest number of rows to return
+     * @return the objects of the rows, in order of ID
+     * @throws SQLException
+     */
+    protected abstract List<T> fetch(int after, int offset, int limit) throws SQLException;
+
+    /**
+     * @param object
+     *            an object returned by {@link #fetch}
+     * @return its ID
+     */
+    protected abstract int getID(T object);
+
+    /**
+     * @param object
+     *            an object returned by {@link #fetch}
+     * @return whether the user may see it
+     * @throws SQLException
+     */
+    protected abstract boolean isVisible(T object) throws SQLException;
+
+    /**
+     * Called with each page of rows read, before their visibility is checked,
+     * to load what they need in a few queries. Does nothing by default.
+     *
+     * @param batch
+     *            the objects read
+     * @throws SQLException
+     */
+    protected void prepare(List<T> batch) throws SQLException
+    {
+    }
+
+    /**
+     * Get the visible objects of a page.
+     *
+     * @param after
+     *            the ID after which the page starts, or -1 to page by offset
+     * @param offset
+     *            the number of rows to skip after that
+     * @param limit
+     *            the largest number of objects to return
+     * @return up to <code>limit</code> visible objects, in order of ID
+     * @throws SQLException
+     */
+    public List<T> page(int after, int offset, int limit) throws SQLException
+    {
+        List<T> page = new ArrayList<T>();
+        while (page.size() < limit)
+        {
+            List<T> batch = fetch(after, offset, limit);
+            prepare(batch);
+            for (T object : batch)
+            {
+                if (page.size() < limit && isVisible(object))
+                {
+                    page.add(object);
+                }
+            }
+
+            if (after < 0 || batch.size() < limit)
+            {
+                break;
+            }
+            after = getID(batch.get(batch.size() - 1));
+            offset = 0;
+        }
+        return page;
+    }
+}
@@ -50,12 +50,17 @@ public class Bitstream extends DSpaceObject {
         setup(bitstream, expand);
     }
 
-    public void setup(org.dspace.content.Bitstream bitstream, String expand) throws SQLException{
-        List<String> expandFields = new ArrayList<String>();
-        if(expand != null) {
-            expandFields = Arrays.asList(expand.split(","));
-        }
+    /**
+     * Build a bitstream of an item bundle that is already loaded, without
+     * looking up its bundles and parent again.
+     */
+    public Bitstream(org.dspace.content.Bitstream bitstream, Bundle bundle, String expand) throws SQLException{
+        super(bitstream);
+        bundleName = bundle.getName();
+        setupProperties(bitstream, expand);
+    }
 
+    public void setup(org.dspace.content.Bitstream bitstream, String expand) throws SQLException{
         //A logo bitstream might not have a bundle...
         if(bitstream.getBundles() != null & bitstream.getBundles().length >= 0) {
             if(bitstream.getParentObject().getType() == Constants.ITEM) {
@@ -63,6 +68,15 @@ public class Bitstream extends DSpaceObject {
             }
         }
 
+        setupProperties(bitstream, expand);
+    }
+
+    private void setupProperties(org.dspace.content.Bitstream bitstream, String expand) throws SQLException{
+        List<String> expandFields = new ArrayList<String>();
+        if(expand != null) {
+            expandFields = Arrays.asList(expand.split(","));
+        }
+
         description = bitstream.getDescription();
         format = bitstream.getFormatDescription();
         sizeBytes = bitstream.getSize();
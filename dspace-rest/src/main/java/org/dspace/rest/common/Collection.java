@@ -87,10 +87,14 @@ public class Collection extends DSpaceObject {
                 childItems = collection.getItems();
             }
 
-            items = new ArrayList<Item>();
+            List<org.dspace.content.Item> page = new ArrayList<org.dspace.content.Item>();
             while(childItems.hasNext()) {
-                org.dspace.content.Item item = childItems.next();
+                page.add(childItems.next());
+            }
+            Item.prefetch(context, page, null, null);
 
+            items = new ArrayList<Item>();
+            for(org.dspace.content.Item item : page) {
                 if(ItemService.isItemListedForUser(context, item)) {
                     items.add(new Item(item, null, context));
                 }
@@ -41,12 +41,61 @@ public class DSpaceObject {
     }
 
     public DSpaceObject(org.dspace.content.DSpaceObject dso) {
+        this(dso, null);
+    }
+
+    /**
+     * Build the object with only some of its properties. The id and type are
+     * always set; name and handle only if listed.
+     *
+     * @param dso
+     *            the DSpace object
+     * @param fields
+     *            properties to set, as returned by {@link #parseFields}, or
+     *            <code>null</code> for all of them
+     */
+    public DSpaceObject(org.dspace.content.DSpaceObject dso, List<String> fields) {
         setId(dso.getID());
-        setName(dso.getName());
-        setHandle(dso.getHandle());
+        if(hasField(fields, "name")) {
+            setName(dso.getName());
+        }
+        if(hasField(fields, "handle")) {
+            setHandle(dso.getHandle());
+        }
         setType(dso.getTypeText().toLowerCase());
     }
 
+    /**
+     * Parse the value of a "fields" query parameter.
+     *
+     * @param fields
+     *            comma separated property names, may be <code>null</code>
+     * @return the property names, or <code>null</code> if all the properties
+     *         are wanted
+     */
+    public static List<String> parseFields(String fields) {
+        if(fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        List<String> names = new ArrayList<String>();
+        for(String field : fields.split(",")) {
+            names.add(field.trim());
+        }
+        return names;
+    }
+
+    /**
+     * Whether a property is wanted.
+     *
+     * @param fields
+     *            as returned by {@link #parseFields}
+     * @param field
+     *            name of the property
+     */
+    protected static boolean hasField(List<String> fields, String field) {
+        return fields == null || fields.contains(field);
+    }
+
     public Integer getId() {
         return id;
     }
@@ -12,6 +12,7 @@ import org.dspace.app.util.MetadataExposure;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.content.Bundle;
 import org.dspace.content.Metadatum;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
 
 import javax.ws.rs.WebApplicationException;
@@ -22,6 +23,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created with IntelliJ IDEA.
@@ -48,17 +50,92 @@ public class Item extends DSpaceObject {
     public Item(){}
 
     public Item(org.dspace.content.Item item, String expand, Context context) throws SQLException, WebApplicationException{
-        super(item);
-        setup(item, expand, context);
+        this(item, expand, null, context, null);
     }
 
-    private void setup(org.dspace.content.Item item, String expand, Context context) throws SQLException{
+    /**
+     * Build an item with only some of its properties, so that the others
+     * are never loaded.
+     *
+     * @param item
+     *            the DSpace item
+     * @param expand
+     *            expandable properties to include, comma separated
+     * @param fields
+     *            properties to set, comma separated: "name", "handle",
+     *            "archived", "withdrawn", "lastModified", "metadata",
+     *            "parentCollection", "parentCollectionList",
+     *            "parentCommunityList" and "bitstreams". The id, type and link
+     *            are always set, and expandable properties still need to be
+     *            expanded. <code>null</code> sets all of them.
+     * @param context
+     *            the context
+     * @param parentCollections
+     *            parent collections already built for the other items of the
+     *            same page, by ID, which the item adds its own to; may be
+     *            <code>null</code>
+     */
+    public Item(org.dspace.content.Item item, String expand, String fields, Context context,
+            Map<Integer, Collection> parentCollections) throws SQLException, WebApplicationException{
+        super(item, parseFields(fields));
+        setup(item, expand, parseFields(fields), context, parentCollections);
+    }
+
+    /**
+     * Load in bulk what building the given items will need, instead of one
+     * item at a time: whether the current user may read them, and, depending
+     * on <code>expand</code> and <code>fields</code>, their metadata, handles,
+     * bundles and bitstreams, and whether the user may read the bitstreams.
+     * Call it on a whole page of items before building any of them.
+     *
+     * @param context
+     *            the context
+     * @param items
+     *            the DSpace items of the page
+     * @param expand
+     *            as given to the constructor
+     * @param fields
+     *            as given to the constructor
+     */
+    public static void prefetch(Context context, List<org.dspace.content.Item> items, String expand, String fields) throws SQLException{
         List<String> expandFields = new ArrayList<String>();
         if(expand != null) {
             expandFields = Arrays.asList(expand.split(","));
         }
+        List<String> fieldList = parseFields(fields);
+
+        AuthorizeManager.prefetchAuthorization(context, items, Constants.READ);
+
+        if(hasField(fieldList, "name") || (hasField(fieldList, "metadata")
+                && (expandFields.contains("metadata") || expandFields.contains("all")))) {
+            org.dspace.content.DSpaceObject.prefetchMetadata(context, items);
+        }
+
+        if(hasField(fieldList, "handle")) {
+            org.dspace.content.Item.prefetchHandles(context, items);
+        }
+
+        if(hasField(fieldList, "bitstreams") && (expandFields.contains("bitstreams") || expandFields.contains("all"))) {
+            org.dspace.content.Item.prefetchBundles(context, items);
 
-        if(expandFields.contains("metadata") || expandFields.contains("all")) {
+            List<org.dspace.content.Bitstream> itemBitstreams = new ArrayList<org.dspace.content.Bitstream>();
+            for(org.dspace.content.Item item : items) {
+                for(Bundle bundle : item.getBundles()) {
+                    itemBitstreams.addAll(Arrays.asList(bundle.getBitstreams()));
+                }
+            }
+            AuthorizeManager.prefetchAuthorization(context, itemBitstreams, Constants.READ);
+        }
+    }
+
+    private void setup(org.dspace.content.Item item, String expand, List<String> fields, Context context,
+            Map<Integer, Collection> parentCollections) throws SQLException{
+        List<String> expandFields = new ArrayList<String>();
+        if(expand != null) {
+            expandFields = Arrays.asList(expand.split(","));
+        }
+
+        if(hasField(fields, "metadata") && (expandFields.contains("metadata") || expandFields.contains("all"))) {
             metadata = new ArrayList<MetadataEntry>();
             Metadatum[] dcvs = item.getMetadata(org.dspace.content.Item.ANY, org.dspace.content.Item.ANY, org.dspace.content.Item.ANY, org.dspace.content.Item.ANY);
             for (Metadatum dcv : dcvs) {
@@ -70,17 +147,33 @@ public class Item extends DSpaceObject {
             this.addExpand("metadata");
         }
 
-        this.setArchived(Boolean.toString(item.isArchived()));
-        this.setWithdrawn(Boolean.toString(item.isWithdrawn()));
-        this.setLastModified(item.getLastModified().toString());
+        if(hasField(fields, "archived")) {
+            this.setArchived(Boolean.toString(item.isArchived()));
+        }
+        if(hasField(fields, "withdrawn")) {
+            this.setWithdrawn(Boolean.toString(item.isWithdrawn()));
+        }
+        if(hasField(fields, "lastModified")) {
+            this.setLastModified(item.getLastModified().toString());
+        }
 
-        if(expandFields.contains("parentCollection") || expandFields.contains("all")) {
-            this.parentCollection = new Collection(item.getOwningCollection(), null, context, null, null);
+        if(hasField(fields, "parentCollection") && (expandFields.contains("parentCollection") || expandFields.contains("all"))) {
+            org.dspace.content.Collection owningCollection = item.getOwningCollection();
+            if(parentCollections == null) {
+                this.parentCollection = new Collection(owningCollection, null, context, null, null);
+            } else {
+                // items of the same collection share it
+                this.parentCollection = parentCollections.get(owningCollection.getID());
+                if(this.parentCollection == null) {
+                    this.parentCollection = new Collection(owningCollection, null, context, null, null);
+                    parentCollections.put(owningCollection.getID(), this.parentCollection);
+                }
+            }
         } else {
             this.addExpand("parentCollection");
         }
 
-        if(expandFields.contains("parentCollectionList") || expandFields.contains("all")) {
+        if(hasField(fields, "parentCollectionList") && (expandFields.contains("parentCollectionList") || expandFields.contains("all"))) {
             this.parentCollectionList = new ArrayList<Collection>();
             org.dspace.content.Collection[] collections = item.getCollections();
             for(org.dspace.content.Collection collection : collections) {
@@ -90,7 +183,7 @@ public class Item extends DSpaceObject {
             this.addExpand("parentCollectionList");
         }
 
-        if(expandFields.contains("parentCommunityList") || expandFields.contains("all")) {
+        if(hasField(fields, "parentCommunityList") && (expandFields.contains("parentCommunityList") || expandFields.contains("all"))) {
             this.parentCommunityList = new ArrayList<Community>();
             org.dspace.content.Community[] communities = item.getCommunities();
             for(org.dspace.content.Community community : communities) {
@@ -101,14 +194,14 @@ public class Item extends DSpaceObject {
         }
 
         //TODO: paging - offset, limit
-        if(expandFields.contains("bitstreams") || expandFields.contains("all")) {
+        if(hasField(fields, "bitstreams") && (expandFields.contains("bitstreams") || expandFields.contains("all"))) {
             bitstreams = new ArrayList<Bitstream>();
             Bundle[] bundles = item.getBundles();
             for(Bundle bundle : bundles) {
                 org.dspace.content.Bitstream[] itemBitstreams = bundle.getBitstreams();
                 for(org.dspace.content.Bitstream itemBitstream : itemBitstreams) {
-                    if(AuthorizeManager.authorizeActionBoolean(context, itemBitstream, org.dspace.core.Constants.READ)) {
-                        bitstreams.add(new Bitstream(itemBitstream, null));
+                    if(AuthorizeManager.authorizeActionBoolean(context, itemBitstream, Constants.READ)) {
+                        bitstreams.add(new Bitstream(itemBitstream, bundle, null));
                     }
                 }
             }
@@ -0,0 +1,141 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link KeysetPager}, over a list of IDs some of which are hidden.
+ */
+public class KeysetPagerTest
+{
+    /** IDs 1 to 40 and 100 to 110, of which the multiples of 10 and those from 100 are hidden */
+    private static class Pager extends KeysetPager<Integer>
+    {
+        private final List<Integer> ids = new ArrayList<Integer>();
+
+        private int fetches = 0;
+
+        Pager()
+        {
+            for (int id = 1; id <= 40; id++)
+            {
+                ids.add(id);
+            }
+            for (int id = 100; id <= 110; id++)
+            {
+                ids.add(id);
+            }
+        }
+
+        @Override
+        protected List<Integer> fetch(int after, int offset, int limit)
+        {
+            fetches++;
+            List<Integer> batch = new ArrayList<Integer>();
+            int skipped = 0;
+            for (Integer id : ids)
+            {
+                if (id > after && skipped++ >= offset && batch.size() < limit)
+                {
+                    batch.add(id);
+                }
+            }
+            return batch;
+        }
+
+        @Override
+        protected int getID(Integer id)
+        {
+            return id;
+        }
+
+        @Override
+        protected boolean isVisible(Integer id)
+        {
+            return id % 10 != 0 && id < 100;
+        }
+    }
+
+    /**
+     * Test of page method, of class KeysetPager, when the first rows after
+     * the cursor are all hidden.
+     */
+    @Test
+    public void testPageAfterHiddenRows() throws Exception
+    {
+        Pager pager = new Pager();
+        assertEquals("testPageAfterHiddenRows 0", Arrays.asList(11, 12, 13),
+                pager.page(9, 0, 3));
+
+        pager = new Pager();
+        List<Integer> page = pager.page(29, 0, 1);
+        assertEquals("testPageAfterHiddenRows 1", Arrays.asList(31), page);
+        assertEquals("testPageAfterHiddenRows 2", 2, pager.fetches);
+    }
+
+    /**
+     * Test of page method, of class KeysetPager, at the end of the list.
+     */
+    @Test
+    public void testPageEnd() throws Exception
+    {
+        Pager pager = new Pager();
+        assertEquals("testPageEnd 0", Arrays.asList(37, 38, 39), pager.page(36, 0, 5));
+
+        // Only hidden rows are left: an empty page, once they are all read
+        pager = new Pager();
+        assertTrue("testPageEnd 1", pager.page(39, 0, 3).isEmpty());
+        assertEquals("testPageEnd 2", 5, pager.fetches);
+    }
+
+    /**
+     * Test of page method, of class KeysetPager, walking the whole list.
+     */
+    @Test
+    public void testPageWalk() throws Exception
+    {
+        List<Integer> all = new ArrayList<Integer>();
+        int after = 0;
+        List<Integer> page;
+        do
+        {
+            page = new Pager().page(after, 0, 4);
+            all.addAll(page);
+            if (!page.isEmpty())
+            {
+                after = page.get(page.size() - 1);
+            }
+        }
+        while (page.size() == 4);
+
+        assertEquals("testPageWalk 0", 36, all.size());
+        for (Integer id : all)
+        {
+            assertFalse("testPageWalk 1", id % 10 == 0);
+        }
+    }
+
+    /**
+     * Test of page method, of class KeysetPager, paging by offset, which
+     * reads a single page of rows.
+     */
+    @Test
+    public void testPageByOffset() throws Exception
+    {
+        Pager pager = new Pager();
+        assertEquals("testPageByOffset 0", Arrays.asList(8, 9), pager.page(-1, 7, 3));
+        assertEquals("testPageByOffset 1", 1, pager.fetches);
+    }
+}
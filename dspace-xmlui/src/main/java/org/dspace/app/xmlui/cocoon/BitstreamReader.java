@@ -24,10 +24,9 @@ import org.apache.cocoon.environment.Request;
 import org.apache.cocoon.environment.Response;
 import org.apache.cocoon.environment.SourceResolver;
 import org.apache.cocoon.environment.http.HttpEnvironment;
-import org.apache.cocoon.environment.http.HttpResponse;
 import org.apache.cocoon.reading.AbstractReader;
-import org.apache.cocoon.util.ByteRange;
 import org.apache.commons.lang.StringUtils;
+import org.dspace.app.util.RangeRequest;
 import org.dspace.app.xmlui.utils.AuthenticationUtil;
 import org.dspace.app.xmlui.utils.ContextUtil;
 import org.dspace.authorize.AuthorizeException;
@@ -138,6 +137,15 @@ public class BitstreamReader extends AbstractReader implements Recyclable
     /** The bitstream file */
     protected InputStream bitstreamInputStream;
     
+    /** The parts of the bitstream file to send, for a Range request */
+    protected InputStream[] bitstreamParts;
+    
+    /** The byte ranges asked for, or null if they can't be served */
+    protected RangeRequest byteRange;
+    
+    /** The bitstream's entity tag */
+    protected String bitstreamETag;
+    
     /** The bitstream's reported size */
     protected long bitstreamSize;
     
@@ -362,7 +370,17 @@ public class BitstreamReader extends AbstractReader implements Recyclable
 
                 //End of CitationDocument
             } else {
-                this.bitstreamInputStream = bitstream.retrieve();
+                // Open just the byte ranges asked for, now while the context is open
+                this.bitstreamETag = RangeRequest.getETag(bitstream.getChecksum());
+                this.byteRange = RangeRequest.parse(request.getHeader("Range"),
+                        request.getHeader("If-Range"), bitstreamETag,
+                        (item != null) ? item.getLastModified().getTime() : -1,
+                        bitstream.getSize());
+                if (byteRange.isSatisfiable())
+                {
+                    this.bitstreamParts = byteRange.retrieve(bitstream);
+                    this.bitstreamInputStream = bitstreamParts[0];
+                }
                 this.bitstreamSize = bitstream.getSize();
             }
 
@@ -409,13 +427,17 @@ public class BitstreamReader extends AbstractReader implements Recyclable
             }
             
             // Log that the bitstream has been viewed, this is non-cached and the complexity
-            // of adding it to the sitemap for every possible bitstream uri is not very tractable
-            new DSpace().getEventService().fireEvent(
-                                new UsageEvent(
-                                                UsageEvent.Action.VIEW,
-                                                ObjectModelHelper.getRequest(objectModel),
-                                                ContextUtil.obtainContext(ObjectModelHelper.getRequest(objectModel)),
-                                                bitstream));
+            // of adding it to the sitemap for every possible bitstream uri is not very tractable.
+            // A download fetched in many byte ranges is only logged once.
+            if (byteRange == null || byteRange.includesStart())
+            {
+                new DSpace().getEventService().fireEvent(
+                                    new UsageEvent(
+                                                    UsageEvent.Action.VIEW,
+                                                    ObjectModelHelper.getRequest(objectModel),
+                                                    ContextUtil.obtainContext(ObjectModelHelper.getRequest(objectModel)),
+                                                    bitstream));
+            }
             
             // If we created the database connection close it, otherwise leave it open.
             if (BitstreamReaderOpenedContext)
@@ -555,11 +577,20 @@ public class BitstreamReader extends AbstractReader implements Recyclable
          *
          * 2) We accept partial downloads, thus if you lose a connection halfway
          * through most web browser will enable you to resume downloading the
-         * bitstream.
+         * bitstream. Only the bytes asked for are read from the asset store.
          */
     public void generate() throws IOException, SAXException,
             ProcessingException
     {
+        if (byteRange != null && !byteRange.isSatisfiable())
+        {
+            // Respond with status 416 (Request range not satisfiable)
+            response.setHeader("Content-Range", byteRange.getContentRange());
+            response.setStatus(RangeRequest.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            out.close();
+            return;
+        }
+
         if (this.bitstreamInputStream == null)
         {
             return;
@@ -635,71 +666,29 @@ public class BitstreamReader extends AbstractReader implements Recyclable
                 response.setHeader("Content-Disposition", "attachment;filename=" + '"' + name + '"');
         }
 
-        ByteRange byteRange = null;
-
-        // Turn off partial downloads, they cause problems
-        // and are only rarely used. Specifically some windows pdf
-        // viewers are incapable of handling this request. You can
-        // uncomment the following lines to turn this feature back on.
-
-//        response.setHeader("Accept-Ranges", "bytes");
-//        String ranges = request.getHeader("Range");
-//        if (ranges != null)
-//        {
-//            try
-//            {
-//                ranges = ranges.substring(ranges.indexOf('=') + 1);
-//                byteRange = new ByteRange(ranges);
-//            }
-//            catch (NumberFormatException e)
-//            {
-//                byteRange = null;
-//                if (response instanceof HttpResponse)
-//                {
-//                    // Respond with status 416 (Request range not
-//                    // satisfiable)
-//                    response.setStatus(416);
-//                }
-//            }
-//        }
+        if (byteRange != null)
+        {
+            response.setHeader("Accept-Ranges", "bytes");
+            if (bitstreamETag != null)
+            {
+                response.setHeader("ETag", bitstreamETag);
+            }
+        }
 
         try
         {
-            if (byteRange != null)
+            if (byteRange != null && byteRange.isPartial())
             {
-                String entityLength;
-                String entityRange;
-                if (this.bitstreamSize != -1)
-                {
-                    entityLength = "" + this.bitstreamSize;
-                    entityRange = byteRange.intersection(
-                            new ByteRange(0, this.bitstreamSize)).toString();
-                }
-                else
+                // Response with status 206 (Partial content)
+                response.setStatus(RangeRequest.SC_PARTIAL_CONTENT);
+                if (byteRange.getContentRange() != null)
                 {
-                    entityLength = "*";
-                    entityRange = byteRange.toString();
+                    response.setHeader("Content-Range", byteRange.getContentRange());
                 }
+                response.setHeader("Content-Length",
+                        String.valueOf(byteRange.getContentLength(bitstreamMimeType)));
 
-                response.setHeader("Content-Range", entityRange + "/" + entityLength);
-                if (response instanceof HttpResponse)
-                {
-                    // Response with status 206 (Partial content)
-                    response.setStatus(206);
-                }
-
-                int pos = 0;
-                int posEnd;
-                while ((length = this.bitstreamInputStream.read(buffer)) > -1)
-                {
-                    posEnd = pos + length - 1;
-                    ByteRange intersection = byteRange.intersection(new ByteRange(pos, posEnd));
-                    if (intersection != null)
-                    {
-                        out.write(buffer, (int) intersection.getStart() - pos, (int) intersection.length());
-                    }
-                    pos += length;
-                }
+                byteRange.write(bitstreamParts, bitstreamMimeType, out);
             }
             else
             {
@@ -737,6 +726,10 @@ public class BitstreamReader extends AbstractReader implements Recyclable
      */
     public String getMimeType()
     {
+        if (byteRange != null && bitstreamMimeType != null)
+        {
+            return byteRange.getContentType(bitstreamMimeType);
+        }
         return this.bitstreamMimeType;
     }
     
@@ -747,6 +740,9 @@ public class BitstreamReader extends AbstractReader implements Recyclable
         this.response = null;
         this.request = null;
         this.bitstreamInputStream = null;
+        this.bitstreamParts = null;
+        this.byteRange = null;
+        this.bitstreamETag = null;
         this.bitstreamSize = 0;
         this.bitstreamMimeType = null;
     }
@@ -20,6 +20,7 @@ import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.ContainerNameCache;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.core.Constants;
@@ -237,7 +238,7 @@ public class HandleUtil
             if (pop instanceof Collection)
             {
             	Collection collection = (Collection) pop;
-            	String name = collection.getMetadata("name");
+            	String name = ContainerNameCache.getName(collection);
             	if (name == null || name.length() == 0)
                 {
                     pageMeta.addTrailLink(target, new Message("default", "xmlui.general.untitled"));
@@ -250,7 +251,7 @@ public class HandleUtil
             else if (pop instanceof Community)
             {
             	Community community = (Community) pop;
-            	String name = community.getMetadata("name");
+            	String name = ContainerNameCache.getName(community);
             	if (name == null || name.length() == 0)
                 {
                     pageMeta.addTrailLink(target, new Message("default", "xmlui.general.untitled"));